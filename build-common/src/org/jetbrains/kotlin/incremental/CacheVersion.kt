@@ -22,9 +22,12 @@ import org.jetbrains.kotlin.load.java.JvmBytecodeBinaryVersion
 import org.jetbrains.kotlin.load.kotlin.JvmMetadataVersion
 import java.io.File
 
-private val NORMAL_VERSION = 8
+private val NORMAL_VERSION = 9
 private val EXPERIMENTAL_VERSION = 4
-private val DATA_CONTAINER_VERSION = 2
+private val DATA_CONTAINER_VERSION = 3
+
+// Caches written by different storage engines are incompatible, see IncrementalCompilation.isMappedStorageEnabled
+private val MAPPED_STORAGE_VERSION_OFFSET = 100000000
 
 private val NORMAL_VERSION_FILE_NAME = "format-version.txt"
 private val EXPERIMENTAL_VERSION_FILE_NAME = "experimental-format-version.txt"
@@ -47,7 +50,8 @@ class CacheVersion(
         get() {
             val metadata = JvmMetadataVersion.INSTANCE
             val bytecode = JvmBytecodeBinaryVersion.INSTANCE
-            return ownVersion * 1000000 +
+            val storage = if (IncrementalCompilation.isMappedStorageEnabled()) MAPPED_STORAGE_VERSION_OFFSET else 0
+            return storage + ownVersion * 1000000 +
                    bytecode.major * 10000 + bytecode.minor * 100 +
                    metadata.major * 1000 + metadata.minor
         }
@@ -27,12 +27,31 @@ import org.jetbrains.kotlin.utils.Printer
 import org.jetbrains.kotlin.utils.keysToMap
 import java.io.File
 import java.util.*
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.write
 
 
 open class LookupStorage(private val targetDataDir: File) : BasicMapsOwner() {
     companion object {
         private val DELETED_TO_SIZE_TRESHOLD = 0.5
         private val MINIMUM_GARBAGE_COLLECTIBLE_SIZE = 10000
+
+        // Handing a chunk over to another thread takes about 20us, smaller batches are resolved faster on the calling thread
+        private val PARALLEL_BATCH_THRESHOLD = 256
+        // Deserialization is about two thirds of a read, so more threads don't help much
+        private val MAX_READ_THREADS = 4
+
+        private val readThreads = minOf(Runtime.getRuntime().availableProcessors(), MAX_READ_THREADS)
+
+        private val readExecutor: ExecutorService by lazy {
+            Executors.newFixedThreadPool(readThreads - 1, ThreadFactory { Thread(it, "Kotlin lookup reader").apply { isDaemon = true } })
+        }
     }
 
     private val String.storageFile: File
@@ -43,6 +62,9 @@ open class LookupStorage(private val targetDataDir: File) : BasicMapsOwner() {
     private val fileToId = registerMap(FileToIdMap("file-to-id".storageFile))
     private val lookupMap = registerMap(LookupMap("lookups".storageFile))
 
+    // Maps are thread-safe by themselves, the lock keeps them consistent with each other
+    private val lock = ReentrantReadWriteLock()
+
     @Volatile
     private var size: Int = 0
 
@@ -57,67 +79,99 @@ open class LookupStorage(private val targetDataDir: File) : BasicMapsOwner() {
         }
     }
 
-    @Synchronized
     fun get(lookupSymbol: LookupSymbol): Collection<String> {
-        val key = LookupSymbolKey(lookupSymbol.name, lookupSymbol.scope)
-        val fileIds = lookupMap[key] ?: return emptySet()
+        lock.read {
+            val fileIds = lookupMap[LookupSymbolKey(lookupSymbol.name, lookupSymbol.scope)] ?: return emptySet()
 
-        return fileIds.mapNotNull {
-            // null means it's outdated
-            idToFile[it]?.path
+            return fileIds.mapNotNullTo(ArrayList<String>(fileIds.cardinality())) {
+                // null means it's outdated
+                idToFile[it]?.path
+            }
         }
     }
 
-    @Synchronized
-    fun addAll(lookups: Set<Map.Entry<LookupSymbol, Collection<String>>>, allPaths: Set<String>) {
-        val pathToId = allPaths.keysToMap { addFileIfNeeded(File(it)) }
+    /**
+     * Same as [get] for each of [lookupSymbols], but each file id is resolved only once for the whole batch,
+     * and the lookups of large batches are deserialized in parallel if the storage allows it.
+     */
+    fun getAll(lookupSymbols: Collection<LookupSymbol>): Map<LookupSymbol, Collection<String>> {
+        lock.read {
+            val symbols = lookupSymbols.toList()
+            val fileIds = symbols.mapInParallelIf(lookupMap.supportsConcurrentReads) { lookupMap[LookupSymbolKey(it.name, it.scope)] }
+
+            val allFileIds = BitSet()
+            fileIds.forEach { if (it != null) allFileIds.or(it) }
+            val paths = HashMap<Int, String>(allFileIds.cardinality())
+            allFileIds.forEachBit { id ->
+                // null means it's outdated
+                val path = idToFile[id]?.path
+                if (path != null) paths[id] = path
+            }
 
-        for ((lookupSymbol, paths) in lookups) {
-            val key = LookupSymbolKey(lookupSymbol.name, lookupSymbol.scope)
-            val fileIds = paths.mapTo(HashSet<Int>()) { pathToId[it]!! }
-            fileIds.addAll(lookupMap[key] ?: emptySet())
-            lookupMap[key] = fileIds
+            val result = LinkedHashMap<LookupSymbol, Collection<String>>(symbols.size)
+            for ((i, symbol) in symbols.withIndex()) {
+                val symbolFileIds = fileIds[i]
+                result[symbol] = if (symbolFileIds == null) emptySet()
+                                 else symbolFileIds.mapNotNullTo(ArrayList<String>(symbolFileIds.cardinality())) { paths[it] }
+            }
+            return result
+        }
+    }
+
+    fun addAll(lookups: Set<Map.Entry<LookupSymbol, Collection<String>>>, allPaths: Set<String>) {
+        lock.write {
+            val pathToId = allPaths.keysToMap { addFileIfNeeded(File(it)) }
+
+            for ((lookupSymbol, paths) in lookups) {
+                val key = LookupSymbolKey(lookupSymbol.name, lookupSymbol.scope)
+                val fileIds = lookupMap[key] ?: BitSet()
+                paths.forEach { fileIds.set(pathToId[it]!!) }
+                lookupMap[key] = fileIds
+            }
         }
     }
 
-    @Synchronized
     fun removeLookupsFrom(files: Sequence<File>) {
-        for (file in files) {
-            val id = fileToId[file] ?: continue
-            idToFile.remove(id)
-            fileToId.remove(file)
-            deletedCount++
+        lock.write {
+            for (file in files) {
+                val id = fileToId[file] ?: continue
+                idToFile.remove(id)
+                fileToId.remove(file)
+                deletedCount++
+            }
         }
     }
 
-    @Synchronized
     override fun clean() {
-        if (countersFile.exists()) {
-            countersFile.delete()
-        }
+        lock.write {
+            if (countersFile.exists()) {
+                countersFile.delete()
+            }
 
-        size = 0
-        deletedCount = 0
+            size = 0
+            deletedCount = 0
 
-        super.clean()
+            super.clean()
+        }
     }
 
-    @Synchronized
     override fun flush(memoryCachesOnly: Boolean) {
-        try {
-            removeGarbageIfNeeded()
+        lock.write {
+            try {
+                removeGarbageIfNeeded()
 
-            if (size > 0) {
-                if (!countersFile.exists()) {
-                    countersFile.parentFile.mkdirs()
-                    countersFile.createNewFile()
-                }
+                if (size > 0) {
+                    if (!countersFile.exists()) {
+                        countersFile.parentFile.mkdirs()
+                        countersFile.createNewFile()
+                    }
 
-                countersFile.writeText("$size\n$deletedCount")
+                    countersFile.writeText("$size\n$deletedCount")
+                }
+            }
+            finally {
+                super.flush(memoryCachesOnly)
             }
-        }
-        finally {
-            super.flush(memoryCachesOnly)
         }
     }
 
@@ -139,7 +193,7 @@ open class LookupStorage(private val targetDataDir: File) : BasicMapsOwner() {
 
     private fun doRemoveGarbage() {
         for (hash in lookupMap.keys) {
-            lookupMap[hash] = lookupMap[hash]!!.filter { it in idToFile }.toSet()
+            lookupMap[hash] = lookupMap[hash]!!.filterTo(BitSet()) { it in idToFile }
         }
 
         val oldFileToId = fileToId.toMap()
@@ -155,19 +209,19 @@ open class LookupStorage(private val targetDataDir: File) : BasicMapsOwner() {
         }
 
         for (lookup in lookupMap.keys) {
-            val fileIds = lookupMap[lookup]!!.mapNotNull { oldIdToNewId[it] }.toSet()
+            val fileIds = lookupMap[lookup]!!.mapNotNull { oldIdToNewId[it] }
 
             if (fileIds.isEmpty()) {
                 lookupMap.remove(lookup)
             }
             else {
-                lookupMap[lookup] = fileIds
+                lookupMap[lookup] = BitSet().apply { fileIds.forEach { set(it) } }
             }
         }
     }
 
     @TestOnly fun forceGC() {
-        removeGarbageIfNeeded(force = true)
+        lock.write { removeGarbageIfNeeded(force = true) }
         flush(false)
     }
 
@@ -194,6 +248,58 @@ open class LookupStorage(private val targetDataDir: File) : BasicMapsOwner() {
 
         return sb.toString()
     }
+
+    private inline fun BitSet.forEachBit(action: (Int) -> Unit) {
+        var bit = nextSetBit(0)
+        while (bit >= 0) {
+            action(bit)
+            bit = nextSetBit(bit + 1)
+        }
+    }
+
+    private inline fun <C : MutableCollection<R>, R : Any> BitSet.mapNotNullTo(destination: C, transform: (Int) -> R?): C {
+        forEachBit { bit -> transform(bit)?.let { destination.add(it) } }
+        return destination
+    }
+
+    private inline fun <C : MutableCollection<R>, R> BitSet.mapTo(destination: C, transform: (Int) -> R): C {
+        forEachBit { bit -> destination.add(transform(bit)) }
+        return destination
+    }
+
+    private inline fun <R : Any> BitSet.mapNotNull(transform: (Int) -> R?): List<R> = mapNotNullTo(ArrayList<R>(), transform)
+
+    private inline fun <R> BitSet.map(transform: (Int) -> R): List<R> = mapTo(ArrayList<R>(), transform)
+
+    private inline fun BitSet.filterTo(destination: BitSet, predicate: (Int) -> Boolean): BitSet {
+        forEachBit { bit -> if (predicate(bit)) destination.set(bit) }
+        return destination
+    }
+
+    // The first chunk is mapped on the calling thread, the rest on the read executor
+    private fun <T, R> List<T>.mapInParallelIf(condition: Boolean, transform: (T) -> R): List<R> {
+        if (!condition || size < PARALLEL_BATCH_THRESHOLD || readThreads < 2) return map(transform)
+
+        val chunkSize = (size + readThreads - 1) / readThreads
+        val futures = (chunkSize..size - 1 step chunkSize).map { from ->
+            readExecutor.submit(Callable { subList(from, minOf(from + chunkSize, size)).map(transform) })
+        }
+
+        val result = ArrayList<R>(size)
+        try {
+            subList(0, chunkSize).mapTo(result, transform)
+            for (future in futures) {
+                result.addAll(future.get())
+            }
+        }
+        catch (e: ExecutionException) {
+            throw e.cause ?: e
+        }
+        finally {
+            futures.forEach { it.cancel(false) }
+        }
+        return result
+    }
 }
 
 class LookupTrackerImpl(private val delegate: LookupTracker) : LookupTracker {
@@ -225,8 +225,8 @@ fun mapLookupSymbolsToFiles(
 ): Set<File> {
     val dirtyFiles = HashSet<File>()
 
-    for (lookup in lookupSymbols) {
-        val affectedFiles = lookupStorage.get(lookup).map(::File).filter { it !in excludes }
+    for ((lookup, paths) in lookupStorage.getAll(lookupSymbols.toSet())) {
+        val affectedFiles = paths.map(::File).filter { it !in excludes }
         reporter.report { "${lookup.scope}#${lookup.name} caused recompilation of: ${reporter.pathsAsString(affectedFiles)}" }
         dirtyFiles.addAll(affectedFiles)
     }
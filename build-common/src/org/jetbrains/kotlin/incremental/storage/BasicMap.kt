@@ -28,7 +28,10 @@ abstract class BasicMap<K : Comparable<K>, V>(
         keyDescriptor: KeyDescriptor<K>,
         valueExternalizer: DataExternalizer<V>
 ) {
-    protected val storage = LazyStorage(storageFile, keyDescriptor, valueExternalizer)
+    protected val storage = createLazyStorage(storageFile, keyDescriptor, valueExternalizer)
+
+    val supportsConcurrentReads: Boolean
+        get() = storage.supportsConcurrentReads
 
     fun clean() {
         storage.clean()
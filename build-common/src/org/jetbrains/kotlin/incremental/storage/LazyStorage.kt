@@ -20,19 +20,66 @@ import com.intellij.util.io.DataExternalizer
 import com.intellij.util.io.IOUtil
 import com.intellij.util.io.KeyDescriptor
 import com.intellij.util.io.PersistentHashMap
+import org.jetbrains.kotlin.config.IncrementalCompilation
 import java.io.DataOutput
 import java.io.File
 import java.io.IOException
 
+/**
+ * Storage behind incremental caches, which creates files only on write
+ */
+interface LazyStorage<K, V> {
+    val keys: Collection<K>
+
+    /**
+     * True if [get] called on several threads doesn't do all the work under one lock, e.g. values are deserialized outside of it
+     */
+    val supportsConcurrentReads: Boolean
+        get() = false
+
+    operator fun contains(key: K): Boolean
+
+    operator fun get(key: K): V?
+
+    operator fun set(key: K, value: V)
+
+    fun remove(key: K)
+
+    fun append(key: K, value: String) {
+        append(key) { out -> IOUtil.writeUTF(out, value) }
+    }
+
+    fun append(key: K, value: Int) {
+        append(key) { out -> out.writeInt(value) }
+    }
+
+    fun append(key: K, append: (DataOutput) -> Unit)
+
+    fun clean()
+
+    fun flush(memoryCachesOnly: Boolean)
+
+    fun close()
+}
+
+fun <K, V> createLazyStorage(
+        storageFile: File,
+        keyDescriptor: KeyDescriptor<K>,
+        valueExternalizer: DataExternalizer<V>
+): LazyStorage<K, V> =
+        if (IncrementalCompilation.isMappedStorageEnabled())
+            MappedLazyStorage(storageFile, keyDescriptor, valueExternalizer)
+        else
+            PersistentHashMapLazyStorage(storageFile, keyDescriptor, valueExternalizer)
 
 /**
  * It's lazy in a sense that PersistentHashMap is created only on write
  */
-class LazyStorage<K, V>(
+class PersistentHashMapLazyStorage<K, V>(
         private val storageFile: File,
         private val keyDescriptor: KeyDescriptor<K>,
         private val valueExternalizer: DataExternalizer<V>
-) {
+) : LazyStorage<K, V> {
     @Volatile
     private var storage: PersistentHashMap<K, V>? = null
 
@@ -57,33 +104,25 @@ class LazyStorage<K, V>(
         return storage!!
     }
 
-    val keys: Collection<K>
+    override val keys: Collection<K>
         get() = getStorageIfExists()?.allKeysWithExistingMapping ?: listOf()
 
-    operator fun contains(key: K): Boolean =
+    override operator fun contains(key: K): Boolean =
             getStorageIfExists()?.containsMapping(key) ?: false
 
-    operator fun get(key: K): V? =
+    override operator fun get(key: K): V? =
             getStorageIfExists()?.get(key)
 
-    operator fun set(key: K, value: V) {
+    override operator fun set(key: K, value: V) {
         getStorageOrCreateNew().put(key, value)
     }
 
-    fun remove(key: K) {
+    override fun remove(key: K) {
         getStorageIfExists()?.remove(key)
     }
 
-    fun append(key: K, value: String) {
-        append(key) { out -> IOUtil.writeUTF(out, value) }
-    }
-
-    fun append(key: K, value: Int) {
-        append(key) { out -> out.writeInt(value) }
-    }
-
     @Synchronized
-    fun clean() {
+    override fun clean() {
         try {
             storage?.close()
         }
@@ -95,7 +134,7 @@ class LazyStorage<K, V>(
     }
 
     @Synchronized
-    fun flush(memoryCachesOnly: Boolean) {
+    override fun flush(memoryCachesOnly: Boolean) {
         val existingStorage = storage ?: return
 
         if (memoryCachesOnly) {
@@ -109,14 +148,14 @@ class LazyStorage<K, V>(
     }
 
     @Synchronized
-    fun close() {
+    override fun close() {
         storage?.close()
     }
 
     private fun createMap(): PersistentHashMap<K, V> =
             PersistentHashMap(storageFile, keyDescriptor, valueExternalizer)
 
-    private fun append(key: K, append: (DataOutput)->Unit) {
+    override fun append(key: K, append: (DataOutput) -> Unit) {
         getStorageOrCreateNew().appendData(key, append)
     }
 }
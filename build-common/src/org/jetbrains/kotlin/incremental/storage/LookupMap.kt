@@ -17,19 +17,16 @@
 package org.jetbrains.kotlin.incremental.storage
 
 import java.io.File
+import java.util.*
 
-internal class LookupMap(storage: File) : BasicMap<LookupSymbolKey, Collection<Int>>(storage, LookupSymbolKeyDescriptor, IntCollectionExternalizer) {
+internal class LookupMap(storage: File) : BasicMap<LookupSymbolKey, BitSet>(storage, LookupSymbolKeyDescriptor, IntBitSetExternalizer) {
     override fun dumpKey(key: LookupSymbolKey): String = key.toString()
 
-    override fun dumpValue(value: Collection<Int>): String = value.toString()
+    override fun dumpValue(value: BitSet): String = value.toString()
 
-    fun add(name: String, scope: String, fileId: Int) {
-        storage.append(LookupSymbolKey(name, scope), fileId)
-    }
-
-    operator fun get(key: LookupSymbolKey): Collection<Int>? = storage[key]
+    operator fun get(key: LookupSymbolKey): BitSet? = storage[key]
 
-    operator fun set(key: LookupSymbolKey, fileIds: Set<Int>) {
+    operator fun set(key: LookupSymbolKey, fileIds: BitSet) {
         storage[key] = fileIds
     }
 
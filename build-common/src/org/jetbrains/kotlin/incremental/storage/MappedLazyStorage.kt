@@ -0,0 +1,631 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.incremental.storage
+
+import com.intellij.openapi.diagnostic.Logger
+import com.intellij.util.io.DataExternalizer
+import com.intellij.util.io.KeyDescriptor
+import java.io.*
+import java.nio.ByteBuffer
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * Storage which keeps records in memory-mapped append-only segment files and finds the last record of a key
+ * with an open-addressed index, which is a memory-mapped file as well.
+ *
+ * Put, append and remove only add a record to the end of the last segment and update an index slot, so there's nothing
+ * to serialize on flush or close except forcing the mapped pages, and opening a cleanly closed storage only maps the files.
+ * Records replaced or removed by later ones are compacted on a full flush when they take more than a half of the data.
+ *
+ * If the storage wasn't flushed (e.g. the process was killed), the index is rebuilt by scanning the segments.
+ *
+ * Compaction writes the live records to segments of the other generation and a new index next to the current files,
+ * and then renames the new index over the current one. Until then the current files are intact, so a storage which was
+ * interrupted during compaction is opened with either the old or the new data, never with a mix of them.
+ */
+class MappedLazyStorage<K, V>(
+        private val storageFile: File,
+        private val keyDescriptor: KeyDescriptor<K>,
+        private val valueExternalizer: DataExternalizer<V>
+) : LazyStorage<K, V> {
+    private companion object {
+        val INDEX_MAGIC = 0x4b4d4958 // "KMIX"
+        val INDEX_VERSION = 2
+
+        // Index header
+        val CLEAN_OFFSET = 8
+        val CAPACITY_OFFSET = 12
+        val SIZE_OFFSET = 16
+        val USED_OFFSET = 20
+        val SEGMENT_COUNT_OFFSET = 24
+        val WRITE_POSITION_OFFSET = 28
+        val LIVE_BYTES_OFFSET = 32
+        val TOTAL_BYTES_OFFSET = 40
+        val GENERATION_OFFSET = 48
+        val INDEX_HEADER_SIZE = 56
+
+        // Index slot: hash code of the key and address of its last record
+        val SLOT_SIZE = 12
+        val INITIAL_CAPACITY = 1024
+        val EMPTY = 0L
+        val REMOVED = -1L
+
+        // Segment starts with a header, so that a record address is never EMPTY
+        val SEGMENT_HEADER_SIZE = 8
+        val MIN_SEGMENT_SIZE = 64 * 1024
+        val MAX_SEGMENT_SIZE = 16 * 1024 * 1024
+
+        // Record: size, kind, address of the previous record of the key, key size, key and value bytes
+        val RECORD_HEADER_SIZE = 4 + 1 + 8 + 4
+        val PUT: Byte = 1
+        val APPEND: Byte = 2
+        val REMOVE: Byte = 3
+        val NO_PREVIOUS = -1L
+
+        val MIN_COMPACTION_SIZE = 1024 * 1024L
+
+        fun address(segment: Int, position: Int): Long = (segment.toLong() shl 32) or position.toLong()
+        fun segmentOf(address: Long): Int = (address ushr 32).toInt()
+        fun positionOf(address: Long): Int = address.toInt()
+    }
+
+    private val indexFile = File(storageFile.path + ".index")
+    // Index of compacted data, which isn't committed yet
+    private val newIndexFile = File(storageFile.path + ".index.new")
+
+    private var index: MappedByteBuffer? = null
+    // The file which is mapped to the index, it's the new index during compaction
+    private var mappedIndexFile = indexFile
+    private val segments = arrayListOf<MappedByteBuffer>()
+    // Segments of generations 0 and 1 are used in turn, so that compacted data never overwrites the current one
+    private var generation = 0
+
+    private fun segmentFile(segment: Int, generation: Int = this.generation) = File(storageFile.path + "." + generation + ".s" + segment)
+
+    override val keys: Collection<K>
+        @Synchronized get() {
+            val index = openIfExists() ?: return listOf()
+            val result = arrayListOf<K>()
+            for (slot in 0..capacity(index) - 1) {
+                val address = index.getLong(slotOffset(slot) + 4)
+                if (address != EMPTY && address != REMOVED) {
+                    result.add(readKey(address))
+                }
+            }
+            return result
+        }
+
+    @Synchronized
+    override operator fun contains(key: K): Boolean {
+        val index = openIfExists() ?: return false
+        return findSlot(index, key, keyDescriptor.getHashCode(key)) >= 0
+    }
+
+    // Only the bytes are read under the lock, so that values can be deserialized on several threads
+    override val supportsConcurrentReads: Boolean
+        get() = true
+
+    override operator fun get(key: K): V? {
+        val bytes = getValueBytes(key) ?: return null
+        return valueExternalizer.read(DataInputStream(ByteArrayInputStream(bytes)))
+    }
+
+    @Synchronized
+    private fun getValueBytes(key: K): ByteArray? {
+        val index = openIfExists() ?: return null
+        val slot = findSlot(index, key, keyDescriptor.getHashCode(key))
+        if (slot < 0) return null
+
+        return readValue(index.getLong(slotOffset(slot) + 4))
+    }
+
+    @Synchronized
+    override operator fun set(key: K, value: V) {
+        val bytes = ByteArrayOutputStream()
+        valueExternalizer.save(DataOutputStream(bytes), value)
+        write(key, PUT, bytes.toByteArray())
+    }
+
+    @Synchronized
+    override fun append(key: K, append: (DataOutput) -> Unit) {
+        val bytes = ByteArrayOutputStream()
+        val output = DataOutputStream(bytes)
+        append(output)
+        output.flush()
+        write(key, APPEND, bytes.toByteArray())
+    }
+
+    @Synchronized
+    override fun remove(key: K) {
+        val index = openIfExists() ?: return
+        if (findSlot(index, key, keyDescriptor.getHashCode(key)) >= 0) {
+            write(key, REMOVE, ByteArray(0))
+        }
+    }
+
+    @Synchronized
+    override fun clean() {
+        unmapAll()
+        deleteFiles()
+    }
+
+    @Synchronized
+    override fun flush(memoryCachesOnly: Boolean) {
+        // There are no caches on heap, mapped pages are managed by OS
+        if (memoryCachesOnly) return
+
+        val index = index ?: return
+        if (index.getInt(CLEAN_OFFSET) == 1) return
+
+        val liveBytes = index.getLong(LIVE_BYTES_OFFSET)
+        val totalBytes = index.getLong(TOTAL_BYTES_OFFSET)
+        if (totalBytes > MIN_COMPACTION_SIZE && liveBytes * 2 < totalBytes) {
+            compact()
+        }
+
+        val actualIndex = this.index ?: return
+        segments.forEach { it.force() }
+        actualIndex.putInt(CLEAN_OFFSET, 1)
+        actualIndex.force()
+    }
+
+    @Synchronized
+    override fun close() {
+        flush(memoryCachesOnly = false)
+        unmapAll()
+    }
+
+    private fun openIfExists(): MappedByteBuffer? {
+        if (index == null && (indexFile.exists() || newIndexFile.exists())) {
+            open()
+        }
+        return index
+    }
+
+    private fun openOrCreate(): MappedByteBuffer {
+        if (index == null) {
+            open()
+        }
+        return index!!
+    }
+
+    private fun open() {
+        if (!indexFile.exists() && newIndexFile.exists()) {
+            // Compaction was interrupted after the old index had been deleted, but before the new one was renamed
+            newIndexFile.renameTo(indexFile)
+        }
+        else {
+            // Compaction was interrupted before the new index was committed, the current data is intact
+            newIndexFile.delete()
+        }
+
+        val existing = indexFile.exists()
+        var headerGeneration = -1
+        if (existing) {
+            val mapped = map(indexFile, indexFile.length())
+            if (mapped.capacity() >= INDEX_HEADER_SIZE && mapped.getInt(0) == INDEX_MAGIC && mapped.getInt(4) == INDEX_VERSION) {
+                headerGeneration = mapped.getInt(GENERATION_OFFSET)
+                if (mapped.getInt(CLEAN_OFFSET) == 1) {
+                    index = mapped
+                    generation = headerGeneration
+                    for (segment in 0..mapped.getInt(SEGMENT_COUNT_OFFSET) - 1) {
+                        segments.add(map(segmentFile(segment), segmentFile(segment).length()))
+                    }
+                    deleteSegments(1 - generation)
+                    return
+                }
+            }
+            unmap(mapped)
+        }
+
+        generation = if (headerGeneration >= 0) headerGeneration else guessGeneration()
+        index = createIndex(indexFile, INITIAL_CAPACITY)
+        if (existing) {
+            rebuildIndex()
+        }
+        deleteSegments(1 - generation)
+    }
+
+    // The header of the index is broken, so the segments are those written last
+    private fun guessGeneration(): Int {
+        val first = segmentFile(0, generation = 0)
+        val second = segmentFile(0, generation = 1)
+        return if (second.exists() && (!first.exists() || second.lastModified() > first.lastModified())) 1 else 0
+    }
+
+    private fun createIndex(file: File, capacity: Int): MappedByteBuffer {
+        val index = mapNew(file, INDEX_HEADER_SIZE.toLong() + capacity.toLong() * SLOT_SIZE)
+        index.putInt(0, INDEX_MAGIC)
+        index.putInt(4, INDEX_VERSION)
+        index.putInt(CLEAN_OFFSET, 1)
+        index.putInt(CAPACITY_OFFSET, capacity)
+        index.putInt(GENERATION_OFFSET, generation)
+        return index
+    }
+
+    // Called when the storage wasn't closed properly, so the index can't be trusted
+    private fun rebuildIndex() {
+        var segment = 0
+        var position = SEGMENT_HEADER_SIZE
+        while (segmentFile(segment).exists()) {
+            val buffer = map(segmentFile(segment), segmentFile(segment).length())
+            segments.add(buffer)
+
+            position = SEGMENT_HEADER_SIZE
+            while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+                val size = buffer.getInt(position)
+                if (size < RECORD_HEADER_SIZE || position + size > buffer.capacity()) break
+
+                val address = address(segment, position)
+                val key = readKey(address)
+                val hash = keyDescriptor.getHashCode(key)
+                val slot = findSlot(index!!, key, hash)
+                when {
+                    buffer.get(position + 4) == REMOVE -> if (slot >= 0) removeSlot(slot)
+                    slot >= 0 -> index!!.putLong(slotOffset(slot) + 4, address)
+                    else -> insertSlot(hash, address)
+                }
+                position += size
+            }
+            segment++
+        }
+
+        val index = index!!
+        var liveBytes = 0L
+        for (slot in 0..capacity(index) - 1) {
+            val address = index.getLong(slotOffset(slot) + 4)
+            if (address != EMPTY && address != REMOVED) {
+                liveBytes += chainSize(address)
+            }
+        }
+        var totalBytes = 0L
+        for (i in 0..segment - 1) {
+            totalBytes += if (i == segment - 1) position else segments[i].capacity()
+        }
+
+        index.putInt(SEGMENT_COUNT_OFFSET, segment)
+        index.putInt(WRITE_POSITION_OFFSET, position)
+        index.putLong(LIVE_BYTES_OFFSET, liveBytes)
+        index.putLong(TOTAL_BYTES_OFFSET, totalBytes)
+        index.putInt(CLEAN_OFFSET, 0)
+    }
+
+    private fun write(key: K, kind: Byte, value: ByteArray) {
+        val keyBytes = ByteArrayOutputStream()
+        keyDescriptor.save(DataOutputStream(keyBytes), key)
+
+        markDirty()
+        val hash = keyDescriptor.getHashCode(key)
+        val slot = findSlot(index!!, key, hash)
+        val previous = if (slot >= 0) index!!.getLong(slotOffset(slot) + 4) else NO_PREVIOUS
+        val actualKind = if (kind == APPEND && previous == NO_PREVIOUS) PUT else kind
+
+        val size = RECORD_HEADER_SIZE + keyBytes.size() + value.size
+        val address = allocate(size)
+        val buffer = segments[segmentOf(address)]
+        val position = positionOf(address)
+        buffer.put(position + 4, actualKind)
+        buffer.putLong(position + 5, if (actualKind == APPEND) previous else NO_PREVIOUS)
+        buffer.putInt(position + 13, keyBytes.size())
+        val data = buffer.duplicate()
+        data.position(position + RECORD_HEADER_SIZE)
+        data.put(keyBytes.toByteArray())
+        data.put(value)
+        // Size is written last, so that a scan never sees a partially written record
+        buffer.putInt(position, size)
+
+        val index = index!!
+        var liveBytes = index.getLong(LIVE_BYTES_OFFSET)
+        if (actualKind != APPEND && previous != NO_PREVIOUS) {
+            liveBytes -= chainSize(previous)
+        }
+        when {
+            actualKind == REMOVE -> removeSlot(slot)
+            slot >= 0 -> index.putLong(slotOffset(slot) + 4, address)
+            else -> insertSlot(hash, address)
+        }
+        if (actualKind != REMOVE) {
+            liveBytes += size
+        }
+
+        val actualIndex = this.index!!
+        actualIndex.putLong(LIVE_BYTES_OFFSET, liveBytes)
+        actualIndex.putLong(TOTAL_BYTES_OFFSET, actualIndex.getLong(TOTAL_BYTES_OFFSET) + size)
+    }
+
+    private fun markDirty() {
+        val index = openOrCreate()
+        if (index.getInt(CLEAN_OFFSET) == 1) {
+            index.putInt(CLEAN_OFFSET, 0)
+            index.force()
+        }
+    }
+
+    private fun allocate(size: Int): Long {
+        val index = index!!
+        val segmentCount = index.getInt(SEGMENT_COUNT_OFFSET)
+        val writePosition = index.getInt(WRITE_POSITION_OFFSET)
+
+        if (segmentCount > 0 && writePosition + size <= segments[segmentCount - 1].capacity()) {
+            index.putInt(WRITE_POSITION_OFFSET, writePosition + size)
+            return address(segmentCount - 1, writePosition)
+        }
+
+        // Each next segment is twice as large, so small caches don't take much space and large ones don't have many files
+        val segmentSize = maxOf(minOf(MIN_SEGMENT_SIZE.toLong() shl minOf(segmentCount, 16), MAX_SEGMENT_SIZE.toLong()).toInt(),
+                                SEGMENT_HEADER_SIZE + size)
+        segments.add(mapNew(segmentFile(segmentCount), segmentSize.toLong()))
+
+        index.putInt(SEGMENT_COUNT_OFFSET, segmentCount + 1)
+        index.putInt(WRITE_POSITION_OFFSET, SEGMENT_HEADER_SIZE + size)
+        // The unused tail of the previous segment is garbage
+        if (segmentCount > 0) {
+            index.putLong(TOTAL_BYTES_OFFSET, index.getLong(TOTAL_BYTES_OFFSET) + segments[segmentCount - 1].capacity() - writePosition)
+        }
+        return address(segmentCount, SEGMENT_HEADER_SIZE)
+    }
+
+    private fun compact() {
+        val entries = arrayListOf<Pair<K, ByteArray>>()
+        val oldIndex = index!!
+        for (slot in 0..capacity(oldIndex) - 1) {
+            val address = oldIndex.getLong(slotOffset(slot) + 4)
+            if (address != EMPTY && address != REMOVED) {
+                entries.add(readKey(address) to readValue(address))
+            }
+        }
+        val oldSegments = ArrayList(segments)
+
+        // Live records are written to the other generation, the current files aren't changed until the new index is committed
+        generation = 1 - generation
+        segments.clear()
+        try {
+            deleteSegments(generation)
+            val newIndex = createIndex(newIndexFile, maxOf(INITIAL_CAPACITY, Integer.highestOneBit(entries.size * 2) * 2))
+            index = newIndex
+            mappedIndexFile = newIndexFile
+            newIndex.putInt(CLEAN_OFFSET, 0)
+            for ((key, value) in entries) {
+                write(key, PUT, value)
+            }
+            segments.forEach { it.force() }
+            index!!.putInt(CLEAN_OFFSET, 1)
+            index!!.force()
+        }
+        finally {
+            index?.let { unmap(it) }
+            index = null
+            mappedIndexFile = indexFile
+            segments.forEach { unmap(it) }
+            segments.clear()
+            unmap(oldIndex)
+            oldSegments.forEach { unmap(it) }
+        }
+
+        // The old index is deleted first only if it can't be replaced, open() completes the rename if it's interrupted
+        if (!newIndexFile.renameTo(indexFile) && (!indexFile.delete() || !newIndexFile.renameTo(indexFile))) {
+            throw IOException("Could not replace $indexFile with compacted $newIndexFile")
+        }
+        // Segments of the old generation are deleted here
+        open()
+    }
+
+    private fun capacity(index: ByteBuffer): Int = index.getInt(CAPACITY_OFFSET)
+
+    private fun slotOffset(slot: Int): Int = INDEX_HEADER_SIZE + slot * SLOT_SIZE
+
+    // Returns the slot of the key or -1
+    private fun findSlot(index: ByteBuffer, key: K, hash: Int): Int {
+        val mask = capacity(index) - 1
+        var slot = mix(hash) and mask
+        while (true) {
+            val address = index.getLong(slotOffset(slot) + 4)
+            if (address == EMPTY) return -1
+            if (address != REMOVED && index.getInt(slotOffset(slot)) == hash && keyDescriptor.isEqual(readKey(address), key)) {
+                return slot
+            }
+            slot = (slot + 1) and mask
+        }
+    }
+
+    private fun insertSlot(hash: Int, address: Long) {
+        var index = index!!
+        if (4 * (index.getInt(USED_OFFSET) + 1) > 3 * capacity(index)) {
+            rehash()
+            index = this.index!!
+        }
+
+        val mask = capacity(index) - 1
+        var slot = mix(hash) and mask
+        while (true) {
+            val existing = index.getLong(slotOffset(slot) + 4)
+            if (existing == EMPTY || existing == REMOVED) break
+            slot = (slot + 1) and mask
+        }
+        if (index.getLong(slotOffset(slot) + 4) == EMPTY) {
+            index.putInt(USED_OFFSET, index.getInt(USED_OFFSET) + 1)
+        }
+        index.putInt(slotOffset(slot), hash)
+        index.putLong(slotOffset(slot) + 4, address)
+        index.putInt(SIZE_OFFSET, index.getInt(SIZE_OFFSET) + 1)
+    }
+
+    private fun removeSlot(slot: Int) {
+        val index = index!!
+        index.putLong(slotOffset(slot) + 4, REMOVED)
+        index.putInt(SIZE_OFFSET, index.getInt(SIZE_OFFSET) - 1)
+    }
+
+    private fun rehash() {
+        val old = index!!
+        val size = old.getInt(SIZE_OFFSET)
+        val hashes = IntArray(size)
+        val addresses = LongArray(size)
+        var count = 0
+        for (slot in 0..capacity(old) - 1) {
+            val address = old.getLong(slotOffset(slot) + 4)
+            if (address != EMPTY && address != REMOVED) {
+                hashes[count] = old.getInt(slotOffset(slot))
+                addresses[count] = address
+                count++
+            }
+        }
+
+        val header = ByteArray(INDEX_HEADER_SIZE)
+        old.duplicate().apply { position(0) }.get(header)
+        // Tombstones are dropped, so the table is only grown when it's really full of keys
+        val newCapacity = if (2 * size > capacity(old)) 2 * capacity(old) else capacity(old)
+        unmap(old)
+
+        val index = createIndex(mappedIndexFile, newCapacity)
+        index.duplicate().apply { position(0) }.put(header)
+        index.putInt(CAPACITY_OFFSET, newCapacity)
+        index.putInt(SIZE_OFFSET, 0)
+        index.putInt(USED_OFFSET, 0)
+        this.index = index
+        for (i in 0..count - 1) {
+            insertSlot(hashes[i], addresses[i])
+        }
+    }
+
+    private fun readKey(address: Long): K {
+        val buffer = segments[segmentOf(address)]
+        val position = positionOf(address)
+        val keySize = buffer.getInt(position + 13)
+        val bytes = ByteArray(keySize)
+        buffer.duplicate().apply { position(position + RECORD_HEADER_SIZE) }.get(bytes)
+        return keyDescriptor.read(DataInputStream(ByteArrayInputStream(bytes)))
+    }
+
+    // Concatenates value bytes of the record and the records it appends to
+    private fun readValue(address: Long): ByteArray {
+        val chunks = arrayListOf<ByteArray>()
+        var current = address
+        while (current != NO_PREVIOUS) {
+            val buffer = segments[segmentOf(current)]
+            val position = positionOf(current)
+            val size = buffer.getInt(position)
+            val keySize = buffer.getInt(position + 13)
+            val chunk = ByteArray(size - RECORD_HEADER_SIZE - keySize)
+            buffer.duplicate().apply { position(position + RECORD_HEADER_SIZE + keySize) }.get(chunk)
+            chunks.add(chunk)
+            current = buffer.getLong(position + 5)
+        }
+
+        val result = ByteArrayOutputStream(chunks.sumBy { it.size })
+        for (i in chunks.indices.reversed()) {
+            result.write(chunks[i])
+        }
+        return result.toByteArray()
+    }
+
+    private fun chainSize(address: Long): Long {
+        var size = 0L
+        var current = address
+        while (current != NO_PREVIOUS) {
+            val buffer = segments[segmentOf(current)]
+            size += buffer.getInt(positionOf(current))
+            current = buffer.getLong(positionOf(current) + 5)
+        }
+        return size
+    }
+
+    private fun mix(hash: Int): Int {
+        val h = hash * -0x61c88647
+        return h xor (h ushr 16)
+    }
+
+    private fun map(file: File, size: Long): MappedByteBuffer {
+        file.parentFile?.mkdirs()
+        return RandomAccessFile(file, "rw").use { it.channel.map(FileChannel.MapMode.READ_WRITE, 0, size) }
+    }
+
+    private fun mapNew(file: File, size: Long): MappedByteBuffer {
+        file.delete()
+        file.parentFile?.mkdirs()
+        return RandomAccessFile(file, "rw").use { raf ->
+            // The file can't be deleted or truncated on Windows if it's still mapped, so it's cleared instead of being recreated,
+            // and a larger file is cleared completely, so that no stale data is left after the end of the new content
+            val stale = raf.length() > 0 && !truncate(raf)
+            val buffer = raf.channel.map(FileChannel.MapMode.READ_WRITE, 0, if (stale) maxOf(size, raf.length()) else size)
+            if (stale) {
+                for (i in 0..buffer.capacity() - 1) {
+                    buffer.put(i, 0)
+                }
+            }
+            buffer
+        }
+    }
+
+    private fun truncate(file: RandomAccessFile): Boolean =
+            try {
+                file.setLength(0)
+                true
+            }
+            catch (e: IOException) {
+                false
+            }
+
+    private fun unmapAll() {
+        index?.let { unmap(it) }
+        index = null
+        segments.forEach { unmap(it) }
+        segments.clear()
+    }
+
+    private fun deleteFiles() {
+        indexFile.delete()
+        newIndexFile.delete()
+        deleteSegments(0)
+        deleteSegments(1)
+    }
+
+    private fun deleteSegments(generation: Int) {
+        var segment = 0
+        while (segmentFile(segment, generation).delete()) {
+            segment++
+        }
+    }
+}
+
+private val LOG = Logger.getInstance(MappedLazyStorage::class.java)
+private var unmapFailureReported = false
+
+// Mapped files can't be deleted on Windows until the buffer is garbage collected, so it's released explicitly when possible
+private fun unmap(buffer: MappedByteBuffer) {
+    try {
+        // Java 8 and earlier
+        val cleaner = buffer.javaClass.getMethod("cleaner").apply { isAccessible = true }.invoke(buffer) ?: return
+        cleaner.javaClass.getMethod("clean").apply { isAccessible = true }.invoke(cleaner)
+    }
+    catch (e: Exception) {
+        try {
+            // Java 9 and later, where the cleaner isn't accessible
+            val unsafeClass = Class.forName("sun.misc.Unsafe")
+            val unsafe = unsafeClass.getDeclaredField("theUnsafe").apply { isAccessible = true }.get(null)
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer::class.java).invoke(unsafe, buffer)
+        }
+        catch (fallbackException: Exception) {
+            // The buffer is released when it's garbage collected, files which can't be deleted until then are cleared by mapNew()
+            if (!unmapFailureReported) {
+                unmapFailureReported = true
+                LOG.warn("Could not unmap incremental cache files", fallbackException)
+            }
+        }
+    }
+}
@@ -21,10 +21,7 @@ import com.intellij.util.io.DataExternalizer
 import com.intellij.util.io.EnumeratorStringDescriptor
 import com.intellij.util.io.IOUtil
 import com.intellij.util.io.KeyDescriptor
-import java.io.DataInput
-import java.io.DataInputStream
-import java.io.DataOutput
-import java.io.File
+import java.io.*
 import java.util.*
 
 object LookupSymbolKeyDescriptor : KeyDescriptor<LookupSymbolKey> {
@@ -214,3 +211,92 @@ open class CollectionExternalizer<T>(
 object StringCollectionExternalizer : CollectionExternalizer<String>(EnumeratorStringDescriptor(), { HashSet() })
 
 object IntCollectionExternalizer : CollectionExternalizer<Int>(IntExternalizer, { HashSet() })
+
+/**
+ * Stores a set of small non-negative ints (e.g. file ids) either as a bitmap or as variable-length deltas between sorted values,
+ * whichever is smaller. Dense sets take a bit per possible value, sparse ones usually take a byte per value.
+ */
+object IntBitSetExternalizer : DataExternalizer<BitSet> {
+    private val DELTAS = 0
+    private val BITMAP = 1
+
+    override fun save(output: DataOutput, value: BitSet) {
+        val deltas = ByteArrayOutputStream()
+        val deltasOutput = DataOutputStream(deltas)
+        writeVarInt(deltasOutput, value.cardinality())
+        var previous = -1
+        var bit = value.nextSetBit(0)
+        while (bit >= 0) {
+            writeVarInt(deltasOutput, bit - previous - 1)
+            previous = bit
+            bit = value.nextSetBit(bit + 1)
+        }
+
+        val bitmapSize = (value.length() + 7) / 8
+        if (deltas.size() <= bitmapSize + 1) {
+            output.writeByte(DELTAS)
+            output.write(deltas.toByteArray())
+        }
+        else {
+            output.writeByte(BITMAP)
+            writeVarInt(output, bitmapSize)
+            val bitmap = ByteArray(bitmapSize)
+            bit = value.nextSetBit(0)
+            while (bit >= 0) {
+                bitmap[bit shr 3] = (bitmap[bit shr 3].toInt() or (1 shl (bit and 7))).toByte()
+                bit = value.nextSetBit(bit + 1)
+            }
+            output.write(bitmap)
+        }
+    }
+
+    override fun read(input: DataInput): BitSet {
+        val kind = input.readByte().toInt()
+        when (kind) {
+            DELTAS -> {
+                val count = readVarInt(input)
+                val result = BitSet()
+                var previous = -1
+                repeat(count) {
+                    previous += readVarInt(input) + 1
+                    result.set(previous)
+                }
+                return result
+            }
+            BITMAP -> {
+                val bitmap = ByteArray(readVarInt(input))
+                input.readFully(bitmap)
+                val result = BitSet(bitmap.size * 8)
+                for (i in bitmap.indices) {
+                    val byte = bitmap[i].toInt()
+                    if (byte == 0) continue
+                    for (j in 0..7) {
+                        if (byte and (1 shl j) != 0) result.set(i * 8 + j)
+                    }
+                }
+                return result
+            }
+            else -> throw IllegalStateException("Unexpected int set kind: $kind")
+        }
+    }
+
+    private fun writeVarInt(output: DataOutput, value: Int) {
+        var rest = value
+        while (rest and 0x7f.inv() != 0) {
+            output.writeByte((rest and 0x7f) or 0x80)
+            rest = rest ushr 7
+        }
+        output.writeByte(rest)
+    }
+
+    private fun readVarInt(input: DataInput): Int {
+        var result = 0
+        var shift = 0
+        while (true) {
+            val byte = input.readByte().toInt()
+            result = result or ((byte and 0x7f) shl shift)
+            if (byte and 0x80 == 0) return result
+            shift += 7
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.incremental
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.incremental.storage.IntBitSetExternalizer
+import java.io.*
+import java.util.*
+
+class LookupStorageTest : TestCase() {
+    private lateinit var dir: File
+
+    override fun setUp() {
+        super.setUp()
+        dir = createTempDir()
+    }
+
+    override fun tearDown() {
+        dir.deleteRecursively()
+        super.tearDown()
+    }
+
+    fun testIntBitSetExternalizer() {
+        val sets = listOf(
+                BitSet(),
+                bitSetOf(0),
+                bitSetOf(1, 5, 1000, 100000),
+                bitSetOf(*(0..2000).filter { it % 3 != 0 }.toIntArray())
+        )
+
+        for (set in sets) {
+            val bytes = ByteArrayOutputStream()
+            IntBitSetExternalizer.save(DataOutputStream(bytes), set)
+            val restored = IntBitSetExternalizer.read(DataInputStream(ByteArrayInputStream(bytes.toByteArray())))
+            assertEquals(set, restored)
+        }
+    }
+
+    fun testGetAllIsConsistentWithGet() {
+        val paths = (0..99).map { File(dir, "src/File$it.kt").path }
+        val lookups = HashMap<LookupSymbol, Collection<String>>()
+        for (i in 0..1999) {
+            lookups[LookupSymbol("name$i", "scope${i % 17}")] = paths.filterIndexed { j, _ -> (i + j) % 7 == 0 }
+        }
+
+        val storage = LookupStorage(File(dir, "lookups"))
+        storage.addAll(lookups.entries, paths.toSet())
+        storage.removeLookupsFrom(sequenceOf(File(paths[0])))
+
+        val symbols = lookups.keys + LookupSymbol("unknown", "scope")
+        val all = storage.getAll(symbols)
+        assertEquals(symbols, all.keys)
+        for (symbol in symbols) {
+            assertEquals(storage.get(symbol).toSet(), all[symbol]!!.toSet())
+        }
+        assertEquals(lookups[LookupSymbol("name1", "scope1")]!!.toSet(), all[LookupSymbol("name1", "scope1")]!!.toSet())
+        assertTrue(all.values.none { paths[0] in it })
+
+        storage.close()
+    }
+
+    private fun bitSetOf(vararg bits: Int) = BitSet().apply { bits.forEach { set(it) } }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.incremental.storage
+
+import com.intellij.util.io.EnumeratorStringDescriptor
+import junit.framework.TestCase
+import org.jetbrains.kotlin.config.IncrementalCompilation
+import java.io.File
+
+class MappedLazyStorageTest : TestCase() {
+    private lateinit var dir: File
+
+    override fun setUp() {
+        super.setUp()
+        dir = createTempDir()
+    }
+
+    override fun tearDown() {
+        dir.deleteRecursively()
+        super.tearDown()
+    }
+
+    private fun createStorage() = MappedLazyStorage(File(dir, "test.tab"), EnumeratorStringDescriptor.INSTANCE, StringCollectionExternalizer)
+
+    fun testNoFilesUntilWrite() {
+        val storage = createStorage()
+        assertNull(storage["a"])
+        assertFalse("a" in storage)
+        assertTrue(storage.keys.isEmpty())
+        storage.remove("a")
+        storage.close()
+
+        assertTrue(dir.listFiles().isEmpty())
+    }
+
+    fun testSetGetRemove() {
+        val storage = createStorage()
+        storage["a"] = setOf("1", "2")
+        storage["b"] = setOf("3")
+        storage["a"] = setOf("4")
+        storage.remove("b")
+
+        assertEquals(setOf("4"), storage["a"])
+        assertNull(storage["b"])
+        assertEquals(listOf("a"), storage.keys.toList())
+        storage.close()
+    }
+
+    fun testAppend() {
+        val storage = createStorage()
+        storage.append("a", "1")
+        storage.append("a", "2")
+        storage["b"] = setOf("3")
+        storage.append("b", "4")
+
+        assertEquals(setOf("1", "2"), storage["a"])
+        assertEquals(setOf("3", "4"), storage["b"])
+
+        storage["a"] = setOf("5")
+        storage.append("a", "6")
+        assertEquals(setOf("5", "6"), storage["a"])
+        storage.close()
+    }
+
+    fun testReopen() {
+        val storage = createStorage()
+        for (i in 0..4999) {
+            storage.append("key$i", "v$i")
+            storage.append("key$i", "w$i")
+        }
+        storage.remove("key0")
+        storage.close()
+
+        val reopened = createStorage()
+        assertNull(reopened["key0"])
+        for (i in 1..4999) {
+            assertEquals(setOf("v$i", "w$i"), reopened["key$i"])
+        }
+        assertEquals(4999, reopened.keys.size)
+        reopened.close()
+    }
+
+    fun testIndexIsRebuiltIfNotFlushed() {
+        val storage = createStorage()
+        storage["a"] = setOf("1")
+        storage.flush(memoryCachesOnly = false)
+        storage["b"] = setOf("2")
+        storage.append("a", "3")
+        storage.remove("c")
+
+        // The first storage is not closed, so the second one sees the index marked as dirty
+        val other = createStorage()
+        assertEquals(setOf("1", "3"), other["a"])
+        assertEquals(setOf("2"), other["b"])
+        assertEquals(setOf("a", "b"), other.keys.toSet())
+        other.close()
+    }
+
+    fun testCompaction() {
+        val storage = createStorage()
+        val value = (0..99).map { "value $it" }.toSet()
+        for (round in 0..19) {
+            for (i in 0..99) {
+                storage["key$i"] = value + "round $round"
+            }
+        }
+        storage.flush(memoryCachesOnly = false)
+
+        val segments = dir.listFiles().filter { SEGMENT_FILE_NAME.matches(it.name) }
+        assertTrue(segments.isNotEmpty())
+        val totalSize = segments.sumByLong { it.length() }
+        assertTrue("Storage is not compacted: $totalSize bytes", totalSize < 1024 * 1024)
+        // Segments of the previous generation are removed
+        assertEquals(1, segments.map { it.name.substringBeforeLast(".s") }.distinct().size)
+
+        for (i in 0..99) {
+            assertEquals(value + "round 19", storage["key$i"])
+        }
+        storage.close()
+
+        val reopened = createStorage()
+        for (i in 0..99) {
+            assertEquals(value + "round 19", reopened["key$i"])
+        }
+        reopened.close()
+    }
+
+    fun testCompactionInterruptedBeforeCommit() {
+        val storage = createStorage()
+        storage["a"] = setOf("1")
+        storage.close()
+
+        // Files of the compacted data which weren't committed
+        File(dir, "test.tab.index.new").writeText("incomplete")
+        File(dir, "test.tab.1.s0").writeText("incomplete")
+
+        val reopened = createStorage()
+        assertEquals(setOf("1"), reopened["a"])
+        reopened.close()
+        assertEquals(setOf("test.tab.index", "test.tab.0.s0"), dir.list().toSet())
+    }
+
+    fun testCompactionInterruptedAfterOldIndexIsDeleted() {
+        val storage = createStorage()
+        storage["a"] = setOf("1")
+        storage.close()
+
+        val index = File(dir, "test.tab.index")
+        assertTrue(index.renameTo(File(dir, "test.tab.index.new")))
+
+        val reopened = createStorage()
+        assertEquals(setOf("1"), reopened["a"])
+        reopened.close()
+        assertTrue(index.exists())
+    }
+
+    fun testMappedStorageIsEnabledByProperty() {
+        val enabled = IncrementalCompilation.isMappedStorageEnabled()
+        try {
+            IncrementalCompilation.setIsMappedStorageEnabled(true)
+            val storage = createLazyStorage(File(dir, "test.tab"), EnumeratorStringDescriptor.INSTANCE, StringCollectionExternalizer)
+            assertTrue(storage is MappedLazyStorage)
+            storage.close()
+        }
+        finally {
+            IncrementalCompilation.setIsMappedStorageEnabled(enabled)
+        }
+    }
+
+    fun testClean() {
+        val storage = createStorage()
+        storage["a"] = setOf("1")
+        storage.clean()
+
+        assertTrue(dir.listFiles().isEmpty())
+        assertNull(storage["a"])
+
+        storage["b"] = setOf("2")
+        assertEquals(setOf("2"), storage["b"])
+        storage.close()
+    }
+
+    private companion object {
+        val SEGMENT_FILE_NAME = Regex("test\\.tab\\.[01]\\.s\\d+")
+    }
+
+    private inline fun <T> Iterable<T>.sumByLong(selector: (T) -> Long): Long = fold(0L) { acc, it -> acc + selector(it) }
+}
@@ -45,6 +45,8 @@ public class ClassFileFactory implements OutputFileCollection {
     private final GenerationState state;
     private final ClassBuilderFactory builderFactory;
     private final Map<String, OutAndSourceFileList> generators = new LinkedHashMap<String, OutAndSourceFileList>();
+    // Output of the unit being generated by the current thread in parallel mode, see generateUnit()
+    private final ThreadLocal<UnitOutput> currentUnitOutput = new ThreadLocal<UnitOutput>();
 
     private boolean isDone = false;
 
@@ -75,13 +77,50 @@ public class ClassFileFactory implements OutputFileCollection {
             @NotNull Collection<? extends PsiFile> sourceFiles
     ) {
         ClassBuilder answer = builderFactory.newClassBuilder(origin);
-        generators.put(
-                asmType.getInternalName() + ".class",
-                new ClassBuilderAndSourceFileList(answer, toIoFilesIgnoringNonPhysical(sourceFiles))
-        );
+        String outputFilePath = asmType.getInternalName() + ".class";
+        ClassBuilderAndSourceFileList generator = new ClassBuilderAndSourceFileList(answer, toIoFilesIgnoringNonPhysical(sourceFiles));
+
+        UnitOutput unitOutput = currentUnitOutput.get();
+        if (unitOutput != null) {
+            unitOutput.generators.put(outputFilePath, generator);
+        }
+        else {
+            synchronized (generators) {
+                generators.put(outputFilePath, generator);
+            }
+        }
         return answer;
     }
 
+    /**
+     * Runs the given unit of generation, buffering all the classes it creates on the current thread instead of registering them
+     * immediately. This way units can be generated concurrently, and their output can be committed with {@link #commitUnitOutput}
+     * in a fixed order, so that the resulting list of output files doesn't depend on the order in which the units were finished.
+     */
+    @NotNull
+    public UnitOutput generateUnit(@NotNull Runnable unit) {
+        assert currentUnitOutput.get() == null : "Units of generation can't be nested";
+        UnitOutput output = new UnitOutput();
+        currentUnitOutput.set(output);
+        try {
+            unit.run();
+        }
+        finally {
+            currentUnitOutput.remove();
+        }
+        return output;
+    }
+
+    public boolean isGeneratingUnit() {
+        return currentUnitOutput.get() != null;
+    }
+
+    public void commitUnitOutput(@NotNull UnitOutput output) {
+        synchronized (generators) {
+            generators.putAll(output.generators);
+        }
+    }
+
     public void done() {
         if (!isDone) {
             isDone = true;
@@ -90,7 +129,9 @@ public class ClassFileFactory implements OutputFileCollection {
     }
 
     public void releaseGeneratedOutput() {
-        generators.clear();
+        synchronized (generators) {
+            generators.clear();
+        }
     }
 
     private void writeModuleMappings() {
@@ -130,12 +171,14 @@ public class ClassFileFactory implements OutputFileCollection {
 
     @NotNull
     public List<OutputFile> getCurrentOutput() {
-        return ContainerUtil.map(generators.keySet(), new Function<String, OutputFile>() {
-            @Override
-            public OutputFile fun(String relativeClassFilePath) {
-                return new OutputClassFile(relativeClassFilePath);
-            }
-        });
+        synchronized (generators) {
+            return ContainerUtil.map(generators.keySet(), new Function<String, OutputFile>() {
+                @Override
+                public OutputFile fun(String relativeClassFilePath) {
+                    return new OutputClassFile(relativeClassFilePath);
+                }
+            });
+        }
     }
 
     @Override
@@ -186,18 +229,23 @@ public class ClassFileFactory implements OutputFileCollection {
         return new PackagePartRegistry() {
             @Override
             public void addPart(@NotNull String partShortName, @Nullable String facadeShortName) {
-                PackageParts packageParts = partsGroupedByPackage.get(packageFqNameAsString);
-                if (packageParts == null) {
-                    packageParts = new PackageParts(packageFqNameAsString);
-                    partsGroupedByPackage.put(packageFqNameAsString, packageParts);
+                synchronized (partsGroupedByPackage) {
+                    PackageParts packageParts = partsGroupedByPackage.get(packageFqNameAsString);
+                    if (packageParts == null) {
+                        packageParts = new PackageParts(packageFqNameAsString);
+                        partsGroupedByPackage.put(packageFqNameAsString, packageParts);
+                    }
+                    packageParts.addPart(partShortName, facadeShortName);
                 }
-                packageParts.addPart(partShortName, facadeShortName);
             }
         };
     }
 
     private void registerPackagePartSourceFiles(Collection<KtFile> files) {
-        packagePartSourceFiles.addAll(toIoFilesIgnoringNonPhysical(PackagePartClassUtils.getFilesWithCallables(files)));
+        List<File> ioFiles = toIoFilesIgnoringNonPhysical(PackagePartClassUtils.getFilesWithCallables(files));
+        synchronized (packagePartSourceFiles) {
+            packagePartSourceFiles.addAll(ioFiles);
+        }
     }
 
     @NotNull
@@ -286,6 +334,13 @@ public class ClassFileFactory implements OutputFileCollection {
         }
     }
 
+    public static final class UnitOutput {
+        private final Map<String, OutAndSourceFileList> generators = new LinkedHashMap<String, OutAndSourceFileList>();
+
+        private UnitOutput() {
+        }
+    }
+
     private static abstract class OutAndSourceFileList {
 
         protected final List<File> sourceFiles;
@@ -662,14 +662,58 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
         else if (RangeCodegenUtil.isPrimitiveNumberDownTo(loopRangeCallee)) {
             return new ForInDownToProgressionLoopGenerator(forExpression, loopRangeCall);
         }
+        else if (RangeCodegenUtil.isPrimitiveNumberUntil(loopRangeCallee)) {
+            return new ForInUntilRangeLoopGenerator(forExpression, loopRangeCall);
+        }
         else if (RangeCodegenUtil.isArrayOrPrimitiveArrayIndices(loopRangeCallee)) {
-            return new ForInArrayIndicesRangeLoopGenerator(forExpression, loopRangeCall);
+            return new ForInArrayIndicesRangeLoopGenerator(forExpression, loopRangeCall, false);
         }
         else if (RangeCodegenUtil.isCollectionIndices(loopRangeCallee)) {
-            return new ForInCollectionIndicesRangeLoopGenerator(forExpression, loopRangeCall);
+            return new ForInCollectionIndicesRangeLoopGenerator(forExpression, loopRangeCall, false);
         }
         else if (RangeCodegenUtil.isCharSequenceIndices(loopRangeCallee)) {
-            return new ForInCharSequenceIndicesRangeLoopGenerator(forExpression, loopRangeCall);
+            return new ForInCharSequenceIndicesRangeLoopGenerator(forExpression, loopRangeCall, false);
+        }
+        else if (RangeCodegenUtil.isPrimitiveProgressionReverse(loopRangeCallee)) {
+            return createReversedForLoopGeneratorOrNull(forExpression, loopRangeCall);
+        }
+
+        return null;
+    }
+
+    // for (i in <progression>.reversed()), where <progression> is one of the forms optimized above
+    @Nullable
+    private AbstractForLoopGenerator createReversedForLoopGeneratorOrNull(
+            @NotNull KtForExpression forExpression,
+            @NotNull ResolvedCall<? extends CallableDescriptor> reversedCall
+    ) {
+        ReceiverValue progression = reversedCall.getExtensionReceiver();
+        if (!(progression instanceof ExpressionReceiver)) return null;
+
+        ResolvedCall<? extends CallableDescriptor> progressionCall =
+                RangeCodegenUtil.getRangeResolvedCall(((ExpressionReceiver) progression).getExpression(), bindingContext);
+        if (progressionCall == null) return null;
+
+        CallableDescriptor progressionCallee = progressionCall.getResultingDescriptor();
+        if (RangeCodegenUtil.isPrimitiveNumberRangeTo(progressionCallee)) {
+            return new ForInReversedProgressionLiteralLoopGenerator(
+                    forExpression, progressionCall.getDispatchReceiver(), getSingleArgumentExpression(progressionCall), -1);
+        }
+        else if (RangeCodegenUtil.isPrimitiveNumberDownTo(progressionCallee)) {
+            return new ForInReversedProgressionLiteralLoopGenerator(
+                    forExpression, progressionCall.getExtensionReceiver(), getSingleArgumentExpression(progressionCall), 1);
+        }
+        else if (RangeCodegenUtil.isPrimitiveNumberUntil(progressionCallee)) {
+            return new ForInReversedUntilRangeLoopGenerator(forExpression, progressionCall);
+        }
+        else if (RangeCodegenUtil.isArrayOrPrimitiveArrayIndices(progressionCallee)) {
+            return new ForInArrayIndicesRangeLoopGenerator(forExpression, progressionCall, true);
+        }
+        else if (RangeCodegenUtil.isCollectionIndices(progressionCallee)) {
+            return new ForInCollectionIndicesRangeLoopGenerator(forExpression, progressionCall, true);
+        }
+        else if (RangeCodegenUtil.isCharSequenceIndices(progressionCallee)) {
+            return new ForInCharSequenceIndicesRangeLoopGenerator(forExpression, progressionCall, true);
         }
 
         return null;
@@ -1133,13 +1177,17 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
         protected void increment(@NotNull Label loopExit) {
             checkPostCondition(loopExit);
 
+            incrementLoopParameter(step);
+        }
+
+        protected void incrementLoopParameter(int delta) {
             if (loopParameterType == Type.INT_TYPE) {
-                v.iinc(loopParameterVar, step);
+                v.iinc(loopParameterVar, delta);
             }
             else {
                 StackValue loopParameter = loopParameter();
                 loopParameter.put(asmElementType, v);
-                genIncrement(asmElementType, step, v);
+                genIncrement(asmElementType, delta, v);
                 loopParameter.store(StackValue.onStack(asmElementType), v);
             }
         }
@@ -1179,6 +1227,86 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
         }
     }
 
+    private class ForInUntilRangeLoopGenerator extends AbstractForInRangeLoopGenerator {
+        private final ReceiverValue from;
+        private final KtExpression to;
+
+        private ForInUntilRangeLoopGenerator(@NotNull KtForExpression forExpression, @NotNull ResolvedCall<?> loopRangeCall) {
+            super(forExpression);
+            this.from = loopRangeCall.getExtensionReceiver();
+            this.to = getSingleArgumentExpression(loopRangeCall);
+        }
+
+        @Override
+        protected void storeRangeStartAndEnd() {
+            loopParameter().store(generateReceiverValue(from, false), v);
+            StackValue.local(endVar, asmElementType).store(gen(to), v);
+        }
+
+        @Override
+        public void checkEmptyLoop(@NotNull Label loopExit) {
+            loopParameter().put(asmElementType, v);
+            v.load(endVar, asmElementType);
+            if (asmElementType.getSort() == Type.LONG) {
+                v.lcmp();
+                v.ifge(loopExit);
+            }
+            else {
+                v.ificmpge(loopExit);
+            }
+
+            // The range is not empty, so the last element 'to - 1' doesn't overflow
+            v.load(endVar, asmElementType);
+            genIncrement(asmElementType, -1, v);
+            v.store(endVar, asmElementType);
+        }
+    }
+
+    // Bounds of the progression are evaluated in the order they are written, and then iterated from the last one
+    private class ForInReversedProgressionLiteralLoopGenerator extends AbstractForInRangeLoopGenerator {
+        private final ReceiverValue from;
+        private final KtExpression to;
+
+        private ForInReversedProgressionLiteralLoopGenerator(
+                @NotNull KtForExpression forExpression,
+                @NotNull ReceiverValue from,
+                @Nullable KtExpression to,
+                int step
+        ) {
+            super(forExpression, step);
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void storeRangeStartAndEnd() {
+            StackValue.local(endVar, asmElementType).store(generateReceiverValue(from, false), v);
+            loopParameter().store(gen(to), v);
+        }
+    }
+
+    private class ForInReversedUntilRangeLoopGenerator extends ForInReversedProgressionLiteralLoopGenerator {
+        private ForInReversedUntilRangeLoopGenerator(@NotNull KtForExpression forExpression, @NotNull ResolvedCall<?> untilCall) {
+            super(forExpression, untilCall.getExtensionReceiver(), getSingleArgumentExpression(untilCall), -1);
+        }
+
+        @Override
+        public void checkEmptyLoop(@NotNull Label loopExit) {
+            loopParameter().put(asmElementType, v);
+            v.load(endVar, asmElementType);
+            if (asmElementType.getSort() == Type.LONG) {
+                v.lcmp();
+                v.ifle(loopExit);
+            }
+            else {
+                v.ificmple(loopExit);
+            }
+
+            // The range is not empty, so its last element 'to - 1', which is the first one here, doesn't overflow
+            incrementLoopParameter(-1);
+        }
+    }
+
     private class ForInRangeInstanceLoopGenerator extends AbstractForInRangeLoopGenerator {
         private ForInRangeInstanceLoopGenerator(@NotNull KtForExpression forExpression) {
             super(forExpression);
@@ -1201,16 +1329,25 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
     private abstract class ForInOptimizedIndicesLoopGenerator extends AbstractForInRangeLoopGenerator {
         protected final ReceiverValue receiverValue;
         protected final KotlinType expectedReceiverType;
+        private final boolean reversed;
 
-        private ForInOptimizedIndicesLoopGenerator(@NotNull KtForExpression forExpression, @NotNull ResolvedCall<?> loopRangeCall) {
-            super(forExpression);
-            this.receiverValue = loopRangeCall.getExtensionReceiver();
-            this.expectedReceiverType = getExpectedReceiverType(loopRangeCall);
+        private ForInOptimizedIndicesLoopGenerator(
+                @NotNull KtForExpression forExpression,
+                @NotNull ResolvedCall<?> indicesCall,
+                boolean reversed
+        ) {
+            super(forExpression, reversed ? -1 : 1);
+            this.receiverValue = indicesCall.getExtensionReceiver();
+            this.expectedReceiverType = getExpectedReceiverType(indicesCall);
+            this.reversed = reversed;
         }
 
         @Override
         protected void storeRangeStartAndEnd() {
-            loopParameter().store(StackValue.constant(0, asmElementType), v);
+            StackValue firstIndex = reversed ? StackValue.local(endVar, asmElementType) : loopParameter();
+            StackValue lastIndex = reversed ? loopParameter() : StackValue.local(endVar, asmElementType);
+
+            firstIndex.store(StackValue.constant(0, asmElementType), v);
 
             StackValue receiver = generateReceiverValue(receiverValue, false);
             Type receiverType = asmType(expectedReceiverType);
@@ -1218,7 +1355,7 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
             getReceiverSizeAsInt();
             v.iconst(1);
             v.sub(Type.INT_TYPE);
-            StackValue.local(endVar, asmElementType).store(StackValue.onStack(Type.INT_TYPE), v);
+            lastIndex.store(StackValue.onStack(Type.INT_TYPE), v);
         }
 
         /**
@@ -1228,8 +1365,12 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
     }
 
     private class ForInCollectionIndicesRangeLoopGenerator extends ForInOptimizedIndicesLoopGenerator {
-        private ForInCollectionIndicesRangeLoopGenerator(@NotNull KtForExpression forExpression, @NotNull ResolvedCall<?> loopRangeCall) {
-            super(forExpression, loopRangeCall);
+        private ForInCollectionIndicesRangeLoopGenerator(
+                @NotNull KtForExpression forExpression,
+                @NotNull ResolvedCall<?> indicesCall,
+                boolean reversed
+        ) {
+            super(forExpression, indicesCall, reversed);
         }
 
         @Override
@@ -1239,8 +1380,12 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
     }
 
     private class ForInArrayIndicesRangeLoopGenerator extends ForInOptimizedIndicesLoopGenerator {
-        private ForInArrayIndicesRangeLoopGenerator(@NotNull KtForExpression forExpression, @NotNull ResolvedCall<?> loopRangeCall) {
-            super(forExpression, loopRangeCall);
+        private ForInArrayIndicesRangeLoopGenerator(
+                @NotNull KtForExpression forExpression,
+                @NotNull ResolvedCall<?> indicesCall,
+                boolean reversed
+        ) {
+            super(forExpression, indicesCall, reversed);
         }
 
         @Override
@@ -1250,8 +1395,12 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
     }
 
     private class ForInCharSequenceIndicesRangeLoopGenerator extends ForInOptimizedIndicesLoopGenerator {
-        private ForInCharSequenceIndicesRangeLoopGenerator(@NotNull KtForExpression forExpression, @NotNull ResolvedCall<?> loopRangeCall) {
-            super(forExpression, loopRangeCall);
+        private ForInCharSequenceIndicesRangeLoopGenerator(
+                @NotNull KtForExpression forExpression,
+                @NotNull ResolvedCall<?> indicesCall,
+                boolean reversed
+        ) {
+            super(forExpression, indicesCall, reversed);
         }
 
         @Override
@@ -1634,6 +1783,11 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
             @Nullable FunctionDescriptor functionReferenceTarget,
             @Nullable StackValue functionReferenceReceiver
     ) {
+        if (functionReferenceTarget == null && state.getGenerateLambdasWithInvokeDynamic()) {
+            StackValue lambda = state.getInvokeDynamicLambdas().genLambda(this, declaration, descriptor, strategy, samType);
+            if (lambda != null) return lambda;
+        }
+
         ClassBuilder cv = state.getFactory().newVisitor(
                 JvmDeclarationOriginKt.OtherOrigin(declaration, descriptor),
                 asmTypeForAnonymousClass(bindingContext, descriptor),
@@ -2601,7 +2755,9 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
 
                 PropertyGetterDescriptor getter = propertyDescriptor.getGetter();
                 if (getter != null && !isConstOrHasJvmFieldAnnotation(propertyDescriptor)) {
-                    callableGetter = typeMapper.mapToCallableMethod(getter, isSuper);
+                    callableGetter = ValueWrappersKt.isValueWrapperProperty(propertyDescriptor)
+                                     ? ValueWrappersKt.mapToValueWrapperUnboxMethod(typeMapper, propertyDescriptor)
+                                     : typeMapper.mapToCallableMethod(getter, isSuper);
                 }
             }
 
@@ -2698,6 +2854,18 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
             return genClosure((KtNamedFunction) expression, samType);
         }
 
+        if (state.getGenerateLambdasWithInvokeDynamic() && state.getInvokeDynamicLambdas().canGenerateSamWrapper(this, samType)) {
+            return StackValue.operation(typeMapper.mapType(samType.getType()), new Function1<InstructionAdapter, Unit>() {
+                @Override
+                public Unit invoke(InstructionAdapter v) {
+                    Type functionType = typeMapper.mapType(samType.getKotlinFunctionType());
+                    expression.accept(visitor, StackValue.none()).put(functionType, v);
+                    state.getInvokeDynamicLambdas().genSamWrapper(samType, v);
+                    return null;
+                }
+            });
+        }
+
         final Type asmType =
                 state.getSamWrapperClasses().getSamWrapperClass(samType, expression.getContainingKtFile(), this);
 
@@ -3341,7 +3509,7 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
 
     public int indexOfLocalNotDelegated(KtReferenceExpression lhs) {
         DeclarationDescriptor declarationDescriptor = bindingContext.get(REFERENCE_TARGET, lhs);
-        if (isVarCapturedInClosure(bindingContext, declarationDescriptor)) {
+        if (isBoxedLocalCapturedInClosure(bindingContext, declarationDescriptor)) {
             return -1;
         }
         if (declarationDescriptor instanceof LocalVariableDescriptor && ((LocalVariableDescriptor) declarationDescriptor).isDelegated()) {
@@ -4341,6 +4509,18 @@ public class ExpressionCodegen extends KtVisitor<StackValue, StackValue> impleme
 
     @NotNull
     public StackValue generateConstructorCall(@NotNull final ResolvedCall<?> resolvedCall, @NotNull final Type objectType) {
+        final ClassConstructorDescriptor valueWrapperConstructor = getConstructorDescriptor(resolvedCall);
+        if (ValueWrappersKt.isValueWrapperConstructor(valueWrapperConstructor)) {
+            return StackValue.functionCall(objectType, new Function1<InstructionAdapter, Unit>() {
+                @Override
+                public Unit invoke(InstructionAdapter v) {
+                    CallableMethod method = ValueWrappersKt.mapToValueWrapperBoxMethod(typeMapper, valueWrapperConstructor);
+                    invokeMethodWithArguments(method, resolvedCall, StackValue.none());
+                    return Unit.INSTANCE;
+                }
+            });
+        }
+
         return StackValue.functionCall(objectType, new Function1<InstructionAdapter, Unit>() {
             @Override
             public Unit invoke(InstructionAdapter v) {
@@ -4816,8 +4996,22 @@ The "returned" value of try expression with no finally is either the last expres
                 Label end = new Label();
                 boolean hasElse = KtPsiUtil.checkWhenExpressionHasSingleElse(expression);
 
+                List<KtWhenEntry> entries = expression.getEntries();
+                int switchEntryCount = subjectLocal != -1 && resultType.equals(isStatement ? Type.VOID_TYPE : expressionType(expression))
+                                       ? SwitchCodegenUtil.countLeadingEntriesForSwitch(
+                                               expression, subjectType, bindingContext, state.getShouldInlineConstVals())
+                                       : 0;
+                if (switchEntryCount > 0) {
+                    // constant entries before the other conditions are still checked with a switch
+                    Label otherEntries = new Label();
+                    SwitchCodegenUtil.buildSwitchCodegenForLeadingEntries(expression, isStatement, ExpressionCodegen.this)
+                            .generateLeadingEntries(switchEntryCount, otherEntries, end);
+                    v.mark(otherEntries);
+                    entries = entries.subList(switchEntryCount, entries.size());
+                }
+
                 Label nextCondition = null;
-                for (KtWhenEntry whenEntry : expression.getEntries()) {
+                for (KtWhenEntry whenEntry : entries) {
                     if (nextCondition != null) {
                         v.mark(nextCondition);
                     }
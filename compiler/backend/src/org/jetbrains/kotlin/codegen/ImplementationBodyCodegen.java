@@ -364,6 +364,8 @@ public class ImplementationBodyCodegen extends ClassBodyCodegen {
 
         generateToArray();
 
+        generateValueWrapperMethods();
+
         if (context.closure != null)
             genClosureFields(context.closure, v, typeMapper);
 
@@ -392,6 +394,54 @@ public class ImplementationBodyCodegen extends ClassBodyCodegen {
         }
     }
 
+    private void generateValueWrapperMethods() {
+        PropertyDescriptor property = ValueWrappersKt.getValueWrapperProperty(descriptor);
+        if (property == null) return;
+
+        Type valueType = typeMapper.mapType(property.getType());
+        generateValueWrapperBoxMethod(valueType);
+        generateValueWrapperUnboxMethod(property, valueType);
+    }
+
+    private void generateValueWrapperBoxMethod(@NotNull Type valueType) {
+        MethodVisitor mv = v.newMethod(
+                NO_ORIGIN, ACC_PUBLIC | ACC_STATIC | ACC_SYNTHETIC, ValueWrappersKt.VALUE_WRAPPER_BOX_METHOD,
+                Type.getMethodDescriptor(classAsmType, valueType), null, null
+        );
+        if (!state.getClassBuilderMode().generateBodies) return;
+
+        ClassConstructorDescriptor constructor = descriptor.getUnsubstitutedPrimaryConstructor();
+        assert constructor != null : "Value wrapper should have a primary constructor: " + descriptor;
+
+        InstructionAdapter iv = new InstructionAdapter(mv);
+        mv.visitCode();
+
+        iv.anew(classAsmType);
+        iv.dup();
+        iv.load(0, valueType);
+        iv.invokespecial(classAsmType.getInternalName(), "<init>", typeMapper.mapAsmMethod(constructor).getDescriptor(), false);
+        iv.areturn(classAsmType);
+
+        FunctionCodegen.endVisit(mv, ValueWrappersKt.VALUE_WRAPPER_BOX_METHOD, myClass);
+    }
+
+    private void generateValueWrapperUnboxMethod(@NotNull PropertyDescriptor property, @NotNull Type valueType) {
+        MethodVisitor mv = v.newMethod(
+                NO_ORIGIN, ACC_PUBLIC | ACC_FINAL | ACC_SYNTHETIC, ValueWrappersKt.VALUE_WRAPPER_UNBOX_METHOD,
+                Type.getMethodDescriptor(valueType), null, null
+        );
+        if (!state.getClassBuilderMode().generateBodies) return;
+
+        InstructionAdapter iv = new InstructionAdapter(mv);
+        mv.visitCode();
+
+        iv.load(0, classAsmType);
+        iv.getfield(classAsmType.getInternalName(), context.getFieldName(property, false), valueType.getDescriptor());
+        iv.areturn(valueType);
+
+        FunctionCodegen.endVisit(mv, ValueWrappersKt.VALUE_WRAPPER_UNBOX_METHOD, myClass);
+    }
+
     private void generateToArray() {
         if (descriptor.getKind() == ClassKind.INTERFACE) return;
 
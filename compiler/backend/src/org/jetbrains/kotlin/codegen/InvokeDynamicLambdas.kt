@@ -0,0 +1,408 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import org.jetbrains.kotlin.codegen.binding.CodegenBinding.CLASS_FOR_CALLABLE
+import org.jetbrains.kotlin.codegen.binding.CodegenBinding.CLOSURE
+import org.jetbrains.kotlin.codegen.binding.CodegenBinding.SAM_VALUE
+import org.jetbrains.kotlin.codegen.context.CodegenContext
+import org.jetbrains.kotlin.codegen.context.InlineLambdaContext
+import org.jetbrains.kotlin.codegen.inline.InlineCodegenUtil
+import org.jetbrains.kotlin.codegen.state.GenerationState
+import org.jetbrains.kotlin.descriptors.ClassDescriptor
+import org.jetbrains.kotlin.descriptors.FunctionDescriptor
+import org.jetbrains.kotlin.descriptors.impl.AnonymousFunctionDescriptor
+import org.jetbrains.kotlin.incremental.components.NoLookupLocation
+import org.jetbrains.kotlin.psi.*
+import org.jetbrains.kotlin.resolve.BindingContext
+import org.jetbrains.kotlin.resolve.DescriptorUtils
+import org.jetbrains.kotlin.resolve.inline.InlineUtil
+import org.jetbrains.kotlin.resolve.jvm.AsmTypes
+import org.jetbrains.kotlin.resolve.jvm.diagnostics.JvmDeclarationOrigin
+import org.jetbrains.kotlin.resolve.jvm.diagnostics.OtherOrigin
+import org.jetbrains.kotlin.util.OperatorNameConventions
+import org.jetbrains.org.objectweb.asm.Handle
+import org.jetbrains.org.objectweb.asm.Label
+import org.jetbrains.org.objectweb.asm.Opcodes.*
+import org.jetbrains.org.objectweb.asm.Type
+import org.jetbrains.org.objectweb.asm.commons.InstructionAdapter
+import org.jetbrains.org.objectweb.asm.commons.Method
+import org.jetbrains.org.objectweb.asm.tree.*
+import java.util.*
+
+/**
+ * Generates non-inlined lambdas and SAM conversions as `invokedynamic` calls of `java.lang.invoke.LambdaMetafactory`
+ * instead of classes, if [GenerationState.generateLambdasWithInvokeDynamic] is enabled.
+ *
+ * The body of a lambda is generated as the `invoke` method of its class would be, and then moved to a private static synthetic
+ * method of the class containing the lambda: the closure fields it reads become the leading parameters of that method,
+ * and their values are bound by the `invokedynamic` instruction. Lambdas which can't be generated this way, e.g. suspend lambdas
+ * or lambdas in inline functions, are still generated as classes.
+ */
+class InvokeDynamicLambdas(private val state: GenerationState) {
+    // Bodies of lambdas in finally blocks are generated several times, the implementation method is generated only once.
+    // A null value means that the lambda is generated as a class
+    private val implementations = HashMap<ClassDescriptor, Handle?>()
+
+    // Lambdas whose bodies are being generated on this thread, the innermost one is the last
+    private val attempts = object : ThreadLocal<ArrayList<Attempt>>() {
+        override fun initialValue() = ArrayList<Attempt>()
+    }
+
+    /**
+     * Implementations of lambdas nested in a lambda are kept here until it's known that the lambda itself is generated
+     * as a static method of the same class, because otherwise its body is generated again in its own class.
+     */
+    private class Attempt {
+        val lambdas = ArrayList<ClassDescriptor>()
+        val methods = ArrayList<ImplementationMethod>()
+        // A nested lambda is generated as a class, which is named after the class of this lambda
+        var hasNestedClasses = false
+    }
+
+    private class ImplementationMethod(val classBuilder: ClassBuilder, val origin: JvmDeclarationOrigin, val handle: Handle, val node: MethodNode)
+
+    private val typeMapper get() = state.typeMapper
+    private val bindingContext get() = state.bindingContext
+
+    fun genLambda(
+            codegen: ExpressionCodegen,
+            declaration: KtElement,
+            descriptor: FunctionDescriptor,
+            strategy: FunctionGenerationStrategy,
+            samType: SamType?
+    ): StackValue? {
+        if (descriptor !is AnonymousFunctionDescriptor || descriptor.isSuspend) return null
+        if (!canBeGeneratedInContext(codegen.context)) return null
+        if (samType != null && samType.needsBridges()) return null
+        if (!canBeGeneratedWithNestedDeclarations(declaration)) return null
+
+        val classDescriptor = bindingContext[CLASS_FOR_CALLABLE, descriptor] ?: return null
+
+        val interfaceMethod: Method
+        val interfaceType: Type
+        if (samType == null) {
+            val invoke = ClosureCodegen.getErasedInvokeFunction(descriptor)
+            interfaceMethod = typeMapper.mapAsmMethod(invoke)
+            interfaceType = typeMapper.mapClass(invoke.containingDeclaration as ClassDescriptor)
+        }
+        else {
+            interfaceMethod = typeMapper.mapAsmMethod(samType.abstractMethod.original)
+            interfaceType = typeMapper.mapType(samType.type)
+        }
+
+        val implementation = getOrGenerateImplementation(codegen, declaration, descriptor, classDescriptor, strategy, interfaceMethod)
+                             ?: return null
+
+        val closure = bindingContext[CLOSURE, classDescriptor]!!
+        val capturedTypes = ClosureCodegen.calculateConstructorParameters(typeMapper, closure, typeMapper.mapClass(classDescriptor))
+                .map { it.fieldType }
+        val implementationMethod = Method(implementation.name, implementation.desc)
+        val lambdaMethodType = Type.getMethodType(
+                instantiatedReturnType(implementationMethod.returnType, interfaceMethod.returnType),
+                *implementationMethod.argumentTypes.drop(capturedTypes.size).mapIndexed { i, type ->
+                    instantiatedParameterType(type, interfaceMethod.argumentTypes[i])
+                }.toTypedArray()
+        )
+
+        return StackValue.operation(interfaceType) { v ->
+            codegen.pushClosureOnStack(classDescriptor, true, codegen.defaultCallGenerator, null)
+            v.invokedynamic(
+                    interfaceMethod.name, Type.getMethodDescriptor(interfaceType, *capturedTypes.toTypedArray()), METAFACTORY,
+                    arrayOf(Type.getMethodType(interfaceMethod.descriptor), implementation, lambdaMethodType)
+            )
+        }
+    }
+
+    fun canGenerateSamWrapper(codegen: ExpressionCodegen, samType: SamType): Boolean =
+            canBeGeneratedInContext(codegen.context) && !samType.needsBridges()
+
+    /**
+     * Converts the function value on the stack to an instance of the SAM interface, which calls the function.
+     * Null is left as is, as SAM wrapper classes do.
+     */
+    fun genSamWrapper(samType: SamType, v: InstructionAdapter) {
+        val functionType = typeMapper.mapType(samType.kotlinFunctionType)
+        val invoke = samType.kotlinFunctionType.memberScope
+                .getContributedFunctions(OperatorNameConventions.INVOKE, NoLookupLocation.FROM_BACKEND).single().original
+        val invokeMethod = typeMapper.mapAsmMethod(invoke)
+        val interfaceMethod = typeMapper.mapAsmMethod(samType.abstractMethod.original)
+        val interfaceType = typeMapper.mapType(samType.type)
+
+        val ifNull = Label()
+        v.dup()
+        v.ifnull(ifNull)
+        v.invokedynamic(
+                interfaceMethod.name, Type.getMethodDescriptor(interfaceType, functionType), METAFACTORY,
+                arrayOf(
+                        Type.getMethodType(interfaceMethod.descriptor),
+                        Handle(H_INVOKEINTERFACE, functionType.internalName, invokeMethod.name, invokeMethod.descriptor, true),
+                        Type.getMethodType(interfaceMethod.descriptor)
+                )
+        )
+        v.mark(ifNull)
+        v.checkcast(interfaceType)
+    }
+
+    private fun getOrGenerateImplementation(
+            codegen: ExpressionCodegen,
+            declaration: KtElement,
+            descriptor: FunctionDescriptor,
+            classDescriptor: ClassDescriptor,
+            strategy: FunctionGenerationStrategy,
+            interfaceMethod: Method
+    ): Handle? {
+        synchronized(implementations) {
+            if (classDescriptor in implementations) return implementations[classDescriptor]
+        }
+
+        val enclosingAttempts = attempts.get()
+        val enclosing = enclosingAttempts.lastOrNull()
+        val attempt = Attempt()
+        enclosingAttempts.add(attempt)
+        // The same lambda is never generated on different threads, because it belongs to a single class
+        val method = try {
+            generateImplementation(codegen, declaration, descriptor, classDescriptor, strategy, interfaceMethod, attempt)
+        }
+        finally {
+            enclosingAttempts.removeAt(enclosingAttempts.lastIndex)
+        }
+
+        synchronized(implementations) {
+            if (method == null) {
+                // The body is generated again in the class of the lambda, together with the nested lambdas
+                for (lambda in attempt.lambdas) {
+                    implementations.remove(lambda)
+                }
+            }
+            implementations[classDescriptor] = method?.handle
+        }
+
+        when {
+            method == null -> enclosing?.hasNestedClasses = true
+            enclosing != null -> {
+                enclosing.lambdas.addAll(attempt.lambdas)
+                enclosing.lambdas.add(classDescriptor)
+                enclosing.methods.addAll(attempt.methods)
+                enclosing.methods.add(method)
+            }
+            else -> {
+                for (implementation in attempt.methods + method) {
+                    val handle = implementation.handle
+                    val mv = implementation.classBuilder.newMethod(
+                            implementation.origin, ACC_PRIVATE or ACC_STATIC or ACC_SYNTHETIC, handle.name, handle.desc, null, null
+                    )
+                    implementation.node.accept(mv)
+                }
+            }
+        }
+        return method?.handle
+    }
+
+    private fun generateImplementation(
+            codegen: ExpressionCodegen,
+            declaration: KtElement,
+            descriptor: FunctionDescriptor,
+            classDescriptor: ClassDescriptor,
+            strategy: FunctionGenerationStrategy,
+            interfaceMethod: Method,
+            attempt: Attempt
+    ): ImplementationMethod? {
+        val signature = typeMapper.mapSignatureSkipGeneric(descriptor)
+        val invokeMethod = signature.asmMethod
+        val node = MethodNode(InlineCodegenUtil.API, ACC_PUBLIC or ACC_FINAL, invokeMethod.name, invokeMethod.descriptor, null, null)
+        val adapter = InlineCodegenUtil.wrapWithMaxLocalCalc(node)
+        val context = codegen.context.intoClosure(descriptor, codegen, typeMapper).intoFunction(descriptor)
+        FunctionCodegen.generateMethodBody(adapter, descriptor, context, signature, strategy, codegen.parentCodegen)
+        adapter.visitMaxs(-1, -1)
+
+        if (attempt.hasNestedClasses) return null
+
+        val closure = bindingContext[CLOSURE, classDescriptor]!!
+        val closureType = typeMapper.mapClass(classDescriptor)
+        val capturedFields = ClosureCodegen.calculateConstructorParameters(typeMapper, closure, closureType)
+
+        // If the body uses the lambda instance in some other way than reading its fields, e.g. an object regenerated from
+        // an inline function captures it, the lambda is generated as a class, which regenerates the body
+        if (!node.moveToStaticMethod(closureType, capturedFields)) return null
+
+        val returnType =
+                if (invokeMethod.returnType == Type.VOID_TYPE && interfaceMethod.returnType != Type.VOID_TYPE) {
+                    node.returnUnitInsteadOfVoid()
+                    AsmTypes.UNIT_TYPE
+                }
+                else invokeMethod.returnType
+
+        val parentCodegen = codegen.parentCodegen
+        val owner = parentCodegen.className
+        val name = getImplementationName(owner, closureType)
+        val desc = Type.getMethodDescriptor(returnType, *(capturedFields.map { it.fieldType } + invokeMethod.argumentTypes).toTypedArray())
+        val ownerContext = parentCodegen.context
+        val isInterface = JvmCodegenUtil.isJvmInterface(ownerContext.contextDescriptor) && ownerContext.contextKind != OwnerKind.DEFAULT_IMPLS
+
+        return ImplementationMethod(
+                parentCodegen.v, OtherOrigin(declaration, descriptor), Handle(H_INVOKESTATIC, owner, name, desc, isInterface), node
+        )
+    }
+
+    private fun canBeGeneratedInContext(context: CodegenContext<*>): Boolean {
+        if (!state.classBuilderMode.generateBodies) return false
+
+        // Code of inline functions and crossinline lambdas is copied to other classes, which can't call private methods of this one
+        if (InlineUtil.isInlineOrContainingInline(context.contextDescriptor)) return false
+        var current: CodegenContext<*>? = context
+        while (current != null) {
+            if (current is InlineLambdaContext && current.isCrossInline) return false
+            current = current.parentContext
+        }
+        return true
+    }
+
+    // Classes of declarations in the lambda are named after the class of the lambda, so they'd refer to a class which doesn't exist
+    private fun canBeGeneratedWithNestedDeclarations(declaration: KtElement): Boolean {
+        var result = true
+        declaration.acceptChildren(object : KtTreeVisitorVoid() {
+            override fun visitClassOrObject(classOrObject: KtClassOrObject) {
+                result = false
+            }
+
+            override fun visitCallableReferenceExpression(expression: KtCallableReferenceExpression) {
+                result = false
+            }
+
+            override fun visitNamedFunction(function: KtNamedFunction) {
+                visitNestedFunction(function)
+            }
+
+            override fun visitLambdaExpression(lambdaExpression: KtLambdaExpression) {
+                visitNestedFunction(lambdaExpression.functionLiteral)
+            }
+
+            private fun visitNestedFunction(function: KtFunction) {
+                if (InlineUtil.isInlinedArgument(function, bindingContext, false) || isGeneratedWithInvokeDynamic(function)) {
+                    function.acceptChildren(this)
+                }
+                else {
+                    result = false
+                }
+            }
+        })
+        return result
+    }
+
+    private fun isGeneratedWithInvokeDynamic(function: KtFunction): Boolean {
+        val descriptor = bindingContext[BindingContext.FUNCTION, function]
+        if (descriptor !is AnonymousFunctionDescriptor || descriptor.isSuspend) return false
+
+        val samType = bindingContext[SAM_VALUE, (function.parent as? KtLambdaExpression) ?: function]
+        return samType == null || !samType.needsBridges()
+    }
+
+    // LambdaMetafactory.metafactory doesn't generate bridges, which are needed if the SAM method overrides methods with other signatures
+    private fun SamType.needsBridges(): Boolean {
+        val method = abstractMethod.original
+        val asmMethod = typeMapper.mapAsmMethod(method)
+        return DescriptorUtils.getAllOverriddenDescriptors(method).any { typeMapper.mapAsmMethod(it.original) != asmMethod }
+    }
+
+    private fun instantiatedParameterType(implementationType: Type, interfaceType: Type): Type =
+            if (AsmUtil.isPrimitive(interfaceType)) implementationType else AsmUtil.boxType(implementationType)
+
+    private fun instantiatedReturnType(implementationType: Type, interfaceType: Type): Type =
+            if (interfaceType == Type.VOID_TYPE || AsmUtil.isPrimitive(interfaceType)) interfaceType else AsmUtil.boxType(implementationType)
+
+    private fun getImplementationName(owner: String, closureType: Type): String {
+        val closureName = closureType.internalName
+        val suffix = if (closureName.startsWith(owner + "$")) closureName.substring(owner.length + 1) else closureName.substringAfterLast('/')
+        return "lambda$" + suffix
+    }
+
+    companion object {
+        private val METAFACTORY = Handle(
+                H_INVOKESTATIC, "java/lang/invoke/LambdaMetafactory", "metafactory",
+                "(Ljava/lang/invoke/MethodHandles\$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;" +
+                "Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;"
+        )
+
+        /**
+         * Turns the `invoke` method of a closure class into a static method, which takes the values of [capturedFields]
+         * as its leading parameters. Returns false if the method uses `this` in some other way.
+         */
+        private fun MethodNode.moveToStaticMethod(closureType: Type, capturedFields: List<FieldInfo>): Boolean {
+            val parameters = HashMap<String, StackValue.Local>()
+            var capturedSize = 0
+            for (field in capturedFields) {
+                parameters[field.fieldName] = StackValue.local(capturedSize, field.fieldType)
+                capturedSize += field.fieldType.size
+            }
+            // captured values take the place of 'this'
+            val shift = capturedSize - 1
+            val owner = closureType.internalName
+
+            var insn: AbstractInsnNode? = instructions.first
+            while (insn != null) {
+                when (insn) {
+                    is VarInsnNode -> {
+                        if (insn.`var` == 0) {
+                            val field = insn.next as? FieldInsnNode
+                            if (insn.opcode != ALOAD || field == null || field.opcode != GETFIELD || field.owner != owner) return false
+                            val parameter = parameters[field.name] ?: return false
+
+                            val load = VarInsnNode(parameter.type.getOpcode(ILOAD), parameter.index)
+                            instructions.set(insn, load)
+                            instructions.remove(field)
+                            insn = load
+                        }
+                        else {
+                            insn.`var` += shift
+                        }
+                    }
+                    is IincInsnNode -> insn.`var` += shift
+                    is FieldInsnNode -> if (insn.owner == owner) return false
+                    is MethodInsnNode -> if (insn.owner == owner) return false
+                    is TypeInsnNode -> if (insn.desc == owner) return false
+                }
+                insn = insn.next
+            }
+
+            val start = instructions.first as? LabelNode ?: return false
+            val end = instructions.last as? LabelNode ?: return false
+            localVariables = localVariables.filterTo(ArrayList()) { it.index != 0 }
+            for (local in localVariables) {
+                local.index += shift
+            }
+            for (field in capturedFields) {
+                val parameter = parameters[field.fieldName]!!
+                localVariables.add(LocalVariableNode(
+                        field.fieldName.removePrefix("$"), field.fieldType.descriptor, null, start, end, parameter.index
+                ))
+            }
+
+            maxLocals += shift
+            return true
+        }
+
+        private fun MethodNode.returnUnitInsteadOfVoid() {
+            for (insn in instructions.toArray()) {
+                if (insn.opcode == RETURN) {
+                    instructions.insertBefore(insn, FieldInsnNode(GETSTATIC, AsmTypes.UNIT_TYPE.internalName, "INSTANCE", AsmTypes.UNIT_TYPE.descriptor))
+                    instructions.set(insn, InsnNode(ARETURN))
+                }
+            }
+        }
+    }
+}
@@ -19,15 +19,20 @@ package org.jetbrains.kotlin.codegen;
 import com.google.common.collect.Sets;
 import com.intellij.util.containers.MultiMap;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.kotlin.codegen.state.GenerationState;
 import org.jetbrains.kotlin.fileClasses.JvmFileClassInfo;
 import org.jetbrains.kotlin.name.FqName;
 import org.jetbrains.kotlin.progress.ProgressIndicatorAndCompilationCanceledStatus;
 import org.jetbrains.kotlin.psi.KtFile;
+import org.jetbrains.kotlin.utils.ExceptionUtilsKt;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.*;
 
 public class KotlinCodegenFacade {
 
@@ -41,7 +46,31 @@ public class KotlinCodegenFacade {
 
         ProgressIndicatorAndCompilationCanceledStatus.checkCanceled();
 
-        doGenerateFiles(state.getFiles(), state, errorHandler);
+        ExecutorService methodTransformationExecutor = createMethodTransformationExecutor(state);
+        state.setMethodTransformationExecutor(methodTransformationExecutor);
+        try {
+            doGenerateFiles(state.getFiles(), state, errorHandler);
+        }
+        finally {
+            state.setMethodTransformationExecutor(null);
+            if (methodTransformationExecutor != null) {
+                methodTransformationExecutor.shutdown();
+            }
+        }
+    }
+
+    @Nullable
+    private static ExecutorService createMethodTransformationExecutor(@NotNull GenerationState state) {
+        if (state.getOptimizationThreads() <= 1) return null;
+
+        return Executors.newFixedThreadPool(state.getOptimizationThreads(), new ThreadFactory() {
+            @Override
+            public Thread newThread(@NotNull Runnable runnable) {
+                Thread thread = new Thread(runnable, "Kotlin method optimization");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
     }
 
     public static void doGenerateFiles(
@@ -65,22 +94,94 @@ public class KotlinCodegenFacade {
             }
         }
 
-        Set<FqName> obsoleteMultifileClasses = new HashSet<FqName>(state.getObsoleteMultifileClasses());
-        for (FqName multifileClassFqName : Sets.union(filesInMultifileClasses.keySet(), obsoleteMultifileClasses)) {
-            doCheckCancelled(state);
-            generateMultifileClass(state, multifileClassFqName, filesInMultifileClasses.get(multifileClassFqName), errorHandler);
+        if (state.isParallelCodegen()) {
+            generateInParallel(state, filesInPackages, filesInMultifileClasses, errorHandler);
         }
+        else {
+            Set<FqName> obsoleteMultifileClasses = new HashSet<FqName>(state.getObsoleteMultifileClasses());
+            for (FqName multifileClassFqName : Sets.union(filesInMultifileClasses.keySet(), obsoleteMultifileClasses)) {
+                doCheckCancelled(state);
+                generateMultifileClass(state, multifileClassFqName, filesInMultifileClasses.get(multifileClassFqName), errorHandler);
+            }
 
-        Set<FqName> packagesWithObsoleteParts = new HashSet<FqName>(state.getPackagesWithObsoleteParts());
-        for (FqName packageFqName : Sets.union(packagesWithObsoleteParts, filesInPackages.keySet())) {
-            doCheckCancelled(state);
-            generatePackage(state, packageFqName, filesInPackages.get(packageFqName), errorHandler);
+            Set<FqName> packagesWithObsoleteParts = new HashSet<FqName>(state.getPackagesWithObsoleteParts());
+            for (FqName packageFqName : Sets.union(packagesWithObsoleteParts, filesInPackages.keySet())) {
+                doCheckCancelled(state);
+                generatePackage(state, packageFqName, filesInPackages.get(packageFqName), errorHandler);
+            }
         }
 
         doCheckCancelled(state);
         state.getFactory().done();
     }
 
+    // Every multifile class and package is a separate unit of generation. Units are generated on a thread pool, and their output
+    // is committed to the class file factory in the same order as in the sequential mode, so the result doesn't depend on scheduling
+    private static void generateInParallel(
+            @NotNull final GenerationState state,
+            @NotNull final MultiMap<FqName, KtFile> filesInPackages,
+            @NotNull final MultiMap<FqName, KtFile> filesInMultifileClasses,
+            @NotNull final CompilationErrorHandler errorHandler
+    ) {
+        List<Runnable> units = new ArrayList<Runnable>();
+
+        Set<FqName> obsoleteMultifileClasses = new HashSet<FqName>(state.getObsoleteMultifileClasses());
+        for (final FqName multifileClassFqName : Sets.union(filesInMultifileClasses.keySet(), obsoleteMultifileClasses)) {
+            units.add(new Runnable() {
+                @Override
+                public void run() {
+                    generateMultifileClass(state, multifileClassFqName, filesInMultifileClasses.get(multifileClassFqName), errorHandler);
+                }
+            });
+        }
+
+        Set<FqName> packagesWithObsoleteParts = new HashSet<FqName>(state.getPackagesWithObsoleteParts());
+        for (final FqName packageFqName : Sets.union(packagesWithObsoleteParts, filesInPackages.keySet())) {
+            units.add(new Runnable() {
+                @Override
+                public void run() {
+                    generatePackage(state, packageFqName, filesInPackages.get(packageFqName), errorHandler);
+                }
+            });
+        }
+
+        final ClassFileFactory factory = state.getFactory();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(state.getCodegenThreads(), Math.max(units.size(), 1)));
+        try {
+            List<Future<ClassFileFactory.UnitOutput>> outputs = new ArrayList<Future<ClassFileFactory.UnitOutput>>(units.size());
+            for (final Runnable unit : units) {
+                outputs.add(executor.submit(new Callable<ClassFileFactory.UnitOutput>() {
+                    @Override
+                    public ClassFileFactory.UnitOutput call() {
+                        doCheckCancelled(state);
+                        return factory.generateUnit(unit);
+                    }
+                }));
+            }
+
+            for (Future<ClassFileFactory.UnitOutput> output : outputs) {
+                factory.commitUnitOutput(getUnitOutput(output));
+                state.afterIndependentPart();
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @NotNull
+    private static ClassFileFactory.UnitOutput getUnitOutput(@NotNull Future<ClassFileFactory.UnitOutput> output) {
+        try {
+            return output.get();
+        }
+        catch (InterruptedException e) {
+            throw ExceptionUtilsKt.rethrow(e);
+        }
+        catch (ExecutionException e) {
+            throw ExceptionUtilsKt.rethrow(e.getCause());
+        }
+    }
+
     private static void doCheckCancelled(GenerationState state) {
         if (state.getClassBuilderMode().generateBodies) {
             ProgressIndicatorAndCompilationCanceledStatus.checkCanceled();
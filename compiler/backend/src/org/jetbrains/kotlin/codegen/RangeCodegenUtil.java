@@ -76,7 +76,12 @@ public class RangeCodegenUtil {
 
     @Nullable
     public static ResolvedCall<? extends CallableDescriptor> getLoopRangeResolvedCall(@NotNull KtForExpression forExpression, @NotNull BindingContext bindingContext) {
-        KtExpression loopRange = KtPsiUtil.deparenthesize(forExpression.getLoopRange());
+        return getRangeResolvedCall(forExpression.getLoopRange(), bindingContext);
+    }
+
+    @Nullable
+    public static ResolvedCall<? extends CallableDescriptor> getRangeResolvedCall(@Nullable KtExpression rangeExpression, @NotNull BindingContext bindingContext) {
+        KtExpression loopRange = KtPsiUtil.deparenthesize(rangeExpression);
 
         if (loopRange instanceof KtQualifiedExpression) {
             KtQualifiedExpression qualifiedExpression = (KtQualifiedExpression) loopRange;
@@ -145,7 +150,15 @@ public class RangeCodegenUtil {
     }
 
     public static boolean isPrimitiveNumberDownTo(@NotNull CallableDescriptor descriptor) {
-        if (!isTopLevelInPackage(descriptor, "downTo", "kotlin.ranges")) return false;
+        return isPrimitiveNumberRangeExtension(descriptor, "downTo");
+    }
+
+    public static boolean isPrimitiveNumberUntil(@NotNull CallableDescriptor descriptor) {
+        return isPrimitiveNumberRangeExtension(descriptor, "until");
+    }
+
+    private static boolean isPrimitiveNumberRangeExtension(@NotNull CallableDescriptor descriptor, @NotNull String name) {
+        if (!isTopLevelInPackage(descriptor, name, "kotlin.ranges")) return false;
 
         ReceiverParameterDescriptor extensionReceiver = descriptor.getExtensionReceiverParameter();
         if (extensionReceiver == null) return false;
@@ -155,6 +168,15 @@ public class RangeCodegenUtil {
         return true;
     }
 
+    public static boolean isPrimitiveProgressionReverse(@NotNull CallableDescriptor descriptor) {
+        if (!isTopLevelInPackage(descriptor, "reversed", "kotlin.ranges")) return false;
+
+        ReceiverParameterDescriptor extensionReceiver = descriptor.getExtensionReceiverParameter();
+        if (extensionReceiver == null) return false;
+
+        return isProgression(extensionReceiver.getType());
+    }
+
     public static boolean isArrayOrPrimitiveArrayIndices(@NotNull CallableDescriptor descriptor) {
         if (!isTopLevelInPackage(descriptor, "indices", "kotlin.collections")) return false;
 
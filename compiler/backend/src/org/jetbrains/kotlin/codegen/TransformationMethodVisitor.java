@@ -51,6 +51,16 @@ public abstract class TransformationMethodVisitor extends MethodVisitor {
 
     @Override
     public void visitEnd() {
+        transform();
+        emit();
+    }
+
+    /**
+     * Computes max stack and locals of the finished method and transforms it.
+     * Only the method node is touched, so it may be called on a thread other than the one that generated the method,
+     * as long as {@link #emit()} is called after it.
+     */
+    protected final void transform() {
         // force mv to calculate maxStack/maxLocals in case it didn't yet done
         if (methodNode.maxLocals <= 0 || methodNode.maxStack <= 0) {
             mv.visitMaxs(-1, -1);
@@ -62,7 +72,17 @@ public abstract class TransformationMethodVisitor extends MethodVisitor {
             if (shouldBeTransformed(methodNode)) {
                 performTransformations(methodNode);
             }
+        }
+        catch (Throwable t) {
+            throw new CompilationException("Couldn't transform method node: " + InlineCodegenUtil.getNodeText(methodNode), t, null);
+        }
+    }
 
+    /**
+     * Writes the transformed method to the delegate visitor
+     */
+    protected final void emit() {
+        try {
             methodNode.accept(new EndIgnoringMethodVisitorDecorator(Opcodes.ASM5, delegate));
 
 
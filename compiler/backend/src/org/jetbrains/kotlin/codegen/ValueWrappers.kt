@@ -0,0 +1,84 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import org.jetbrains.kotlin.builtins.KotlinBuiltIns
+import org.jetbrains.kotlin.codegen.state.KotlinTypeMapper
+import org.jetbrains.kotlin.descriptors.CallableMemberDescriptor
+import org.jetbrains.kotlin.descriptors.ClassConstructorDescriptor
+import org.jetbrains.kotlin.descriptors.ClassDescriptor
+import org.jetbrains.kotlin.descriptors.PropertyDescriptor
+import org.jetbrains.kotlin.incremental.components.NoLookupLocation
+import org.jetbrains.kotlin.resolve.jvm.annotations.findJvmValueWrapperAnnotation
+import org.jetbrains.kotlin.resolve.jvm.jvmSignature.JvmMethodSignature
+import org.jetbrains.org.objectweb.asm.Opcodes
+import org.jetbrains.org.objectweb.asm.Type
+import org.jetbrains.org.objectweb.asm.commons.Method
+
+/*
+ * Classes annotated with @JvmValueWrapper get two synthetic methods: static `box-impl`, which creates an instance with the given value,
+ * and `unbox-impl`, which returns the value. Instances of such classes are created with `box-impl` and their value is read
+ * with `unbox-impl` outside of the class, the same way as primitive values are boxed and unboxed, so that
+ * RedundantBoxingMethodTransformer replaces instances which don't escape a method with their values.
+ */
+
+const val VALUE_WRAPPER_BOX_METHOD = "box-impl"
+const val VALUE_WRAPPER_UNBOX_METHOD = "unbox-impl"
+
+/**
+ * Returns the property with the wrapped value if this class is annotated with @JvmValueWrapper,
+ * the applicability of the annotation is checked by the frontend
+ */
+fun ClassDescriptor.getValueWrapperProperty(): PropertyDescriptor? {
+    if (findJvmValueWrapperAnnotation() == null) return null
+
+    val parameter = unsubstitutedPrimaryConstructor?.valueParameters?.singleOrNull() ?: return null
+    if (!KotlinBuiltIns.isPrimitiveType(parameter.type)) return null
+
+    return unsubstitutedMemberScope.getContributedVariables(parameter.name, NoLookupLocation.FROM_BACKEND).singleOrNull {
+        it.kind == CallableMemberDescriptor.Kind.DECLARATION && it.extensionReceiverParameter == null
+    }
+}
+
+// Private constructors called through accessors aren't replaced, the accessors create instances themselves
+fun isValueWrapperConstructor(constructor: ClassConstructorDescriptor): Boolean =
+        constructor.isPrimary && constructor !is AccessorForCallableDescriptor<*> &&
+        constructor.containingDeclaration.getValueWrapperProperty() != null
+
+fun isValueWrapperProperty(property: PropertyDescriptor): Boolean {
+    val owner = property.containingDeclaration as? ClassDescriptor ?: return false
+    return owner.getValueWrapperProperty()?.original == property.original
+}
+
+fun KotlinTypeMapper.mapToValueWrapperBoxMethod(constructor: ClassConstructorDescriptor): CallableMethod {
+    val owner = mapClass(constructor.containingDeclaration)
+    val constructorSignature = mapSignatureSkipGeneric(constructor.original)
+    val method = Method(VALUE_WRAPPER_BOX_METHOD, owner, constructorSignature.asmMethod.argumentTypes)
+    return CallableMethod(
+            owner, null, "", JvmMethodSignature(method, constructorSignature.valueParameters), Opcodes.INVOKESTATIC,
+            null, null, null, false
+    )
+}
+
+fun KotlinTypeMapper.mapToValueWrapperUnboxMethod(property: PropertyDescriptor): CallableMethod {
+    val owner = mapClass(property.containingDeclaration as ClassDescriptor)
+    val method = Method(VALUE_WRAPPER_UNBOX_METHOD, mapType(property.type), arrayOf<Type>())
+    return CallableMethod(
+            owner, null, "", JvmMethodSignature(method, emptyList()), Opcodes.INVOKEVIRTUAL,
+            owner, null, null, false
+    )
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.binding
+
+import com.intellij.psi.PsiElement
+import com.intellij.psi.util.PsiTreeUtil
+import org.jetbrains.kotlin.descriptors.VariableDescriptor
+import org.jetbrains.kotlin.lexer.KtTokens
+import org.jetbrains.kotlin.psi.*
+import org.jetbrains.kotlin.resolve.BindingContext
+import java.util.*
+
+/**
+ * Checks whether a local `var` captured in closures may be captured by value, i.e. copied to the closures like a `val`,
+ * instead of being wrapped in a shared `Ref` object. This is the case if the variable is never modified after a closure
+ * capturing it is created:
+ * - it's not modified in closures, including lambdas which are inlined;
+ * - every modification is completed before the first closure capturing the variable starts in the source code,
+ *   and isn't in the same loop with any of the closures, where the next iteration could modify the variable again.
+ *
+ * Closures are considered to capture the variable where they are written. This is exact for lambdas, anonymous objects
+ * and local functions, and conservative for local classes, which capture variables when they are instantiated.
+ */
+fun canBeCapturedByValue(variable: KtProperty, descriptor: VariableDescriptor, bindingContext: BindingContext): Boolean {
+    val scope = variable.parent ?: return false
+
+    val writes = ArrayList<KtExpression>()
+    val captures = ArrayList<KtSimpleNameExpression>()
+    scope.accept(object : KtTreeVisitorVoid() {
+        override fun visitSimpleNameExpression(expression: KtSimpleNameExpression) {
+            super.visitSimpleNameExpression(expression)
+            if (bindingContext[BindingContext.REFERENCE_TARGET, expression] != descriptor) return
+
+            if (expression.isInClosure(scope)) {
+                captures.add(expression)
+            }
+            expression.getAssignment()?.let { writes.add(it) }
+        }
+    })
+
+    for (write in writes) {
+        for (capture in captures) {
+            if (PsiTreeUtil.isAncestor(write, capture, false)) return false
+            if (capture.textRange.startOffset < write.textRange.endOffset) return false
+            if (areInSameLoop(write, capture, scope)) return false
+        }
+    }
+    return true
+}
+
+private fun KtSimpleNameExpression.isInClosure(scope: PsiElement): Boolean {
+    var element: PsiElement? = parent
+    while (element != null && element != scope) {
+        if (element is KtFunction || element is KtClassOrObject || element is KtPropertyAccessor) return true
+        element = element.parent
+    }
+    return false
+}
+
+// the whole assignment expression if the variable is assigned here, it's only modified when this expression is completed
+private fun KtSimpleNameExpression.getAssignment(): KtExpression? {
+    var target: KtExpression = this
+    while (true) {
+        target = target.parent as? KtParenthesizedExpression ?: break
+    }
+
+    val parent = target.parent
+    return when {
+        parent is KtBinaryExpression && parent.left == target && parent.operationToken in KtTokens.ALL_ASSIGNMENTS -> parent
+        parent is KtUnaryExpression && (parent.operationToken == KtTokens.PLUSPLUS || parent.operationToken == KtTokens.MINUSMINUS) -> parent
+        else -> null
+    }
+}
+
+// Loops enclosing the declaration of the variable don't matter, each of their iterations has a new variable
+private fun areInSameLoop(write: PsiElement, capture: PsiElement, scope: PsiElement): Boolean {
+    var element: PsiElement? = capture.parent
+    while (element != null && element != scope) {
+        if (element is KtLoopExpression && PsiTreeUtil.isAncestor(element, write, false)) return true
+        element = element.parent
+    }
+    return false
+}
@@ -64,6 +64,7 @@ import static org.jetbrains.kotlin.codegen.binding.CodegenBinding.*;
 import static org.jetbrains.kotlin.lexer.KtTokens.*;
 import static org.jetbrains.kotlin.name.SpecialNames.safeIdentifier;
 import static org.jetbrains.kotlin.resolve.BindingContext.*;
+import static org.jetbrains.kotlin.resolve.BindingContextUtils.isVarCapturedInClosure;
 
 class CodegenAnnotatingVisitor extends KtVisitorVoid {
     private static final TokenSet BINARY_OPERATIONS = TokenSet.orSet(
@@ -389,6 +390,14 @@ class CodegenAnnotatingVisitor extends KtVisitorVoid {
         bindingTrace.record(LOCAL_VARIABLE_PROPERTY_METADATA, variableDescriptor, metadataVariableDescriptor);
     }
 
+    private void recordVarCapturedByValue(@NotNull KtProperty property, @NotNull LocalVariableDescriptor variableDescriptor) {
+        if (variableDescriptor.isDelegated() || !isVarCapturedInClosure(bindingContext, variableDescriptor)) return;
+
+        if (CapturedVarAnalysisKt.canBeCapturedByValue(property, variableDescriptor, bindingContext)) {
+            bindingTrace.record(VAR_CAPTURED_BY_VALUE, variableDescriptor);
+        }
+    }
+
     @Override
     public void visitProperty(@NotNull KtProperty property) {
         DeclarationDescriptor descriptor = bindingContext.get(DECLARATION_TO_DESCRIPTOR, property);
@@ -397,6 +406,7 @@ class CodegenAnnotatingVisitor extends KtVisitorVoid {
 
         if (descriptor instanceof LocalVariableDescriptor) {
             recordLocalVariablePropertyMetadata((LocalVariableDescriptor) descriptor);
+            recordVarCapturedByValue(property, (LocalVariableDescriptor) descriptor);
         }
 
         String nameForClassOrPackageMember = getNameForClassOrPackageMember(descriptor);
@@ -29,6 +29,7 @@ import org.jetbrains.kotlin.name.FqName;
 import org.jetbrains.kotlin.psi.*;
 import org.jetbrains.kotlin.psi.psiUtil.PsiUtilsKt;
 import org.jetbrains.kotlin.resolve.BindingContext;
+import org.jetbrains.kotlin.resolve.BindingContextUtils;
 import org.jetbrains.kotlin.resolve.BindingTrace;
 import org.jetbrains.kotlin.resolve.DescriptorToSourceUtils;
 import org.jetbrains.kotlin.util.slicedMap.BasicWritableSlice;
@@ -72,6 +73,9 @@ public class CodegenBinding {
     public static final WritableSlice<ValueParameterDescriptor, ValueParameterDescriptor> PARAMETER_SYNONYM =
             Slices.createSimpleSlice();
 
+    // Local vars captured in closures which are not modified after the closures are created, see CapturedVarAnalysisKt
+    public static final WritableSlice<VariableDescriptor, Boolean> VAR_CAPTURED_BY_VALUE = Slices.createSimpleSetSlice();
+
     static {
         BasicWritableSlice.initSliceDebugNames(CodegenBinding.class);
     }
@@ -86,6 +90,12 @@ public class CodegenBinding {
         }
     }
 
+    // Whether the variable is wrapped in a Ref object, because it's captured in a closure and may be modified after that
+    public static boolean isBoxedLocalCapturedInClosure(@NotNull BindingContext bindingContext, @Nullable DeclarationDescriptor descriptor) {
+        return BindingContextUtils.isVarCapturedInClosure(bindingContext, descriptor) &&
+               !Boolean.TRUE.equals(bindingContext.get(VAR_CAPTURED_BY_VALUE, (VariableDescriptor) descriptor));
+    }
+
     public static boolean enumEntryNeedSubclass(BindingContext bindingContext, KtEnumEntry enumEntry) {
         return enumEntryNeedSubclass(bindingContext, bindingContext.get(CLASS, enumEntry));
     }
@@ -190,6 +190,7 @@ class CoroutineTransformerMethodVisitor(
         // We postpone these actions because they change instruction indices that we use when obtaining frames
         val postponedActions = mutableListOf<() -> Unit>()
         val maxVarsCountByType = mutableMapOf<Type, Int>()
+        val spilledReferencesCount = mutableMapOf<SuspensionPoint, Int>()
         val livenessFrames = analyzeLiveness(methodNode)
 
         for (suspension in suspensionPoints) {
@@ -273,6 +274,25 @@ class CoroutineTransformerMethodVisitor(
             varsCountByType.forEach {
                 maxVarsCountByType[it.key] = Math.max(maxVarsCountByType[it.key] ?: 0, it.value)
             }
+            spilledReferencesCount[suspension] = varsCountByType[AsmTypes.OBJECT_TYPE]?.plus(1) ?: 0
+        }
+
+        // Fields for references which aren't spilled at a suspension point may still hold objects spilled at a previous one,
+        // these objects would stay reachable from the continuation while it's suspended, so the fields are cleaned up
+        val maxSpilledReferencesCount = maxVarsCountByType[AsmTypes.OBJECT_TYPE]?.plus(1) ?: 0
+        for (suspension in suspensionPoints) {
+            val referencesCount = spilledReferencesCount[suspension] ?: continue
+            if (referencesCount == maxSpilledReferencesCount) continue
+
+            postponedActions.add {
+                instructions.insertBefore(suspension.suspensionCallBegin, withInstructionAdapter {
+                    for (index in referencesCount until maxSpilledReferencesCount) {
+                        load(0, AsmTypes.OBJECT_TYPE)
+                        aconst(null)
+                        putfield(classBuilder.thisName, AsmTypes.OBJECT_TYPE.fieldNameForVar(index), AsmTypes.OBJECT_TYPE.descriptor)
+                    }
+                })
+            }
         }
 
         postponedActions.forEach(Function0<Unit>::invoke)
@@ -284,7 +284,10 @@ public class InlineCodegen extends CallGenerator {
                 }
         );
 
-        return resultInCache.copyWithNewNode(cloneMethodNode(resultInCache.getNode()));
+        // Cloning resets labels of the cached node, so it must not happen concurrently
+        synchronized (resultInCache) {
+            return resultInCache.copyWithNewNode(cloneMethodNode(resultInCache.getNode()));
+        }
     }
 
     @NotNull
@@ -322,7 +325,7 @@ public class InlineCodegen extends CallGenerator {
                 }
             });
 
-            return InlineCodegenUtil.getMethodNode(bytes, asmMethod.getName(), asmMethod.getDescriptor(), classId);
+            return getMethodNode(bytes, asmMethod, classId);
         }
 
         assert callableDescriptor instanceof DeserializedCallableMemberDescriptor : "Not a deserialized function or proper: " + callableDescriptor;
@@ -349,7 +352,16 @@ public class InlineCodegen extends CallGenerator {
         });
 
 
-        return InlineCodegenUtil.getMethodNode(bytes, asmMethod.getName(), asmMethod.getDescriptor(), containerId);
+        return getMethodNode(bytes, asmMethod, containerId);
+    }
+
+    @Nullable
+    private static SMAPAndMethodNode getMethodNode(@NotNull byte[] classBytes, @NotNull Method asmMethod, @NotNull ClassId classId) {
+        SharedInlineCache sharedCache = SharedInlineCache.getInstance();
+        if (sharedCache != null) {
+            return sharedCache.getMethodNode(classBytes, classId, asmMethod.getName(), asmMethod.getDescriptor());
+        }
+        return InlineCodegenUtil.getMethodNode(classBytes, asmMethod.getName(), asmMethod.getDescriptor(), classId);
     }
 
     @NotNull
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.inline
+
+import org.jetbrains.kotlin.name.ClassId
+import java.security.MessageDigest
+import java.util.*
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Cache of inline function bodies read from compiled classes, shared by all compilations in the process.
+ * Unlike [InlineCache], which lives as long as a single [org.jetbrains.kotlin.codegen.state.GenerationState], it's only
+ * enabled (see [instance]) where many compilations inline the same library functions, i.e. in the compile daemon.
+ *
+ * Bodies are keyed by the content hash of the class they are read from, so a recompiled class never gets a stale body.
+ * Bodies are evicted in LRU order when their estimated size exceeds [maxSizeBytes].
+ * Cached nodes must not be modified, they are cloned by [InlineCodegen] while synchronized on the cached [SMAPAndMethodNode].
+ */
+class SharedInlineCache(val maxSizeBytes: Long) {
+    private data class Key(val classId: ClassId, val classHash: String, val methodName: String, val methodDescriptor: String)
+
+    private class Entry(val node: SMAPAndMethodNode, val size: Long)
+
+    // guarded by itself along with totalSize
+    private val methods = LinkedHashMap<Key, Entry>(16, 0.75f, true)
+    private var totalSize = 0L
+
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+
+    val hitCount: Long get() = hits.get()
+    val missCount: Long get() = misses.get()
+    val size: Long get() = synchronized(methods) { totalSize }
+
+    fun getMethodNode(classBytes: ByteArray, classId: ClassId, methodName: String, methodDescriptor: String): SMAPAndMethodNode? {
+        val key = Key(classId, classBytes.contentHash(), methodName, methodDescriptor)
+        synchronized(methods) { methods[key] }?.let {
+            hits.incrementAndGet()
+            return it.node
+        }
+
+        misses.incrementAndGet()
+        val node = InlineCodegenUtil.getMethodNode(classBytes, methodName, methodDescriptor, classId) ?: return null
+        val entry = Entry(node, estimateSize(node))
+
+        synchronized(methods) {
+            methods[key]?.let { return it.node }
+
+            methods[key] = entry
+            totalSize += entry.size
+
+            val iterator = methods.values.iterator()
+            while (totalSize > maxSizeBytes && iterator.hasNext()) {
+                val eldest = iterator.next()
+                if (eldest === entry) continue
+
+                iterator.remove()
+                totalSize -= eldest.size
+            }
+        }
+        return node
+    }
+
+    fun clear() {
+        synchronized(methods) {
+            methods.clear()
+            totalSize = 0
+        }
+    }
+
+    private fun estimateSize(node: SMAPAndMethodNode): Long =
+            METHOD_OVERHEAD_BYTES + INSN_BYTES * node.node.instructions.size() + RANGE_BYTES * node.classSMAP.intervals.size
+
+    private fun ByteArray.contentHash(): String =
+            MessageDigest.getInstance("MD5").digest(this).joinToString("") { "%02x".format(it) }
+
+    companion object {
+        private const val METHOD_OVERHEAD_BYTES = 500L
+        private const val INSN_BYTES = 60L
+        private const val RANGE_BYTES = 100L
+
+        /**
+         * The cache used for inline functions from compiled classes, if enabled
+         */
+        @Volatile
+        @JvmStatic
+        var instance: SharedInlineCache? = null
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.jetbrains.kotlin.codegen.optimization
 
+import org.jetbrains.kotlin.codegen.optimization.common.MethodFrames
 import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter
 import org.jetbrains.kotlin.codegen.optimization.common.isMeaningful
 import org.jetbrains.kotlin.codegen.optimization.common.removeEmptyCatchBlocks
@@ -29,11 +30,11 @@ class DeadCodeEliminationMethodTransformer : MethodTransformer() {
     }
 
     fun transformWithResult(internalClassName: String, methodNode: MethodNode): Result {
-        val frames = analyze(internalClassName, methodNode, OptimizationBasicInterpreter())
+        val frames = analyzeFrames(internalClassName, methodNode, OptimizationBasicInterpreter())
         return removeDeadCodeByFrames(methodNode, frames)
     }
 
-    fun removeDeadCodeByFrames(methodNode: MethodNode, frames: Array<out Any?>): Result {
+    fun removeDeadCodeByFrames(methodNode: MethodNode, frames: MethodFrames<*>): Result {
         val removedNodes = HashSet<AbstractInsnNode>()
 
         val insnList = methodNode.instructions
@@ -41,11 +42,11 @@ class DeadCodeEliminationMethodTransformer : MethodTransformer() {
 
         // Do not remove not meaningful nodes (labels/linenumbers) because they can be referred
         // by try/catch blocks or local variables table.
-        insnsArray.zip(frames).filter {
-            it.second == null && it.first.isMeaningful
+        insnsArray.filterIndexed { i, insn ->
+            !frames.isReachable(i) && insn.isMeaningful
         }.forEach {
-            insnList.remove(it.first)
-            removedNodes.add(it.first)
+            insnList.remove(it)
+            removedNodes.add(it)
         }
 
         // Remove empty try-catch blocks to make sure we don't break data flow analysis invariants by dead code elimination.
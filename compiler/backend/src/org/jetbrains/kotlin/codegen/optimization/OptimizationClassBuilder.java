@@ -23,13 +23,22 @@ import org.jetbrains.kotlin.codegen.DelegatingClassBuilder;
 import org.jetbrains.kotlin.resolve.jvm.diagnostics.JvmDeclarationOrigin;
 import org.jetbrains.org.objectweb.asm.MethodVisitor;
 
+import java.util.concurrent.ExecutorService;
+
 public class OptimizationClassBuilder extends DelegatingClassBuilder {
     private final ClassBuilder delegate;
     private final boolean disableOptimization;
+    @Nullable
+    private final PendingMethodTransformations pendingTransformations;
 
-    public OptimizationClassBuilder(@NotNull ClassBuilder delegate, boolean disableOptimization) {
+    public OptimizationClassBuilder(
+            @NotNull ClassBuilder delegate,
+            boolean disableOptimization,
+            @Nullable ExecutorService transformationExecutor
+    ) {
         this.delegate = delegate;
         this.disableOptimization = disableOptimization;
+        this.pendingTransformations = transformationExecutor != null ? new PendingMethodTransformations(transformationExecutor) : null;
     }
 
     @NotNull
@@ -51,7 +60,16 @@ public class OptimizationClassBuilder extends DelegatingClassBuilder {
         return new OptimizationMethodVisitor(
                 super.newMethod(origin, access, name, desc, signature, exceptions),
                 disableOptimization,
+                pendingTransformations,
                 access, name, desc, signature, exceptions
         );
     }
+
+    @Override
+    public void done() {
+        if (pendingTransformations != null) {
+            pendingTransformations.emitAll();
+        }
+        super.done();
+    }
 }
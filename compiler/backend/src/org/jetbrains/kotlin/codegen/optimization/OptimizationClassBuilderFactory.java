@@ -17,23 +17,36 @@
 package org.jetbrains.kotlin.codegen.optimization;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.kotlin.codegen.ClassBuilder;
 import org.jetbrains.kotlin.codegen.ClassBuilderFactory;
 import org.jetbrains.kotlin.codegen.ClassBuilderMode;
 import org.jetbrains.kotlin.codegen.DelegatingClassBuilderFactory;
 import org.jetbrains.kotlin.resolve.jvm.diagnostics.JvmDeclarationOrigin;
 
+import java.util.concurrent.ExecutorService;
+
 public class OptimizationClassBuilderFactory extends DelegatingClassBuilderFactory {
     private final boolean disableOptimization;
+    @Nullable
+    private volatile ExecutorService transformationExecutor;
 
     public OptimizationClassBuilderFactory(ClassBuilderFactory delegate, boolean disableOptimization) {
         super(delegate);
         this.disableOptimization = disableOptimization;
     }
 
+    /**
+     * @param transformationExecutor if not null, methods of the classes created afterwards are transformed on this executor
+     *                               while their classes are generated
+     */
+    public void setTransformationExecutor(@Nullable ExecutorService transformationExecutor) {
+        this.transformationExecutor = transformationExecutor;
+    }
+
     @NotNull
     @Override
     public OptimizationClassBuilder newClassBuilder(@NotNull JvmDeclarationOrigin origin) {
-        return new OptimizationClassBuilder(getDelegate().newClassBuilder(origin), disableOptimization);
+        return new OptimizationClassBuilder(getDelegate().newClassBuilder(origin), disableOptimization, transformationExecutor);
     }
 }
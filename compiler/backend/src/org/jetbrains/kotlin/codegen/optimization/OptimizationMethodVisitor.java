@@ -29,8 +29,6 @@ import org.jetbrains.org.objectweb.asm.MethodVisitor;
 import org.jetbrains.org.objectweb.asm.tree.MethodNode;
 
 public class OptimizationMethodVisitor extends TransformationMethodVisitor {
-    private static final int MEMORY_LIMIT_BY_METHOD_MB = 50;
-
     private static final MethodTransformer MANDATORY_METHOD_TRANSFORMER = new FixStackWithLabelNormalizationMethodTransformer();
 
     private static final MethodTransformer[] OPTIMIZATION_TRANSFORMERS = new MethodTransformer[] {
@@ -45,10 +43,13 @@ public class OptimizationMethodVisitor extends TransformationMethodVisitor {
     };
 
     private final boolean disableOptimization;
+    @Nullable
+    private final PendingMethodTransformations pendingTransformations;
 
     public OptimizationMethodVisitor(
             @NotNull MethodVisitor delegate,
             boolean disableOptimization,
+            @Nullable PendingMethodTransformations pendingTransformations,
             int access,
             @NotNull String name,
             @NotNull String desc,
@@ -57,21 +58,43 @@ public class OptimizationMethodVisitor extends TransformationMethodVisitor {
     ) {
         super(delegate, access, name, desc, signature, exceptions);
         this.disableOptimization = disableOptimization;
+        this.pendingTransformations = pendingTransformations;
+    }
+
+    @Override
+    public void visitMaxs(int maxStack, int maxLocals) {
+        // if transformations are pending, maxs are calculated along with them on a worker thread
+        if (pendingTransformations == null) {
+            super.visitMaxs(maxStack, maxLocals);
+        }
+    }
+
+    @Override
+    public void visitEnd() {
+        if (pendingTransformations != null) {
+            pendingTransformations.submit(this);
+        }
+        else {
+            super.visitEnd();
+        }
+    }
+
+    void transformMethod() {
+        transform();
+    }
+
+    void emitMethod() {
+        emit();
     }
 
     @Override
     protected void performTransformations(@NotNull MethodNode methodNode) {
         MANDATORY_METHOD_TRANSFORMER.transform("fake", methodNode);
-        if (canBeOptimized(methodNode) && !disableOptimization) {
+        if (!disableOptimization) {
             for (MethodTransformer transformer : OPTIMIZATION_TRANSFORMERS) {
                 transformer.transform("fake", methodNode);
             }
         }
         UtilKt.prepareForEmitting(methodNode);
     }
-
-    private static boolean canBeOptimized(@NotNull MethodNode node) {
-        int totalFramesSizeMb = node.instructions.size() * (node.maxLocals + node.maxStack) / (1024 * 1024);
-        return totalFramesSizeMb < MEMORY_LIMIT_BY_METHOD_MB;
-    }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization
+
+import org.jetbrains.kotlin.utils.rethrow
+import java.util.*
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Future
+
+/**
+ * Methods of one class which are transformed on [executor] while the rest of the class is generated.
+ * Transformed methods are written to the class in the order they were finished by codegen when [emitAll] is called,
+ * so the resulting bytecode doesn't depend on the order in which the workers complete.
+ */
+class PendingMethodTransformations(private val executor: ExecutorService) {
+    private val pending = ArrayList<Pair<OptimizationMethodVisitor, Future<*>>>()
+
+    fun submit(visitor: OptimizationMethodVisitor) {
+        pending.add(visitor to executor.submit { visitor.transformMethod() })
+    }
+
+    fun emitAll() {
+        try {
+            for ((visitor, transformation) in pending) {
+                try {
+                    transformation.get()
+                }
+                catch (e: ExecutionException) {
+                    throw rethrow(e.cause ?: e)
+                }
+                visitor.emitMethod()
+            }
+        }
+        finally {
+            pending.clear()
+        }
+    }
+}
@@ -34,7 +34,7 @@ class RedundantCheckCastEliminationMethodTransformer : MethodTransformer() {
 
         val redundantCheckCasts = ArrayList<TypeInsnNode>()
 
-        val frames = analyze(internalClassName, methodNode, OptimizationBasicInterpreter())
+        val frames = analyzeFrames(internalClassName, methodNode, OptimizationBasicInterpreter())
         for (i in insns.indices) {
             val valueType = frames[i]?.top()?.type ?: continue
             val insn = insns[i]
@@ -22,6 +22,7 @@ import org.jetbrains.kotlin.codegen.optimization.common.StrictBasicValue
 import org.jetbrains.kotlin.resolve.jvm.AsmTypes
 import org.jetbrains.org.objectweb.asm.Type
 import org.jetbrains.org.objectweb.asm.tree.AbstractInsnNode
+import org.jetbrains.org.objectweb.asm.tree.MethodInsnNode
 import java.util.*
 
 abstract class BoxedBasicValue(type: Type) : StrictBasicValue(type) {
@@ -63,7 +64,9 @@ class BoxedValueDescriptor(
     private val mergedWith = HashSet<BoxedValueDescriptor>()
 
     var isSafeToRemove = true; private set
-    val unboxedType: Type = getUnboxedType(boxedType)
+    val isValueWrapper = boxingInsn.isValueWrapperBoxing()
+    val unboxedType: Type =
+            if (isValueWrapper) Type.getArgumentTypes((boxingInsn as MethodInsnNode).desc).single() else getUnboxedType(boxedType)
 
     fun getAssociatedInsns() = associatedInsns.toList()
 
@@ -19,6 +19,8 @@ package org.jetbrains.kotlin.codegen.optimization.boxing
 import com.google.common.collect.ImmutableSet
 import org.jetbrains.kotlin.codegen.AsmUtil
 import org.jetbrains.kotlin.codegen.RangeCodegenUtil
+import org.jetbrains.kotlin.codegen.VALUE_WRAPPER_BOX_METHOD
+import org.jetbrains.kotlin.codegen.VALUE_WRAPPER_UNBOX_METHOD
 import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter
 import org.jetbrains.kotlin.codegen.optimization.common.StrictBasicValue
 import org.jetbrains.kotlin.name.FqName
@@ -140,10 +142,10 @@ private val KCLASS_TO_JLCLASS = Type.getMethodDescriptor(AsmTypes.JAVA_CLASS_TYP
 private val JLCLASS_TO_KCLASS = Type.getMethodDescriptor(AsmTypes.K_CLASS_TYPE, AsmTypes.JAVA_CLASS_TYPE)
 
 fun AbstractInsnNode.isUnboxing() =
-        isPrimitiveUnboxing() || isJavaLangClassUnboxing()
+        isPrimitiveUnboxing() || isJavaLangClassUnboxing() || isValueWrapperUnboxing()
 
 fun AbstractInsnNode.isBoxing() =
-        isPrimitiveBoxing() || isJavaLangClassBoxing()
+        isPrimitiveBoxing() || isJavaLangClassBoxing() || isValueWrapperBoxing()
 
 fun AbstractInsnNode.isPrimitiveUnboxing() =
         isMethodInsnWith(Opcodes.INVOKEVIRTUAL) {
@@ -157,6 +159,11 @@ private fun AbstractInsnNode.isJavaLangClassUnboxing() =
             desc == KCLASS_TO_JLCLASS
         }
 
+private fun AbstractInsnNode.isValueWrapperUnboxing() =
+        isMethodInsnWith(Opcodes.INVOKEVIRTUAL) {
+            name == VALUE_WRAPPER_UNBOX_METHOD
+        }
+
 inline fun AbstractInsnNode.isMethodInsnWith(opcode: Int, condition: MethodInsnNode.() -> Boolean): Boolean =
         this.opcode == opcode && this is MethodInsnNode && this.condition()
 
@@ -185,6 +192,12 @@ private fun MethodInsnNode.isBoxingMethodDescriptor(): Boolean {
     return desc == Type.getMethodDescriptor(ownerType, AsmUtil.unboxType(ownerType))
 }
 
+fun AbstractInsnNode.isValueWrapperBoxing() =
+        isMethodInsnWith(Opcodes.INVOKESTATIC) {
+            name == VALUE_WRAPPER_BOX_METHOD &&
+            Type.getReturnType(desc) == Type.getObjectType(owner)
+        }
+
 private fun AbstractInsnNode.isJavaLangClassBoxing() =
         isMethodInsnWith(Opcodes.INVOKESTATIC) {
             owner == AsmTypes.REFLECTION &&
@@ -218,7 +231,8 @@ fun AbstractInsnNode.isAreEqualIntrinsicForSameTypedBoxedValues(values: List<Bas
 
             val d1 = v1.descriptor
             val d2 = v2.descriptor
-            d1.unboxedType == d2.unboxedType
+            // equality of value wrappers isn't necessarily the equality of their values
+            !d1.isValueWrapper && !d2.isValueWrapper && d1.unboxedType == d2.unboxedType
         }
 
 fun AbstractInsnNode.isAreEqualIntrinsic() =
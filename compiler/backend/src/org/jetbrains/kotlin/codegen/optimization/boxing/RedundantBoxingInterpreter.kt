@@ -132,6 +132,7 @@ internal class RedundantBoxingInterpreter(insnList: InsnList) : BoxingInterprete
                     Type.getInternalName(Any::class.java) ->
                         true
                     Type.getInternalName(Number::class.java) ->
+                        !value.descriptor.isValueWrapper &&
                         PRIMITIVE_TYPES_SORTS_WITH_WRAPPER_EXTENDS_NUMBER.contains(value.descriptor.unboxedType.sort)
                     else ->
                         value.type.internalName == targetInternalName
@@ -16,6 +16,7 @@
 
 package org.jetbrains.kotlin.codegen.optimization.boxing
 
+import org.jetbrains.kotlin.codegen.optimization.common.MethodFrames
 import org.jetbrains.kotlin.codegen.optimization.common.isMeaningful
 import org.jetbrains.kotlin.codegen.optimization.fixStack.top
 import org.jetbrains.kotlin.codegen.optimization.removeNodeGetNext
@@ -23,8 +24,6 @@ import org.jetbrains.kotlin.codegen.optimization.replaceNodeGetNext
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
 import org.jetbrains.org.objectweb.asm.Opcodes
 import org.jetbrains.org.objectweb.asm.tree.*
-import org.jetbrains.org.objectweb.asm.tree.analysis.Analyzer
-import org.jetbrains.org.objectweb.asm.tree.analysis.Frame
 import org.jetbrains.org.objectweb.asm.tree.analysis.SourceInterpreter
 import org.jetbrains.org.objectweb.asm.tree.analysis.SourceValue
 import java.util.*
@@ -72,8 +71,8 @@ class RedundantCoercionToUnitTransformer : MethodTransformer() {
             postprocessNops()
         }
 
-        private fun analyzeMethodBody(): Array<out Frame<SourceValue>?> =
-                Analyzer<SourceValue>(object : SourceInterpreter() {
+        private fun analyzeMethodBody(): MethodFrames<SourceValue> =
+                MethodTransformer.analyzeFrames("fake", methodNode, object : SourceInterpreter() {
                     override fun naryOperation(insn: AbstractInsnNode, values: MutableList<out SourceValue>): SourceValue {
                         for (value in values) {
                             value.insns.markAsDontTouch()
@@ -111,14 +110,14 @@ class RedundantCoercionToUnitTransformer : MethodTransformer() {
                             dontTouchInsnIndices[insnList.indexOf(it)] = true
                         }
                     }
-                }).analyze("fake", methodNode)
+                })
 
 
         private fun computeTransformations() {
             transformations.clear()
 
             for (i in insns.indices) {
-                if (frames[i] == null) continue
+                if (!frames.isReachable(i)) continue
                 val insn = insns[i]
 
                 if (insn.opcode == Opcodes.POP) {
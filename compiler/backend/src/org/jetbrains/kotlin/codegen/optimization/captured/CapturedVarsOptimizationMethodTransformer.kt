@@ -17,6 +17,7 @@
 package org.jetbrains.kotlin.codegen.optimization.captured
 
 import org.jetbrains.kotlin.builtins.PrimitiveType
+import org.jetbrains.kotlin.codegen.optimization.common.MethodFrames
 import org.jetbrains.kotlin.codegen.optimization.common.removeEmptyCatchBlocks
 import org.jetbrains.kotlin.codegen.optimization.common.removeUnusedLocalVariables
 import org.jetbrains.kotlin.codegen.optimization.fixStack.peek
@@ -28,7 +29,6 @@ import org.jetbrains.org.objectweb.asm.Opcodes
 import org.jetbrains.org.objectweb.asm.Type
 import org.jetbrains.org.objectweb.asm.tree.*
 import org.jetbrains.org.objectweb.asm.tree.analysis.BasicValue
-import org.jetbrains.org.objectweb.asm.tree.analysis.Frame
 
 class CapturedVarsOptimizationMethodTransformer : MethodTransformer() {
     override fun transform(internalClassName: String, methodNode: MethodNode) {
@@ -79,7 +79,7 @@ class CapturedVarsOptimizationMethodTransformer : MethodTransformer() {
         private val refValues = ArrayList<CapturedVarDescriptor>()
         private val refValuesByNewInsn = LinkedHashMap<TypeInsnNode, CapturedVarDescriptor>()
         private val insns = methodNode.instructions.toArray()
-        private lateinit var frames: Array<out Frame<BasicValue>?>
+        private lateinit var frames: MethodFrames<BasicValue>
 
         val hasRewritableRefValues: Boolean
             get() = refValues.isNotEmpty()
@@ -145,7 +145,7 @@ class CapturedVarsOptimizationMethodTransformer : MethodTransformer() {
         }
 
         private fun analyze() {
-            frames = MethodTransformer.analyze(internalClassName, methodNode, Interpreter())
+            frames = MethodTransformer.analyzeFrames(internalClassName, methodNode, Interpreter())
             trackPops()
             assignLocalVars()
 
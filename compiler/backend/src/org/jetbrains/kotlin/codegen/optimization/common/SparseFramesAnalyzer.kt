@@ -0,0 +1,287 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization.common
+
+import org.jetbrains.kotlin.codegen.inline.InlineCodegenUtil
+import org.jetbrains.org.objectweb.asm.Opcodes
+import org.jetbrains.org.objectweb.asm.Type
+import org.jetbrains.org.objectweb.asm.tree.*
+import org.jetbrains.org.objectweb.asm.tree.analysis.AnalyzerException
+import org.jetbrains.org.objectweb.asm.tree.analysis.Frame
+import org.jetbrains.org.objectweb.asm.tree.analysis.Interpreter
+import org.jetbrains.org.objectweb.asm.tree.analysis.Value
+import java.util.*
+
+/**
+ * Frames computed by [SparseFramesAnalyzer]. Only frames at the entries of basic blocks are stored,
+ * the frame of any other instruction is recomputed from the entry frame of its block when requested.
+ *
+ * Indices and instructions are the ones of the method at the moment of analysis, so the method may be modified
+ * while the frames are still in use. Each call of [get] returns a new frame, which may be kept by the caller.
+ * Requests with increasing indices within a block (the usual forward scan) reuse the previously computed frame.
+ */
+class MethodFrames<V : Value> internal constructor(
+        private val insns: Array<AbstractInsnNode>,
+        private val interpreter: Interpreter<V>,
+        private val blockStarts: IntArray,
+        private val entryFrames: Array<Frame<V>?>
+) {
+    private var lastIndex = -1
+    private var lastFrame: Frame<V>? = null
+
+    val size: Int get() = insns.size
+
+    fun isReachable(index: Int): Boolean = entryFrames[blockOf(index)] != null
+
+    operator fun get(index: Int): Frame<V>? {
+        val block = blockOf(index)
+        val entryFrame = entryFrames[block] ?: return null
+
+        val previous = lastFrame
+        val start: Int
+        val frame: Frame<V>
+        if (previous != null && lastIndex in blockStarts[block]..index) {
+            start = lastIndex
+            frame = Frame(previous)
+        }
+        else {
+            start = blockStarts[block]
+            frame = Frame(entryFrame)
+        }
+
+        for (i in start until index) {
+            val insn = insns[i]
+            if (insn.isExecutable()) {
+                try {
+                    frame.execute(insn, interpreter)
+                }
+                catch (e: AnalyzerException) {
+                    throw IllegalStateException("Frame at instruction #$index can't be restored: ${e.message}", e)
+                }
+            }
+        }
+
+        lastIndex = index
+        lastFrame = frame
+        return frame
+    }
+
+    private fun blockOf(index: Int): Int {
+        val i = Arrays.binarySearch(blockStarts, index)
+        return if (i >= 0) i else -i - 2
+    }
+}
+
+/**
+ * Forward flow analysis producing the same frames as `org.objectweb.asm.tree.analysis.Analyzer`, but keeping only
+ * the frames at basic block entries, so that memory taken by the result is proportional to the number of blocks
+ * rather than to the number of instructions. See [MethodFrames].
+ *
+ * Interpreters should tolerate interpretation of the same instruction several times with the same values,
+ * as they already do with `Analyzer`, which reinterprets instructions until the fixed point is reached.
+ */
+class SparseFramesAnalyzer<V : Value>(
+        private val owner: String,
+        private val method: MethodNode,
+        private val interpreter: Interpreter<V>
+) {
+    private val instructions = method.instructions
+    private val insns: Array<AbstractInsnNode> = instructions.toArray()
+    private val nInsns = insns.size
+
+    private val blockStarts = computeBlockStarts()
+    private val nBlocks = blockStarts.size
+    private val entryFrames = arrayOfNulls<Frame<V>>(nBlocks)
+    private val blockHandlers = computeBlockHandlers()
+
+    private val queued = BooleanArray(nBlocks)
+    private val queue = IntArray(nBlocks)
+    private var top = 0
+
+    @Throws(AnalyzerException::class)
+    fun analyze(): MethodFrames<V> {
+        if (nInsns > 0) {
+            if (insns.any { it.opcode == Opcodes.JSR || it.opcode == Opcodes.RET })
+                throw AssertionError("Subroutines are deprecated since Java 6")
+
+            mergeControlFlowEdge(0, initialFrame())
+
+            val current = Frame<V>(method.maxLocals, method.maxStack)
+            val handler = Frame<V>(method.maxLocals, method.maxStack)
+            while (top > 0) {
+                val block = queue[--top]
+                queued[block] = false
+                analyzeBlock(block, current, handler)
+            }
+        }
+
+        return MethodFrames(insns, interpreter, blockStarts, entryFrames)
+    }
+
+    private fun analyzeBlock(block: Int, current: Frame<V>, handler: Frame<V>) {
+        val end = if (block + 1 < nBlocks) blockStarts[block + 1] else nInsns
+        current.init(entryFrames[block]!!)
+
+        for (insn in blockStarts[block] until end) {
+            val insnNode = insns[insn]
+            try {
+                blockHandlers[block]?.forEach { tcb ->
+                    if (insn in tcb.start until tcb.end) {
+                        handler.init(current)
+                        handler.clearStack()
+                        handler.push(interpreter.newValue(Type.getObjectType(tcb.type ?: "java/lang/Throwable")))
+                        mergeControlFlowEdge(tcb.handlerBlock, handler)
+                    }
+                }
+
+                if (!insnNode.isExecutable()) continue
+
+                current.execute(insnNode, interpreter)
+
+                when (insnNode) {
+                    is JumpInsnNode ->
+                        mergeControlFlowEdge(labelBlock(insnNode.label), current)
+                    is TableSwitchInsnNode -> {
+                        mergeControlFlowEdge(labelBlock(insnNode.dflt), current)
+                        insnNode.labels.forEach { mergeControlFlowEdge(labelBlock(it), current) }
+                    }
+                    is LookupSwitchInsnNode -> {
+                        mergeControlFlowEdge(labelBlock(insnNode.dflt), current)
+                        insnNode.labels.forEach { mergeControlFlowEdge(labelBlock(it), current) }
+                    }
+                }
+            }
+            catch (e: AnalyzerException) {
+                throw AnalyzerException(e.node, "Error at instruction #" + insn + " ${InlineCodegenUtil.getInsnText(insnNode)}: " + e.message, e)
+            }
+            catch (e: Exception) {
+                throw AnalyzerException(insnNode, "Error at instruction #" + insn + " ${InlineCodegenUtil.getInsnText(insnNode)}: " + e.message, e)
+            }
+        }
+
+        if (insns[end - 1].isFallingThrough()) {
+            if (end == nInsns) throw AnalyzerException(null, "Execution can fall off end of the code")
+            mergeControlFlowEdge(block + 1, current)
+        }
+    }
+
+    private fun initialFrame(): Frame<V> {
+        val frame = Frame<V>(method.maxLocals, method.maxStack)
+        frame.setReturn(interpreter.newValue(Type.getReturnType(method.desc)))
+        var local = 0
+        if ((method.access and Opcodes.ACC_STATIC) == 0) {
+            frame.setLocal(local++, interpreter.newValue(Type.getObjectType(owner)))
+        }
+        for (arg in Type.getArgumentTypes(method.desc)) {
+            frame.setLocal(local++, interpreter.newValue(arg))
+            if (arg.size == 2) {
+                frame.setLocal(local++, interpreter.newValue(null))
+            }
+        }
+        while (local < method.maxLocals) {
+            frame.setLocal(local++, interpreter.newValue(null))
+        }
+        return frame
+    }
+
+    private fun mergeControlFlowEdge(block: Int, frame: Frame<V>) {
+        val oldFrame = entryFrames[block]
+        val changes: Boolean
+
+        if (oldFrame == null) {
+            entryFrames[block] = Frame(frame)
+            changes = true
+        }
+        else {
+            changes = oldFrame.merge(frame, interpreter)
+        }
+        if (changes && !queued[block]) {
+            queued[block] = true
+            queue[top++] = block
+        }
+    }
+
+    private fun labelBlock(label: LabelNode): Int = Arrays.binarySearch(blockStarts, instructions.indexOf(label))
+
+    private fun computeBlockStarts(): IntArray {
+        val starts = BitSet(nInsns + 1)
+        starts.set(0)
+
+        fun addLabel(label: LabelNode) {
+            starts.set(instructions.indexOf(label))
+        }
+
+        for ((i, insn) in insns.withIndex()) {
+            when (insn) {
+                is JumpInsnNode -> addLabel(insn.label)
+                is TableSwitchInsnNode -> {
+                    addLabel(insn.dflt)
+                    insn.labels.forEach(::addLabel)
+                }
+                is LookupSwitchInsnNode -> {
+                    addLabel(insn.dflt)
+                    insn.labels.forEach(::addLabel)
+                }
+            }
+            if (insn is JumpInsnNode || insn is TableSwitchInsnNode || insn is LookupSwitchInsnNode || !insn.isFallingThrough()) {
+                starts.set(i + 1)
+            }
+        }
+        for (tcb in method.tryCatchBlocks) {
+            addLabel(tcb.handler)
+        }
+
+        starts.clear(nInsns)
+        return IntArray(starts.cardinality()).also { result ->
+            var i = 0
+            var start = starts.nextSetBit(0)
+            while (start >= 0) {
+                result[i++] = start
+                start = starts.nextSetBit(start + 1)
+            }
+        }
+    }
+
+    private class HandlerRange(val start: Int, val end: Int, val handlerBlock: Int, val type: String?)
+
+    private fun computeBlockHandlers(): Array<MutableList<HandlerRange>?> {
+        val result = arrayOfNulls<MutableList<HandlerRange>>(nBlocks)
+        for (tcb in method.tryCatchBlocks) {
+            val start = instructions.indexOf(tcb.start)
+            val end = instructions.indexOf(tcb.end)
+            if (start >= end) continue
+
+            val range = HandlerRange(start, end, labelBlock(tcb.handler), tcb.type)
+            val firstBlock = Arrays.binarySearch(blockStarts, start).let { if (it >= 0) it else -it - 2 }
+            var block = firstBlock
+            while (block < nBlocks && blockStarts[block] < end) {
+                (result[block] ?: ArrayList<HandlerRange>(1).also { result[block] = it }).add(range)
+                block++
+            }
+        }
+        return result
+    }
+}
+
+private fun AbstractInsnNode.isExecutable(): Boolean =
+        type != AbstractInsnNode.LABEL && type != AbstractInsnNode.LINE && type != AbstractInsnNode.FRAME
+
+private fun AbstractInsnNode.isFallingThrough(): Boolean {
+    val opcode = opcode
+    return opcode != Opcodes.GOTO && opcode != Opcodes.ATHROW && (opcode < Opcodes.IRETURN || opcode > Opcodes.RETURN) &&
+           this !is TableSwitchInsnNode && this !is LookupSwitchInsnNode
+}
@@ -52,7 +52,7 @@ class RedundantNullCheckV2MethodTransformer : MethodTransformer() {
 
         private fun analyzeTypesAndRemoveDeadCode(): Map<AbstractInsnNode, Type> {
             val insns = methodNode.instructions.toArray()
-            val frames = analyze(internalClassName, methodNode, OptimizationBasicInterpreter())
+            val frames = analyzeFrames(internalClassName, methodNode, OptimizationBasicInterpreter())
 
             val checkedReferenceTypes = HashMap<AbstractInsnNode, Type>()
             for (i in insns.indices) {
@@ -88,7 +88,7 @@ class RedundantNullCheckV2MethodTransformer : MethodTransformer() {
                 NullabilityAssumptionsBuilder(checkedReferenceTypes).injectNullabilityAssumptions()
 
         private fun analyzeNullabilities(): Map<AbstractInsnNode, Nullability> {
-            val frames = analyze(internalClassName, methodNode, NullabilityInterpreter())
+            val frames = analyzeFrames(internalClassName, methodNode, NullabilityInterpreter())
             val insns = methodNode.instructions.toArray()
             val nullabilityMap = HashMap<AbstractInsnNode, Nullability>()
             for (i in insns.indices) {
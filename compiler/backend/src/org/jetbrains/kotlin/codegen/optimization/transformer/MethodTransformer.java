@@ -17,6 +17,8 @@
 package org.jetbrains.kotlin.codegen.optimization.transformer;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.codegen.optimization.common.MethodFrames;
+import org.jetbrains.kotlin.codegen.optimization.common.SparseFramesAnalyzer;
 import org.jetbrains.org.objectweb.asm.tree.MethodNode;
 import org.jetbrains.org.objectweb.asm.tree.analysis.*;
 
@@ -44,5 +46,23 @@ public abstract class MethodTransformer {
         return runAnalyzer(new Analyzer<V>(interpreter), internalClassName, node);
     }
 
+    /**
+     * Same as {@link #analyze}, but frames are only stored at basic block entries, see {@link MethodFrames}.
+     * Should be preferred by transformers which may be run on big methods.
+     */
+    @NotNull
+    public static <V extends Value> MethodFrames<V> analyzeFrames(
+            @NotNull String internalClassName,
+            @NotNull MethodNode node,
+            @NotNull Interpreter<V> interpreter
+    ) {
+        try {
+            return new SparseFramesAnalyzer<V>(internalClassName, node, interpreter).analyze();
+        }
+        catch (AnalyzerException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public abstract void transform(@NotNull String internalClassName, @NotNull MethodNode methodNode);
 }
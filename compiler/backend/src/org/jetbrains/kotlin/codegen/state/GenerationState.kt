@@ -39,13 +39,18 @@ import org.jetbrains.kotlin.load.kotlin.incremental.components.IncrementalCache
 import org.jetbrains.kotlin.modules.TargetId
 import org.jetbrains.kotlin.name.FqName
 import org.jetbrains.kotlin.psi.KtClassOrObject
+import org.jetbrains.kotlin.psi.KtExpression
 import org.jetbrains.kotlin.psi.KtFile
 import org.jetbrains.kotlin.psi.KtScript
 import org.jetbrains.kotlin.resolve.*
 import org.jetbrains.kotlin.resolve.diagnostics.Diagnostics
 import org.jetbrains.kotlin.resolve.jvm.JvmClassName
 import org.jetbrains.kotlin.serialization.deserialization.DeserializationConfiguration
+import org.jetbrains.kotlin.types.KotlinType
+import org.jetbrains.kotlin.util.slicedMap.ReadOnlySlice
+import org.jetbrains.kotlin.util.slicedMap.WritableSlice
 import java.io.File
+import java.util.concurrent.ExecutorService
 
 class GenerationState @JvmOverloads constructor(
         val project: Project,
@@ -114,7 +119,19 @@ class GenerationState @JvmOverloads constructor(
         }
     }
 
-    val extraJvmDiagnosticsTrace: BindingTrace = DelegatingBindingTrace(bindingContext, "For extra diagnostics in ${this::class.java}", false)
+    // If several threads are used, packages and multifile classes are generated concurrently, see KotlinCodegenFacade
+    val codegenThreads: Int = configuration.get(JVMConfigurationKeys.PARALLEL_BACKEND_THREADS, 1)
+    val isParallelCodegen: Boolean get() = codegenThreads > 1
+
+    // If several threads are used, finished methods are transformed and optimized on them, see OptimizationClassBuilder.
+    // The threads are started only for the time of code generation, see KotlinCodegenFacade.compileCorrectFiles
+    val optimizationThreads: Int = configuration.get(JVMConfigurationKeys.PARALLEL_OPTIMIZATION_THREADS, 1)
+
+    val extraJvmDiagnosticsTrace: BindingTrace =
+            if (isParallelCodegen)
+                SynchronizedDelegatingBindingTrace(bindingContext, "For extra diagnostics in ${this::class.java}", false)
+            else
+                DelegatingBindingTrace(bindingContext, "For extra diagnostics in ${this::class.java}", false)
     private val interceptedBuilderFactory: ClassBuilderFactory
     private var used = false
 
@@ -128,11 +145,17 @@ class GenerationState @JvmOverloads constructor(
     val isJvm8Target: Boolean = target == JvmTarget.JVM_1_8
     val isJvm8TargetWithDefaults: Boolean =  isJvm8Target && configuration.getBoolean(JVMConfigurationKeys.JVM8_TARGET_WITH_DEFAULTS)
     val generateDefaultImplsForJvm8: Boolean = configuration.getBoolean(JVMConfigurationKeys.INTERFACE_COMPATIBILITY)
+    val generateLambdasWithInvokeDynamic: Boolean = isJvm8Target && configuration.getBoolean(JVMConfigurationKeys.LAMBDAS_VIA_INVOKEDYNAMIC)
 
     val moduleName: String = moduleName ?: JvmCodegenUtil.getModuleName(module)
     val classBuilderMode: ClassBuilderMode = builderFactory.classBuilderMode
-    val bindingTrace: BindingTrace = DelegatingBindingTrace(bindingContext, "trace in GenerationState",
-                                                            filter = if (wantsDiagnostics) BindingTraceFilter.ACCEPT_ALL else BindingTraceFilter.NO_DIAGNOSTICS)
+    val bindingTrace: BindingTrace = run {
+        val filter = if (wantsDiagnostics) BindingTraceFilter.ACCEPT_ALL else BindingTraceFilter.NO_DIAGNOSTICS
+        if (isParallelCodegen)
+            SynchronizedDelegatingBindingTrace(bindingContext, "trace in GenerationState", filter = filter)
+        else
+            DelegatingBindingTrace(bindingContext, "trace in GenerationState", filter = filter)
+    }
     val bindingContext: BindingContext = bindingTrace.bindingContext
     val typeMapper: KotlinTypeMapper = KotlinTypeMapper(
             this.bindingContext, classBuilderMode, fileClassesProvider, IncompatibleClassTrackerImpl(extraJvmDiagnosticsTrace),
@@ -140,11 +163,13 @@ class GenerationState @JvmOverloads constructor(
     )
     val intrinsics: IntrinsicMethods = IntrinsicMethods()
     val samWrapperClasses: SamWrapperClasses = SamWrapperClasses(this)
+    val invokeDynamicLambdas: InvokeDynamicLambdas = InvokeDynamicLambdas(this)
     val inlineCycleReporter: InlineCycleReporter = InlineCycleReporter(diagnostics)
     val mappingsClassesForWhenByEnum: MappingsClassesForWhenByEnum = MappingsClassesForWhenByEnum(this)
     val jvmRuntimeTypes: JvmRuntimeTypes = JvmRuntimeTypes(module)
     val factory: ClassFileFactory
     private lateinit var duplicateSignatureFactory: BuilderFactoryForDuplicateSignatureDiagnostics
+    private lateinit var optimizationClassBuilderFactory: OptimizationClassBuilderFactory
 
     val replSpecific = ForRepl()
 
@@ -174,7 +199,9 @@ class GenerationState @JvmOverloads constructor(
     init {
         this.interceptedBuilderFactory = builderFactory
                 .wrapWith(
-                    { OptimizationClassBuilderFactory(it, configuration.get(JVMConfigurationKeys.DISABLE_OPTIMIZATION, false)) },
+                    { OptimizationClassBuilderFactory(
+                            it, configuration.get(JVMConfigurationKeys.DISABLE_OPTIMIZATION, false)
+                      ).apply { optimizationClassBuilderFactory = this } },
                     ::CoroutineTransformerClassBuilderFactory,
                     { BuilderFactoryForDuplicateSignatureDiagnostics(
                             it, this.bindingContext, diagnostics, fileClassesProvider, this.moduleName
@@ -197,9 +224,17 @@ class GenerationState @JvmOverloads constructor(
     }
 
     fun afterIndependentPart() {
+        // In parallel codegen, the output of a unit is flushed on the main thread after it's committed, see KotlinCodegenFacade.
+        // Flushing on a worker thread would miss the unit's buffered classes and race with commits of other units
+        if (factory.isGeneratingUnit) return
+
         onIndependentPartCompilationEnd(this)
     }
 
+    fun setMethodTransformationExecutor(executor: ExecutorService?) {
+        optimizationClassBuilderFactory.setTransformationExecutor(executor)
+    }
+
     private fun markUsed() {
         if (used) throw IllegalStateException("${GenerationState::class.java} cannot be used more than once")
 
@@ -228,6 +263,28 @@ private class LazyJvmDiagnostics(compute: () -> Diagnostics): Diagnostics {
     override fun iterator() = delegate.iterator()
 }
 
+private class SynchronizedDelegatingBindingTrace(
+        parentContext: BindingContext,
+        name: String,
+        withParentDiagnostics: Boolean = true,
+        filter: BindingTraceFilter = BindingTraceFilter.ACCEPT_ALL
+) : DelegatingBindingTrace(parentContext, name, withParentDiagnostics, filter) {
+    @Synchronized
+    override fun <K, V> record(slice: WritableSlice<K, V>, key: K, value: V) = super.record(slice, key, value)
+
+    @Synchronized
+    override fun <K, V> get(slice: ReadOnlySlice<K, V>, key: K): V? = super.get(slice, key)
+
+    @Synchronized
+    override fun <K, V> getKeys(slice: WritableSlice<K, V>): Collection<K> = super.getKeys(slice)
+
+    @Synchronized
+    override fun recordType(expression: KtExpression, type: KotlinType?) = super.recordType(expression, type)
+
+    @Synchronized
+    override fun report(diagnostic: Diagnostic) = super.report(diagnostic)
+}
+
 interface GenerationStateEventCallback : (GenerationState) -> Unit {
     companion object {
         val DO_NOTHING = GenerationStateEventCallback {  }
@@ -64,8 +64,8 @@ public class StringSwitchCodegen extends SwitchCodegen {
     }
 
     @Override
-    public void generate() {
-        super.generate();
+    protected void generateSwitch() {
+        super.generateSwitch();
         codegen.myFrameMap.leaveTemp(subjectType);
     }
 
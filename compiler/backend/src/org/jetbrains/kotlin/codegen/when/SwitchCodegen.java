@@ -43,6 +43,8 @@ abstract public class SwitchCodegen {
     protected final Type resultType;
     protected final InstructionAdapter v;
 
+    protected List<KtWhenEntry> entries;
+
     protected final NavigableMap<Integer, Label> transitionsTable = new TreeMap<Integer, Label>();
     protected final List<Label> entryLabels = new ArrayList<Label>();
     protected Label elseLabel = new Label();
@@ -63,6 +65,7 @@ abstract public class SwitchCodegen {
         this.subjectType = subjectType != null ? subjectType : codegen.expressionType(expression.getSubjectExpression());
         resultType = isStatement ? Type.VOID_TYPE : codegen.expressionType(expression);
         v = codegen.v;
+        entries = expression.getEntries();
     }
 
     /**
@@ -76,11 +79,7 @@ abstract public class SwitchCodegen {
         // if there is no else-entry and it's statement then default --- endLabel
         defaultLabel = (hasElse || !isStatement || isExhaustive) ? elseLabel : endLabel;
 
-        generateSubject();
-
-        generateSwitchInstructionByTransitionsTable();
-
-        generateEntries();
+        generateSwitch();
 
         // there is no else-entry but this is not statement, so we should return Unit
         if (!hasElse && (!isStatement || isExhaustive)) {
@@ -92,12 +91,35 @@ abstract public class SwitchCodegen {
         v.mark(endLabel);
     }
 
+    /**
+     * Generates bytecode for the first entryCount entries of when expression, which are expected to have only constant conditions.
+     * If the subject doesn't match any of them, control is transferred to fallbackLabel, where the rest of the entries are generated
+     * by the caller. Matched entries jump to endLabel with their result on the stack
+     */
+    public void generateLeadingEntries(int entryCount, @NotNull Label fallbackLabel, @NotNull Label endLabel) {
+        entries = entries.subList(0, entryCount);
+        prepareConfiguration();
+
+        defaultLabel = fallbackLabel;
+        this.endLabel = endLabel;
+
+        generateSwitch();
+    }
+
+    protected void generateSwitch() {
+        generateSubject();
+
+        generateSwitchInstructionByTransitionsTable();
+
+        generateEntries();
+    }
+
     /**
      * Sets up transitionsTable and maybe something else needed in a special case
      * Behaviour may be changed by overriding processConstant
      */
     private void prepareConfiguration() {
-        for (KtWhenEntry entry : expression.getEntries()) {
+        for (KtWhenEntry entry : entries) {
             Label entryLabel = new Label();
 
             for (ConstantValue<?> constant : SwitchCodegenUtil.getConstantsFromEntry(entry, bindingContext, codegen.getState().getShouldInlineConstVals())) {
@@ -140,7 +162,7 @@ abstract public class SwitchCodegen {
         assert subjectJetType != null : "subject type can't be null (i.e. void)";
 
         if (TypeUtils.isNullableType(subjectJetType)) {
-            int nullEntryIndex = findNullEntryIndex(expression);
+            int nullEntryIndex = findNullEntryIndex();
             Label nullLabel = nullEntryIndex == -1 ? defaultLabel : entryLabels.get(nullEntryIndex);
             Label notNullLabel = new Label();
 
@@ -155,9 +177,9 @@ abstract public class SwitchCodegen {
         }
     }
 
-    private int findNullEntryIndex(@NotNull KtWhenExpression expression) {
+    private int findNullEntryIndex() {
         int entryIndex = 0;
-        for (KtWhenEntry entry : expression.getEntries()) {
+        for (KtWhenEntry entry : entries) {
             for (ConstantValue<?> constant : SwitchCodegenUtil.getConstantsFromEntry(entry, bindingContext, codegen.getState().getShouldInlineConstVals())) {
                 if (constant instanceof NullValue) {
                     return entryIndex;
@@ -218,7 +240,7 @@ abstract public class SwitchCodegen {
     protected void generateEntries() {
         // resolving entries' entryLabels and generating entries' code
         Iterator<Label> entryLabelsIterator = entryLabels.iterator();
-        for (KtWhenEntry entry : expression.getEntries()) {
+        for (KtWhenEntry entry : entries) {
             v.visitLabel(entryLabelsIterator.next());
 
             FrameMap.Mark mark = codegen.myFrameMap.mark();
@@ -33,6 +33,26 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class SwitchCodegenUtil {
+    /**
+     * A when expression with other conditions after its leading constant entries checks these entries with a switch
+     * only if there are at least that many constants in them, otherwise comparing the constants one by one is as fast
+     */
+    private static final int MIN_CONSTANTS_FOR_LEADING_ENTRIES_SWITCH = 3;
+
+    private static final Function1<ConstantValue<?>, Boolean> IS_INTEGRAL_CONSTANT = new Function1<ConstantValue<?>, Boolean>() {
+        @Override
+        public Boolean invoke(@NotNull ConstantValue<?> constant) {
+            return constant instanceof IntegerValueConstant;
+        }
+    };
+
+    private static final Function1<ConstantValue<?>, Boolean> IS_STRING_CONSTANT = new Function1<ConstantValue<?>, Boolean>() {
+        @Override
+        public Boolean invoke(@NotNull ConstantValue<?> constant) {
+            return constant instanceof StringValue || constant instanceof NullValue;
+        }
+    };
+
     public static boolean checkAllItemsAreConstantsSatisfying(
             @NotNull KtWhenExpression expression,
             @NotNull BindingContext bindingContext,
@@ -40,20 +60,33 @@ public class SwitchCodegenUtil {
             Function1<ConstantValue<?>, Boolean> predicate
     ) {
         for (KtWhenEntry entry : expression.getEntries()) {
-            for (KtWhenCondition condition : entry.getConditions()) {
-                if (!(condition instanceof KtWhenConditionWithExpression)) {
-                    return false;
-                }
+            if (!checkEntryItemsAreConstantsSatisfying(entry, bindingContext, shouldInlineConstVals, predicate)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean checkEntryItemsAreConstantsSatisfying(
+            @NotNull KtWhenEntry entry,
+            @NotNull BindingContext bindingContext,
+            boolean shouldInlineConstVals,
+            Function1<ConstantValue<?>, Boolean> predicate
+    ) {
+        for (KtWhenCondition condition : entry.getConditions()) {
+            if (!(condition instanceof KtWhenConditionWithExpression)) {
+                return false;
+            }
 
-                // ensure that expression is constant
-                KtExpression patternExpression = ((KtWhenConditionWithExpression) condition).getExpression();
+            // ensure that expression is constant
+            KtExpression patternExpression = ((KtWhenConditionWithExpression) condition).getExpression();
 
-                if (patternExpression == null) return false;
+            if (patternExpression == null) return false;
 
-                ConstantValue<?> constant = ExpressionCodegen.getCompileTimeConstant(patternExpression, bindingContext, shouldInlineConstVals);
-                if (constant == null || !predicate.invoke(constant)) {
-                    return false;
-                }
+            ConstantValue<?> constant = ExpressionCodegen.getCompileTimeConstant(patternExpression, bindingContext, shouldInlineConstVals);
+            if (constant == null || !predicate.invoke(constant)) {
+                return false;
             }
         }
 
@@ -134,6 +167,60 @@ public class SwitchCodegenUtil {
         return null;
     }
 
+    /**
+     * Returns the number of leading entries of a when expression with an int or String subject, which consist of constants only
+     * and can be checked with a switch before the rest of the entries are checked one by one, or 0 if the switch isn't worth it.
+     * Should be called only if the whole expression can't be generated with {@link #buildAppropriateSwitchCodegenIfPossible}
+     */
+    public static int countLeadingEntriesForSwitch(
+            @NotNull KtWhenExpression expression,
+            @NotNull Type subjectType,
+            @NotNull BindingContext bindingContext,
+            boolean shouldInlineConstVals
+    ) {
+        Function1<ConstantValue<?>, Boolean> predicate;
+        if (isIntegralSubjectType(subjectType)) {
+            predicate = IS_INTEGRAL_CONSTANT;
+        }
+        else if (isStringSubjectType(subjectType)) {
+            predicate = IS_STRING_CONSTANT;
+        }
+        else {
+            return 0;
+        }
+
+        int entryCount = 0;
+        int constantCount = 0;
+        for (KtWhenEntry entry : expression.getEntries()) {
+            if (entry.isElse() || !checkEntryItemsAreConstantsSatisfying(entry, bindingContext, shouldInlineConstVals, predicate)) break;
+
+            for (ConstantValue<?> constant : getConstantsFromEntry(entry, bindingContext, shouldInlineConstVals)) {
+                if (!(constant instanceof NullValue)) constantCount++;
+            }
+            entryCount++;
+        }
+
+        return constantCount >= MIN_CONSTANTS_FOR_LEADING_ENTRIES_SWITCH ? entryCount : 0;
+    }
+
+    /**
+     * Should be used with {@link SwitchCodegen#generateLeadingEntries} for the number of entries returned by {@link #countLeadingEntriesForSwitch}
+     */
+    @NotNull
+    public static SwitchCodegen buildSwitchCodegenForLeadingEntries(
+            @NotNull KtWhenExpression expression,
+            boolean isStatement,
+            @NotNull ExpressionCodegen codegen
+    ) {
+        Type subjectType = codegen.expressionType(expression.getSubjectExpression());
+        if (isIntegralSubjectType(subjectType)) {
+            return new IntegralConstantsSwitchCodegen(expression, isStatement, false, codegen);
+        }
+
+        assert isStringSubjectType(subjectType) : "Unexpected subject type for switch: " + subjectType;
+        return new StringSwitchCodegen(expression, isStatement, false, codegen);
+    }
+
     private static boolean isThereConstantEntriesButNulls(
             @NotNull KtWhenExpression expression,
             @NotNull BindingContext bindingContext,
@@ -152,20 +239,8 @@ public class SwitchCodegenUtil {
             @NotNull BindingContext bindingContext,
             boolean shouldInlineConstVals
     ) {
-        int typeSort = subjectType.getSort();
-
-        if (typeSort != Type.INT && typeSort != Type.CHAR && typeSort != Type.SHORT && typeSort != Type.BYTE) {
-            return false;
-        }
-
-        return checkAllItemsAreConstantsSatisfying(expression, bindingContext, shouldInlineConstVals, new Function1<ConstantValue<?>, Boolean>() {
-            @Override
-            public Boolean invoke(
-                    @NotNull ConstantValue<?> constant
-            ) {
-                return constant instanceof IntegerValueConstant;
-            }
-        });
+        return isIntegralSubjectType(subjectType) &&
+               checkAllItemsAreConstantsSatisfying(expression, bindingContext, shouldInlineConstVals, IS_INTEGRAL_CONSTANT);
     }
 
     private static boolean isStringConstantsSwitch(
@@ -174,18 +249,16 @@ public class SwitchCodegenUtil {
             @NotNull BindingContext bindingContext,
             boolean shouldInlineConstVals
     ) {
+        return isStringSubjectType(subjectType) &&
+               checkAllItemsAreConstantsSatisfying(expression, bindingContext, shouldInlineConstVals, IS_STRING_CONSTANT);
+    }
 
-        if (!subjectType.getClassName().equals(String.class.getName())) {
-            return false;
-        }
+    private static boolean isIntegralSubjectType(@NotNull Type subjectType) {
+        int typeSort = subjectType.getSort();
+        return typeSort == Type.INT || typeSort == Type.CHAR || typeSort == Type.SHORT || typeSort == Type.BYTE;
+    }
 
-        return checkAllItemsAreConstantsSatisfying(expression, bindingContext, shouldInlineConstVals, new Function1<ConstantValue<?>, Boolean>() {
-            @Override
-            public Boolean invoke(
-                    @NotNull ConstantValue<?> constant
-            ) {
-                return constant instanceof StringValue || constant instanceof NullValue;
-            }
-        });
+    private static boolean isStringSubjectType(@NotNull Type subjectType) {
+        return subjectType.getClassName().equals(String.class.getName());
     }
 }
@@ -111,6 +111,20 @@ public class K2JVMCompilerArguments extends CommonCompilerArguments {
     @Argument(value = "Xload-builtins-from-dependencies", description = "Load definitions of built-in declarations from module dependencies, instead of from the compiler")
     public boolean loadBuiltInsFromDependencies;
 
+    @Argument(value = "Xbackend-threads", description = "Generate bytecode for packages and multifile classes in parallel on the given number of threads")
+    @ValueDescription("<count>")
+    public String backendThreads;
+
+    @Argument(value = "Xoptimization-threads", description = "Optimize bytecode of generated methods in parallel on the given number of threads")
+    @ValueDescription("<count>")
+    public String optimizationThreads;
+
+    @Argument(value = "Xconcurrent-storage-manager", description = "Resolve without a global lock on lazy values, so that they can be computed on several threads")
+    public boolean concurrentStorageManager;
+
+    @Argument(value = "Xlambdas-indy", description = "Generate lambdas and SAM conversions with invokedynamic, requires JVM target 1.8")
+    public boolean lambdasIndy;
+
     // Paths to output directories for friend modules.
     public String[] friendPaths;
 
@@ -315,10 +315,40 @@ class K2JVMCompiler : CLICompiler<K2JVMCompilerArguments>() {
             configuration.put(CLIConfigurationKeys.ALLOW_KOTLIN_PACKAGE, arguments.allowKotlinPackage)
             configuration.put(CLIConfigurationKeys.REPORT_PERF, arguments.reportPerf)
             configuration.put(JVMConfigurationKeys.USE_SINGLE_MODULE, arguments.singleModule)
+            configuration.put(JVMConfigurationKeys.CONCURRENT_STORAGE_MANAGER, arguments.concurrentStorageManager)
             configuration.put(JVMConfigurationKeys.ADD_BUILT_INS_FROM_COMPILER_TO_DEPENDENCIES, arguments.addCompilerBuiltIns)
             configuration.put(JVMConfigurationKeys.CREATE_BUILT_INS_FROM_MODULE_DEPENDENCIES, arguments.loadBuiltInsFromDependencies)
 
             arguments.declarationsOutputPath?.let { configuration.put(JVMConfigurationKeys.DECLARATIONS_JSON_PATH, it) }
+
+            if (arguments.lambdasIndy) {
+                if (configuration.get(JVMConfigurationKeys.JVM_TARGET) == JvmTarget.JVM_1_8) {
+                    configuration.put(JVMConfigurationKeys.LAMBDAS_VIA_INVOKEDYNAMIC, true)
+                }
+                else {
+                    configuration.getNotNull(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY).report(
+                            CompilerMessageSeverity.STRONG_WARNING, "-Xlambdas-indy is ignored because it requires -jvm-target 1.8",
+                            CompilerMessageLocation.NO_LOCATION
+                    )
+                }
+            }
+
+            configuration.putThreadCount(JVMConfigurationKeys.PARALLEL_BACKEND_THREADS, arguments.backendThreads, "-Xbackend-threads")
+            configuration.putThreadCount(JVMConfigurationKeys.PARALLEL_OPTIMIZATION_THREADS, arguments.optimizationThreads, "-Xoptimization-threads")
+        }
+
+        private fun CompilerConfiguration.putThreadCount(key: CompilerConfigurationKey<Int>, value: String?, option: String) {
+            if (value == null) return
+
+            val threads = value.toIntOrNull()
+            if (threads != null && threads > 0) {
+                put(key, threads)
+            }
+            else {
+                getNotNull(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY).report(
+                        CompilerMessageSeverity.ERROR, "Invalid value for $option: $value", CompilerMessageLocation.NO_LOCATION
+                )
+            }
         }
 
         private fun getClasspath(paths: KotlinPaths, arguments: K2JVMCompilerArguments): List<File> {
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.compiler
+
+import org.jetbrains.kotlin.backend.common.output.OutputFileCollection
+import org.jetbrains.kotlin.name.FqName
+import org.jetbrains.kotlin.utils.closeQuietly
+import java.io.*
+import java.util.*
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.jar.JarEntry
+import java.util.jar.JarInputStream
+import java.util.jar.JarOutputStream
+import java.util.zip.ZipFile
+
+/**
+ * Writes the output jar on a background thread while the module is still being generated, so that the classes
+ * which are already generated don't have to be kept in memory until the end of compilation.
+ *
+ * Files are written in the order they're passed to [write]. The number of files waiting to be written is bounded,
+ * so code generation is paused if it gets too far ahead of the writer. If a path is written more than once, the jar
+ * contains its last content at the position of the first one, same as with [org.jetbrains.kotlin.codegen.ClassFileFactory].
+ */
+class BackgroundJarWriter(private val jarPath: File, mainClass: FqName?, private val includeRuntime: Boolean) {
+    private class Entry(val relativePath: String, val bytes: ByteArray)
+
+    private val queue = ArrayBlockingQueue<Entry>(QUEUE_CAPACITY)
+    private val stream: JarOutputStream
+    private val thread: Thread
+
+    @Volatile
+    private var error: Throwable? = null
+
+    // accessed only by the thread calling write()
+    private val writtenPaths = HashSet<String>()
+    private val rewrittenEntries = LinkedHashMap<String, ByteArray>()
+    private val writtenSourceFiles = LinkedHashSet<File>()
+
+    val sourceFiles: List<File> get() = writtenSourceFiles.toList()
+
+    init {
+        try {
+            stream = JarOutputStream(FileOutputStream(jarPath), CompileEnvironmentUtil.createManifest(mainClass))
+        }
+        catch (e: FileNotFoundException) {
+            throw CompileEnvironmentException("Invalid jar path $jarPath", e)
+        }
+        thread = Thread({ writeEntries() }, "Kotlin jar writer").apply {
+            isDaemon = true
+            start()
+        }
+    }
+
+    fun write(outputFiles: OutputFileCollection) {
+        for (file in outputFiles.asList()) {
+            writtenSourceFiles.addAll(file.sourceFiles)
+            // Classes of objects from inline functions are generated again each time such a function is inlined from sources,
+            // usually with the same bytes. The first copy may be already written, so the last one is put in place of it in close()
+            if (!writtenPaths.add(file.relativePath)) {
+                rewrittenEntries[file.relativePath] = file.asByteArray()
+                continue
+            }
+
+            queue.put(Entry(file.relativePath, file.asByteArray()))
+        }
+    }
+
+    /**
+     * Waits for all the files to be written and completes the jar
+     */
+    fun close() {
+        try {
+            stopWriter()
+            error?.let { throw CompileEnvironmentException("Failed to generate jar file", it) }
+
+            if (includeRuntime) {
+                CompileEnvironmentUtil.writeRuntimeToJar(stream)
+            }
+            stream.close()
+
+            replaceRewrittenEntries()
+        }
+        catch (e: IOException) {
+            throw CompileEnvironmentException("Failed to generate jar file", e)
+        }
+        finally {
+            closeQuietly(stream)
+        }
+    }
+
+    /**
+     * Stops writing and removes the incomplete jar, e.g. if code generation has failed
+     */
+    fun abort() {
+        error = error ?: IllegalStateException("Writing of $jarPath was aborted")
+        stopWriter()
+        closeQuietly(stream)
+        jarPath.delete()
+    }
+
+    private fun replaceRewrittenEntries() {
+        // ZipFile is not Closeable on Java 6
+        val zip = ZipFile(jarPath)
+        val changedEntries = try {
+            rewrittenEntries.filter { (path, bytes) -> !Arrays.equals(zip.getInputStream(zip.getEntry(path)).readBytes(), bytes) }
+        }
+        finally {
+            zip.close()
+        }
+        if (changedEntries.isEmpty()) return
+
+        val originalJar = File(jarPath.path + ".tmp")
+        if (!jarPath.renameTo(originalJar)) {
+            throw IOException("Failed to rename $jarPath to $originalJar")
+        }
+        try {
+            JarInputStream(BufferedInputStream(FileInputStream(originalJar))).use { input ->
+                JarOutputStream(FileOutputStream(jarPath), input.manifest).use { output ->
+                    while (true) {
+                        val entry = input.nextJarEntry ?: break
+                        output.putNextEntry(JarEntry(entry.name))
+                        val bytes = changedEntries[entry.name]
+                        if (bytes != null) output.write(bytes) else input.copyTo(output)
+                    }
+                }
+            }
+        }
+        finally {
+            originalJar.delete()
+        }
+    }
+
+    private fun stopWriter() {
+        if (!thread.isAlive) return
+
+        queue.put(END)
+        thread.join()
+    }
+
+    private fun writeEntries() {
+        while (true) {
+            val entry = queue.take()
+            if (entry === END) return
+            // after a failure the queue is still drained, so that the producer is never blocked
+            if (error != null) continue
+
+            try {
+                stream.putNextEntry(JarEntry(entry.relativePath))
+                stream.write(entry.bytes)
+            }
+            catch (e: Throwable) {
+                error = e
+            }
+        }
+    }
+
+    private companion object {
+        const val QUEUE_CAPACITY = 256
+
+        val END = Entry("", ByteArray(0))
+    }
+}
@@ -40,7 +40,7 @@ class JvmPackagePartProvider(
         env.configuration.getList(JVMConfigurationKeys.CONTENT_ROOTS)
                 .filterIsInstance<JvmClasspathRoot>()
                 .mapNotNull { env.contentRootToVirtualFile(it) }
-                .filter { it in scope && it.findChild("META-INF") != null }
+                .filter { it in scope && it.hasDirectory("META-INF") }
                 .toMutableList()
     }
 
@@ -82,22 +82,17 @@ class JvmPackagePartProvider(
     private fun processNotLoadedRelevantRoots(packageFqName: String) {
         if (notLoadedRoots.isEmpty()) return
 
-        val pathParts = packageFqName.split('.')
+        val packagePath = packageFqName.replace('.', '/')
 
-        val relevantRoots = notLoadedRoots.filter {
-            //filter all roots by package path existing
-            pathParts.fold(it) {
-                parent, part ->
-                if (part.isEmpty()) parent
-                else parent.findChild(part) ?: return@filter false
-            }
-            true
-        }
+        //filter all roots by package path existing
+        val relevantRoots = notLoadedRoots.filter { it.hasDirectory(packagePath) }
         notLoadedRoots.removeAll(relevantRoots)
 
         for (root in relevantRoots) {
             val metaInf = root.findChild("META-INF") ?: continue
-            val moduleFiles = metaInf.children.filter { it.name.endsWith(ModuleMapping.MAPPING_FILE_EXT) }
+            val moduleFiles = env.classpathJarIndex.getContents(root)?.let { contents ->
+                contents.getFileNames("META-INF").filter { it.endsWith(ModuleMapping.MAPPING_FILE_EXT) }.mapNotNull { metaInf.findChild(it) }
+            } ?: metaInf.children.filter { it.name.endsWith(ModuleMapping.MAPPING_FILE_EXT) }
             for (moduleFile in moduleFiles) {
                 val mapping = try {
                     ModuleMapping.create(moduleFile.contentsToByteArray(), moduleFile.toString(), deserializationConfiguration)
@@ -110,4 +105,10 @@ class JvmPackagePartProvider(
             }
         }
     }
+
+    // jar roots are looked up in the classpath index, so that their VirtualFile trees are not traversed for every package
+    private fun VirtualFile.hasDirectory(path: String): Boolean {
+        env.classpathJarIndex.getContents(this)?.let { return it.hasDirectory(path) }
+        return path.isEmpty() || findFileByRelativePath(path)?.isDirectory ?: false
+    }
 }
@@ -76,6 +76,7 @@ import org.jetbrains.kotlin.cli.jvm.config.JavaSourceRoot
 import org.jetbrains.kotlin.cli.jvm.config.JvmClasspathRoot
 import org.jetbrains.kotlin.cli.jvm.config.JvmContentRoot
 import org.jetbrains.kotlin.cli.jvm.config.addJvmClasspathRoots
+import org.jetbrains.kotlin.cli.jvm.index.ClasspathJarIndex
 import org.jetbrains.kotlin.cli.jvm.index.JavaRoot
 import org.jetbrains.kotlin.cli.jvm.index.JvmDependenciesDynamicCompoundIndex
 import org.jetbrains.kotlin.cli.jvm.index.JvmDependenciesIndex
@@ -145,6 +146,9 @@ class KotlinCoreEnvironment private constructor(
     private val sourceFiles = ArrayList<KtFile>()
     private val rootsIndex: JvmDependenciesDynamicCompoundIndex
 
+    // contents of the initial jar classpath roots
+    internal val classpathJarIndex: ClasspathJarIndex
+
     val configuration: CompilerConfiguration = configuration.copy()
 
     init {
@@ -203,8 +207,10 @@ class KotlinCoreEnvironment private constructor(
             }
         }
 
+        classpathJarIndex = ClasspathJarIndex.build(initialRoots)
+
         // REPL and kapt2 update classpath dynamically
-        val indexFactory = JvmUpdateableDependenciesIndexFactory()
+        val indexFactory = JvmUpdateableDependenciesIndexFactory(classpathJarIndex)
 
         rootsIndex = indexFactory.makeIndexFor(initialRoots)
         updateClasspathFromRootsIndex(rootsIndex)
@@ -53,6 +53,7 @@ import org.jetbrains.kotlin.modules.TargetId
 import org.jetbrains.kotlin.name.FqName
 import org.jetbrains.kotlin.progress.ProgressIndicatorAndCompilationCanceledStatus
 import org.jetbrains.kotlin.psi.KtFile
+import org.jetbrains.kotlin.resolve.BindingContext
 import org.jetbrains.kotlin.resolve.jvm.TopDownAnalyzerFacadeForJVM
 import org.jetbrains.kotlin.util.PerformanceCounter
 import org.jetbrains.kotlin.utils.KotlinPaths
@@ -97,7 +98,33 @@ object KotlinToJVMBytecodeCompiler {
         outputFiles.writeAll(outputDir, messageCollector)
     }
 
-    private fun createOutputFilesFlushingCallbackIfPossible(configuration: CompilerConfiguration): GenerationStateEventCallback {
+    private fun writeJar(configuration: CompilerConfiguration, jarWriter: BackgroundJarWriter, outputFiles: OutputFileCollection) {
+        val jarPath = configuration.getNotNull(JVMConfigurationKeys.OUTPUT_JAR)
+        val messageCollector = configuration.get(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, MessageCollector.NONE)
+        jarWriter.write(outputFiles)
+        jarWriter.close()
+        messageCollector.report(CompilerMessageSeverity.OUTPUT,
+                                OutputMessageUtil.formatOutputMessage(jarWriter.sourceFiles, jarPath), CompilerMessageLocation.NO_LOCATION)
+    }
+
+    // Classes are written to the jar as soon as they are generated, unless they are needed in memory after the compilation
+    private fun createBackgroundJarWriterIfPossible(configuration: CompilerConfiguration, mainClass: FqName?): BackgroundJarWriter? {
+        val jarPath = configuration.get(JVMConfigurationKeys.OUTPUT_JAR) ?: return null
+        if (configuration.get(JVMConfigurationKeys.RETAIN_OUTPUT_IN_MEMORY, false)) return null
+
+        return BackgroundJarWriter(jarPath, mainClass, configuration.get(JVMConfigurationKeys.INCLUDE_RUNTIME, false))
+    }
+
+    private fun createOutputFilesFlushingCallbackIfPossible(
+            configuration: CompilerConfiguration,
+            jarWriter: BackgroundJarWriter?
+    ): GenerationStateEventCallback {
+        if (jarWriter != null) {
+            return GenerationStateEventCallback { state ->
+                jarWriter.write(SimpleOutputFileCollection(state.factory.currentOutput))
+                state.factory.releaseGeneratedOutput()
+            }
+        }
         if (configuration.get(JVMConfigurationKeys.OUTPUT_DIRECTORY) == null) {
             return GenerationStateEventCallback.DO_NOTHING
         }
@@ -183,8 +210,8 @@ object KotlinToJVMBytecodeCompiler {
         configuration.addAll(JVMConfigurationKeys.MODULES, chunk)
     }
 
-    private fun findMainClass(generationState: GenerationState, files: List<KtFile>): FqName? {
-        val mainFunctionDetector = MainFunctionDetector(generationState.bindingContext)
+    private fun findMainClass(bindingContext: BindingContext, files: List<KtFile>): FqName? {
+        val mainFunctionDetector = MainFunctionDetector(bindingContext)
         return files.asSequence()
                 .map { file ->
                     if (mainFunctionDetector.hasMain(file.declarations))
@@ -205,16 +232,29 @@ object KotlinToJVMBytecodeCompiler {
 
         if (!checkKotlinPackageUsage(environment, environment.getSourceFiles())) return false
 
-        val generationState = analyzeAndGenerate(environment) ?: return false
+        val result = analyzeForGeneration(environment) ?: return false
 
-        val mainClass = findMainClass(generationState, environment.getSourceFiles())
+        // The main class is needed for the manifest, which is written to the jar before the classes
+        val mainClass = findMainClass(result.bindingContext, environment.getSourceFiles())
+        val jarWriter = createBackgroundJarWriterIfPossible(environment.configuration, mainClass)
 
+        var generationState: GenerationState? = null
         try {
-            writeOutput(environment.configuration, generationState.factory, mainClass)
+            generationState = generate(environment, environment.configuration, result, environment.getSourceFiles(), null, jarWriter)
+            if (jarWriter != null) {
+                writeJar(environment.configuration, jarWriter, generationState.factory)
+            }
+            else {
+                writeOutput(environment.configuration, generationState.factory, mainClass)
+            }
             return true
         }
+        catch (e: Throwable) {
+            jarWriter?.abort()
+            throw e
+        }
         finally {
-            generationState.destroy()
+            generationState?.destroy()
         }
     }
 
@@ -319,13 +359,19 @@ object KotlinToJVMBytecodeCompiler {
     }
 
     fun analyzeAndGenerate(environment: KotlinCoreEnvironment): GenerationState? {
+        val result = analyzeForGeneration(environment) ?: return null
+
+        return generate(environment, environment.configuration, result, environment.getSourceFiles(), null)
+    }
+
+    private fun analyzeForGeneration(environment: KotlinCoreEnvironment): AnalysisResult? {
         val result = repeatAnalysisIfNeeded(analyze(environment, null), environment, null) ?: return null
 
         if (!result.shouldGenerateCode) return null
 
         result.throwIfError()
 
-        return generate(environment, environment.configuration, result, environment.getSourceFiles(), null)
+        return result
     }
 
     private fun analyze(environment: KotlinCoreEnvironment, targetDescription: String?): AnalysisResult? {
@@ -394,7 +440,8 @@ object KotlinToJVMBytecodeCompiler {
             configuration: CompilerConfiguration,
             result: AnalysisResult,
             sourceFiles: List<KtFile>,
-            module: Module?
+            module: Module?,
+            jarWriter: BackgroundJarWriter? = null
     ): GenerationState {
         val isKapt2Enabled = environment.project.getUserData(IS_KAPT2_ENABLED_KEY) ?: false
         val generationState = GenerationState(
@@ -408,7 +455,7 @@ object KotlinToJVMBytecodeCompiler {
                 module?.let(::TargetId),
                 module?.let(Module::getModuleName),
                 module?.let { File(it.getOutputDirectory()) },
-                createOutputFilesFlushingCallbackIfPossible(configuration)
+                createOutputFilesFlushingCallbackIfPossible(configuration, jarWriter)
         )
         ProgressIndicatorAndCompilationCanceledStatus.checkCanceled()
 
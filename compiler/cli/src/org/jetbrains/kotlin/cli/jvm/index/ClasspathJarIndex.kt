@@ -0,0 +1,188 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.index
+
+import com.intellij.openapi.diagnostic.Logger
+import com.intellij.openapi.vfs.StandardFileSystems
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.util.io.URLUtil
+import java.io.*
+import java.security.MessageDigest
+import java.util.*
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.zip.ZipFile
+
+// directory path inside a jar ("" for the root, "kotlin/collections" etc.) -> names of files in this directory
+class JarContents(private val directories: Map<String, Set<String>>) {
+    val directoryPaths: Set<String> get() = directories.keys
+
+    fun hasDirectory(path: String): Boolean = path in directories
+
+    fun getFileNames(directoryPath: String): Set<String> = directories[directoryPath] ?: emptySet()
+
+    fun hasFile(directoryPath: String, fileName: String): Boolean = directories[directoryPath]?.contains(fileName) ?: false
+}
+
+/**
+ * Contents of jar classpath roots, read from the central directories of jars in parallel once per environment.
+ * Allows [JvmDependenciesIndexImpl] and [org.jetbrains.kotlin.cli.jvm.compiler.JvmPackagePartProvider] to skip jars which do not
+ * contain the requested package or file without traversing VirtualFile trees of every root.
+ *
+ * If [CACHE_DIR_PROPERTY] is set, contents of each jar are also stored there, keyed by the jar's path, length and timestamp.
+ */
+class ClasspathJarIndex private constructor(private val jars: Map<String, JarContents>) {
+    fun getContents(jarRoot: VirtualFile): JarContents? {
+        if (jarRoot.fileSystem.protocol != StandardFileSystems.JAR_PROTOCOL) return null
+        return jars[jarRoot.path.substringBefore(URLUtil.JAR_SEPARATOR)]
+    }
+
+    companion object {
+        val CACHE_DIR_PROPERTY = "kotlin.classpath.index.cache.dir"
+
+        private val LOG = Logger.getInstance(ClasspathJarIndex::class.java)
+        private val CACHE_FORMAT_VERSION = 1
+        private val PARALLEL_THRESHOLD = 4
+
+        val EMPTY = ClasspathJarIndex(emptyMap())
+
+        fun build(roots: List<JavaRoot>): ClasspathJarIndex {
+            val jarPaths = roots
+                    .filter { it.type == JavaRoot.RootType.BINARY && it.file.fileSystem.protocol == StandardFileSystems.JAR_PROTOCOL }
+                    .map { it.file.path.substringBefore(URLUtil.JAR_SEPARATOR) }
+                    .distinct()
+            if (jarPaths.isEmpty()) return EMPTY
+
+            val cacheDir = System.getProperty(CACHE_DIR_PROPERTY)?.let(::File)
+            val tasks = jarPaths.map { path -> Callable { path to readContents(File(path), cacheDir) } }
+
+            val results = if (tasks.size < PARALLEL_THRESHOLD) {
+                tasks.map { it.call() }
+            }
+            else {
+                val executor = Executors.newFixedThreadPool(Math.min(tasks.size, Runtime.getRuntime().availableProcessors()))
+                try {
+                    executor.invokeAll(tasks).map { it.get() }
+                }
+                finally {
+                    executor.shutdown()
+                }
+            }
+
+            val jars = HashMap<String, JarContents>()
+            for ((path, contents) in results) {
+                if (contents != null) {
+                    jars[path] = contents
+                }
+            }
+            return ClasspathJarIndex(jars)
+        }
+
+        private fun readContents(jar: File, cacheDir: File?): JarContents? {
+            val cacheFile = cacheDir?.let { File(it, jar.cacheKey() + ".idx") }
+            if (cacheFile != null && cacheFile.exists()) {
+                try {
+                    return DataInputStream(BufferedInputStream(FileInputStream(cacheFile))).use { it.readContents() }
+                }
+                catch (e: IOException) {
+                    LOG.info("Could not read classpath index cache $cacheFile: ${e.message}")
+                }
+            }
+
+            val contents = try {
+                readJar(jar)
+            }
+            catch (e: IOException) {
+                // the jar is not indexed, it's looked up through VirtualFiles as usual
+                return null
+            }
+
+            if (cacheFile != null) {
+                try {
+                    cacheFile.parentFile.mkdirs()
+                    val tmpFile = File(cacheFile.path + ".tmp" + Thread.currentThread().id)
+                    DataOutputStream(BufferedOutputStream(FileOutputStream(tmpFile))).use { it.writeContents(contents) }
+                    if (!tmpFile.renameTo(cacheFile)) {
+                        tmpFile.delete()
+                    }
+                }
+                catch (e: IOException) {
+                    LOG.info("Could not write classpath index cache $cacheFile: ${e.message}")
+                }
+            }
+
+            return contents
+        }
+
+        private fun readJar(jar: File): JarContents {
+            val directories = HashMap<String, MutableSet<String>>()
+            directories[""] = HashSet()
+
+            fun addDirectory(path: String): MutableSet<String> {
+                directories[path]?.let { return it }
+                addDirectory(path.substringBeforeLast('/', ""))
+                return HashSet<String>().apply { directories[path] = this }
+            }
+
+            // ZipFile is not Closeable on Java 6
+            val zip = ZipFile(jar)
+            try {
+                for (entry in zip.entries()) {
+                    val name = entry.name.trimEnd('/')
+                    if (entry.isDirectory) {
+                        addDirectory(name)
+                    }
+                    else {
+                        addDirectory(name.substringBeforeLast('/', "")).add(name.substringAfterLast('/'))
+                    }
+                }
+            }
+            finally {
+                zip.close()
+            }
+
+            return JarContents(directories)
+        }
+
+        private fun File.cacheKey(): String {
+            val key = "$absolutePath:${length()}:${lastModified()}:$CACHE_FORMAT_VERSION"
+            return MessageDigest.getInstance("MD5").digest(key.toByteArray()).joinToString("") { "%02x".format(it) }
+        }
+
+        private fun DataOutputStream.writeContents(contents: JarContents) {
+            writeInt(CACHE_FORMAT_VERSION)
+            writeInt(contents.directoryPaths.size)
+            for (path in contents.directoryPaths) {
+                writeUTF(path)
+                val fileNames = contents.getFileNames(path)
+                writeInt(fileNames.size)
+                fileNames.forEach { writeUTF(it) }
+            }
+        }
+
+        private fun DataInputStream.readContents(): JarContents {
+            if (readInt() != CACHE_FORMAT_VERSION) throw IOException("Unknown format version")
+
+            val directories = HashMap<String, Set<String>>()
+            repeat(readInt()) {
+                val path = readUTF()
+                directories[path] = (1..readInt()).mapTo(HashSet()) { readUTF() }
+            }
+            return JarContents(directories)
+        }
+    }
+}
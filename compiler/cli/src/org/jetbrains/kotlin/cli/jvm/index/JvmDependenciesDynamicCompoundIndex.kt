@@ -56,6 +56,11 @@ class JvmDependenciesDynamicCompoundIndex() : JvmDependenciesIndex {
                 indices.asSequence().mapNotNull { it.findClass(classId, acceptedRootTypes, findClassGivenDirectory) }.firstOrNull()
             }
 
+    override fun findBinaryFile(classId: ClassId, fileName: String): VirtualFile? =
+            lock.read {
+                indices.asSequence().mapNotNull { it.findBinaryFile(classId, fileName) }.firstOrNull()
+            }
+
     override fun traverseDirectoriesInPackage(
             packageFqName: FqName,
             acceptedRootTypes: Set<JavaRoot.RootType>,
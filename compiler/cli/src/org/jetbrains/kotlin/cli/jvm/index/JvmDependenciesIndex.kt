@@ -30,6 +30,10 @@ interface JvmDependenciesIndex {
             findClassGivenDirectory: (VirtualFile, JavaRoot.RootType) -> T?
     ): T?
 
+    // finds a valid file with the given name in the package of classId in binary roots
+    fun findBinaryFile(classId: ClassId, fileName: String): VirtualFile? =
+            findClass(classId, acceptedRootTypes = JavaRoot.OnlyBinary) { dir, _ -> dir.findChild(fileName)?.takeIf(VirtualFile::isValid) }
+
     fun traverseDirectoriesInPackage(
             packageFqName: FqName,
             acceptedRootTypes: Set<JavaRoot.RootType> = JavaRoot.SourceAndBinary,
@@ -57,8 +61,10 @@ interface JvmDependenciesIndexFactory<out T : JvmDependenciesIndex> {
     fun makeIndexFor(roots: List<JavaRoot>): T
 }
 
-class JvmUpdateableDependenciesIndexFactory : JvmDependenciesIndexFactory<JvmDependenciesDynamicCompoundIndex> {
+class JvmUpdateableDependenciesIndexFactory(
+        private val jarIndex: ClasspathJarIndex = ClasspathJarIndex.EMPTY
+) : JvmDependenciesIndexFactory<JvmDependenciesDynamicCompoundIndex> {
     override fun makeIndexFor(roots: List<JavaRoot>) = JvmDependenciesDynamicCompoundIndex().apply {
-        addIndex(JvmDependenciesIndexImpl(roots))
+        addIndex(JvmDependenciesIndexImpl(roots, jarIndex))
     }
 }
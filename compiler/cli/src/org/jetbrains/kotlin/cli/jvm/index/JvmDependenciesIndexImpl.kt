@@ -28,10 +28,16 @@ import java.util.*
 // speeds up finding files/classes in classpath/java source roots
 // NOT THREADSAFE, needs to be adapted/removed if we want compiler to be multithreaded
 // the main idea of this class is for each package to store roots which contains it to avoid excessive file system traversal
-class JvmDependenciesIndexImpl(_roots: List<JavaRoot>): JvmDependenciesIndex {
+class JvmDependenciesIndexImpl(
+        _roots: List<JavaRoot>,
+        private val jarIndex: ClasspathJarIndex = ClasspathJarIndex.EMPTY
+): JvmDependenciesIndex {
     //these fields are computed based on _roots passed to constructor which are filled in later
     private val roots: List<JavaRoot> by lazy { _roots.toList() }
 
+    // contents of jar roots from jarIndex, null for roots which are not indexed
+    private val rootContents: List<JarContents?> by lazy { roots.map { if (it.type == JavaRoot.RootType.BINARY) jarIndex.getContents(it.file) else null } }
+
     private val maxIndex: Int
         get() = roots.size
 
@@ -72,8 +78,19 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>): JvmDependenciesIndex {
             acceptedRootTypes: Set<JavaRoot.RootType>,
             findClassGivenDirectory: (VirtualFile, JavaRoot.RootType) -> T?
     ): T? {
-        return search(FindClassRequest(classId, acceptedRootTypes)) { dir, rootType ->
-            val found = findClassGivenDirectory(dir, rootType)
+        return search(FindClassRequest(classId, acceptedRootTypes)) { dir, rootIndex ->
+            val found = findClassGivenDirectory(dir, roots[rootIndex].type)
+            HandleResult(found, continueSearch = found == null)
+        }
+    }
+
+    override fun findBinaryFile(classId: ClassId, fileName: String): VirtualFile? {
+        val packagePath = classId.packageFqName.asString().replace('.', '/')
+        return search(FindClassRequest(classId, JavaRoot.OnlyBinary)) { dir, rootIndex ->
+            val contents = rootContents[rootIndex]
+            val found =
+                    if (contents != null && !contents.hasFile(packagePath, fileName)) null
+                    else dir.findChild(fileName)?.takeIf(VirtualFile::isValid)
             HandleResult(found, continueSearch = found == null)
         }
     }
@@ -83,8 +100,8 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>): JvmDependenciesIndex {
             acceptedRootTypes: Set<JavaRoot.RootType>,
             continueSearch: (VirtualFile, JavaRoot.RootType) -> Boolean
     ) {
-        search(TraverseRequest(packageFqName, acceptedRootTypes)) { dir, rootType ->
-            HandleResult(Unit, continueSearch(dir, rootType))
+        search(TraverseRequest(packageFqName, acceptedRootTypes)) { dir, rootIndex ->
+            HandleResult(Unit, continueSearch(dir, roots[rootIndex].type))
         }
     }
 
@@ -110,7 +127,7 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>): JvmDependenciesIndex {
 
     private fun <T : Any> search(
             request: SearchRequest,
-            handler: (VirtualFile, JavaRoot.RootType) -> HandleResult<T>
+            handler: (VirtualFile, Int) -> HandleResult<T>
     ): T? {
         // make a decision based on information saved from last class search
         if (request !is FindClassRequest || lastClassSearch?.first?.classId != request.classId) {
@@ -131,7 +148,7 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>): JvmDependenciesIndex {
             }
             is SearchResult.Found -> {
                 if (cachedRequest.acceptedRootTypes == request.acceptedRootTypes) {
-                    handler(cachedResult.packageDirectory, cachedResult.root.type).result
+                    handler(cachedResult.packageDirectory, cachedResult.rootIndex).result
                 }
                 else {
                     doSearch(request, handler)
@@ -140,12 +157,12 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>): JvmDependenciesIndex {
         }
     }
 
-    private fun <T : Any> doSearch(request: SearchRequest, handler: (VirtualFile, JavaRoot.RootType) -> HandleResult<T>): T? {
+    private fun <T : Any> doSearch(request: SearchRequest, handler: (VirtualFile, Int) -> HandleResult<T>): T? {
         val findClassRequest = request as? FindClassRequest
 
-        fun <T : Any> found(packageDirectory: VirtualFile, root: JavaRoot, result: T): T {
+        fun <T : Any> found(packageDirectory: VirtualFile, rootIndex: Int, result: T): T {
             if (findClassRequest != null) {
-                lastClassSearch = Pair(findClassRequest, SearchResult.Found(packageDirectory, root))
+                lastClassSearch = Pair(findClassRequest, SearchResult.Found(packageDirectory, rootIndex))
             }
             return result
         }
@@ -157,9 +174,9 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>): JvmDependenciesIndex {
             return null
         }
 
-        fun handle(root: JavaRoot, targetDirInRoot: VirtualFile): T? {
-            if (root.type in request.acceptedRootTypes) {
-                val (result, shouldContinue) = handler(targetDirInRoot, root.type)
+        fun handle(rootIndex: Int, targetDirInRoot: VirtualFile): T? {
+            if (roots[rootIndex].type in request.acceptedRootTypes) {
+                val (result, shouldContinue) = handler(targetDirInRoot, rootIndex)
                 if (!shouldContinue) {
                     return result
                 }
@@ -185,10 +202,9 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>): JvmDependenciesIndex {
                 if (rootIndex <= processedRootsUpTo) continue // roots with those indices have been processed by now
 
                 val directoryInRoot = travelPath(rootIndex, packagesPath, reverseCacheIndex, caches) ?: continue
-                val root = roots[rootIndex]
-                val result = handle(root, directoryInRoot)
+                val result = handle(rootIndex, directoryInRoot)
                 if (result != null) {
-                    return found(directoryInRoot, root, result)
+                    return found(directoryInRoot, rootIndex, result)
                 }
             }
             processedRootsUpTo = if (cacheRootIndices.isEmpty) processedRootsUpTo else cacheRootIndices.get(cacheRootIndices.size() - 1)
@@ -212,6 +228,13 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>): JvmDependenciesIndex {
         val pathRoot = roots[rootIndex]
         val prefixPathSegments = pathRoot.prefixFqName?.pathSegments()
 
+        // jar contents are known, so roots without this package are skipped without traversing their VirtualFiles
+        val contents = rootContents[rootIndex]
+        if (contents != null && !contents.hasDirectory(packagesPath.joinToString("/"))) {
+            fillCachesForExistingPrefix(rootIndex, packagesPath, fillCachesAfter, cachesPath, contents)
+            return null
+        }
+
         var currentFile = pathRoot.file
 
         for (pathIndex in packagesPath.indices) {
@@ -236,6 +259,26 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>): JvmDependenciesIndex {
         return currentFile
     }
 
+    // the root is known to contain the longest existing prefix of packagesPath, the same way travelPath would have found out
+    private fun fillCachesForExistingPrefix(
+            rootIndex: Int,
+            packagesPath: List<String>,
+            fillCachesAfter: Int,
+            cachesPath: List<Cache>,
+            contents: JarContents
+    ) {
+        var path = ""
+        for (pathIndex in packagesPath.indices) {
+            path = if (pathIndex == 0) packagesPath[0] else path + "/" + packagesPath[pathIndex]
+            if (!contents.hasDirectory(path)) return
+
+            val correspondingCacheIndex = pathIndex + 1
+            if (correspondingCacheIndex > fillCachesAfter) {
+                cachesPath[correspondingCacheIndex].rootIndices.add(rootIndex)
+            }
+        }
+    }
+
     private fun VirtualFile.findChildPackage(subPackageName: String, rootType: JavaRoot.RootType): VirtualFile? {
         val childDirectory = findChild(subPackageName) ?: return null
 
@@ -282,7 +325,7 @@ class JvmDependenciesIndexImpl(_roots: List<JavaRoot>): JvmDependenciesIndex {
     }
 
     private sealed class SearchResult {
-        class Found(val packageDirectory: VirtualFile, val root: JavaRoot) : SearchResult()
+        class Found(val packageDirectory: VirtualFile, val rootIndex: Int) : SearchResult()
 
         object NotFound : SearchResult()
     }
@@ -43,7 +43,10 @@ data class ClassInfo(
         val constructorInfo: ConstructorInfo?,
         val setterInfos: List<SetterInfo>,
         val registrations: List<Type>
-)
+) {
+    // Types of the parameters of the constructor and of the setters, computed once because they're requested for each container
+    val dependencies: List<Type> = constructorInfo?.parameters.orEmpty() + setterInfos.flatMap { it.parameters }
+}
 
 data class ConstructorInfo(
         val constructor: Constructor<*>,
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.container
+
+import com.intellij.util.containers.ContainerUtil
+import java.lang.reflect.Constructor
+import java.lang.reflect.Method
+import java.lang.reflect.Type
+import java.util.ArrayList
+
+/**
+ * Wiring of a container computed when it's composed for the first time: the implicit components, the registrations,
+ * the bindings of constructors and setters of all components, and the dependencies used to dispose them. Containers composed of the same components reuse it
+ * instead of discovering and resolving everything again. Components are still created in the same order, because it follows
+ * from the constructor bindings.
+ */
+internal class CompositionPlan(
+        val implicitClasses: List<Class<*>>,
+        val registrations: List<Pair<Type, List<Int>>>,
+        val components: List<ComponentPlan>
+)
+
+internal class ComponentPlan(
+        val constructor: Constructor<*>?,
+        val constructorArguments: List<ArgumentSlot>,
+        val setters: List<SetterPlan>,
+        val dependencies: List<Type>
+)
+
+internal class SetterPlan(val method: Method, val arguments: List<ArgumentSlot>)
+
+internal sealed class ArgumentSlot {
+    // Component of the container being composed, by its index in the registered components followed by the implicit ones
+    class Component(val index: Int) : ArgumentSlot()
+
+    // Component inherited from the parent container, which owns the plan
+    class Inherited(val descriptor: ValueDescriptor) : ArgumentSlot()
+
+    class Multiple(val slots: List<ArgumentSlot>) : ArgumentSlot()
+}
+
+private data class InstanceKey(val klass: Class<*>)
+
+/**
+ * @return the key of containers which can share a plan with the container of [descriptors], or null if it can't have a plan
+ */
+internal fun getCompositionPlanKey(parentRegistrationsVersion: Int, descriptors: Collection<ComponentDescriptor>): List<Any>? {
+    val key = ArrayList<Any>(descriptors.size + 1)
+    key.add(parentRegistrationsVersion)
+    for (descriptor in descriptors) {
+        key.add(when (descriptor) {
+                    is ImplicitSingletonTypeComponentDescriptor -> return null
+                    is SingletonTypeComponentDescriptor -> descriptor.klass
+                    is InstanceComponentDescriptor -> InstanceKey(descriptor.instance::class.java)
+                    else -> return null
+                })
+    }
+    return key
+}
+
+internal object RootCompositionPlans {
+    val plans: MutableMap<List<Any>, CompositionPlan> = ContainerUtil.createConcurrentSoftValueMap<List<Any>, CompositionPlan>()
+}
@@ -33,10 +33,13 @@ internal class ComponentRegistry {
     private val registrationMap = hashMapOf<Type, Any>()
 
     fun addAll(descriptors: Collection<ComponentDescriptor>) {
-        val newRegistrationMap = buildRegistrationMap(descriptors)
-        for (entry in newRegistrationMap.entrySet()) {
-            val oldEntries = registrationMap[entry.key]
-            if (oldEntries != null || entry.value.size > 1) {
+        addRegistrations(buildRegistrationMap(descriptors).entrySet().map { it.key to it.value })
+    }
+
+    fun addRegistrations(registrations: List<Pair<Type, Collection<ComponentDescriptor>>>) {
+        for ((type, descriptors) in registrations) {
+            val oldEntries = registrationMap[type]
+            if (oldEntries != null || descriptors.size > 1) {
                 val list = mutableListOf<ComponentDescriptor>()
                 if (oldEntries is Collection<*>) {
                     @Suppress("UNCHECKED_CAST")
@@ -45,11 +48,11 @@ internal class ComponentRegistry {
                 else if (oldEntries != null) {
                     list.add(oldEntries as ComponentDescriptor)
                 }
-                list.addAll(entry.value)
-                registrationMap[entry.key] = list.singleOrNull() ?: list
+                list.addAll(descriptors)
+                registrationMap[type] = list.singleOrNull() ?: list
             }
             else {
-                registrationMap[entry.key] = entry.value.single()
+                registrationMap[type] = descriptors.single()
             }
         }
     }
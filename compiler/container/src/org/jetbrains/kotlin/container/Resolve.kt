@@ -57,8 +57,8 @@ fun Class<*>.bindToConstructor(context: ValueResolveContext): ConstructorBinding
     return ConstructorBinding(candidate, candidate.bindArguments(constructorInfo.parameters, context))
 }
 
-fun Method.bindToMethod(context: ValueResolveContext): MethodBinding {
-    return MethodBinding(this, bindArguments(genericParameterTypes.toList(), context))
+fun Method.bindToMethod(context: ValueResolveContext, parameters: List<Type> = genericParameterTypes.toList()): MethodBinding {
+    return MethodBinding(this, bindArguments(parameters, context))
 }
 
 private fun Member.bindArguments(parameters: List<Type>, context: ValueResolveContext): List<ValueDescriptor> {
@@ -116,11 +116,14 @@ abstract class SingletonDescriptor(val container: ComponentContainer) : Componen
 }
 
 open class SingletonTypeComponentDescriptor(container: ComponentContainer, val klass: Class<*>) : SingletonDescriptor(container) {
+    // Set when the container is composed with a CompositionPlan, so that the constructor isn't bound again
+    internal var plannedBinding: ConstructorBinding? = null
+
     override fun createInstance(context: ValueResolveContext): Any = createInstanceOf(klass, context)
     override fun getRegistrations(): Iterable<Type> = klass.getInfo().registrations
 
     private fun createInstanceOf(klass: Class<*>, context: ValueResolveContext): Any {
-        val binding = klass.bindToConstructor(context)
+        val binding = plannedBinding ?: klass.bindToConstructor(context)
         state = ComponentState.Initializing
         for (argumentDescriptor in binding.argumentDescriptors) {
             if (argumentDescriptor is Closeable && argumentDescriptor !is SingletonDescriptor) {
@@ -136,10 +139,7 @@ open class SingletonTypeComponentDescriptor(container: ComponentContainer, val k
         return instance
     }
 
-    override fun getDependencies(context: ValueResolveContext): Collection<Type> {
-        val classInfo = klass.getInfo()
-        return classInfo.constructorInfo?.parameters.orEmpty() + classInfo.setterInfos.flatMap { it.parameters }
-    }
+    override fun getDependencies(context: ValueResolveContext): Collection<Type> = klass.getInfo().dependencies
 
     override fun toString(): String = "Singleton: ${klass.simpleName}"
 }
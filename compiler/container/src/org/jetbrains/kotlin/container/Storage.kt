@@ -16,6 +16,7 @@
 
 package org.jetbrains.kotlin.container
 
+import com.intellij.util.containers.ContainerUtil
 import com.intellij.util.containers.MultiMap
 import java.io.Closeable
 import java.io.PrintStream
@@ -23,6 +24,7 @@ import java.lang.reflect.Modifier
 import java.lang.reflect.ParameterizedType
 import java.lang.reflect.Type
 import java.util.ArrayList
+import java.util.HashMap
 import java.util.HashSet
 import java.util.LinkedHashSet
 
@@ -42,9 +44,19 @@ class ComponentStorage(val myId: String, parent: ComponentStorage?) : ValueResol
         parent?.let { registry.addAll(it.registry) }
     }
 
+    // Changes whenever components are registered, plans of child containers depend on the registrations of their parents
+    private var registrationsVersion = 0
+    private val parentRegistrationsVersion = parent?.registrationsVersion ?: 0
+    private val childPlans by lazy { ContainerUtil.createConcurrentSoftValueMap<List<Any>, CompositionPlan>() }
+    private val plans: MutableMap<List<Any>, CompositionPlan> = parent?.childPlans ?: RootCompositionPlans.plans
+
     private val descriptors = LinkedHashSet<ComponentDescriptor>()
     private val dependencies = MultiMap.createLinkedSet<ComponentDescriptor, Type>()
 
+    // Dependencies of components composed with a plan are needed only to dispose or dump the container, so they're registered lazily
+    private var plannedComponents: List<ComponentDescriptor>? = null
+    private var plan: CompositionPlan? = null
+
     override fun resolve(request: Type, context: ValueResolveContext): ValueDescriptor? {
         if (state == ComponentStorageState.Initial)
             throw ContainerConsistencyException("Container was not composed before resolving")
@@ -115,17 +127,140 @@ class ComponentStorage(val myId: String, parent: ComponentStorage?) : ValueResol
             throw ContainerConsistencyException("Container $myId was already composed.")
 
         state = ComponentStorageState.Initialized
-        composeDescriptors(context, descriptors)
+
+        val planKey = getCompositionPlanKey(parentRegistrationsVersion, descriptors)
+        val plan = planKey?.let { plans[it] }
+        if (plan != null) {
+            composeWithPlan(context, plan)
+        }
+        else {
+            composeDescriptors(context, descriptors, planKey)
+        }
     }
 
-    private fun composeDescriptors(context: ComponentResolveContext, descriptors: Collection<ComponentDescriptor>) {
+    private fun composeDescriptors(
+            context: ComponentResolveContext, descriptors: Collection<ComponentDescriptor>, planKey: List<Any>? = null
+    ) {
         if (descriptors.isEmpty()) return
 
         registry.addAll(descriptors)
+        registrationsVersion++
 
         val implicits = inspectDependenciesAndRegisterAdhoc(context, descriptors)
+        val components = ArrayList<ComponentDescriptor>(descriptors.size + implicits.size)
+        components.addAll(descriptors)
+        components.addAll(implicits)
+
+        val plan = if (planKey != null) createPlan(context, components, implicits) else null
+        if (plan != null) {
+            plans[planKey!!] = plan
+            injectProperties(components, plan)
+        }
+        else {
+            injectProperties(context, components)
+        }
+    }
+
+    private fun composeWithPlan(context: ComponentResolveContext, plan: CompositionPlan) {
+        val components = ArrayList<ComponentDescriptor>(descriptors.size + plan.implicitClasses.size)
+        components.addAll(descriptors)
+        plan.implicitClasses.mapTo(components) { ImplicitSingletonTypeComponentDescriptor(context.container, it) }
+
+        registry.addRegistrations(plan.registrations.map { (type, indices) -> type to indices.map { components[it] } })
+        registrationsVersion++
 
-        injectProperties(context, descriptors + implicits)
+        this.plannedComponents = components
+        this.plan = plan
+
+        injectProperties(components, plan)
+    }
+
+    private fun registerPlannedDependencies() {
+        val components = plannedComponents ?: return
+        for ((component, componentPlan) in components.zip(plan!!.components)) {
+            dependencies.putValues(component, componentPlan.dependencies)
+        }
+        plannedComponents = null
+        plan = null
+    }
+
+    /**
+     * Resolves the dependencies of all [components] as they would be resolved when the components are created.
+     * @return null if some of them can't be resolved, so that the container is composed without a plan and reports the error
+     */
+    private fun createPlan(
+            context: ComponentResolveContext, components: List<ComponentDescriptor>, implicits: Collection<ComponentDescriptor>
+    ): CompositionPlan? {
+        val indices = HashMap<ComponentDescriptor, Int>()
+        components.forEachIndexed { index, component -> indices[component] = index }
+
+        fun getSlot(descriptor: ValueDescriptor): ArgumentSlot? {
+            val index = indices[descriptor]
+            return when {
+                index != null -> ArgumentSlot.Component(index)
+                descriptor is IterableDescriptor -> ArgumentSlot.Multiple(descriptor.descriptors.map { getSlot(it) ?: return null })
+                descriptor is ComponentDescriptor -> ArgumentSlot.Inherited(descriptor)
+                else -> null
+            }
+        }
+
+        fun bind(parameters: List<Type>, resolveContext: ValueResolveContext): List<ArgumentSlot>? {
+            return parameters.map { parameter ->
+                val descriptor = try {
+                    resolveContext.resolve(parameter)
+                }
+                catch (e: InvalidCardinalityException) {
+                    null
+                }
+                getSlot(descriptor ?: return null) ?: return null
+            }
+        }
+
+        val componentPlans = components.map { component ->
+            when (component) {
+                is SingletonTypeComponentDescriptor -> {
+                    val classInfo = component.klass.getInfo()
+                    val constructorInfo = classInfo.constructorInfo ?: return null
+                    val resolveContext = context.container.createResolveContext(component)
+                    val constructorArguments = bind(constructorInfo.parameters, resolveContext) ?: return null
+                    val setters = classInfo.setterInfos.map { (method, parameters) ->
+                        SetterPlan(method, bind(parameters, resolveContext) ?: return null)
+                    }
+                    ComponentPlan(constructorInfo.constructor, constructorArguments, setters, dependencies[component].toList())
+                }
+                is InstanceComponentDescriptor -> ComponentPlan(null, emptyList(), emptyList(), emptyList())
+                else -> return null
+            }
+        }
+
+        val registrations = registry.buildRegistrationMap(components).entrySet().map { (type, descriptors) ->
+            type to descriptors.map { indices[it]!! }
+        }
+
+        return CompositionPlan(implicits.map { (it as SingletonTypeComponentDescriptor).klass }, registrations, componentPlans)
+    }
+
+    private fun injectProperties(components: List<ComponentDescriptor>, plan: CompositionPlan) {
+        fun ArgumentSlot.getDescriptor(): ValueDescriptor = when (this) {
+            is ArgumentSlot.Component -> components[index]
+            is ArgumentSlot.Inherited -> descriptor
+            is ArgumentSlot.Multiple -> IterableDescriptor(slots.map { it.getDescriptor() })
+        }
+
+        for ((component, componentPlan) in components.zip(plan.components)) {
+            val constructor = componentPlan.constructor ?: continue
+            (component as SingletonTypeComponentDescriptor).plannedBinding =
+                    ConstructorBinding(constructor, componentPlan.constructorArguments.map { it.getDescriptor() })
+        }
+
+        for ((component, componentPlan) in components.zip(plan.components)) {
+            if (component.shouldInjectProperties) {
+                val instance = component.getValue()
+                for (setter in componentPlan.setters) {
+                    MethodBinding(setter.method, setter.arguments.map { it.getDescriptor() }).invoke(instance)
+                }
+            }
+        }
     }
 
     private fun injectProperties(context: ComponentResolveContext, components: Collection<ComponentDescriptor>) {
@@ -176,8 +311,8 @@ class ComponentStorage(val myId: String, parent: ComponentStorage?) : ValueResol
     private fun injectProperties(instance: Any, context: ValueResolveContext) {
         val classInfo = instance::class.java.getInfo()
 
-        classInfo.setterInfos.forEach { (method) ->
-            val methodBinding = method.bindToMethod(context)
+        classInfo.setterInfos.forEach { (method, parameters) ->
+            val methodBinding = method.bindToMethod(context, parameters)
             methodBinding.invoke(instance)
         }
     }
@@ -197,6 +332,7 @@ class ComponentStorage(val myId: String, parent: ComponentStorage?) : ValueResol
     }
 
     private fun getDescriptorsInDisposeOrder(): List<ComponentDescriptor> {
+        registerPlannedDependencies()
         return topologicalSort(descriptors) {
             val dependent = ArrayList<ComponentDescriptor>()
             for (interfaceType in dependencies[it]) {
@@ -269,6 +269,41 @@ class ComponentContainerTest {
         assertTrue(c is C)
     }
 
+    @Test
+    fun should_compose_same_components_again() {
+        fun compose() = composeContainer("test") {
+            useImpl<TestComponent>()
+            useImpl<TestClientComponent>()
+            useImpl<TestClientComponent2>()
+            useImpl<TestIterableComponent>()
+            useInstance(TestStringComponent())
+            useImpl<TestIntComponent>()
+            useImpl<TestGenericClient>()
+            useImpl<TestAdhocComponent1>()
+            useImpl<WithSetters>()
+        }
+
+        val first = compose()
+        val second = compose()
+        for (container in listOf(first, second)) {
+            val client = container.get<TestClientComponent>()
+            assertTrue(client.dep === container.get<TestComponent>())
+            val iterableComponent = container.get<TestIterableComponent>()
+            assertEquals(2, iterableComponent.components.count())
+            assertTrue(iterableComponent.components.any { it === client })
+            assertTrue(container.get<TestGenericClient>().component1 === container.get<TestStringComponent>())
+            assertTrue(container.get<WithSetters>().isSetterCalled)
+        }
+        assertTrue(first.get<TestStringComponent>() !== second.get<TestStringComponent>())
+        assertTrue(first.get<TestClientComponent>() !== second.get<TestClientComponent>())
+        assertTrue(first.get<TestAdhocComponent1>().service !== second.get<TestAdhocComponent1>().service)
+
+        val client = second.get<TestClientComponent>()
+        second.close()
+        assertTrue(client.disposed)
+        assertTrue(client.dep.disposed)
+    }
+
     @Test
     fun use_parent_context_to_discover_dependencies() {
         class A
@@ -46,6 +46,10 @@ val COMPILE_DAEMON_DEFAULT_IDLE_TIMEOUT_S: Int = 7200 // 2 hours
 val COMPILE_DAEMON_DEFAULT_UNUSED_TIMEOUT_S: Int = 60
 val COMPILE_DAEMON_DEFAULT_SHUTDOWN_DELAY_MS: Long = 1000L // 1 sec
 val COMPILE_DAEMON_MEMORY_THRESHOLD_INFINITE: Long = 0L
+val COMPILE_DAEMON_DEFAULT_MAX_PARALLEL_COMPILATIONS: Int = 0 // number of available processors
+val COMPILE_DAEMON_DEFAULT_MIN_FREE_HEAP_PERCENT: Int = 25
+val COMPILE_DAEMON_DEFAULT_LIBRARY_CACHE_HEAP_PERCENT: Int = 10 // 0 to disable the cache
+val COMPILE_DAEMON_DEFAULT_INLINE_CACHE_HEAP_PERCENT: Int = 5 // 0 to disable the cache
 val COMPILE_DAEMON_FORCE_SHUTDOWN_DEFAULT_TIMEOUT_MS: Long = 10000L // 10 secs
 val COMPILE_DAEMON_TIMEOUT_INFINITE_MS: Long = 0L
 val COMPILE_DAEMON_IS_READY_MESSAGE = "Kotlin compile daemon is ready"
@@ -208,7 +212,11 @@ data class DaemonOptions(
         var shutdownDelayMilliseconds: Long = COMPILE_DAEMON_DEFAULT_SHUTDOWN_DELAY_MS,
         var forceShutdownTimeoutMilliseconds: Long = COMPILE_DAEMON_FORCE_SHUTDOWN_DEFAULT_TIMEOUT_MS,
         var verbose: Boolean = false,
-        var reportPerf: Boolean = false
+        var reportPerf: Boolean = false,
+        var maxParallelCompilations: Int = COMPILE_DAEMON_DEFAULT_MAX_PARALLEL_COMPILATIONS,
+        var minFreeHeapPercent: Int = COMPILE_DAEMON_DEFAULT_MIN_FREE_HEAP_PERCENT,
+        var libraryCacheHeapPercent: Int = COMPILE_DAEMON_DEFAULT_LIBRARY_CACHE_HEAP_PERCENT,
+        var inlineCacheHeapPercent: Int = COMPILE_DAEMON_DEFAULT_INLINE_CACHE_HEAP_PERCENT
 ) : OptionsGroup {
 
     override val mappers: List<PropMapper<*, *, *>>
@@ -220,7 +228,11 @@ data class DaemonOptions(
                        PropMapper(this, DaemonOptions::shutdownDelayMilliseconds, fromString = String::toLong, skipIf = { it == COMPILE_DAEMON_DEFAULT_SHUTDOWN_DELAY_MS }, mergeDelimiter = "="),
                        PropMapper(this, DaemonOptions::forceShutdownTimeoutMilliseconds, fromString = String::toLong, skipIf = { it == COMPILE_DAEMON_FORCE_SHUTDOWN_DEFAULT_TIMEOUT_MS }, mergeDelimiter = "="),
                        BoolPropMapper(this, DaemonOptions::verbose),
-                       BoolPropMapper(this, DaemonOptions::reportPerf))
+                       BoolPropMapper(this, DaemonOptions::reportPerf),
+                       PropMapper(this, DaemonOptions::maxParallelCompilations, fromString = String::toInt, skipIf = { it == COMPILE_DAEMON_DEFAULT_MAX_PARALLEL_COMPILATIONS }, mergeDelimiter = "="),
+                       PropMapper(this, DaemonOptions::minFreeHeapPercent, fromString = String::toInt, skipIf = { it == COMPILE_DAEMON_DEFAULT_MIN_FREE_HEAP_PERCENT }, mergeDelimiter = "="),
+                       PropMapper(this, DaemonOptions::libraryCacheHeapPercent, fromString = String::toInt, skipIf = { it == COMPILE_DAEMON_DEFAULT_LIBRARY_CACHE_HEAP_PERCENT }, mergeDelimiter = "="),
+                       PropMapper(this, DaemonOptions::inlineCacheHeapPercent, fromString = String::toInt, skipIf = { it == COMPILE_DAEMON_DEFAULT_INLINE_CACHE_HEAP_PERCENT }, mergeDelimiter = "="))
 }
 
 // TODO: consider implementing generic approach to it or may be replace getters with ones returning default if necessary
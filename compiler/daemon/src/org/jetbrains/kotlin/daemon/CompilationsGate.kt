@@ -0,0 +1,123 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.daemon
+
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.locks.ReentrantLock
+import java.util.logging.Logger
+import kotlin.concurrent.withLock
+
+val DEFAULT_COMPILATIONS_GATE_RECHECK_PERIOD_MS = 100L
+
+/**
+ * Admission control for compilations running in parallel in one daemon
+ * Compilations are admitted without locking while less than [maxParallelCompilations] are running and the free heap
+ * is at least [minFreeHeapPercent] of the max heap, otherwise they wait for running ones to finish or for the heap to be collected.
+ * A compilation is always admitted if no other is running, so a single big compilation cannot be starved
+ * [onIdle] is called each time the last running compilation finishes
+ */
+class CompilationsGate(maxParallelCompilations: Int,
+                       val minFreeHeapPercent: Int,
+                       val recheckPeriod: Long = DEFAULT_COMPILATIONS_GATE_RECHECK_PERIOD_MS,
+                       private val onIdle: () -> Unit = {}) {
+
+    val maxParallelCompilations: Int =
+            if (maxParallelCompilations > 0) maxParallelCompilations else Runtime.getRuntime().availableProcessors()
+
+    // number of running compilations, or EXCLUSIVE while an action that requires no compilations running is performed
+    private val active = AtomicInteger(0)
+    private val waitingLock = ReentrantLock()
+    private val permitsChanged = waitingLock.newCondition()
+    private val throttlingReported = AtomicBoolean(false)
+    private val log by lazy { Logger.getLogger("compilations gate") }
+
+    val activeCompilations: Int get() = active.get().let { if (it == EXCLUSIVE) 0 else it }
+
+    fun <R> withPermit(body: () -> R): R {
+        acquire()
+        try {
+            return body()
+        }
+        finally {
+            release()
+        }
+    }
+
+    /**
+     * Runs [action] if no compilation is running, new compilations wait until it is finished
+     * @return false if there were running compilations and [action] was not called
+     */
+    fun runIfIdle(action: () -> Unit): Boolean {
+        if (!active.compareAndSet(0, EXCLUSIVE)) return false
+        try {
+            action()
+        }
+        finally {
+            active.set(0)
+            wakeUpWaiting()
+        }
+        return true
+    }
+
+    private fun acquire() {
+        while (true) {
+            val current = active.get()
+            if (current != EXCLUSIVE && (current == 0 || current < maxParallelCompilations && hasEnoughFreeHeap())) {
+                if (active.compareAndSet(current, current + 1)) {
+                    throttlingReported.set(false)
+                    return
+                }
+            }
+            else {
+                if (current != EXCLUSIVE && throttlingReported.compareAndSet(false, true)) {
+                    log.info("Delaying compilation: $current running, ${freeHeapPercent()}% of heap is free")
+                }
+                // heap is freed without any notification, so the condition is rechecked periodically
+                waitingLock.withLock {
+                    permitsChanged.await(recheckPeriod, TimeUnit.MILLISECONDS)
+                }
+            }
+        }
+    }
+
+    private fun release() {
+        if (active.decrementAndGet() == 0) {
+            onIdle()
+        }
+        wakeUpWaiting()
+    }
+
+    private fun wakeUpWaiting() {
+        waitingLock.withLock {
+            permitsChanged.signalAll()
+        }
+    }
+
+    private fun hasEnoughFreeHeap(): Boolean = freeHeapPercent() >= minFreeHeapPercent
+
+    private fun freeHeapPercent(): Long {
+        val runtime = Runtime.getRuntime()
+        val free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())
+        return free * 100 / runtime.maxMemory()
+    }
+
+    private companion object {
+        val EXCLUSIVE = -1
+    }
+}
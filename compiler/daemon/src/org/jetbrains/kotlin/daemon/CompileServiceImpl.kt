@@ -34,6 +34,7 @@ import org.jetbrains.kotlin.cli.js.K2JSCompiler
 import org.jetbrains.kotlin.cli.jvm.K2JVMCompiler
 import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
 import org.jetbrains.kotlin.cli.metadata.K2MetadataCompiler
+import org.jetbrains.kotlin.codegen.inline.SharedInlineCache
 import org.jetbrains.kotlin.config.Services
 import org.jetbrains.kotlin.daemon.common.*
 import org.jetbrains.kotlin.daemon.incremental.RemoteAnnotationsFileUpdater
@@ -44,6 +45,7 @@ import org.jetbrains.kotlin.daemon.report.DaemonMessageReporter
 import org.jetbrains.kotlin.daemon.report.DaemonMessageReporterPrintStreamAdapter
 import org.jetbrains.kotlin.daemon.report.RemoteICReporter
 import org.jetbrains.kotlin.incremental.*
+import org.jetbrains.kotlin.load.kotlin.LibraryKotlinClassCache
 import org.jetbrains.kotlin.load.kotlin.incremental.components.IncrementalCompilationComponents
 import org.jetbrains.kotlin.modules.Module
 import org.jetbrains.kotlin.progress.CompilationCanceledStatus
@@ -103,6 +105,12 @@ class CompileServiceImpl(
 
     init {
         System.setProperty(KOTLIN_COMPILER_ENVIRONMENT_KEEPALIVE_PROPERTY, "true")
+        if (daemonOptions.libraryCacheHeapPercent > 0) {
+            LibraryKotlinClassCache.instance = LibraryKotlinClassCache(Runtime.getRuntime().maxMemory() / 100 * daemonOptions.libraryCacheHeapPercent)
+        }
+        if (daemonOptions.inlineCacheHeapPercent > 0) {
+            SharedInlineCache.instance = SharedInlineCache(Runtime.getRuntime().maxMemory() / 100 * daemonOptions.inlineCacheHeapPercent)
+        }
     }
 
     // wrapped in a class to encapsulate alive check logic
@@ -120,6 +128,13 @@ class CompileServiceImpl(
 
     private val compilationsCounter = AtomicInteger(0)
 
+    // compilations run in parallel, each with its own KotlinCoreEnvironment, while sharing the application environment
+    // (kept alive, see KOTLIN_COMPILER_ENVIRONMENT_KEEPALIVE_PROPERTY) with its jar file system caches
+    private val compilationsGate = CompilationsGate(daemonOptions.maxParallelCompilations, daemonOptions.minFreeHeapPercent,
+                                                    onIdle = { clearJarCacheIfRequested() })
+
+    private val jarCacheClearRequested = AtomicBoolean(false)
+
     private val classpathWatcher = LazyClasspathWatcher(compilerId.compilerClasspath)
 
     enum class Aliveness {
@@ -176,7 +191,7 @@ class CompileServiceImpl(
     }
 
     @Volatile private var _lastUsedSeconds = nowSeconds()
-    val lastUsedSeconds: Long get() = if (rwlock.isWriteLocked || rwlock.readLockCount - rwlock.readHoldCount > 0) nowSeconds() else _lastUsedSeconds
+    val lastUsedSeconds: Long get() = if (rwlock.isWriteLocked || rwlock.readLockCount - rwlock.readHoldCount > 0 || compilationsGate.activeCompilations > 0) nowSeconds() else _lastUsedSeconds
 
     private val log by lazy { Logger.getLogger("compiler") }
 
@@ -234,9 +249,7 @@ class CompileServiceImpl(
     override fun releaseCompileSession(sessionId: Int) = ifAlive(minAliveness = Aliveness.LastSession) {
         state.sessions.remove(sessionId)
         log.info("cleaning after session $sessionId")
-        rwlock.write {
-            clearJarCache()
-        }
+        clearJarCache()
         if (state.sessions.isEmpty()) {
             // TODO: and some goes here
         }
@@ -808,7 +821,7 @@ class CompileServiceImpl(
         try {
             val profiler = if (daemonOptions.reportPerf) WallAndThreadAndMemoryTotalProfiler(withGC = false) else DummyProfiler()
 
-            val res = profiler.withMeasure(null, body)
+            val res = compilationsGate.withPermit { profiler.withMeasure(null, body) }
 
             val endMem = if (daemonOptions.reportPerf) usedMemory(withGC = false) else 0L
 
@@ -825,6 +838,13 @@ class CompileServiceImpl(
                     log.info(it)
                 }
 
+                SharedInlineCache.instance?.let { cache ->
+                    "PERF: shared inline cache: ${cache.hitCount} hits, ${cache.missCount} misses, ${cache.size.kb()} kb".let {
+                        daemonMessageReporter.report(ReportSeverity.INFO, it)
+                        log.info(it)
+                    }
+                }
+
                 // this will only be reported if if appropriate (e.g. ByClass) profiler is used
                 for ((obj, counters) in rpcProfiler.getCounters()) {
                     "PERF: rpc by $obj: ${counters.count} calls, ${counters.time.ms()} ms, thread ${counters.threadTime.ms()} ms".let {
@@ -843,8 +863,18 @@ class CompileServiceImpl(
     }
 
     override fun clearJarCache() {
-        ZipHandler.clearFileAccessorCache()
-        (KotlinCoreEnvironment.applicationEnvironment?.jarFileSystem as? CoreJarFileSystem)?.clearHandlersCache()
+        // jar handlers are shared by all running compilations, so clearing is postponed until none is running
+        jarCacheClearRequested.set(true)
+        clearJarCacheIfRequested()
+    }
+
+    private fun clearJarCacheIfRequested() {
+        compilationsGate.runIfIdle {
+            if (jarCacheClearRequested.compareAndSet(true, false)) {
+                ZipHandler.clearFileAccessorCache()
+                (KotlinCoreEnvironment.applicationEnvironment?.jarFileSystem as? CoreJarFileSystem)?.clearHandlersCache()
+            }
+        }
     }
 
     private fun<R> ifAlive(minAliveness: Aliveness = Aliveness.Alive,
@@ -868,6 +898,9 @@ class CompileServiceImpl(
             state.alive.get() < minAliveness.ordinal -> CompileService.CallResult.Dying()
             !ignoreCompilerChanged && classpathWatcher.isChanged -> {
                 log.info("Compiler changed, scheduling shutdown")
+                // the metadata format may differ in the new compiler, so nothing cached by this one should be reused
+                LibraryKotlinClassCache.instance?.clear()
+                SharedInlineCache.instance?.clear()
                 shutdownWithDelay()
                 CompileService.CallResult.Dying()
             }
@@ -55,6 +55,14 @@ public class JVMConfigurationKeys {
             CompilerConfigurationKey.create("compile multifile classes to a hierarchy of parts and facade");
     public static final CompilerConfigurationKey<Boolean> USE_TYPE_TABLE =
             CompilerConfigurationKey.create("use type table in serializer");
+    public static final CompilerConfigurationKey<Boolean> LAMBDAS_VIA_INVOKEDYNAMIC =
+            CompilerConfigurationKey.create("generate lambdas and SAM conversions with invokedynamic");
+    public static final CompilerConfigurationKey<Integer> PARALLEL_BACKEND_THREADS =
+            CompilerConfigurationKey.create("number of threads used to generate bytecode for packages and multifile classes");
+    public static final CompilerConfigurationKey<Integer> PARALLEL_OPTIMIZATION_THREADS =
+            CompilerConfigurationKey.create("number of threads used to optimize bytecode of generated methods");
+    public static final CompilerConfigurationKey<Boolean> CONCURRENT_STORAGE_MANAGER =
+            CompilerConfigurationKey.create("resolve with a storage manager which doesn't serialize lazy values on a global lock");
 
     public static final CompilerConfigurationKey<Boolean> USE_SINGLE_MODULE =
             CompilerConfigurationKey.create("combine modules for source files and binary dependencies into a single module");
@@ -62,9 +62,11 @@ class KotlinBinaryClassCache : Disposable {
                 return requestCache.virtualFileKotlinClass
             }
 
+            val libraryCache = LibraryKotlinClassCache.instance
             val aClass = ApplicationManager.getApplication().runReadAction(Computable {
                 @Suppress("DEPRECATION")
-                VirtualFileKotlinClass.create(file, fileContent)
+                if (libraryCache != null) libraryCache.getKotlinBinaryClass(file, fileContent)
+                else VirtualFileKotlinClass.create(file, fileContent)
             })
 
             return requestCache.cache(file, aClass)
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.load.kotlin
+
+import com.intellij.openapi.vfs.StandardFileSystems
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.util.io.URLUtil
+import org.jetbrains.kotlin.load.kotlin.header.KotlinClassHeader
+import org.jetbrains.kotlin.name.ClassId
+import java.io.File
+import java.io.FileInputStream
+import java.io.IOException
+import java.security.MessageDigest
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Cache of the data read from binary classes in library jars: class headers, inner classes and parsed Kotlin metadata.
+ * Unlike [KotlinBinaryClassCache] it is shared by all compilations in the process, and is only enabled (see [instance])
+ * where many compilations are run against the same libraries, i.e. in the compile daemon.
+ *
+ * Jars are identified by content hash, which is only recomputed when the jar's length or timestamp changes,
+ * so a rebuilt library gets a new entry while the stale one is eventually evicted.
+ * Jars are evicted in LRU order when the estimated size of the cached data exceeds [maxSizeBytes].
+ */
+class LibraryKotlinClassCache(val maxSizeBytes: Long, val jarCheckPeriodMs: Long = DEFAULT_JAR_CHECK_PERIOD_MS) {
+
+    class ClassData internal constructor(
+            val classId: ClassId,
+            val classVersion: Int,
+            val classHeader: KotlinClassHeader,
+            val innerClasses: FileBasedKotlinClass.InnerClassesInfo
+    ) {
+        // parsed metadata, see SharedMetadataKotlinJvmBinaryClass
+        @Volatile internal var metadata: Any? = null
+    }
+
+    private class JarData {
+        // jar entry path -> ClassData, or NOT_KOTLIN_CLASS
+        val classes = ConcurrentHashMap<String, Any>()
+        var size = 0L
+        var isEvicted = false
+    }
+
+    private class JarStamp(val length: Long, val lastModified: Long, val hash: String) {
+        @Volatile var checked = System.currentTimeMillis()
+    }
+
+    private val stamps = ConcurrentHashMap<String, JarStamp>()
+
+    // hash -> jar data, in access order; guarded by itself along with sizes
+    private val jars = LinkedHashMap<String, JarData>(16, 0.75f, true)
+    private var totalSize = 0L
+
+    val size: Long get() = synchronized(jars) { totalSize }
+
+    @Suppress("DEPRECATION")
+    fun getKotlinBinaryClass(file: VirtualFile, fileContent: ByteArray?): VirtualFileKotlinClass? {
+        val path = file.path
+        val separatorIndex = path.indexOf(URLUtil.JAR_SEPARATOR)
+        val jarData = if (file.fileSystem.protocol == StandardFileSystems.JAR_PROTOCOL && separatorIndex > 0)
+            getJarData(path.substring(0, separatorIndex))
+        else null
+
+        if (jarData == null) return VirtualFileKotlinClass.create(file, fileContent)
+
+        val entryPath = path.substring(separatorIndex + URLUtil.JAR_SEPARATOR.length)
+        val cached = jarData.classes[entryPath] ?: readClassData(file, fileContent)?.let { data ->
+            jarData.classes.putIfAbsent(entryPath, data) ?: data.apply { addSize(jarData, estimateSize(data)) }
+        }
+
+        return when (cached) {
+            null -> VirtualFileKotlinClass.create(file, fileContent)
+            is ClassData -> VirtualFileKotlinClass(file, cached)
+            else -> null
+        }
+    }
+
+    fun clear() {
+        stamps.clear()
+        synchronized(jars) {
+            jars.values.forEach { it.isEvicted = true }
+            jars.clear()
+            totalSize = 0
+        }
+    }
+
+    // returns null if the class file could not be read, so the error is reported by VirtualFileKotlinClass.create
+    private fun readClassData(file: VirtualFile, fileContent: ByteArray?): Any? =
+            try {
+                val bytes = fileContent ?: file.contentsToByteArray(false)
+                if (bytes.isEmpty()) null
+                else FileBasedKotlinClass.create(bytes) { classId, classVersion, header, innerClasses ->
+                    ClassData(classId, classVersion, header, innerClasses)
+                } ?: NOT_KOTLIN_CLASS
+            }
+            catch (e: Throwable) {
+                null
+            }
+
+    private fun getJarData(jarPath: String): JarData? {
+        val stamp = getUpToDateStamp(jarPath) ?: return null
+        return synchronized(jars) {
+            jars.getOrPut(stamp.hash) { JarData() }
+        }
+    }
+
+    private fun getUpToDateStamp(jarPath: String): JarStamp? {
+        val stamp = stamps[jarPath]
+        val now = System.currentTimeMillis()
+        if (stamp != null && now - stamp.checked <= jarCheckPeriodMs) return stamp
+
+        val jar = File(jarPath)
+        val length = jar.length()
+        val lastModified = jar.lastModified()
+        if (stamp != null && stamp.length == length && stamp.lastModified == lastModified) {
+            stamp.checked = now
+            return stamp
+        }
+
+        val hash = jar.contentHash() ?: return null
+        return JarStamp(length, lastModified, hash).also { stamps[jarPath] = it }
+    }
+
+    private fun addSize(jarData: JarData, size: Long) {
+        synchronized(jars) {
+            if (jarData.isEvicted) return
+
+            jarData.size += size
+            totalSize += size
+
+            val iterator = jars.values.iterator()
+            while (totalSize > maxSizeBytes && iterator.hasNext()) {
+                val eldest = iterator.next()
+                if (eldest === jarData) continue
+
+                iterator.remove()
+                eldest.isEvicted = true
+                totalSize -= eldest.size
+            }
+        }
+    }
+
+    private fun estimateSize(data: Any): Long {
+        if (data !is ClassData) return NOT_KOTLIN_CLASS_BYTES
+
+        val header = data.classHeader
+        val metadataChars = (header.data?.sumBy { it.length } ?: 0) + (header.strings?.sumBy { it.length } ?: 0)
+        // metadata strings are kept along with their parsed form, which takes about as much as the strings themselves
+        return CLASS_DATA_OVERHEAD_BYTES + 4L * metadataChars
+    }
+
+    private fun File.contentHash(): String? =
+            try {
+                val digest = MessageDigest.getInstance("MD5")
+                FileInputStream(this).use { input ->
+                    val buffer = ByteArray(64 * 1024)
+                    while (true) {
+                        val read = input.read(buffer)
+                        if (read < 0) break
+                        digest.update(buffer, 0, read)
+                    }
+                }
+                digest.digest().joinToString("") { "%02x".format(it) }
+            }
+            catch (e: IOException) {
+                null
+            }
+
+    companion object {
+        const val DEFAULT_JAR_CHECK_PERIOD_MS = 1000L
+
+        private const val CLASS_DATA_OVERHEAD_BYTES = 200L
+        private const val NOT_KOTLIN_CLASS_BYTES = 100L
+
+        private val NOT_KOTLIN_CLASS = Any()
+
+        /**
+         * The cache used by [KotlinBinaryClassCache], if enabled
+         */
+        @Volatile
+        @JvmStatic
+        var instance: LibraryKotlinClassCache? = null
+    }
+}
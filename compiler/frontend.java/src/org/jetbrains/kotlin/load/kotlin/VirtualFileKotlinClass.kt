@@ -31,8 +31,12 @@ class VirtualFileKotlinClass private constructor(
         className: ClassId,
         classVersion: Int,
         classHeader: KotlinClassHeader,
-        innerClasses: InnerClassesInfo
-) : FileBasedKotlinClass(className, classVersion, classHeader, innerClasses) {
+        innerClasses: InnerClassesInfo,
+        private val sharedData: LibraryKotlinClassCache.ClassData? = null
+) : FileBasedKotlinClass(className, classVersion, classHeader, innerClasses), SharedMetadataKotlinJvmBinaryClass {
+
+    internal constructor(file: VirtualFile, sharedData: LibraryKotlinClassCache.ClassData) :
+            this(file, sharedData.classId, sharedData.classVersion, sharedData.classHeader, sharedData.innerClasses, sharedData)
 
     override val location: String
         get() = file.path
@@ -47,6 +51,12 @@ class VirtualFileKotlinClass private constructor(
         }
     }
 
+    override fun <T : Any> getOrParseMetadata(parse: () -> T): T {
+        val data = sharedData ?: return parse()
+        @Suppress("UNCHECKED_CAST")
+        return data.metadata as T? ?: parse().also { data.metadata = it }
+    }
+
     override fun equals(other: Any?) = other is VirtualFileKotlinClass && other.file == file
     override fun hashCode() = file.hashCode()
     override fun toString() = "${this::class.java.simpleName}: $file"
@@ -26,10 +26,12 @@ import org.jetbrains.kotlin.builtins.JvmBuiltInsPackageFragmentProvider
 import org.jetbrains.kotlin.config.*
 import org.jetbrains.kotlin.container.ComponentProvider
 import org.jetbrains.kotlin.container.get
+import org.jetbrains.kotlin.context.ConcurrentGlobalContext
 import org.jetbrains.kotlin.context.ContextForNewModule
+import org.jetbrains.kotlin.context.GlobalContext
 import org.jetbrains.kotlin.context.ModuleContext
 import org.jetbrains.kotlin.context.MutableModuleContext
-import org.jetbrains.kotlin.context.ProjectContext
+import org.jetbrains.kotlin.context.withProject
 import org.jetbrains.kotlin.descriptors.ClassDescriptor
 import org.jetbrains.kotlin.descriptors.ModuleDescriptor
 import org.jetbrains.kotlin.descriptors.PackageFragmentProvider
@@ -262,7 +264,10 @@ object TopDownAnalyzerFacadeForJVM {
             configuration: CompilerConfiguration,
             createBuiltInsFromModule: Boolean
     ): MutableModuleContext {
-        val projectContext = ProjectContext(project)
+        val globalContext =
+                if (configuration.getBoolean(JVMConfigurationKeys.CONCURRENT_STORAGE_MANAGER)) ConcurrentGlobalContext()
+                else GlobalContext()
+        val projectContext = globalContext.withProject(project)
         val builtIns = JvmBuiltIns(projectContext.storageManager, !createBuiltInsFromModule)
         return ContextForNewModule(
                 projectContext, Name.special("<${configuration.getNotNull(CommonConfigurationKeys.MODULE_NAME)}>"), builtIns, null
@@ -26,4 +26,8 @@ fun DeclarationDescriptor.findJvmFieldAnnotation() = DescriptorUtils.getAnnotati
 
 fun DeclarationDescriptor.hasJvmFieldAnnotation(): Boolean {
     return findJvmFieldAnnotation() != null
-}
\ No newline at end of file
+}
+
+val JVM_VALUE_WRAPPER_ANNOTATION_FQ_NAME = FqName("kotlin.jvm.JvmValueWrapper")
+
+fun DeclarationDescriptor.findJvmValueWrapperAnnotation() = annotations.findAnnotation(JVM_VALUE_WRAPPER_ANNOTATION_FQ_NAME)
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.resolve.jvm.checkers
+
+import org.jetbrains.kotlin.builtins.KotlinBuiltIns
+import org.jetbrains.kotlin.descriptors.*
+import org.jetbrains.kotlin.diagnostics.DiagnosticSink
+import org.jetbrains.kotlin.psi.KtClass
+import org.jetbrains.kotlin.psi.KtDeclaration
+import org.jetbrains.kotlin.psi.KtDelegatedSuperTypeEntry
+import org.jetbrains.kotlin.resolve.BindingContext
+import org.jetbrains.kotlin.resolve.DescriptorToSourceUtils
+import org.jetbrains.kotlin.resolve.DescriptorUtils
+import org.jetbrains.kotlin.resolve.checkers.SimpleDeclarationChecker
+import org.jetbrains.kotlin.resolve.descriptorUtil.getSuperClassNotAny
+import org.jetbrains.kotlin.resolve.jvm.annotations.findJvmValueWrapperAnnotation
+import org.jetbrains.kotlin.resolve.jvm.checkers.JvmValueWrapperApplicabilityChecker.Problem.*
+import org.jetbrains.kotlin.resolve.jvm.diagnostics.ErrorsJvm
+
+/**
+ * Instances of classes annotated with JvmValueWrapper may be replaced with their values by the backend, so creating such an instance
+ * must have no effects except storing the value.
+ */
+class JvmValueWrapperApplicabilityChecker : SimpleDeclarationChecker {
+
+    internal enum class Problem(val errorMessage: String) {
+        NOT_CLASS("JvmValueWrapper can only be applied to a class"),
+        NOT_FINAL("JvmValueWrapper can only be applied to a final class"),
+        INNER_OR_LOCAL("JvmValueWrapper cannot be applied to an inner or local class"),
+        SUPERCLASS("JvmValueWrapper cannot be applied to a class with a superclass"),
+        PRIMARY_CONSTRUCTOR("JvmValueWrapper can only be applied to a class with a primary constructor, which has a single 'val' parameter of a primitive type without a default value"),
+        INITIALIZATION("JvmValueWrapper cannot be applied to a class with initializer blocks, delegation or properties with backing fields besides the constructor parameter")
+    }
+
+    override fun check(
+            declaration: KtDeclaration,
+            descriptor: DeclarationDescriptor,
+            diagnosticHolder: DiagnosticSink,
+            bindingContext: BindingContext
+    ) {
+        val annotation = descriptor.findJvmValueWrapperAnnotation() ?: return
+
+        val problem = when {
+            descriptor !is ClassDescriptor || declaration !is KtClass -> return
+            descriptor.kind != ClassKind.CLASS -> NOT_CLASS
+            descriptor.modality != Modality.FINAL -> NOT_FINAL
+            descriptor.isInner || DescriptorUtils.isLocal(descriptor) -> INNER_OR_LOCAL
+            descriptor.getSuperClassNotAny() != null -> SUPERCLASS
+            !descriptor.hasWrappedValueParameter(bindingContext) -> PRIMARY_CONSTRUCTOR
+            declaration.hasInitialization(bindingContext) -> INITIALIZATION
+            else -> return
+        }
+
+        val annotationEntry = DescriptorToSourceUtils.getSourceFromAnnotation(annotation) ?: return
+        diagnosticHolder.report(ErrorsJvm.INAPPLICABLE_JVM_VALUE_WRAPPER.on(annotationEntry, problem.errorMessage))
+    }
+
+    private fun ClassDescriptor.hasWrappedValueParameter(bindingContext: BindingContext): Boolean {
+        val parameter = unsubstitutedPrimaryConstructor?.valueParameters?.singleOrNull() ?: return false
+        val property = bindingContext[BindingContext.VALUE_PARAMETER_AS_PROPERTY, parameter] ?: return false
+        return !property.isVar && parameter.varargElementType == null && !parameter.declaresDefaultValue() &&
+               KotlinBuiltIns.isPrimitiveType(parameter.type)
+    }
+
+    private fun KtClass.hasInitialization(bindingContext: BindingContext): Boolean =
+            getAnonymousInitializers().isNotEmpty() ||
+            superTypeListEntries.any { it is KtDelegatedSuperTypeEntry } ||
+            declarations.any {
+                val property = bindingContext[BindingContext.VARIABLE, it] as? PropertyDescriptor
+                property != null && bindingContext[BindingContext.BACKING_FIELD_REQUIRED, property] == true
+            }
+}
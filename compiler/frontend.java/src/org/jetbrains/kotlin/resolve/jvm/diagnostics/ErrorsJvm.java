@@ -47,6 +47,8 @@ public interface ErrorsJvm {
 
     DiagnosticFactory1<KtAnnotationEntry, String> INAPPLICABLE_JVM_FIELD = DiagnosticFactory1.create(ERROR);
 
+    DiagnosticFactory1<KtAnnotationEntry, String> INAPPLICABLE_JVM_VALUE_WRAPPER = DiagnosticFactory1.create(ERROR);
+
     DiagnosticFactory0<KtAnnotationEntry> JVM_SYNTHETIC_ON_DELEGATE = DiagnosticFactory0.create(ERROR);
 
     DiagnosticFactory0<KtAnnotationEntry> STRICTFP_ON_CLASS = DiagnosticFactory0.create(WARNING);
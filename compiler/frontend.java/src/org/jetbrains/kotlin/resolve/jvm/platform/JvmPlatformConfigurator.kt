@@ -40,6 +40,7 @@ object JvmPlatformConfigurator : PlatformConfigurator(
                 ExternalFunChecker(),
                 OverloadsAnnotationChecker(),
                 JvmFieldApplicabilityChecker(),
+                JvmValueWrapperApplicabilityChecker(),
                 TypeParameterBoundIsNotArrayChecker(),
                 JvmSyntheticApplicabilityChecker(),
                 StrictfpApplicabilityChecker(),
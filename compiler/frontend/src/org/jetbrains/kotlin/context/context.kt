@@ -23,6 +23,7 @@ import org.jetbrains.kotlin.descriptors.PackageFragmentProvider
 import org.jetbrains.kotlin.descriptors.impl.ModuleDescriptorImpl
 import org.jetbrains.kotlin.name.Name
 import org.jetbrains.kotlin.resolve.MultiTargetPlatform
+import org.jetbrains.kotlin.storage.ConcurrentStorageManager
 import org.jetbrains.kotlin.storage.ExceptionTracker
 import org.jetbrains.kotlin.storage.LockBasedStorageManager
 import org.jetbrains.kotlin.storage.StorageManager
@@ -88,6 +89,15 @@ fun GlobalContext(): GlobalContextImpl {
     return GlobalContextImpl(LockBasedStorageManager.createWithExceptionHandling(tracker), tracker)
 }
 
+/**
+ * Creates a context whose storage manager has no global lock, so that lazy resolution can be performed on several threads
+ * at the same time. See [ConcurrentStorageManager] for the guarantees it provides.
+ */
+fun ConcurrentGlobalContext(): GlobalContext {
+    val tracker = ExceptionTracker()
+    return SimpleGlobalContext(ConcurrentStorageManager.createWithExceptionHandling(tracker), tracker)
+}
+
 fun ProjectContext(project: Project): ProjectContext = ProjectContextImpl(project, GlobalContext())
 fun ModuleContext(module: ModuleDescriptor, project: Project): ModuleContext =
         ModuleContextImpl(module, ProjectContext(project))
@@ -36,6 +36,9 @@ public class BindingTraceContext implements BindingTrace {
     /* package */ final static boolean TRACK_REWRITES = false;
     /* package */ final static boolean TRACK_WITH_STACK_TRACES = true;
 
+    // Allows to store binding data in OpenAddressingSlicedMap, which doesn't copy per-key holders on each write
+    private final static boolean USE_OPEN_ADDRESSING_SLICED_MAP = Boolean.getBoolean("kotlin.trace.open.addressing.sliced.map");
+
     private final MutableSlicedMap map;
     @Nullable private final MutableDiagnosticsWithSuppression mutableDiagnostics;
     @NotNull private final BindingTraceFilter filter;
@@ -83,8 +86,14 @@ public class BindingTraceContext implements BindingTrace {
     }
 
     public BindingTraceContext(BindingTraceFilter filter) {
+        this(createSlicedMap(), filter);
+    }
+
+    @NotNull
+    /* package */ static MutableSlicedMap createSlicedMap() {
         //noinspection ConstantConditions
-        this(TRACK_REWRITES ? new TrackingSlicedMap(TRACK_WITH_STACK_TRACES) : SlicedMapImpl.create(), filter);
+        if (TRACK_REWRITES) return new TrackingSlicedMap(TRACK_WITH_STACK_TRACES);
+        return USE_OPEN_ADDRESSING_SLICED_MAP ? OpenAddressingSlicedMap.create() : SlicedMapImpl.create();
     }
 
 
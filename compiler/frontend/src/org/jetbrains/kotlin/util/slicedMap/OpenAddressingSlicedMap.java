@@ -0,0 +1,285 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.util.slicedMap;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Multimap;
+import kotlin.jvm.functions.Function3;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * An implementation of {@link MutableSlicedMap} which stores values of each slice in a separate open-addressed hash table.
+ *
+ * {@link SlicedMapImpl} keeps an immutable {@code KeyFMap} per key and copies it on each put, which makes binding traces one of the
+ * top allocation sites. Here the tables are found by the slice key index (which is unique for every {@code Key}), and are mutated
+ * in place, so a put only allocates when a table grows.
+ */
+public class OpenAddressingSlicedMap implements MutableSlicedMap {
+    private static final int INITIAL_SLICE_CAPACITY = 8;
+    private static final int INITIAL_TABLE_CAPACITY = 4;
+
+    // Stands for a null key in tables, null itself marks an empty cell
+    private static final Object NULL_KEY = new Object() {
+        @Override
+        public String toString() {
+            return "NULL_KEY";
+        }
+    };
+
+    public static OpenAddressingSlicedMap create() {
+        return new OpenAddressingSlicedMap();
+    }
+
+    // Open-addressed table from slice keys to their tables; the capacity is always a power of two
+    private KeyWithSlice<?, ?, ?>[] sliceKeys = null;
+    private SliceTable[] sliceTables = null;
+    private int sliceCount = 0;
+
+    private Multimap<WritableSlice<?, ?>, Object> collectiveSliceKeys = null;
+
+    @Override
+    public <K, V> void put(WritableSlice<K, V> slice, K key, V value) {
+        if (!slice.check(key, value)) {
+            return;
+        }
+
+        SliceTable table = getOrCreateTable(slice.getKey());
+
+        RewritePolicy rewritePolicy = slice.getRewritePolicy();
+        if (rewritePolicy.rewriteProcessingNeeded(key)) {
+            @SuppressWarnings("unchecked")
+            V oldValue = (V) table.get(key);
+            if (oldValue != null) {
+                //noinspection unchecked
+                if (!rewritePolicy.processRewrite(slice, key, oldValue, value)) {
+                    return;
+                }
+            }
+        }
+
+        if (slice.isCollective()) {
+            if (collectiveSliceKeys == null) {
+                collectiveSliceKeys = ArrayListMultimap.create();
+            }
+
+            collectiveSliceKeys.put(slice, key);
+        }
+
+        table.put(key, value);
+        slice.afterPut(this, key, value);
+    }
+
+    @Override
+    public void clear() {
+        sliceKeys = null;
+        sliceTables = null;
+        sliceCount = 0;
+        collectiveSliceKeys = null;
+    }
+
+    @Override
+    public <K, V> V get(ReadOnlySlice<K, V> slice, K key) {
+        SliceTable table = getTable(slice.getKey());
+
+        @SuppressWarnings("unchecked")
+        V value = table == null ? null : (V) table.get(key);
+
+        return slice.computeValue(this, key, value, value == null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> Collection<K> getKeys(WritableSlice<K, V> slice) {
+        assert slice.isCollective() : "Keys are not collected for slice " + slice;
+
+        if (collectiveSliceKeys == null) return Collections.emptyList();
+        return (Collection<K>) collectiveSliceKeys.get(slice);
+    }
+
+    @Override
+    public void forEach(@NotNull Function3<WritableSlice, Object, Object, Void> f) {
+        if (sliceTables == null) return;
+
+        for (int i = 0; i < sliceTables.length; i++) {
+            SliceTable table = sliceTables[i];
+            if (table == null) continue;
+
+            WritableSlice slice = (WritableSlice) sliceKeys[i].getSlice();
+            for (int j = 0; j < table.keys.length; j++) {
+                Object key = table.keys[j];
+                // Null values aren't reported, as in SlicedMapImpl which doesn't store them
+                if (key == null || table.values[j] == null) continue;
+
+                f.invoke(slice, key == NULL_KEY ? null : key, table.values[j]);
+            }
+        }
+    }
+
+    @NotNull
+    @Override
+    public <K, V> ImmutableMap<K, V> getSliceContents(@NotNull ReadOnlySlice<K, V> slice) {
+        ImmutableMap.Builder<K, V> builder = ImmutableMap.builder();
+
+        SliceTable table = getTable(slice.getKey());
+        if (table != null) {
+            for (int i = 0; i < table.keys.length; i++) {
+                Object key = table.keys[i];
+                // ImmutableMap can't contain nulls
+                if (key == null || key == NULL_KEY || table.values[i] == null) continue;
+
+                //noinspection unchecked
+                builder.put((K) key, (V) table.values[i]);
+            }
+        }
+
+        return builder.build();
+    }
+
+    @Nullable
+    private SliceTable getTable(@NotNull KeyWithSlice<?, ?, ?> sliceKey) {
+        if (sliceKeys == null) return null;
+
+        int mask = sliceKeys.length - 1;
+        for (int i = mix(sliceKey.hashCode()) & mask; ; i = (i + 1) & mask) {
+            KeyWithSlice<?, ?, ?> existing = sliceKeys[i];
+            if (existing == null) return null;
+            if (existing == sliceKey) return sliceTables[i];
+        }
+    }
+
+    @NotNull
+    private SliceTable getOrCreateTable(@NotNull KeyWithSlice<?, ?, ?> sliceKey) {
+        SliceTable table = getTable(sliceKey);
+        if (table != null) return table;
+
+        if (sliceKeys == null) {
+            sliceKeys = new KeyWithSlice<?, ?, ?>[INITIAL_SLICE_CAPACITY];
+            sliceTables = new SliceTable[INITIAL_SLICE_CAPACITY];
+        }
+        else if (2 * (sliceCount + 1) > sliceKeys.length) {
+            rehashSlices(2 * sliceKeys.length);
+        }
+
+        table = new SliceTable();
+        insertSlice(sliceKeys, sliceTables, sliceKey, table);
+        sliceCount++;
+        return table;
+    }
+
+    private void rehashSlices(int newCapacity) {
+        KeyWithSlice<?, ?, ?>[] newKeys = new KeyWithSlice<?, ?, ?>[newCapacity];
+        SliceTable[] newTables = new SliceTable[newCapacity];
+        for (int i = 0; i < sliceKeys.length; i++) {
+            if (sliceKeys[i] != null) {
+                insertSlice(newKeys, newTables, sliceKeys[i], sliceTables[i]);
+            }
+        }
+        sliceKeys = newKeys;
+        sliceTables = newTables;
+    }
+
+    private static void insertSlice(
+            @NotNull KeyWithSlice<?, ?, ?>[] keys,
+            @NotNull SliceTable[] tables,
+            @NotNull KeyWithSlice<?, ?, ?> sliceKey,
+            @NotNull SliceTable table
+    ) {
+        int mask = keys.length - 1;
+        int i = mix(sliceKey.hashCode()) & mask;
+        while (keys[i] != null) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = sliceKey;
+        tables[i] = table;
+    }
+
+    // Spreads sequential key indices and poorly distributed hash codes over the table
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Open-addressed table with linear probing from keys of one slice to values; entries are never removed
+    private static final class SliceTable {
+        private Object[] keys = new Object[INITIAL_TABLE_CAPACITY];
+        private Object[] values = new Object[INITIAL_TABLE_CAPACITY];
+        private int size = 0;
+
+        @Nullable
+        Object get(@Nullable Object key) {
+            Object k = key == null ? NULL_KEY : key;
+            int mask = keys.length - 1;
+            for (int i = mix(k.hashCode()) & mask; ; i = (i + 1) & mask) {
+                Object existing = keys[i];
+                if (existing == null) return null;
+                if (existing == k || existing.equals(k)) return values[i];
+            }
+        }
+
+        void put(@Nullable Object key, @Nullable Object value) {
+            Object k = key == null ? NULL_KEY : key;
+            int mask = keys.length - 1;
+            int i = mix(k.hashCode()) & mask;
+            while (true) {
+                Object existing = keys[i];
+                if (existing == null) break;
+                if (existing == k || existing.equals(k)) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+
+            if (4 * (size + 1) > 3 * keys.length) {
+                rehash(2 * keys.length);
+                insert(k, value);
+            }
+            else {
+                keys[i] = k;
+                values[i] = value;
+            }
+            size++;
+        }
+
+        private void rehash(int newCapacity) {
+            Object[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new Object[newCapacity];
+            values = new Object[newCapacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    insert(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private void insert(@NotNull Object key, @Nullable Object value) {
+            int mask = keys.length - 1;
+            int i = mix(key.hashCode()) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+    }
+}
@@ -71,18 +71,39 @@ private object EmptyICReporter : ICReporter {
     }
 }
 
-inline fun <R> withIC(fn: ()->R): R {
-    val isEnabledBackup = IncrementalCompilation.isEnabled()
-    val isExperimentalBackup = IncrementalCompilation.isExperimental()
-    IncrementalCompilation.setIsEnabled(true)
-    IncrementalCompilation.setIsExperimental(true)
+// IC flags are global (system properties), while several incremental compilations can run in parallel (e.g. in the daemon),
+// so the flags are set by the first of them and restored by the last one
+private object ICFlags {
+    private var users = 0
+    private var isEnabledBackup = false
+    private var isExperimentalBackup = false
+
+    @Synchronized
+    fun enable() {
+        if (users++ == 0) {
+            isEnabledBackup = IncrementalCompilation.isEnabled()
+            isExperimentalBackup = IncrementalCompilation.isExperimental()
+            IncrementalCompilation.setIsEnabled(true)
+            IncrementalCompilation.setIsExperimental(true)
+        }
+    }
+
+    @Synchronized
+    fun restore() {
+        if (--users == 0) {
+            IncrementalCompilation.setIsEnabled(isEnabledBackup)
+            IncrementalCompilation.setIsExperimental(isExperimentalBackup)
+        }
+    }
+}
 
+fun <R> withIC(fn: ()->R): R {
+    ICFlags.enable()
     try {
         return fn()
     }
     finally {
-        IncrementalCompilation.setIsEnabled(isEnabledBackup)
-        IncrementalCompilation.setIsExperimental(isExperimentalBackup)
+        ICFlags.restore()
     }
 }
 
@@ -19,9 +19,14 @@ package org.jetbrains.kotlin.incremental.snapshots
 import java.io.File
 import java.util.*
 
+/**
+ * [lastModified] is not a part of equality, it's only used to skip hashing of files which weren't touched since
+ * the snapshot was taken. It's 0 when the timestamp can't be trusted.
+ */
 class FileSnapshot(
         val file: File,
         val length: Long,
+        val lastModified: Long,
         val hash: ByteArray
 ) {
     init {
@@ -49,6 +54,6 @@ class FileSnapshot(
     }
 
     override fun toString(): String {
-        return "FileSnapshot(file=$file, length=$length, hash=${Arrays.toString(hash)})"
+        return "FileSnapshot(file=$file, length=$length, lastModified=$lastModified, hash=${Arrays.toString(hash)})"
     }
 }
@@ -17,24 +17,26 @@
 package org.jetbrains.kotlin.incremental.snapshots
 
 import com.intellij.util.io.DataExternalizer
+import com.intellij.util.io.IOUtil
 import java.io.DataInput
 import java.io.DataOutput
 import java.io.File
 
 object FileSnapshotExternalizer : DataExternalizer<FileSnapshot> {
     override fun save(out: DataOutput, value: FileSnapshot) {
-        out.writeUTF(value.file.canonicalPath)
+        IOUtil.writeUTF(out, value.file.canonicalPath)
         out.writeLong(value.length)
-        out.writeInt(value.hash.size)
+        out.writeLong(value.lastModified)
+        out.writeByte(value.hash.size)
         out.write(value.hash)
     }
 
     override fun read(input: DataInput): FileSnapshot {
-        val file = File(input.readUTF())
+        val file = File(IOUtil.readUTF(input))
         val length = input.readLong()
-        val hashSize = input.readInt()
-        val hash = ByteArray(hashSize)
+        val lastModified = input.readLong()
+        val hash = ByteArray(input.readUnsignedByte())
         input.readFully(hash)
-        return FileSnapshot(file, length, hash)
+        return FileSnapshot(file, length, lastModified, hash)
     }
 }
\ No newline at end of file
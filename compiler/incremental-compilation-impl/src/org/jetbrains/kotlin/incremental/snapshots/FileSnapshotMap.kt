@@ -21,13 +21,23 @@ import org.jetbrains.kotlin.incremental.storage.BasicStringMap
 import org.jetbrains.kotlin.incremental.storage.PathStringDescriptor
 import java.io.File
 import java.util.*
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+
+class FileSnapshotMap(
+        storageFile: File,
+        private val snapshotProvider: FileSnapshotProvider = SimpleFileSnapshotProviderImpl()
+) : BasicStringMap<FileSnapshot>(storageFile, PathStringDescriptor, FileSnapshotExternalizer) {
+    companion object {
+        // Fewer files are hashed on the calling thread
+        private val PARALLEL_HASHING_THRESHOLD = 16
+    }
 
-class FileSnapshotMap(storageFile: File) : BasicStringMap<FileSnapshot>(storageFile, PathStringDescriptor, FileSnapshotExternalizer) {
     override fun dumpValue(value: FileSnapshot): String =
             value.toString()
 
     fun compareAndUpdate(newFiles: Iterable<File>): ChangedFiles.Known {
-        val snapshotProvider = SimpleFileSnapshotProviderImpl()
         val newOrModified = ArrayList<File>()
         val removed = ArrayList<File>()
 
@@ -39,17 +49,56 @@ class FileSnapshotMap(storageFile: File) : BasicStringMap<FileSnapshot>(storageF
             }
         }
 
+        val oldSnapshots = HashMap<String, FileSnapshot>()
+        val toHash = ArrayList<String>()
         for (path in newPaths) {
-            val file = File(path)
             val oldSnapshot = storage[path]
-            val newSnapshot = snapshotProvider[file]
+            if (oldSnapshot != null) {
+                val file = File(path)
+                if (oldSnapshot.lastModified != 0L && oldSnapshot.lastModified == file.lastModified() && oldSnapshot.length == file.length()) {
+                    continue
+                }
+                oldSnapshots[path] = oldSnapshot
+            }
+            toHash.add(path)
+        }
+
+        val newSnapshots = takeSnapshots(toHash)
+        for ((i, path) in toHash.withIndex()) {
+            val oldSnapshot = oldSnapshots[path]
+            val newSnapshot = newSnapshots[i]
 
             if (oldSnapshot == null || oldSnapshot != newSnapshot) {
-                newOrModified.add(file)
+                newOrModified.add(File(path))
+                storage[path] = newSnapshot
+            }
+            else if (oldSnapshot.lastModified != newSnapshot.lastModified) {
+                // Touched but not modified, the new timestamp allows to skip hashing next time
                 storage[path] = newSnapshot
             }
         }
 
         return ChangedFiles.Known(newOrModified, removed)
     }
+
+    private fun takeSnapshots(paths: List<String>): List<FileSnapshot> {
+        val threads = Runtime.getRuntime().availableProcessors()
+        if (paths.size < PARALLEL_HASHING_THRESHOLD || threads < 2) return paths.map { snapshotProvider[File(it)] }
+
+        val executor = Executors.newFixedThreadPool(minOf(threads, paths.size))
+        try {
+            val futures = paths.map { path -> executor.submit(Callable { snapshotProvider[File(path)] }) }
+            return futures.map {
+                try {
+                    it.get()
+                }
+                catch (e: ExecutionException) {
+                    throw e.cause ?: e
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow()
+        }
+    }
 }
\ No newline at end of file
@@ -22,10 +22,21 @@ interface FileSnapshotProvider {
     operator fun get(file: File): FileSnapshot
 }
 
-class SimpleFileSnapshotProviderImpl : FileSnapshotProvider {
+class SimpleFileSnapshotProviderImpl(
+        private val hashAlgorithm: FileHashAlgorithm = FileHashAlgorithm.DEFAULT
+) : FileSnapshotProvider {
+    companion object {
+        // Timestamps have a coarse resolution on some file systems, so a file modified this recently
+        // can be modified again without changing its timestamp
+        private val RACY_MODIFICATION_INTERVAL_MS = 2000
+    }
+
     override fun get(file: File): FileSnapshot {
+        val now = System.currentTimeMillis()
+        val lastModified = file.lastModified()
         val length = file.length()
-        val hash = file.md5
-        return FileSnapshot(file, length, hash)
+        val hash = file.hash(hashAlgorithm)
+        val trustedLastModified = if (now - lastModified > RACY_MODIFICATION_INTERVAL_MS) lastModified else 0L
+        return FileSnapshot(file, length, trustedLastModified, hash)
     }
 }
\ No newline at end of file
@@ -16,21 +16,52 @@
 
 package org.jetbrains.kotlin.incremental.snapshots
 
+import com.google.common.hash.Hashing
 import java.io.File
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
 import java.security.MessageDigest
 
-internal val File.md5: ByteArray
-    get() {
-        val messageDigest = MessageDigest.getInstance("MD5")
-        val buffer = ByteArray(4048)
-        inputStream().use { input ->
-            while (true) {
-                val len = input.read(buffer)
-                if (len < 0) {
-                    break
+/**
+ * Algorithm used to hash the content of files for snapshots. Snapshots made with different algorithms are never equal,
+ * so switching it makes all files modified once.
+ */
+enum class FileHashAlgorithm {
+    MD5,
+    MURMUR3_128;
+
+    companion object {
+        private val PROPERTY = "kotlin.incremental.snapshot.hash"
+
+        val DEFAULT: FileHashAlgorithm
+            get() = if (System.getProperty(PROPERTY) == "md5") MD5 else MURMUR3_128
+    }
+}
+
+private val BUFFER_SIZE = 64 * 1024
+
+internal fun File.hash(algorithm: FileHashAlgorithm): ByteArray {
+    val buffer = ByteBuffer.allocate(BUFFER_SIZE)
+    return RandomAccessFile(this, "r").use { file ->
+        val channel = file.channel
+        when (algorithm) {
+            FileHashAlgorithm.MD5 -> {
+                val messageDigest = MessageDigest.getInstance("MD5")
+                while (channel.read(buffer) >= 0) {
+                    buffer.flip()
+                    messageDigest.update(buffer)
+                    buffer.clear()
+                }
+                messageDigest.digest()
+            }
+            FileHashAlgorithm.MURMUR3_128 -> {
+                val hasher = Hashing.murmur3_128().newHasher()
+                while (channel.read(buffer) >= 0) {
+                    hasher.putBytes(buffer.array(), 0, buffer.position())
+                    buffer.clear()
                 }
-                messageDigest.update(buffer, 0, len)
+                hasher.hash().asBytes()
             }
         }
-        return messageDigest.digest()
     }
+}
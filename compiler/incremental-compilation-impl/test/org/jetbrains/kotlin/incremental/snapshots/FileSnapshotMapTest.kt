@@ -58,6 +58,44 @@ class FileSnapshotMapTest : TestWithWorkingDir() {
                 listOf(newTxt, changedTxt).toSortedPaths())
     }
 
+    @Test
+    fun testTimestampFastPath() {
+        val src = File(workingDir, "src").apply { mkdirs() }
+        val oldTimestamp = System.currentTimeMillis() - 60000
+        val sameLengthTxt = File(src, "sameLength.txt").apply { writeText("aaa"); setLastModified(oldTimestamp) }
+        val touchedTxt = File(src, "touched.txt").apply { writeText("touched"); setLastModified(oldTimestamp) }
+
+        snapshotMap.compareAndUpdate(src.filesWithExt("txt"))
+
+        // Neither the timestamp nor the length is changed, so the content is not hashed
+        sameLengthTxt.writeText("bbb")
+        sameLengthTxt.setLastModified(oldTimestamp)
+        touchedTxt.setLastModified(oldTimestamp + 1000)
+
+        val diff = snapshotMap.compareAndUpdate(src.filesWithExt("txt"))
+        assertArrayEquals("diff.removed", diff.removed.toSortedPaths(), emptyArray<String>())
+        assertArrayEquals("diff.newOrModified", diff.modified.toSortedPaths(), emptyArray<String>())
+
+        sameLengthTxt.setLastModified(oldTimestamp + 1000)
+        val diffAfterTouch = snapshotMap.compareAndUpdate(src.filesWithExt("txt"))
+        assertArrayEquals("diffAfterTouch.newOrModified", diffAfterTouch.modified.toSortedPaths(), listOf(sameLengthTxt).toSortedPaths())
+    }
+
+    @Test
+    fun testManyFiles() {
+        val src = File(workingDir, "src").apply { mkdirs() }
+        val files = (0..99).map { File(src, "$it.txt").apply { writeText("file $it") } }
+
+        val diff1 = snapshotMap.compareAndUpdate(files)
+        assertArrayEquals("diff1.newOrModified", diff1.modified.toSortedPaths(), files.toSortedPaths())
+
+        val modified = files.filterIndexed { i, _ -> i % 10 == 0 }
+        modified.forEach { it.writeText(it.readText() + " modified") }
+
+        val diff2 = snapshotMap.compareAndUpdate(files)
+        assertArrayEquals("diff2.newOrModified", diff2.modified.toSortedPaths(), modified.toSortedPaths())
+    }
+
     private fun Iterable<File>.toSortedPaths(): Array<String> =
             map { it.canonicalPath }.sorted().toTypedArray()
 
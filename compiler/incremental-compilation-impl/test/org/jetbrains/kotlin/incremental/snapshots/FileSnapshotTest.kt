@@ -67,6 +67,24 @@ class FileSnapshotTest : TestWithWorkingDir() {
         assertNotEquals(oldSnapshot, newSnapshot)
     }
 
+    @Test
+    fun testHashAlgorithms() {
+        val file = File(workingDir, "1.txt").apply { writeText("file") }
+        for (algorithm in FileHashAlgorithm.values()) {
+            val provider = SimpleFileSnapshotProviderImpl(algorithm)
+            val oldSnapshot = provider[file]
+            assertEquals(oldSnapshot, provider[file])
+            assertEquals(oldSnapshot, saveAndReadBack(oldSnapshot))
+
+            file.writeText("main")
+            assertNotEquals(oldSnapshot, provider[file])
+            file.writeText("file")
+        }
+
+        assertNotEquals(SimpleFileSnapshotProviderImpl(FileHashAlgorithm.MD5)[file],
+                        SimpleFileSnapshotProviderImpl(FileHashAlgorithm.MURMUR3_128)[file])
+    }
+
     private fun saveAndReadBack(snapshot: FileSnapshot): FileSnapshot {
         val byteOut = ByteArrayOutputStream()
         DataOutputStream(byteOut).use { FileSnapshotExternalizer.save(it, snapshot) }
@@ -24,6 +24,7 @@ import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 @SuppressWarnings("unchecked")
@@ -46,14 +47,36 @@ public class ClassPreloadingUtils {
             ClassCondition classesToLoadByParent,
             ClassHandler handler
     ) throws IOException {
-        Map<String, Object> entries = loadAllClassesFromJars(jarFiles, classCountEstimation, handler);
+        return preloadClasses(jarFiles, classCountEstimation, parentClassLoader, classesToLoadByParent, handler, null);
+    }
+
+    /**
+     * Same as {@link #preloadClasses(Collection, int, ClassLoader, ClassCondition, ClassHandler)}, but if {@code classesToPreload}
+     * is not null, only these classes are read into memory, in the given order. Other classes are read from the jars when they're loaded.
+     *
+     * @param classesToPreload names of classes to load into memory (e.g. the classes loaded by a previous run of the program),
+     *                         or null to load all classes
+     */
+    public static ClassLoader preloadClasses(
+            Collection<File> jarFiles,
+            int classCountEstimation,
+            ClassLoader parentClassLoader,
+            ClassCondition classesToLoadByParent,
+            ClassHandler handler,
+            Collection<String> classesToPreload
+    ) throws IOException {
+        Map<String, Object> entries = classesToPreload == null
+                                      ? loadAllClassesFromJars(jarFiles, classCountEstimation, handler)
+                                      : loadClassesFromJars(jarFiles, classesToPreload, handler);
 
         Collection<File> classpath = mergeClasspathFromManifests(entries);
         if (!classpath.isEmpty()) {
-            parentClassLoader = preloadClasses(classpath, classCountEstimation, parentClassLoader, null, handler);
+            parentClassLoader = preloadClasses(classpath, classCountEstimation, parentClassLoader, null, handler, classesToPreload);
         }
 
-        return new MemoryBasedClassLoader(classesToLoadByParent, parentClassLoader, entries, handler, createFallbackClassLoader(jarFiles));
+        return new MemoryBasedClassLoader(
+                classesToLoadByParent, parentClassLoader, entries, handler, createFallbackClassLoader(jarFiles), classesToPreload != null
+        );
     }
 
     private static URLClassLoader createFallbackClassLoader(Collection<File> files) throws IOException {
@@ -147,23 +170,7 @@ public class ClassPreloadingUtils {
                     if (handler != null) {
                         data = handler.instrument(name, data);
                     }
-                    ResourceData resourceData = new ResourceData(jarFile, name, data);
-
-                    Object previous = resources.get(name);
-                    if (previous == null) {
-                        resources.put(name, resourceData);
-                    }
-                    else if (previous instanceof ResourceData) {
-                        List<ResourceData> list = new ArrayList<ResourceData>();
-                        list.add((ResourceData) previous);
-                        list.add(resourceData);
-                        resources.put(name, list);
-                    }
-                    else {
-                        assert previous instanceof ArrayList :
-                                "Resource map should contain ResourceData or ArrayList<ResourceData>: " + name;
-                        ((ArrayList<ResourceData>) previous).add(resourceData);
-                    }
+                    addResource(resources, new ResourceData(jarFile, name, data));
                 }
             }
             finally {
@@ -188,4 +195,108 @@ public class ClassPreloadingUtils {
 
         return resources;
     }
+
+    /**
+     * Reads the manifests and the given classes from the jars. Entries are looked up in the central directory of each jar,
+     * so the rest of the jar isn't read or decompressed.
+     *
+     * @return a map of name to resources, see {@link #loadAllClassesFromJars(Collection, int, ClassHandler)}
+     */
+    private static Map<String, Object> loadClassesFromJars(
+            Collection<File> jarFiles,
+            Collection<String> classNames,
+            ClassHandler handler
+    ) throws IOException {
+        Map<String, Object> resources = new HashMap<String, Object>((int) ((classNames.size() + 1) / 0.75));
+
+        for (File jarFile : jarFiles) {
+            if (handler != null) {
+                handler.beforeLoadJar(jarFile);
+            }
+
+            ZipFile zipFile = new ZipFile(jarFile);
+            try {
+                byte[] buffer = new byte[10 * 1024];
+                loadEntry(zipFile, jarFile, JarFile.MANIFEST_NAME, buffer, resources, handler);
+                for (String className : classNames) {
+                    loadEntry(zipFile, jarFile, className.replace('.', '/').concat(".class"), buffer, resources, handler);
+                }
+            }
+            finally {
+                try {
+                    zipFile.close();
+                }
+                catch (IOException e) {
+                    // Ignore
+                }
+            }
+
+            if (handler != null) {
+                handler.afterLoadJar(jarFile);
+            }
+        }
+
+        for (Object value : resources.values()) {
+            if (value instanceof ArrayList) {
+                ((ArrayList) value).trimToSize();
+            }
+        }
+
+        return resources;
+    }
+
+    private static void loadEntry(
+            ZipFile zipFile,
+            File jarFile,
+            String name,
+            byte[] buffer,
+            Map<String, Object> resources,
+            ClassHandler handler
+    ) throws IOException {
+        ZipEntry entry = zipFile.getEntry(name);
+        if (entry == null || entry.isDirectory()) return;
+
+        InputStream stream = zipFile.getInputStream(entry);
+        try {
+            byte[] data = readBytes(stream, (int) entry.getSize(), buffer);
+            if (handler != null) {
+                data = handler.instrument(name, data);
+            }
+            addResource(resources, new ResourceData(jarFile, name, data));
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    static byte[] readBytes(InputStream stream, int size, byte[] buffer) throws IOException {
+        int effectiveSize = size < 0 ? 32 : size;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(effectiveSize);
+
+        int count;
+        while ((count = stream.read(buffer)) > 0) {
+            bytes.write(buffer, 0, count);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static void addResource(Map<String, Object> resources, ResourceData resourceData) {
+        String name = resourceData.resourceName;
+        Object previous = resources.get(name);
+        if (previous == null) {
+            resources.put(name, resourceData);
+        }
+        else if (previous instanceof ResourceData) {
+            List<ResourceData> list = new ArrayList<ResourceData>();
+            list.add((ResourceData) previous);
+            list.add(resourceData);
+            resources.put(name, list);
+        }
+        else {
+            assert previous instanceof ArrayList :
+                    "Resource map should contain ResourceData or ArrayList<ResourceData>: " + name;
+            ((ArrayList<ResourceData>) previous).add(resourceData);
+        }
+    }
 }
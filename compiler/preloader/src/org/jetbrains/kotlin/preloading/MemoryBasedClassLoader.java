@@ -17,6 +17,7 @@
 package org.jetbrains.kotlin.preloading;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.*;
 
@@ -28,6 +29,8 @@ import java.util.*;
  * This means that once any class is loaded, it _cannot be found_ as a resource anymore.
  * Therefore if you need to be able to find classes via findResource(), you should pass a fallback
  * class loader which is able to do that at any point of time.
+ *
+ * If only some of the classes are preloaded, the other classes are read with the fallback class loader when they're loaded.
  */
 public class MemoryBasedClassLoader extends ClassLoader {
     private final ClassCondition classesToLoadByParent;
@@ -35,6 +38,7 @@ public class MemoryBasedClassLoader extends ClassLoader {
     private final Map<String, Object> preloadedResources;
     private final ClassHandler handler;
     private final ClassLoader fallbackResourceLoader;
+    private final boolean loadsClassesFromFallbackLoader;
 
     public MemoryBasedClassLoader(
             ClassCondition classesToLoadByParent,
@@ -42,6 +46,17 @@ public class MemoryBasedClassLoader extends ClassLoader {
             Map<String, Object> preloadedResources,
             ClassHandler handler,
             ClassLoader fallbackResourceLoader
+    ) {
+        this(classesToLoadByParent, parent, preloadedResources, handler, fallbackResourceLoader, false);
+    }
+
+    public MemoryBasedClassLoader(
+            ClassCondition classesToLoadByParent,
+            ClassLoader parent,
+            Map<String, Object> preloadedResources,
+            ClassHandler handler,
+            ClassLoader fallbackResourceLoader,
+            boolean loadsClassesFromFallbackLoader
     ) {
         super(null);
         this.classesToLoadByParent = classesToLoadByParent;
@@ -49,6 +64,7 @@ public class MemoryBasedClassLoader extends ClassLoader {
         this.preloadedResources = preloadedResources;
         this.handler = handler;
         this.fallbackResourceLoader = fallbackResourceLoader;
+        this.loadsClassesFromFallbackLoader = loadsClassesFromFallbackLoader;
     }
 
     @Override
@@ -86,21 +102,29 @@ public class MemoryBasedClassLoader extends ClassLoader {
     protected Class<?> findClass(String name) throws ClassNotFoundException {
         String internalName = name.replace('.', '/').concat(".class");
         Object resources = preloadedResources.get(internalName);
-        if (resources == null) return null;
-
-        // Clear the resource, we won't need it anymore
-        preloadedResources.remove(internalName);
+        byte[] bytes;
+        if (resources != null) {
+            // Clear the resource, we won't need it anymore
+            preloadedResources.remove(internalName);
+
+            ResourceData resourceData = resources instanceof ResourceData
+                                        ? ((ResourceData) resources)
+                                        : ((List<ResourceData>) resources).get(0);
+            bytes = resourceData.bytes;
+        }
+        else {
+            if (!loadsClassesFromFallbackLoader) return null;
 
-        ResourceData resourceData = resources instanceof ResourceData
-                                    ? ((ResourceData) resources)
-                                    : ((List<ResourceData>) resources).get(0);
+            bytes = readClassFromFallbackLoader(internalName);
+            if (bytes == null) return null;
+        }
 
-        int sizeInBytes = resourceData.bytes.length;
+        int sizeInBytes = bytes.length;
         if (handler != null) {
             handler.beforeDefineClass(name, sizeInBytes);
         }
 
-        Class<?> definedClass = defineClass(name, resourceData.bytes, 0, sizeInBytes);
+        Class<?> definedClass = defineClass(name, bytes, 0, sizeInBytes);
 
         if (handler != null) {
             handler.afterDefineClass(name);
@@ -109,6 +133,24 @@ public class MemoryBasedClassLoader extends ClassLoader {
         return definedClass;
     }
 
+    private byte[] readClassFromFallbackLoader(String internalName) throws ClassNotFoundException {
+        InputStream stream = fallbackResourceLoader.getResourceAsStream(internalName);
+        if (stream == null) return null;
+
+        try {
+            try {
+                byte[] bytes = ClassPreloadingUtils.readBytes(stream, -1, new byte[10 * 1024]);
+                return handler != null ? handler.instrument(internalName, bytes) : bytes;
+            }
+            finally {
+                stream.close();
+            }
+        }
+        catch (IOException e) {
+            throw new ClassNotFoundException("Failed to read " + internalName, e);
+        }
+    }
+
     @Override
     public URL getResource(String name) {
         URL resource = super.getResource(name);
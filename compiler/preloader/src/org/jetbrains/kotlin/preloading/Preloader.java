@@ -18,8 +18,7 @@ package org.jetbrains.kotlin.preloading;
 
 import org.jetbrains.kotlin.preloading.instrumentation.Instrumenter;
 
-import java.io.File;
-import java.io.PrintStream;
+import java.io.*;
 import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -50,7 +49,9 @@ public class Preloader {
         ClassLoader classLoader = createClassLoader(options);
 
         final Handler handler = getHandler(options, classLoader);
-        ClassLoader preloaded = ClassPreloadingUtils.preloadClasses(options.classpath, options.estimate, classLoader, null, handler);
+        ClassLoader preloaded = ClassPreloadingUtils.preloadClasses(
+                options.classpath, options.estimate, classLoader, null, handler, options.classesToPreload
+        );
 
         Class<?> mainClass = preloaded.loadClass(options.mainClass);
         Method mainMethod = mainClass.getMethod("main", String[].class);
@@ -93,6 +94,8 @@ public class Preloader {
         boolean measure = false;
         List<File> instrumenters = Collections.emptyList();
         int estimate = DEFAULT_CLASS_NUMBER_ESTIMATE;
+        File recordClassesTo = null;
+        List<String> classesToPreload = null;
         String mainClass = null;
         List<String> arguments = new ArrayList<String>();
 
@@ -119,6 +122,14 @@ public class Preloader {
             else if ("-measure".equals(arg)) {
                 measure = true;
             }
+            else if ("-record-classes".equals(arg)) {
+                if (end) throw new PreloaderException("no argument provided to " + arg);
+                recordClassesTo = new File(args[++i]);
+            }
+            else if ("-preload-classes".equals(arg)) {
+                if (end) throw new PreloaderException("no argument provided to " + arg);
+                classesToPreload = readClassNames(new File(args[++i]));
+            }
             else {
                 mainClass = arg;
                 arguments.addAll(Arrays.asList(args).subList(i + 1, args.length));
@@ -128,7 +139,29 @@ public class Preloader {
 
         if (mainClass == null) throw new PreloaderException("no main class name provided");
 
-        return new Options(classpath, measure, instrumenters, estimate, mainClass, arguments);
+        return new Options(classpath, measure, instrumenters, estimate, recordClassesTo, classesToPreload, mainClass, arguments);
+    }
+
+    private static List<String> readClassNames(File file) throws IOException {
+        if (!file.exists()) {
+            throw new PreloaderException("file does not exist: " + file);
+        }
+
+        List<String> classNames = new ArrayList<String>(DEFAULT_CLASS_NUMBER_ESTIMATE);
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            while (true) {
+                String line = reader.readLine();
+                if (line == null) break;
+                if (!line.isEmpty()) {
+                    classNames.add(line);
+                }
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return classNames;
     }
 
     private static List<File> parseClassPath(String classpath) {
@@ -145,6 +178,11 @@ public class Preloader {
     }
 
     private static Handler getHandler(Options options, ClassLoader withInstrumenter) {
+        Handler handler = getMeasuringHandler(options, withInstrumenter);
+        return options.recordClassesTo != null ? new RecordingHandler(handler, options.recordClassesTo) : handler;
+    }
+
+    private static Handler getMeasuringHandler(Options options, ClassLoader withInstrumenter) {
         if (!options.measure) return new Handler();
 
         final Instrumenter instrumenter = options.instrumenters.isEmpty() ? Instrumenter.DO_NOTHING : loadInstrumenter(withInstrumenter);
@@ -199,6 +237,9 @@ public class Preloader {
         out.println("  -instrument <paths>         Paths where the instrumenter will be looked up by java.util.ServiceLoader");
         out.println("                              (the class must implement " + Instrumenter.class.getCanonicalName() + " interface)");
         out.println("  -estimate <number>          Class number estimate (" + DEFAULT_CLASS_NUMBER_ESTIMATE + " by default)");
+        out.println("  -record-classes <path>      Write the names of the classes loaded by the program to the file, in the order they're loaded");
+        out.println("  -preload-classes <path>     Load into memory only the classes listed in the file (e.g. written by -record-classes),");
+        out.println("                              other classes are read from the classpath when they're loaded");
         out.println("  -help (-h)                  Output this help message");
     }
 
@@ -207,6 +248,8 @@ public class Preloader {
         public final boolean measure;
         public final List<File> instrumenters;
         public final int estimate;
+        public final File recordClassesTo;
+        public final List<String> classesToPreload;
         public final String mainClass;
         public final List<String> arguments;
 
@@ -215,6 +258,8 @@ public class Preloader {
                 boolean measure,
                 List<File> instrumenters,
                 int estimate,
+                File recordClassesTo,
+                List<String> classesToPreload,
                 String mainClass,
                 List<String> arguments
         ) {
@@ -222,6 +267,8 @@ public class Preloader {
             this.measure = measure;
             this.instrumenters = instrumenters;
             this.estimate = estimate;
+            this.recordClassesTo = recordClassesTo;
+            this.classesToPreload = classesToPreload;
             this.mainClass = mainClass;
             this.arguments = arguments;
         }
@@ -236,4 +283,68 @@ public class Preloader {
     private static class Handler extends ClassHandler {
         public void done() {}
     }
+
+    private static class RecordingHandler extends Handler {
+        private final Handler delegate;
+        private final File file;
+        private final List<String> classNames = new ArrayList<String>(DEFAULT_CLASS_NUMBER_ESTIMATE);
+
+        private RecordingHandler(Handler delegate, File file) {
+            this.delegate = delegate;
+            this.file = file;
+        }
+
+        @Override
+        public byte[] instrument(String resourceName, byte[] data) {
+            return delegate.instrument(resourceName, data);
+        }
+
+        @Override
+        public void beforeDefineClass(String name, int sizeInBytes) {
+            synchronized (classNames) {
+                classNames.add(name);
+            }
+            delegate.beforeDefineClass(name, sizeInBytes);
+        }
+
+        @Override
+        public void afterDefineClass(String name) {
+            delegate.afterDefineClass(name);
+        }
+
+        @Override
+        public void beforeLoadJar(File jarFile) {
+            delegate.beforeLoadJar(jarFile);
+        }
+
+        @Override
+        public void afterLoadJar(File jarFile) {
+            delegate.afterLoadJar(jarFile);
+        }
+
+        @Override
+        public void done() {
+            delegate.done();
+
+            List<String> names;
+            synchronized (classNames) {
+                names = new ArrayList<String>(classNames);
+            }
+
+            try {
+                PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+                try {
+                    for (String name : names) {
+                        writer.println(name);
+                    }
+                }
+                finally {
+                    writer.close();
+                }
+            }
+            catch (IOException e) {
+                System.err.println("warning: failed to write loaded classes to " + file + ": " + e);
+            }
+        }
+    }
 }
@@ -0,0 +1,38 @@
+// TARGET_BACKEND: JVM
+// WITH_RUNTIME
+// JvmValueWrapper is available since API version 1.2, which is newer than the latest one of this compiler
+@file:Suppress("API_NOT_AVAILABLE")
+
+@JvmValueWrapper
+class UserId(val raw: Long) {
+    override fun toString() = "UserId($raw)"
+}
+
+@JvmValueWrapper
+class Flag(private val value: Boolean) {
+    fun isSet() = value
+}
+
+inline fun <T> withId(id: UserId, block: (UserId) -> T): T = block(id)
+
+fun increment(raw: Long): Long = withId(UserId(raw)) { it.raw + 1 }
+
+fun escaping(raw: Long): Any = UserId(raw)
+
+fun sameInstance(): Boolean {
+    val a = UserId(1)
+    val b = UserId(1)
+    return a === b
+}
+
+fun box(): String {
+    if (increment(41L) != 42L) return "fail increment"
+    if (escaping(1L).toString() != "UserId(1)") return "fail escaping"
+    if (sameInstance()) return "fail identity"
+    if (!Flag(true).isSet()) return "fail private value"
+
+    val id: Any = UserId(2)
+    if (id !is UserId || id.raw != 2L) return "fail is"
+
+    return "OK"
+}
@@ -0,0 +1,75 @@
+// WITH_RUNTIME
+
+fun <T> runNoInline(f: () -> T): T = f()
+
+fun initializedBeforeCapture(flag: Boolean): () -> Int {
+    var x = 0
+    if (flag) {
+        x = 1
+    }
+    x += 10
+    return { x }
+}
+
+fun modifiedAfterCapture(): () -> Int {
+    var x = 0
+    val f = { x }
+    x = 42
+    return f
+}
+
+fun modifiedInLoopWithCapture(): List<() -> Int> {
+    val result = ArrayList<() -> Int>()
+    var x = 0
+    for (i in 1..3) {
+        x = i
+        result.add { x }
+    }
+    return result
+}
+
+fun declaredInLoop(): List<() -> Int> {
+    val result = ArrayList<() -> Int>()
+    for (i in 1..3) {
+        var x = i
+        x *= 10
+        result.add { x }
+    }
+    return result
+}
+
+fun capturedInAssignment(): Int {
+    var x = 1
+    var f: () -> Int = { 0 }
+    x = runNoInline { f = { x }; x + 1 }
+    return f()
+}
+
+fun localFunction(): Int {
+    var x = 1
+    x++
+    fun get() = x
+    return get() + runNoInline(::get)
+}
+
+fun localObject(): Int {
+    var x = "O"
+    x += "K"
+    val o = object {
+        override fun toString() = x
+    }
+    return if (o.toString() == "OK") 1 else 0
+}
+
+fun box(): String {
+    if (initializedBeforeCapture(true)() != 11) return "fail 1"
+    if (initializedBeforeCapture(false)() != 10) return "fail 2"
+    if (modifiedAfterCapture()() != 42) return "fail 3"
+    if (modifiedInLoopWithCapture().map { it() } != listOf(3, 3, 3)) return "fail 4"
+    if (declaredInLoop().map { it() } != listOf(10, 20, 30)) return "fail 5"
+    if (capturedInAssignment() != 2) return "fail 6"
+    if (localFunction() != 4) return "fail 7"
+    if (localObject() != 1) return "fail 8"
+
+    return "OK"
+}
@@ -0,0 +1,52 @@
+// WITH_RUNTIME
+
+import kotlin.test.assertEquals
+
+val log = StringBuilder()
+
+fun logged(i: Int): Int {
+    log.append(i)
+    return i
+}
+
+fun box(): String {
+    var s = ""
+    for (i in (logged(1)..logged(4)).reversed()) s += i
+    assertEquals("4321", s)
+    assertEquals("14", log.toString())
+
+    s = ""
+    for (i in (4 downTo 1).reversed()) s += i
+    assertEquals("1234", s)
+
+    s = ""
+    for (i in (1 until 4).reversed()) s += i
+    assertEquals("321", s)
+
+    s = ""
+    for (i in (4..1).reversed()) s += i
+    for (i in (1 downTo 4).reversed()) s += i
+    for (i in (1 until 1).reversed()) s += i
+    for (i in (1 until Int.MIN_VALUE).reversed()) s += i
+    assertEquals("", s)
+
+    for (i in (Int.MIN_VALUE..Int.MIN_VALUE + 1).reversed()) s += "."
+    for (i in (Int.MAX_VALUE downTo Int.MAX_VALUE - 1).reversed()) s += "."
+    assertEquals("....", s)
+
+    s = ""
+    for (i in (1L..3L).reversed()) s += i
+    for (c in ('a'..'c').reversed()) s += c
+    for (c in ('a' until 'c').reversed()) s += c
+    assertEquals("321cbaba", s)
+
+    s = ""
+    val array = intArrayOf(1, 2, 3)
+    for (i in array.indices.reversed()) s += array[i]
+    for (i in listOf("a", "b").indices.reversed()) s += i
+    for (i in "xyz".indices.reversed()) s += i
+    for (i in emptyList<Int>().indices.reversed()) s += i
+    assertEquals("32110210", s)
+
+    return "OK"
+}
@@ -0,0 +1,40 @@
+// WITH_RUNTIME
+
+import kotlin.test.assertEquals
+
+fun box(): String {
+    var sum = 0
+    for (i in 1 until 5) {
+        sum = sum * 10 + i
+    }
+    assertEquals(1234, sum)
+
+    var count = 0
+    for (i in 0 until Int.MIN_VALUE) count++
+    for (i in 5 until 5) count++
+    assertEquals(0, count)
+
+    for (i in Int.MAX_VALUE - 1 until Int.MAX_VALUE) count++
+    assertEquals(1, count)
+
+    var longSum = 0L
+    for (i in 1 until 4L) {
+        longSum = longSum * 10 + i
+    }
+    for (i in 0L until Long.MIN_VALUE) longSum++
+    assertEquals(123L, longSum)
+
+    var chars = ""
+    for (c in 'a' until 'd') chars += c
+    for (c in 'a' until '\u0000') chars += c
+    assertEquals("abc", chars)
+
+    val start: Byte = 3
+    var byteSum = 0
+    for (i in start until 6) {
+        byteSum = byteSum * 10 + i
+    }
+    assertEquals(345, byteSum)
+
+    return "OK"
+}
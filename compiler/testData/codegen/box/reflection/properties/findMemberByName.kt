@@ -0,0 +1,37 @@
+// TARGET_BACKEND: JVM
+// WITH_REFLECT
+// The functions are available since API version 1.2, which is newer than the latest one of this compiler
+@file:Suppress("API_NOT_AVAILABLE")
+
+import kotlin.reflect.full.*
+
+open class Base {
+    val inherited: String = "inherited"
+
+    fun foo(x: Int) = x
+}
+
+class A : Base() {
+    val declared: Int = 42
+    val String.declared: Int get() = length
+
+    fun foo(s: String) = s
+    fun foo() = "foo"
+}
+
+fun box(): String {
+    val klass = A::class
+    val a = A()
+
+    if (klass.findMemberProperty("declared")?.get(a) != 42) return "Fail declared"
+    if (klass.findMemberProperty("inherited")?.get(a) != "inherited") return "Fail inherited"
+    if (klass.findMemberProperty("foo") != null) return "Fail: foo is not a property"
+    if (klass.findMemberProperty("absent") != null) return "Fail absent"
+    if (klass.findMemberProperty("declared") != klass.memberProperties.single { it.name == "declared" }) return "Fail equals"
+
+    val foos = klass.findMemberFunctions("foo")
+    if (foos.size != 3) return "Fail foo: $foos"
+    if (klass.findMemberFunctions("declared").isNotEmpty()) return "Fail: declared is not a function"
+
+    return "OK"
+}
@@ -0,0 +1,45 @@
+// WITH_RUNTIME
+
+val limit = 100
+
+fun int(x: Int) =
+        when (x) {
+            1, 2 -> "small"
+            3 -> "three"
+            in 0..20 -> "range"
+            limit -> "limit"
+            else -> "other"
+        }
+
+fun string(s: String?) =
+        when (s) {
+            "GET", "HEAD" -> "read"
+            "PUT" -> "write"
+            null -> "none"
+            s?.toUpperCase() -> "upper"
+            else -> "other"
+        }
+
+fun statement(s: String): String {
+    var result = "other"
+    when (s) {
+        "a" -> result = "a"
+        "b" -> result = "b"
+        "c" -> result = "c"
+        s.reversed() -> result = "palindrome"
+    }
+    return result
+}
+
+fun box(): String {
+    val ints = listOf(1, 2, 3, 4, 20, 21, 100, 101).map(::int).joinToString()
+    if (ints != "small, small, three, range, range, other, limit, other") return "fail int: $ints"
+
+    val strings = listOf("GET", "HEAD", "PUT", null, "POST", "post").map(::string).joinToString()
+    if (strings != "read, read, write, none, upper, other") return "fail string: $strings"
+
+    val statements = listOf("a", "b", "c", "aba", "ab").map(::statement).joinToString()
+    if (statements != "a, b, c, palindrome, other") return "fail statement: $statements"
+
+    return "OK"
+}
@@ -0,0 +1,19 @@
+// JvmValueWrapper is available since API version 1.2, which is newer than the latest one of this compiler
+@file:Suppress("API_NOT_AVAILABLE")
+
+@JvmValueWrapper
+class UserId(val raw: Long)
+
+inline fun <T> withId(id: UserId, block: (UserId) -> T): T = block(id)
+
+fun notEscaping(raw: Long): Long {
+    val id = UserId(raw)
+    return withId(id) { it.raw + 1 }
+}
+
+fun escaping(raw: Long): UserId = UserId(raw)
+
+// 1 NEW UserId
+// 1 INVOKESTATIC UserId\.box-impl
+// 0 INVOKEVIRTUAL UserId\.unbox-impl
+// 0 INVOKEVIRTUAL UserId\.getRaw
@@ -0,0 +1,53 @@
+// WITH_RUNTIME
+
+fun runNoInline(f: () -> Unit) = f()
+
+fun initializedBeforeCapture(flag: Boolean) {
+    var x = 0
+    if (flag) {
+        x = 1
+    }
+    x++
+    runNoInline { println(x) }
+    println(x)
+}
+
+fun modifiedInLoopBeforeCapture(n: Int) {
+    var sum = 0L
+    for (i in 1..n) {
+        sum += i
+    }
+    runNoInline { println(sum) }
+}
+
+fun declaredInLoop(n: Int) {
+    for (i in 1..n) {
+        var x = i
+        x *= 2
+        runNoInline { println(x) }
+    }
+}
+
+fun modifiedAfterCapture() {
+    var x = 0
+    runNoInline { println(x) }
+    x++
+}
+
+fun modifiedInLoopWithCapture(n: Int) {
+    var x = 0
+    for (i in 1..n) {
+        x = i
+        runNoInline { println(x) }
+    }
+}
+
+fun capturedInAssignment() {
+    var x = 0
+    x = run2 { x + 1 }
+}
+
+fun run2(f: () -> Int): Int = f()
+
+// 3 NEW kotlin/jvm/internal/Ref\$IntRef
+// 0 NEW kotlin/jvm/internal/Ref\$LongRef
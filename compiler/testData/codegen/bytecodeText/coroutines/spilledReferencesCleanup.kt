@@ -0,0 +1,34 @@
+// WITH_RUNTIME
+// WITH_COROUTINES
+// TREAT_AS_ONE_FILE
+import kotlin.coroutines.experimental.*
+import kotlin.coroutines.experimental.intrinsics.*
+suspend fun suspendHere(): String = suspendCoroutineOrReturn { x ->
+    x.resume("OK")
+}
+
+fun builder(c: suspend () -> Unit) {
+    c.startCoroutine(EmptyContinuation)
+}
+
+fun box(): String {
+    var result = "fail"
+
+    builder {
+        val o = "O"
+        val k = "K"
+
+        // 'o' and 'k' are spilled to L$0 and L$1
+        suspendHere()
+        result = o + k
+
+        // Nothing is alive here, so both fields are cleaned up
+        suspendHere()
+    }
+
+    return result
+}
+
+// 2 PUTFIELD SpilledReferencesCleanupKt\$box\$1.L\$0 : Ljava/lang/Object;
+// 2 PUTFIELD SpilledReferencesCleanupKt\$box\$1.L\$1 : Ljava/lang/Object;
+// 1 GETFIELD SpilledReferencesCleanupKt\$box\$1.L\$0 : Ljava/lang/Object;
@@ -0,0 +1,27 @@
+// WITH_RUNTIME
+
+fun test(a: IntArray, list: List<String>, n: Int): Int {
+    var sum = 0
+    for (i in (1..n).reversed()) {
+        sum += i
+    }
+    for (i in (n downTo 1).reversed()) {
+        sum += i
+    }
+    for (i in (0 until n).reversed()) {
+        sum += i
+    }
+    for (i in a.indices.reversed()) {
+        sum += a[i]
+    }
+    for (i in list.indices.reversed()) {
+        sum += i
+    }
+    return sum
+}
+
+// 0 iterator
+// 0 NEW
+// 0 reversed
+// 0 getFirst
+// 0 getLast
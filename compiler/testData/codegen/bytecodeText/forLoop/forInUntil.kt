@@ -0,0 +1,21 @@
+// WITH_RUNTIME
+
+fun test(n: Int, m: Long): Long {
+    var sum = 0L
+    for (i in 0 until n) {
+        sum += i
+    }
+    for (i in 0 until m) {
+        sum += i
+    }
+    for (c in 'a' until 'z') {
+        sum += c.toLong()
+    }
+    return sum
+}
+
+// 0 iterator
+// 0 NEW
+// 0 until
+// 0 getFirst
+// 0 getLast
@@ -0,0 +1,29 @@
+val limit = 100
+
+fun int(x: Int) =
+        when (x) {
+            1, 2 -> "small"
+            3 -> "three"
+            in 10..20 -> "teen"
+            limit -> "limit"
+            else -> "other"
+        }
+
+fun string(s: String?) =
+        when (s) {
+            "GET", "HEAD" -> "read"
+            "PUT" -> "write"
+            null -> "none"
+            s?.toUpperCase() -> "upper"
+            else -> "other"
+        }
+
+fun fewConstants(x: Int) =
+        when (x) {
+            1, 2 -> "small"
+            limit -> "limit"
+            else -> "other"
+        }
+
+// 1 TABLESWITCH
+// 1 LOOKUPSWITCH
@@ -0,0 +1,77 @@
+// JVM_TARGET: 1.8
+// KOTLIN_CONFIGURATION_FLAGS: +JVM.LAMBDAS_VIA_INVOKEDYNAMIC
+// WITH_RUNTIME
+
+fun isIndy(f: Any) = f.javaClass.name.contains("\$\$Lambda\$")
+
+fun isFunction1(f: Any) = f is Function1<*, *>
+
+fun <T> runNoInline(f: () -> T): T = f()
+
+inline fun lambdaInInlineFunction(): () -> String = { "OK" }
+
+class Host(val prefix: String) {
+    fun capturesThis(): () -> String = { prefix + "K" }
+}
+
+fun String.capturesReceiver(): () -> String = { this + "K" }
+
+fun box(): String {
+    val stateless = { "OK" }
+    if (!isIndy(stateless)) return "fail: stateless lambda is a class"
+    if (stateless() != "OK") return "fail: stateless"
+
+    val o = "O"
+    val long = 1L
+    val double = 2.0
+    val capturing = { x: Int, y: Long -> o + (x + y + long + double) }
+    if (capturing(3, 4L) != "O10.0") return "fail: captured vals ${capturing(3, 4L)}"
+
+    var counter = 0
+    val increment = { counter++ }
+    increment()
+    increment()
+    if (counter != 2) return "fail: shared var $counter"
+
+    val unit: () -> Unit = { counter += 10 }
+    if (unit() != Unit || counter != 12) return "fail: unit $counter"
+
+    val extension: String.(Int) -> String = { this + it }
+    if ("O".extension(1) != "O1") return "fail: extension"
+
+    if (Host("O").capturesThis()() != "OK") return "fail: this"
+    if ("O".capturesReceiver()() != "OK") return "fail: receiver"
+
+    val nested = { a: String -> { b: String -> o + a + b } }
+    if (!isIndy(nested("1"))) return "fail: nested lambda is a class"
+    if (nested("1")("2") != "O12") return "fail: nested"
+
+    val inlined = { listOf(1, 2, 3).map { it * 2 }.sum() }
+    if (inlined() != 12) return "fail: inline call in lambda"
+
+    var result = ""
+    try {
+        result += "O"
+    }
+    finally {
+        result += runNoInline { "K" }
+    }
+    if (result != "OK") return "fail: finally $result"
+
+    val intFunction: (Int) -> Int = { it + 1 }
+    val anyFunction = intFunction as (Any?) -> Any?
+    try {
+        anyFunction("")
+        return "fail: no ClassCastException"
+    }
+    catch (e: ClassCastException) {
+    }
+
+    if (!isFunction1(intFunction)) return "fail: is Function1"
+
+    // lambdas in inline functions are copied to the call site, so they are still generated as classes
+    val fromInline = lambdaInInlineFunction()
+    if (isIndy(fromInline) || fromInline() != "OK") return "fail: lambda in inline function"
+
+    return runNoInline(fun(): String { return o + "K" })
+}
@@ -0,0 +1,31 @@
+// JVM_TARGET: 1.8
+// KOTLIN_CONFIGURATION_FLAGS: +JVM.LAMBDAS_VIA_INVOKEDYNAMIC
+// WITH_RUNTIME
+
+fun isIndy(f: Any) = f.javaClass.name.contains("\$\$Lambda\$")
+
+inline fun wrap(crossinline f: () -> String): () -> String = { f() }
+
+fun box(): String {
+    val o = "O"
+
+    // The object regenerated from 'wrap' reads 'o' through the instance of the lambda, so the lambda is generated as a class
+    // after its body with the nested lambda has already been generated once
+    val outer = { k: String ->
+        val nested = { s: String -> s + k }
+        wrap { nested(o) }()
+    }
+    if (isIndy(outer)) return "fail: outer lambda is indy"
+    if (outer("K") != "OK") return "fail: outer ${outer("K")}"
+
+    // The nested lambda is generated as a class named after the class of the outer lambda, so both are classes
+    val outerOfClass = { k: String -> { wrap { o + k }() } }
+    if (isIndy(outerOfClass)) return "fail: outer lambda of a class is indy"
+    if (outerOfClass("K")() != "OK") return "fail: outer of class ${outerOfClass("K")()}"
+
+    val facade = Class.forName("NestedLambdaInClassFallbackKt")
+    val lambdaMethods = facade.declaredMethods.filter { it.name.startsWith("lambda$") }
+    if (lambdaMethods.isNotEmpty()) return "fail: implementations of lambdas generated as classes: $lambdaMethods"
+
+    return "OK"
+}
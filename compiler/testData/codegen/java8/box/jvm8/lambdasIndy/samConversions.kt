@@ -0,0 +1,45 @@
+// JVM_TARGET: 1.8
+// KOTLIN_CONFIGURATION_FLAGS: +JVM.LAMBDAS_VIA_INVOKEDYNAMIC
+// WITH_RUNTIME
+// FILE: JavaCall.java
+
+public class JavaCall {
+    public static String call(Computation computation) {
+        return "" + computation.compute(20, 22);
+    }
+
+    public static String run(Runnable runnable) {
+        if (runnable == null) return "null";
+        runnable.run();
+        return "ran";
+    }
+
+    public static Runnable runnable;
+}
+
+// FILE: Computation.java
+
+public interface Computation {
+    int compute(int a, int b);
+}
+
+// FILE: sam.kt
+
+fun box(): String {
+    var log = ""
+    if (JavaCall.call { a, b -> a + b } != "42") return "fail: lambda"
+    if (JavaCall.run { log += "O" } != "ran") return "fail: run"
+
+    val function: () -> Unit = { log += "K" }
+    if (JavaCall.run(function) != "ran") return "fail: function value"
+
+    val nullFunction: (() -> Unit)? = null
+    if (JavaCall.run(nullFunction) != "null") return "fail: null function value"
+
+    JavaCall.runnable = Runnable { log += "!" }
+    JavaCall.runnable.run()
+
+    if (!JavaCall.runnable.javaClass.name.contains("\$\$Lambda\$")) return "fail: SAM conversion is a class"
+
+    return if (log == "OK!") "OK" else "fail: $log"
+}
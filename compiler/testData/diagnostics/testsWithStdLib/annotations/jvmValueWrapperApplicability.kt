@@ -0,0 +1,39 @@
+// !API_VERSION: 1.2
+@JvmValueWrapper
+class Id(val raw: Long)
+
+@JvmValueWrapper
+class PrivateId private constructor(private val raw: Int)
+
+@JvmValueWrapper
+class NoOtherField(val raw: Int) {
+    val twice: Int get() = raw * 2
+}
+
+<!INAPPLICABLE_JVM_VALUE_WRAPPER!>@JvmValueWrapper<!>
+open class Open(val raw: Long)
+
+<!INAPPLICABLE_JVM_VALUE_WRAPPER!>@JvmValueWrapper<!>
+object O
+
+<!INAPPLICABLE_JVM_VALUE_WRAPPER!>@JvmValueWrapper<!>
+class Var(var raw: Long)
+
+<!INAPPLICABLE_JVM_VALUE_WRAPPER!>@JvmValueWrapper<!>
+class Nullable(val raw: Long?)
+
+<!INAPPLICABLE_JVM_VALUE_WRAPPER!>@JvmValueWrapper<!>
+class TwoValues(val a: Int, val b: Int)
+
+<!INAPPLICABLE_JVM_VALUE_WRAPPER!>@JvmValueWrapper<!>
+class DefaultValue(val raw: Int = 0)
+
+<!INAPPLICABLE_JVM_VALUE_WRAPPER!>@JvmValueWrapper<!>
+class Initializer(val raw: Int) {
+    init {}
+}
+
+<!INAPPLICABLE_JVM_VALUE_WRAPPER!>@JvmValueWrapper<!>
+class OtherField(val raw: Int) {
+    val twice = raw * 2
+}
@@ -0,0 +1,10 @@
+@file:JvmMultifileClass
+@file:JvmName("Collections")
+
+package other
+
+import util.*
+
+fun <T> List<T>.evenIndexed(): List<T> = filterIndexed { index, _ -> index.isEven }
+
+fun describe(list: List<Int>): String = join(list.map { bracketWords("number $it") })
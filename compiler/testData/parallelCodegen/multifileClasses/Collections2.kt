@@ -0,0 +1,15 @@
+@file:JvmMultifileClass
+@file:JvmName("Collections")
+
+package other
+
+import util.*
+
+fun lcmOf(list: List<Int>): Int = list.fold(1) { acc, x -> lcm(acc, x) }
+
+fun main(args: Array<String>) {
+    println(describe(listOf(1, 2, 3).evenIndexed()))
+    println(lcmOf(listOf(4, 6)))
+    repeatEven(5) { println(cached("even $it")) }
+    println(countEven(10))
+}
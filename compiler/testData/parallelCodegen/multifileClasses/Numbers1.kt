@@ -0,0 +1,8 @@
+@file:JvmMultifileClass
+@file:JvmName("Numbers")
+
+package util
+
+fun gcd(a: Int, b: Int): Int = if (b == 0) a else gcd(b, a % b)
+
+val Int.isEven: Boolean get() = this % 2 == 0
@@ -0,0 +1,12 @@
+@file:JvmMultifileClass
+@file:JvmName("Numbers")
+
+package util
+
+fun lcm(a: Int, b: Int): Int = a / gcd(a, b) * b
+
+inline fun repeatEven(times: Int, action: (Int) -> Unit) {
+    for (i in 0..times - 1) {
+        if (i.isEven) action(i)
+    }
+}
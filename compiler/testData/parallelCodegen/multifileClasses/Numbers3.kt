@@ -0,0 +1,13 @@
+@file:JvmMultifileClass
+@file:JvmName("Numbers")
+
+package util
+
+object Counter {
+    var count = 0
+}
+
+fun countEven(times: Int): Int {
+    repeatEven(times) { Counter.count++ }
+    return Counter.count
+}
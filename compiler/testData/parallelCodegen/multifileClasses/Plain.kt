@@ -0,0 +1,5 @@
+package other
+
+class Holder(val values: List<Int>) {
+    fun lcm() = lcmOf(values)
+}
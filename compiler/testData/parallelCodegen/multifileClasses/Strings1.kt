@@ -0,0 +1,10 @@
+@file:JvmMultifileClass
+@file:JvmName("Strings")
+
+package util
+
+const val SEPARATOR = ", "
+
+fun join(parts: List<String>): String = parts.joinToString(SEPARATOR) { quote(it) }
+
+private fun quote(s: String) = "'$s'"
@@ -0,0 +1,13 @@
+@file:JvmMultifileClass
+@file:JvmName("Strings")
+
+package util
+
+inline fun String.mapWords(transform: (String) -> String): String =
+        split(' ').map { transform(it) }.joinToString(" ")
+
+fun bracketWords(s: String): String = s.mapWords { if (it.isEmpty()) it else "[$it]" }
+
+private val cache = HashMap<String, String>()
+
+fun cached(s: String): String = cache.getOrPut(s) { bracketWords(s) }
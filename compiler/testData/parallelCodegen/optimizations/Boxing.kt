@@ -0,0 +1,43 @@
+package opt
+
+class Box<T>(val value: T)
+
+fun sumBoxed(boxes: List<Box<Int>>): Int {
+    var sum = 0
+    for (box in boxes) {
+        sum += box.value
+    }
+    return sum
+}
+
+fun nullableArithmetic(x: Int?, y: Long?): Long {
+    val a: Int? = x ?: 0
+    val b: Long? = y
+    return a!! + (b ?: 1L)
+}
+
+fun boxedLocals(): Int {
+    val x: Any = 42
+    val y: Comparable<Int> = 7
+    val z: Number = 3
+    return if (x is Int && y is Int) x + y + z.toInt() else 0
+}
+
+fun progressions(n: Int): List<Int> {
+    val result = ArrayList<Int>()
+    for (i in n downTo 0 step 2) {
+        result.add(i)
+    }
+    (0 until n).mapTo(result) { it * it }
+    return result
+}
+
+inline fun <T, R> Box<T>.map(transform: (T) -> R): Box<R> = Box(transform(value))
+
+fun boxedThroughInline(x: Int): Double = Box(x).map { it * 2 }.map { it.toDouble() / 3 }.value
+
+fun pairs(): Int {
+    val (first, second) = Pair(1, 2L)
+    val triple = Triple('a', 1.0f, true)
+    return first + second.toInt() + triple.first.toInt() + triple.second.toInt() + if (triple.third) 1 else 0
+}
@@ -0,0 +1,58 @@
+package opt
+
+fun countInline(list: List<String>): Int {
+    var counter = 0
+    list.forEach { if (it.isNotEmpty()) counter++ }
+    return counter
+}
+
+fun countInLambda(list: List<String>): () -> Int {
+    var counter = 0
+    val increment = { counter++ }
+    list.forEach { increment() }
+    return { counter }
+}
+
+fun localFunction(n: Int): Long {
+    var acc = 1L
+    var steps = 0
+    fun step(i: Int) {
+        acc *= i
+        steps++
+    }
+    for (i in 1..n) step(i)
+    return acc + steps
+}
+
+fun nestedInline(matrix: List<List<Int>>): Int {
+    var max = Int.MIN_VALUE
+    var nonEmpty = 0
+    matrix.forEach { row ->
+        if (row.isNotEmpty()) nonEmpty++
+        row.forEach { x -> if (x > max) max = x }
+    }
+    return max + nonEmpty
+}
+
+class Accumulator {
+    fun collect(items: List<Int>): String {
+        var text = ""
+        var last: Int? = null
+        items.filter { it % 2 == 0 }.forEach {
+            text += it
+            last = it
+        }
+        return text + (last ?: 0)
+    }
+}
+
+fun main(args: Array<String>) {
+    println(countInline(listOf("a", "", "b")))
+    println(countInLambda(listOf("a", "b"))())
+    println(localFunction(5))
+    println(nestedInline(listOf(listOf(1, 5), emptyList(), listOf(3))))
+    println(Accumulator().collect(listOf(1, 2, 3, 4)))
+    println(sumBoxed(listOf(Box(1), Box(2))) + nullableArithmetic(null, 2L) + boxedLocals() + progressions(4).size + pairs())
+    println(boxedThroughInline(3))
+    println(afterReturn(-3).toString() + constantConditions(20) + afterThrow(1) + redundantNullChecks("ab") + nestedTryFinally(listOf(1, -1, 2)))
+}
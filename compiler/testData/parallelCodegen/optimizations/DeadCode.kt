@@ -0,0 +1,56 @@
+package opt
+
+const val DEBUG = false
+
+fun afterReturn(x: Int): Int {
+    if (x > 0) return x
+    return -x
+    println("unreachable")
+}
+
+fun constantConditions(x: Int): String {
+    if (DEBUG) {
+        println("debug $x")
+    }
+    while (true) {
+        if (x > 10) break
+        return "small"
+    }
+    return when {
+        false -> "never"
+        x > 100 -> "huge"
+        else -> "big"
+    }
+}
+
+fun afterThrow(x: Int?): Int {
+    val y = x ?: throw IllegalArgumentException()
+    return y
+}
+
+fun redundantNullChecks(s: String): Int {
+    val t: String? = s
+    if (t != null) {
+        val u: String? = t
+        return u?.length ?: 0
+    }
+    return -1
+}
+
+inline fun <T> guarded(block: () -> T): T? = try {
+    block()
+}
+catch (e: Exception) {
+    null
+}
+finally {
+    if (DEBUG) println("done")
+}
+
+fun nestedTryFinally(list: List<Int>): Int {
+    var total = 0
+    for (x in list) {
+        total += guarded { if (x < 0) throw IllegalStateException() else x } ?: 0
+    }
+    return total
+}
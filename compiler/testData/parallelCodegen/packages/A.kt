@@ -0,0 +1,23 @@
+package a
+
+class Money(val amount: Int) {
+    operator fun plus(other: Money) = Money(amount + other.amount)
+
+    companion object {
+        val ZERO = Money(0)
+    }
+}
+
+enum class Currency { EUR, USD, GBP }
+
+inline fun <T> logged(name: String, block: () -> T): T {
+    val logger = object : Runnable {
+        override fun run() {
+            println("enter $name")
+        }
+    }
+    logger.run()
+    return block()
+}
+
+fun total(items: List<Money>): Money = items.fold(Money.ZERO) { acc, money -> acc + money }
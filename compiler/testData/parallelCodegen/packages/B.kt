@@ -0,0 +1,15 @@
+package b
+
+import a.*
+
+data class Account(val owner: String, val balance: Money, val currency: Currency)
+
+fun describe(account: Account): String = logged("describe") {
+    when (account.currency) {
+        Currency.EUR -> "${account.owner}: ${account.balance.amount} EUR"
+        Currency.USD -> "${account.owner}: $${account.balance.amount}"
+        Currency.GBP -> "${account.owner}: ${account.balance.amount} GBP"
+    }
+}
+
+fun richest(accounts: List<Account>): Account? = accounts.sortedBy { it.balance.amount }.lastOrNull()
@@ -0,0 +1,28 @@
+package c
+
+import a.*
+import b.*
+
+sealed class Transfer {
+    class Deposit(val amount: Money) : Transfer()
+    class Withdrawal(val amount: Money) : Transfer()
+    object None : Transfer()
+}
+
+fun apply(account: Account, transfers: List<Transfer>): Account = logged("apply") {
+    var balance = account.balance
+    for (transfer in transfers) {
+        balance = when (transfer) {
+            is Transfer.Deposit -> balance + transfer.amount
+            is Transfer.Withdrawal -> balance + Money(-transfer.amount.amount)
+            Transfer.None -> balance
+        }
+    }
+    account.copy(balance = balance)
+}
+
+fun symbol(currency: Currency): Char = when (currency) {
+    Currency.EUR -> 'E'
+    Currency.USD -> '$'
+    Currency.GBP -> 'L'
+}
@@ -0,0 +1,13 @@
+package c
+
+import a.Currency
+
+interface Formatter {
+    fun format(value: Int): String = value.toString()
+}
+
+class CurrencyFormatter(private val currency: Currency) : Formatter {
+    override fun format(value: Int): String = super.format(value) + symbol(currency)
+}
+
+val formatters = Currency.values().associate { it to CurrencyFormatter(it) }
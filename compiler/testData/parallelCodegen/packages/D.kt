@@ -0,0 +1,19 @@
+package d
+
+import a.*
+import b.*
+import c.*
+
+fun report(accounts: List<Account>): List<String> = logged("report") {
+    accounts.sortedBy { it.owner }.map { account ->
+        val formatter = formatters[account.currency]!!
+        "${account.owner}: ${formatter.format(account.balance.amount)}"
+    }
+}
+
+fun main(args: Array<String>) {
+    val accounts = listOf(Account("a", Money(1), Currency.EUR), Account("b", Money(2), Currency.USD))
+    report(accounts.map { apply(it, listOf(Transfer.Deposit(Money(3)), Transfer.None)) }).forEach(::println)
+    println(richest(accounts)?.let(::describe))
+    println(total(accounts.map { it.balance }).amount)
+}
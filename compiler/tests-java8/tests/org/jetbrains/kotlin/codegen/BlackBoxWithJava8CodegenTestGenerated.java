@@ -487,6 +487,33 @@ public class BlackBoxWithJava8CodegenTestGenerated extends AbstractBlackBoxCodeg
                 doTest(fileName);
             }
         }
+
+        @TestMetadata("compiler/testData/codegen/java8/box/jvm8/lambdasIndy")
+        @TestDataPath("$PROJECT_ROOT")
+        @RunWith(JUnit3RunnerWithInners.class)
+        public static class LambdasIndy extends AbstractBlackBoxCodegenTest {
+            public void testAllFilesPresentInLambdasIndy() throws Exception {
+                KotlinTestUtils.assertAllTestsPresentByMetadata(this.getClass(), new File("compiler/testData/codegen/java8/box/jvm8/lambdasIndy"), Pattern.compile("^(.+)\\.kt$"), TargetBackend.ANY, true);
+            }
+
+            @TestMetadata("capturedValues.kt")
+            public void testCapturedValues() throws Exception {
+                String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/codegen/java8/box/jvm8/lambdasIndy/capturedValues.kt");
+                doTest(fileName);
+            }
+
+            @TestMetadata("nestedLambdaInClassFallback.kt")
+            public void testNestedLambdaInClassFallback() throws Exception {
+                String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/codegen/java8/box/jvm8/lambdasIndy/nestedLambdaInClassFallback.kt");
+                doTest(fileName);
+            }
+
+            @TestMetadata("samConversions.kt")
+            public void testSamConversions() throws Exception {
+                String fileName = KotlinTestUtils.navigationMetadata("compiler/testData/codegen/java8/box/jvm8/lambdasIndy/samConversions.kt");
+                doTest(fileName);
+            }
+        }
     }
 
     @TestMetadata("compiler/testData/codegen/java8/box/mapGetOrDefault")
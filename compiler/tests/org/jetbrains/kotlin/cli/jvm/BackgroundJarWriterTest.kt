@@ -0,0 +1,87 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.cli.jvm
+
+import org.jetbrains.kotlin.backend.common.output.SimpleOutputBinaryFile
+import org.jetbrains.kotlin.backend.common.output.SimpleOutputFileCollection
+import org.jetbrains.kotlin.cli.jvm.compiler.BackgroundJarWriter
+import org.jetbrains.kotlin.name.FqName
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.testFramework.KtUsefulTestCase
+import java.io.File
+import java.util.jar.JarFile
+
+class BackgroundJarWriterTest : KtUsefulTestCase() {
+    private val source = File("a.kt")
+
+    private fun outputs(vararg paths: String) =
+            SimpleOutputFileCollection(paths.map { SimpleOutputBinaryFile(listOf(source), it, it.toByteArray()) })
+
+    fun testEntriesAndManifest() {
+        val jar = File(KotlinTestUtils.tmpDir("backgroundJarWriter"), "out.jar")
+        val writer = BackgroundJarWriter(jar, FqName("foo.AKt"), includeRuntime = false)
+        // more files than fit in the queue of the writer
+        writer.write(outputs(*Array(1000) { "foo/A$it.class" }))
+        writer.write(outputs("foo/A0.class", "META-INF/main.kotlin_module"))
+        writer.close()
+
+        assertEquals(listOf(source), writer.sourceFiles)
+
+        val file = JarFile(jar)
+        try {
+            assertEquals("foo.AKt", file.manifest.mainAttributes.getValue("Main-Class"))
+
+            val names = file.entries().toList().map { it.name }.filter { !it.startsWith("META-INF/MANIFEST") }
+            assertEquals(List(1000) { "foo/A$it.class" } + "META-INF/main.kotlin_module", names)
+            assertEquals("foo/A42.class", file.getInputStream(file.getEntry("foo/A42.class")).reader().readText())
+        }
+        finally {
+            file.close()
+        }
+    }
+
+    fun testLastContentWins() {
+        val jar = File(KotlinTestUtils.tmpDir("backgroundJarWriter"), "out.jar")
+        val writer = BackgroundJarWriter(jar, FqName("foo.AKt"), includeRuntime = false)
+        writer.write(outputs("foo/A.class", "foo/B.class"))
+        writer.write(SimpleOutputFileCollection(listOf(SimpleOutputBinaryFile(listOf(source), "foo/A.class", "new".toByteArray()))))
+        writer.close()
+
+        val file = JarFile(jar)
+        try {
+            assertEquals("foo.AKt", file.manifest.mainAttributes.getValue("Main-Class"))
+
+            val names = file.entries().toList().map { it.name }.filter { !it.startsWith("META-INF/") }
+            assertEquals(listOf("foo/A.class", "foo/B.class"), names)
+            assertEquals("new", file.getInputStream(file.getEntry("foo/A.class")).reader().readText())
+            assertEquals("foo/B.class", file.getInputStream(file.getEntry("foo/B.class")).reader().readText())
+        }
+        finally {
+            file.close()
+        }
+        assertFalse(File(jar.path + ".tmp").exists())
+    }
+
+    fun testAbort() {
+        val jar = File(KotlinTestUtils.tmpDir("backgroundJarWriter"), "out.jar")
+        val writer = BackgroundJarWriter(jar, null, includeRuntime = false)
+        writer.write(outputs("foo/A.class"))
+        writer.abort()
+
+        assertFalse(jar.exists())
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.cli.jvm
+
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.cli.jvm.config.JvmClasspathRoot
+import org.jetbrains.kotlin.cli.jvm.index.ClasspathJarIndex
+import org.jetbrains.kotlin.cli.jvm.index.JavaRoot
+import org.jetbrains.kotlin.cli.jvm.index.JvmDependenciesIndexImpl
+import org.jetbrains.kotlin.codegen.forTestCompile.ForTestCompileRuntime
+import org.jetbrains.kotlin.name.ClassId
+import org.jetbrains.kotlin.name.FqName
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.KotlinTestWithEnvironment
+
+class ClasspathJarIndexTest : KotlinTestWithEnvironment() {
+    override fun createEnvironment(): KotlinCoreEnvironment = createEnvironmentWithMockJdk(ConfigurationKind.JDK_ONLY)
+
+    private val roots: List<JavaRoot> by lazy {
+        listOf(ForTestCompileRuntime.reflectJarForTests(), ForTestCompileRuntime.runtimeJarForTests()).map {
+            JavaRoot(environment.contentRootToVirtualFile(JvmClasspathRoot(it))!!, JavaRoot.RootType.BINARY)
+        }
+    }
+
+    fun testContents() {
+        val index = ClasspathJarIndex.build(roots)
+        val runtime = index.getContents(roots[1].file)!!
+
+        assertTrue(runtime.hasDirectory(""))
+        assertTrue(runtime.hasDirectory("kotlin"))
+        assertTrue(runtime.hasDirectory("kotlin/collections"))
+        assertFalse(runtime.hasDirectory("kotlin/reflect/full"))
+        assertTrue(runtime.hasFile("kotlin", "Pair.class"))
+        assertFalse(runtime.hasFile("kotlin", "Pair"))
+        assertTrue(runtime.getFileNames("META-INF").any { it.endsWith(".kotlin_module") })
+
+        assertTrue(index.getContents(roots[0].file)!!.hasDirectory("kotlin/reflect/full"))
+    }
+
+    fun testFindBinaryFile() {
+        val index = JvmDependenciesIndexImpl(roots, ClasspathJarIndex.build(roots))
+
+        val pair = index.findBinaryFile(ClassId.topLevel(FqName("kotlin.Pair")), "Pair.class")
+        assertNotNull(pair)
+        assertTrue(pair!!.path.startsWith(roots[1].file.path))
+
+        val kClasses = ClassId.topLevel(FqName("kotlin.reflect.full.KClasses"))
+        assertEquals(index.findBinaryFile(kClasses, "KClasses.class"),
+                     JvmDependenciesIndexImpl(roots).findBinaryFile(kClasses, "KClasses.class"))
+
+        assertNull(index.findBinaryFile(ClassId.topLevel(FqName("kotlin.NoSuchClass")), "NoSuchClass.class"))
+        assertNull(index.findBinaryFile(ClassId.topLevel(FqName("no.such.pkg.Foo")), "Foo.class"))
+    }
+
+    fun testCache() {
+        val cacheDir = KotlinTestUtils.tmpDir("classpathIndexCache")
+        val oldValue = System.setProperty(ClasspathJarIndex.CACHE_DIR_PROPERTY, cacheDir.path)
+        try {
+            val built = ClasspathJarIndex.build(roots)
+            assertEquals(2, cacheDir.listFiles().count { it.name.endsWith(".idx") })
+
+            val cached = ClasspathJarIndex.build(roots)
+            for (root in roots) {
+                val expected = built.getContents(root.file)!!
+                val actual = cached.getContents(root.file)!!
+                assertEquals(expected.directoryPaths, actual.directoryPaths)
+                for (path in expected.directoryPaths) {
+                    assertEquals(expected.getFileNames(path), actual.getFileNames(path))
+                }
+            }
+        }
+        finally {
+            if (oldValue == null) System.clearProperty(ClasspathJarIndex.CACHE_DIR_PROPERTY)
+            else System.setProperty(ClasspathJarIndex.CACHE_DIR_PROPERTY, oldValue)
+            cacheDir.deleteRecursively()
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import org.jetbrains.kotlin.cli.AbstractCliTest
+import org.jetbrains.kotlin.cli.common.ExitCode
+import org.jetbrains.kotlin.cli.jvm.K2JVMCompiler
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.testFramework.KtUsefulTestCase
+import org.jetbrains.org.objectweb.asm.ClassReader
+import org.jetbrains.org.objectweb.asm.util.TraceClassVisitor
+import java.io.File
+import java.io.PrintWriter
+import java.io.StringWriter
+
+class ParallelCodegenTest : KtUsefulTestCase() {
+    private fun compile(sources: String, vararg extraArguments: String): File {
+        val tmpdir = KotlinTestUtils.tmpDir(this::class.simpleName)
+
+        val (output, exitCode) = AbstractCliTest.executeCompilerGrabOutput(K2JVMCompiler(), listOf(
+                sources,
+                "-d", tmpdir.path,
+                "-module-name", "main"
+        ) + extraArguments)
+        System.err.println(output) // normally output is empty
+        assertEquals("Compilation should complete successfully", ExitCode.OK, exitCode)
+
+        return tmpdir
+    }
+
+    private fun doTest(relativeDirectory: String, parallelArguments: List<String>, readOutput: (File) -> Any = File::readBytes) {
+        val directory = KotlinTestUtils.getTestDataPathBase() + relativeDirectory
+
+        val sequential = compile(directory)
+        val parallel = compile(directory, *parallelArguments.toTypedArray())
+
+        val sequentialFiles = sequential.walk().filter { it.isFile }.map { it.relativeTo(sequential).path }.sorted().toList()
+        val parallelFiles = parallel.walk().filter { it.isFile }.map { it.relativeTo(parallel).path }.sorted().toList()
+        assertEquals(sequentialFiles, parallelFiles)
+
+        for (path in sequentialFiles) {
+            val expected = readOutput(File(sequential, path))
+            val actual = readOutput(File(parallel, path))
+            if (expected is ByteArray && actual is ByteArray) {
+                assertTrue("Output differs for $path", expected.contentEquals(actual))
+            }
+            else {
+                assertEquals("Output differs for $path", expected, actual)
+            }
+        }
+    }
+
+    // constant pools may differ because methods are written to classes when classes are done, so classes are compared as text
+    private fun readAsText(file: File): Any {
+        if (file.extension != "class") return file.readText()
+
+        val text = StringWriter()
+        ClassReader(file.readBytes()).accept(TraceClassVisitor(PrintWriter(text)), 0)
+        return text.toString()
+    }
+
+    fun testPackagesAndMultifileClasses() {
+        doTest("/jvmPackageTable/simple", listOf("-Xbackend-threads", "4"))
+    }
+
+    fun testSeveralPackages() {
+        doTest("/parallelCodegen/packages", listOf("-Xbackend-threads", "4"))
+    }
+
+    fun testSeveralMultifileClasses() {
+        doTest("/parallelCodegen/multifileClasses", listOf("-Xbackend-threads", "4"))
+    }
+
+    fun testConcurrentStorageManager() {
+        doTest("/parallelCodegen/packages", listOf("-Xconcurrent-storage-manager"))
+    }
+
+    // lazy values of descriptors are computed by the backend threads here, without the global lock
+    fun testSeveralPackagesWithConcurrentStorageManager() {
+        doTest("/parallelCodegen/packages", listOf("-Xconcurrent-storage-manager", "-Xbackend-threads", "4"))
+    }
+
+    fun testSeveralMultifileClassesWithConcurrentStorageManager() {
+        doTest("/parallelCodegen/multifileClasses", listOf("-Xconcurrent-storage-manager", "-Xbackend-threads", "4"))
+    }
+
+    fun testParallelOptimization() {
+        doTest("/jvmPackageTable/simple", listOf("-Xoptimization-threads", "4"), this::readAsText)
+    }
+
+    fun testParallelOptimizationAndCodegen() {
+        doTest("/jvmPackageTable/simple", listOf("-Xbackend-threads", "4", "-Xoptimization-threads", "4"), this::readAsText)
+    }
+
+    fun testParallelOptimizationOfBoxingDeadCodeAndCapturedVars() {
+        doTest("/parallelCodegen/optimizations", listOf("-Xoptimization-threads", "4"), this::readAsText)
+    }
+
+    fun testParallelOptimizationAndCodegenOfBoxingDeadCodeAndCapturedVars() {
+        doTest("/parallelCodegen/optimizations", listOf("-Xbackend-threads", "4", "-Xoptimization-threads", "4"), this::readAsText)
+    }
+}
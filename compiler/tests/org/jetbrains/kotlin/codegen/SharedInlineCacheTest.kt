@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.codegen.forTestCompile.ForTestCompileRuntime
+import org.jetbrains.kotlin.codegen.inline.SharedInlineCache
+import org.jetbrains.kotlin.name.ClassId
+import org.jetbrains.kotlin.name.FqName
+import java.util.zip.ZipFile
+
+class SharedInlineCacheTest : TestCase() {
+    private val pairId = ClassId.topLevel(FqName("kotlin.Pair"))
+
+    private val pairBytes: ByteArray by lazy {
+        val zip = ZipFile(ForTestCompileRuntime.runtimeJarForTests())
+        try {
+            zip.getInputStream(zip.getEntry("kotlin/Pair.class")).readBytes()
+        }
+        finally {
+            zip.close()
+        }
+    }
+
+    fun testHitsAndMisses() {
+        val cache = SharedInlineCache(maxSizeBytes = Long.MAX_VALUE)
+
+        val first = cache.getMethodNode(pairBytes, pairId, "getFirst", "()Ljava/lang/Object;")!!
+        assertEquals("getFirst", first.node.name)
+        assertSame(first, cache.getMethodNode(pairBytes.copyOf(), pairId, "getFirst", "()Ljava/lang/Object;"))
+        assertEquals(1, cache.hitCount)
+        assertEquals(1, cache.missCount)
+        assertTrue(cache.size > 0)
+
+        assertNull(cache.getMethodNode(pairBytes, pairId, "noSuchMethod", "()V"))
+        assertEquals(2, cache.missCount)
+    }
+
+    fun testChangedClassIsNotConfused() {
+        val cache = SharedInlineCache(maxSizeBytes = Long.MAX_VALUE)
+        val first = cache.getMethodNode(pairBytes, pairId, "getFirst", "()Ljava/lang/Object;")!!
+
+        // same class with an unused trailing byte, so its content hash differs
+        val changedBytes = pairBytes.copyOf(pairBytes.size + 1)
+        assertNotSame(first, cache.getMethodNode(changedBytes, pairId, "getFirst", "()Ljava/lang/Object;"))
+    }
+
+    fun testEviction() {
+        val cache = SharedInlineCache(maxSizeBytes = 1)
+        val first = cache.getMethodNode(pairBytes, pairId, "getFirst", "()Ljava/lang/Object;")!!
+        cache.getMethodNode(pairBytes, pairId, "getSecond", "()Ljava/lang/Object;")!!
+
+        assertNotSame(first, cache.getMethodNode(pairBytes, pairId, "getFirst", "()Ljava/lang/Object;"))
+        assertEquals(0, cache.hitCount)
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization
+
+import junit.framework.TestCase
+import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter
+import org.jetbrains.kotlin.codegen.optimization.common.SparseFramesAnalyzer
+import org.jetbrains.org.objectweb.asm.Label
+import org.jetbrains.org.objectweb.asm.Opcodes
+import org.jetbrains.org.objectweb.asm.tree.MethodNode
+import org.jetbrains.org.objectweb.asm.tree.analysis.Analyzer
+import org.jetbrains.org.objectweb.asm.tree.analysis.BasicValue
+import org.jetbrains.org.objectweb.asm.tree.analysis.Frame
+
+class SparseFramesAnalyzerTest : TestCase() {
+
+    // static int test(int n, Object o) {
+    //     int sum = 0;
+    //     for (int i = 0; i < n; i++) {
+    //         try { sum += o.hashCode(); } catch (RuntimeException e) { o = null; }
+    //     }
+    //     return sum;
+    //     <unreachable code>
+    // }
+    private fun createMethod(): MethodNode {
+        val node = MethodNode(Opcodes.ACC_STATIC, "test", "(ILjava/lang/Object;)I", null, null)
+        val loop = Label()
+        val exit = Label()
+        val tryStart = Label()
+        val tryEnd = Label()
+        val handler = Label()
+        val next = Label()
+        with(node) {
+            visitTryCatchBlock(tryStart, tryEnd, handler, "java/lang/RuntimeException")
+            visitInsn(Opcodes.ICONST_0)
+            visitVarInsn(Opcodes.ISTORE, 2)
+            visitInsn(Opcodes.ICONST_0)
+            visitVarInsn(Opcodes.ISTORE, 3)
+            visitLabel(loop)
+            visitVarInsn(Opcodes.ILOAD, 3)
+            visitVarInsn(Opcodes.ILOAD, 0)
+            visitJumpInsn(Opcodes.IF_ICMPGE, exit)
+            visitLabel(tryStart)
+            visitVarInsn(Opcodes.ILOAD, 2)
+            visitVarInsn(Opcodes.ALOAD, 1)
+            visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Object", "hashCode", "()I", false)
+            visitInsn(Opcodes.IADD)
+            visitVarInsn(Opcodes.ISTORE, 2)
+            visitLabel(tryEnd)
+            visitJumpInsn(Opcodes.GOTO, next)
+            visitLabel(handler)
+            visitVarInsn(Opcodes.ASTORE, 4)
+            visitInsn(Opcodes.ACONST_NULL)
+            visitVarInsn(Opcodes.ASTORE, 1)
+            visitLabel(next)
+            visitIincInsn(3, 1)
+            visitJumpInsn(Opcodes.GOTO, loop)
+            visitLabel(exit)
+            visitVarInsn(Opcodes.ILOAD, 2)
+            visitInsn(Opcodes.IRETURN)
+            visitInsn(Opcodes.ICONST_1)
+            visitInsn(Opcodes.IRETURN)
+            visitMaxs(2, 5)
+        }
+        return node
+    }
+
+    fun testSameFramesAsAnalyzer() {
+        val node = createMethod()
+        val expected = Analyzer<BasicValue>(OptimizationBasicInterpreter()).analyze("Test", node)
+        val actual = SparseFramesAnalyzer("Test", node, OptimizationBasicInterpreter()).analyze()
+
+        assertEquals(expected.size, actual.size)
+        // forward scan
+        for (i in expected.indices) {
+            assertFramesEqual(i, expected[i], actual[i])
+            assertEquals(expected[i] != null, actual.isReachable(i))
+        }
+        // random access
+        for (i in expected.indices.reversed()) {
+            assertFramesEqual(i, expected[i], actual[i])
+        }
+        assertFalse(actual.isReachable(expected.size - 1))
+    }
+
+    fun testFramesAreNotSharedBetweenRequests() {
+        val node = createMethod()
+        val frames = SparseFramesAnalyzer("Test", node, OptimizationBasicInterpreter()).analyze()
+
+        val first = frames[1]!!
+        assertEquals(1, first.stackSize)
+        frames[2]
+        assertEquals(1, first.stackSize)
+        assertNotSame(first, frames[1])
+    }
+
+    fun testEmptyMethod() {
+        val node = MethodNode(Opcodes.ACC_ABSTRACT, "test", "()V", null, null)
+        assertEquals(0, SparseFramesAnalyzer("Test", node, OptimizationBasicInterpreter()).analyze().size)
+    }
+
+    private fun assertFramesEqual(index: Int, expected: Frame<BasicValue>?, actual: Frame<BasicValue>?) {
+        if (expected == null || actual == null) {
+            assertEquals("Reachability of #$index", expected == null, actual == null)
+            return
+        }
+        assertEquals("Locals of #$index", expected.locals, actual.locals)
+        for (i in 0..expected.locals - 1) {
+            assertEquals("Local $i of #$index", expected.getLocal(i), actual.getLocal(i))
+        }
+        assertEquals("Stack of #$index", expected.stackSize, actual.stackSize)
+        for (i in 0..expected.stackSize - 1) {
+            assertEquals("Stack value $i of #$index", expected.getStack(i), actual.getStack(i))
+        }
+    }
+}
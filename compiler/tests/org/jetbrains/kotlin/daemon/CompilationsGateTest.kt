@@ -0,0 +1,80 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.daemon
+
+import junit.framework.TestCase
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+
+class CompilationsGateTest : TestCase() {
+
+    fun testParallelCompilationsAreAdmitted() {
+        val gate = CompilationsGate(maxParallelCompilations = 3, minFreeHeapPercent = 0)
+        val allStarted = CountDownLatch(3)
+        val finish = CountDownLatch(1)
+
+        val threads = (1..3).map {
+            thread {
+                gate.withPermit {
+                    allStarted.countDown()
+                    finish.await()
+                }
+            }
+        }
+
+        assertTrue("Compilations were not run in parallel", allStarted.await(10, TimeUnit.SECONDS))
+        assertEquals(3, gate.activeCompilations)
+        assertFalse(gate.runIfIdle { fail("Should not be called while compilations are running") })
+
+        finish.countDown()
+        threads.forEach { it.join() }
+        assertEquals(0, gate.activeCompilations)
+    }
+
+    fun testCompilationsAreSerializedWhenHeapIsLow() {
+        // free heap is never above 100%, so only one compilation is admitted at a time
+        val idleCount = AtomicInteger(0)
+        val gate = CompilationsGate(maxParallelCompilations = 4, minFreeHeapPercent = 101, recheckPeriod = 10, onIdle = { idleCount.incrementAndGet() })
+        val running = AtomicInteger(0)
+        val maxRunning = AtomicInteger(0)
+
+        val threads = (1..4).map {
+            thread {
+                gate.withPermit {
+                    val current = running.incrementAndGet()
+                    maxRunning.set(maxOf(maxRunning.get(), current))
+                    Thread.sleep(20)
+                    running.decrementAndGet()
+                }
+            }
+        }
+        threads.forEach { it.join() }
+
+        assertEquals(1, maxRunning.get())
+        assertEquals(4, idleCount.get())
+    }
+
+    fun testRunIfIdle() {
+        val gate = CompilationsGate(maxParallelCompilations = 1, minFreeHeapPercent = 0)
+        var called = false
+        assertTrue(gate.runIfIdle { called = true })
+        assertTrue(called)
+        assertEquals(42, gate.withPermit { 42 })
+    }
+}
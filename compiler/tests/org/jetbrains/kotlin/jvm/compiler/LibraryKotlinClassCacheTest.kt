@@ -0,0 +1,69 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.jvm.compiler
+
+import com.intellij.openapi.vfs.VirtualFile
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.cli.jvm.config.JvmClasspathRoot
+import org.jetbrains.kotlin.codegen.forTestCompile.ForTestCompileRuntime
+import org.jetbrains.kotlin.load.kotlin.LibraryKotlinClassCache
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.test.KotlinTestWithEnvironment
+import java.io.File
+
+class LibraryKotlinClassCacheTest : KotlinTestWithEnvironment() {
+    override fun createEnvironment(): KotlinCoreEnvironment = createEnvironmentWithMockJdk(ConfigurationKind.ALL)
+
+    private fun findClassFile(jar: File, path: String): VirtualFile =
+            environment.contentRootToVirtualFile(JvmClasspathRoot(jar))!!.findFileByRelativePath(path)!!
+
+    fun testMetadataIsShared() {
+        val cache = LibraryKotlinClassCache(maxSizeBytes = Long.MAX_VALUE)
+        val file = findClassFile(ForTestCompileRuntime.runtimeJarForTests(), "kotlin/Pair.class")
+
+        val first = cache.getKotlinBinaryClass(file, null)!!
+        val second = cache.getKotlinBinaryClass(file, null)!!
+        assertNotSame(first, second)
+        assertEquals(first.classId, second.classId)
+        assertEquals("kotlin/Pair", first.classId.asString())
+
+        val metadata = first.getOrParseMetadata { Any() }
+        assertSame(metadata, second.getOrParseMetadata { Any() })
+        assertTrue(cache.size > 0)
+    }
+
+    fun testNotKotlinClass() {
+        val cache = LibraryKotlinClassCache(maxSizeBytes = Long.MAX_VALUE)
+        val file = findClassFile(ForTestCompileRuntime.runtimeJarForTests(), "kotlin/jvm/internal/Intrinsics.class")
+
+        assertNull(cache.getKotlinBinaryClass(file, null))
+        assertNull(cache.getKotlinBinaryClass(file, null))
+    }
+
+    fun testEviction() {
+        // every new jar evicts the previous one
+        val cache = LibraryKotlinClassCache(maxSizeBytes = 1)
+        val pair = findClassFile(ForTestCompileRuntime.runtimeJarForTests(), "kotlin/Pair.class")
+        val kClasses = findClassFile(ForTestCompileRuntime.reflectJarForTests(), "kotlin/reflect/full/KClasses.class")
+
+        val metadata = cache.getKotlinBinaryClass(pair, null)!!.getOrParseMetadata { Any() }
+        assertSame(metadata, cache.getKotlinBinaryClass(pair, null)!!.getOrParseMetadata { Any() })
+
+        cache.getKotlinBinaryClass(kClasses, null)!!
+        assertNotSame(metadata, cache.getKotlinBinaryClass(pair, null)!!.getOrParseMetadata { Any() })
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.preloading
+
+import org.jetbrains.kotlin.test.KotlinTestUtils
+import org.jetbrains.kotlin.test.testFramework.KtUsefulTestCase
+import org.jetbrains.org.objectweb.asm.ClassWriter
+import org.jetbrains.org.objectweb.asm.Opcodes
+import java.io.File
+import java.io.FileOutputStream
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+import java.util.jar.Manifest
+
+class ClassPreloadingUtilsTest : KtUsefulTestCase() {
+    private class RecordingHandler : ClassHandler() {
+        val instrumented = arrayListOf<String>()
+        val defined = arrayListOf<String>()
+
+        override fun instrument(resourceName: String, data: ByteArray): ByteArray {
+            instrumented.add(resourceName)
+            return data
+        }
+
+        override fun beforeDefineClass(name: String, sizeInBytes: Int) {
+            defined.add(name)
+        }
+    }
+
+    private fun createJar(vararg classNames: String): File {
+        val jar = File(KotlinTestUtils.tmpDir("classPreloading"), "classes.jar")
+        val manifest = Manifest().apply { mainAttributes.putValue("Manifest-Version", "1.0") }
+        JarOutputStream(FileOutputStream(jar), manifest).use { stream ->
+            for (className in classNames) {
+                val internalName = className.replace('.', '/')
+                val writer = ClassWriter(0)
+                writer.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, internalName, null, "java/lang/Object", null)
+                writer.visitEnd()
+
+                stream.putNextEntry(JarEntry("$internalName.class"))
+                stream.write(writer.toByteArray())
+            }
+        }
+        return jar
+    }
+
+    fun testPreloadRecordedClassesAndLoadOthersFromJar() {
+        val jar = createJar("test.A", "test.B", "test.C")
+
+        val recording = RecordingHandler()
+        val all = ClassPreloadingUtils.preloadClasses(listOf(jar), 16, null, null, recording, null)
+        all.loadClass("test.A")
+        all.loadClass("test.B")
+        assertEquals(listOf("test.A", "test.B"), recording.defined)
+
+        val handler = RecordingHandler()
+        val preloaded = ClassPreloadingUtils.preloadClasses(listOf(jar), 16, null, null, handler, listOf("test.A"))
+        assertEquals(listOf("META-INF/MANIFEST.MF", "test/A.class"), handler.instrumented)
+
+        val a = preloaded.loadClass("test.A")
+        val c = preloaded.loadClass("test.C")
+        assertSame(preloaded, a.classLoader)
+        assertSame(preloaded, c.classLoader)
+        assertEquals(listOf("test.A", "test.C"), handler.defined)
+        // classes missing from the list are read from the jar but still pass through the handler
+        assertEquals(listOf("META-INF/MANIFEST.MF", "test/A.class", "test/C.class"), handler.instrumented)
+
+        try {
+            preloaded.loadClass("test.D")
+            fail("test.D should not be found")
+        }
+        catch (e: ClassNotFoundException) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.storage;
+
+import kotlin.jvm.functions.Function0;
+import kotlin.jvm.functions.Function1;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentStorageManagerTest extends StorageManagerTest {
+    private static final int THREADS = 8;
+
+    @NotNull
+    @Override
+    protected StorageManager createStorageManager() {
+        return new ConcurrentStorageManager();
+    }
+
+    public void testLazyValueIsComputedOnce() throws Exception {
+        final AtomicInteger counter = new AtomicInteger();
+        final NotNullLazyValue<Object> value = new ConcurrentStorageManager().createLazyValue(new Function0<Object>() {
+            @Override
+            public Object invoke() {
+                counter.incrementAndGet();
+                return new Object();
+            }
+        });
+
+        Set<Object> results = new HashSet<Object>(runConcurrently(new Callable<Object>() {
+            @Override
+            public Object call() {
+                return value.invoke();
+            }
+        }));
+
+        assertEquals(1, results.size());
+        assertEquals(1, counter.get());
+        assertSame(value.invoke(), results.iterator().next());
+    }
+
+    public void testValueComputedOnAnotherThreadIsNotRecursion() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final NotNullLazyValue<String> value = new ConcurrentStorageManager().createLazyValue(new Function0<String>() {
+            @Override
+            public String invoke() {
+                started.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return "ok";
+            }
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return value.invoke();
+                }
+            });
+            started.await();
+            assertTrue(value.isComputing() || !value.isComputed());
+            release.countDown();
+            assertEquals("ok", value.invoke());
+            assertEquals("ok", first.get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testMemoizedFunctionIsComputedOnce() throws Exception {
+        final AtomicInteger counter = new AtomicInteger();
+        final MemoizedFunctionToNotNull<Integer, Object> f = new ConcurrentStorageManager().createMemoizedFunction(
+                new Function1<Integer, Object>() {
+                    @Override
+                    public Object invoke(Integer integer) {
+                        counter.incrementAndGet();
+                        return new Object();
+                    }
+                }
+        );
+
+        Set<Object> results = new HashSet<Object>(runConcurrently(new Callable<Object>() {
+            @Override
+            public Object call() {
+                return f.invoke(42);
+            }
+        }));
+
+        assertEquals(1, results.size());
+        assertEquals(1, counter.get());
+        assertTrue(f.isComputed(42));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testRecursionOnAnotherThreadIsNotVisible() throws Exception {
+        final CountDownLatch recursionDetected = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final NotNullLazyValue<String>[] value = new NotNullLazyValue[1];
+        value[0] = new ConcurrentStorageManager().createRecursionTolerantLazyValue(new Function0<String>() {
+            @Override
+            public String invoke() {
+                String recursive = value[0].invoke();
+                recursionDetected.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return "value after " + recursive;
+            }
+        }, "recursive");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return value[0].invoke();
+                }
+            });
+            recursionDetected.await();
+            Future<String> second = executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return value[0].invoke();
+                }
+            });
+            release.countDown();
+            assertEquals("value after recursive", first.get(10, TimeUnit.SECONDS));
+            assertEquals("value after recursive", second.get(10, TimeUnit.SECONDS));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testCycleBetweenThreadsIsRecursion() throws Exception {
+        ConcurrentStorageManager m = new ConcurrentStorageManager();
+        final CountDownLatch xStarted = new CountDownLatch(1);
+        final CountDownLatch yStarted = new CountDownLatch(1);
+        final NotNullLazyValue<String>[] values = new NotNullLazyValue[2];
+        values[0] = m.createRecursionTolerantLazyValue(new Function0<String>() {
+            @Override
+            public String invoke() {
+                awaitOther(xStarted, yStarted);
+                return "x(" + values[1].invoke() + ")";
+            }
+        }, "x");
+        values[1] = m.createRecursionTolerantLazyValue(new Function0<String>() {
+            @Override
+            public String invoke() {
+                awaitOther(yStarted, xStarted);
+                return "y(" + values[0].invoke() + ")";
+            }
+        }, "y");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> x = executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return values[0].invoke();
+                }
+            });
+            Future<String> y = executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return values[1].invoke();
+                }
+            });
+
+            // The thread which closes the cycle gets the value for a recursive call, as if both values were computed on it
+            String xValue = x.get(10, TimeUnit.SECONDS);
+            String yValue = y.get(10, TimeUnit.SECONDS);
+            assertTrue(xValue + ", " + yValue,
+                       (xValue.equals("x(y(x))") && yValue.equals("y(x)")) ||
+                       (xValue.equals("x(y)") && yValue.equals("y(x(y))")));
+            assertEquals(xValue, values[0].invoke());
+            assertEquals(yValue, values[1].invoke());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitOther(@NotNull CountDownLatch started, @NotNull CountDownLatch other) {
+        started.countDown();
+        try {
+            other.await();
+        }
+        catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @NotNull
+    private static <T> List<T> runConcurrently(@NotNull final Callable<T> task) throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<T>> futures = new ArrayList<Future<T>>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(new Callable<T>() {
+                    @Override
+                    public T call() throws Exception {
+                        barrier.await();
+                        return task.call();
+                    }
+                }));
+            }
+
+            List<T> results = new ArrayList<T>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+}
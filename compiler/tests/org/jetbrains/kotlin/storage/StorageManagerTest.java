@@ -36,7 +36,12 @@ public class StorageManagerTest extends TestCase {
     @Override
     public void setUp() throws Exception {
         super.setUp();
-        m = new LockBasedStorageManager();
+        m = createStorageManager();
+    }
+
+    @NotNull
+    protected StorageManager createStorageManager() {
+        return new LockBasedStorageManager();
     }
 
     public static <T> void doTestComputesOnce(Function0<T> v, T expected, Counter counter) throws Exception {
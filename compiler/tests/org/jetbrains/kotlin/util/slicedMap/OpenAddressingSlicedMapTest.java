@@ -0,0 +1,131 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.util.slicedMap;
+
+import junit.framework.TestCase;
+import kotlin.jvm.functions.Function3;
+
+import java.util.*;
+
+public class OpenAddressingSlicedMapTest extends TestCase {
+    private static final WritableSlice<Object, Integer> FIRST = Slices.<Object, Integer>sliceBuilder().setDebugName("FIRST").build();
+    private static final WritableSlice<Object, Integer> SECOND = Slices.<Object, Integer>sliceBuilder().setDebugName("SECOND").build();
+    private static final WritableSlice<Object, Integer> COLLECTIVE = new BasicWritableSlice<Object, Integer>(RewritePolicy.DO_NOTHING, true);
+    private static final WritableSlice<Object, Boolean> SET = Slices.createSimpleSetSlice();
+    // Accepts null values, which are put to binding traces when assertions are disabled
+    private static final WritableSlice<Object, Integer> NULLABLE = new BasicWritableSlice<Object, Integer>(RewritePolicy.DO_NOTHING) {
+        @Override
+        public boolean check(Object key, Integer value) {
+            return true;
+        }
+    };
+
+    public void testGetAndPut() {
+        OpenAddressingSlicedMap map = OpenAddressingSlicedMap.create();
+        assertNull(map.get(FIRST, "a"));
+
+        map.put(FIRST, "a", 1);
+        map.put(SECOND, "a", 2);
+
+        assertEquals(1, (int) map.get(FIRST, "a"));
+        assertEquals(2, (int) map.get(SECOND, "a"));
+        assertNull(map.get(FIRST, "b"));
+    }
+
+    public void testNullKey() {
+        OpenAddressingSlicedMap map = OpenAddressingSlicedMap.create();
+        map.put(FIRST, null, 1);
+
+        assertEquals(1, (int) map.get(FIRST, null));
+        assertEquals(Collections.<Object, Integer>singletonMap(null, 1).keySet(), collectEntries(map).get(FIRST).keySet());
+    }
+
+    public void testNullValuesAreSkipped() {
+        OpenAddressingSlicedMap map = OpenAddressingSlicedMap.create();
+        map.put(NULLABLE, "a", null);
+        map.put(NULLABLE, "b", 1);
+        map.put(NULLABLE, null, 2);
+
+        assertEquals(Collections.<Object, Integer>singletonMap("b", 1), map.getSliceContents(NULLABLE));
+
+        Map<Object, Object> expected = new HashMap<Object, Object>();
+        expected.put("b", 1);
+        expected.put(null, 2);
+        assertEquals(expected, collectEntries(map).get(NULLABLE));
+    }
+
+    public void testSetSliceDefault() {
+        OpenAddressingSlicedMap map = OpenAddressingSlicedMap.create();
+        assertFalse(map.get(SET, "a"));
+
+        map.put(SET, "a", true);
+        assertTrue(map.get(SET, "a"));
+    }
+
+    public void testCollectiveKeys() {
+        OpenAddressingSlicedMap map = OpenAddressingSlicedMap.create();
+        map.put(COLLECTIVE, "b", 1);
+        map.put(COLLECTIVE, "a", 2);
+
+        assertEquals(Arrays.<Object>asList("b", "a"), new ArrayList<Object>(map.getKeys(COLLECTIVE)));
+
+        map.clear();
+        assertTrue(map.getKeys(COLLECTIVE).isEmpty());
+        assertNull(map.get(COLLECTIVE, "a"));
+    }
+
+    public void testSameContentsAsSlicedMapImpl() {
+        Random random = new Random(42);
+        OpenAddressingSlicedMap map = OpenAddressingSlicedMap.create();
+        SlicedMapImpl expected = SlicedMapImpl.create();
+
+        for (int i = 0; i < 10000; i++) {
+            WritableSlice<Object, Integer> slice = random.nextBoolean() ? FIRST : SECOND;
+            Integer key = random.nextInt(2000);
+            // Only equal values can be rewritten in these slices
+            Integer value = key * 31 + (slice == FIRST ? 1 : 2);
+
+            map.put(slice, key, value);
+            expected.put(slice, key, value);
+        }
+
+        for (int key = 0; key < 2000; key++) {
+            assertEquals(expected.get(FIRST, key), map.get(FIRST, key));
+            assertEquals(expected.get(SECOND, key), map.get(SECOND, key));
+        }
+
+        assertEquals(collectEntries(expected), collectEntries(map));
+        assertEquals(expected.getSliceContents(FIRST), map.getSliceContents(FIRST));
+    }
+
+    private static Map<WritableSlice, Map<Object, Object>> collectEntries(SlicedMap map) {
+        final Map<WritableSlice, Map<Object, Object>> result = new HashMap<WritableSlice, Map<Object, Object>>();
+        map.forEach(new Function3<WritableSlice, Object, Object, Void>() {
+            @Override
+            public Void invoke(WritableSlice slice, Object key, Object value) {
+                Map<Object, Object> sliceEntries = result.get(slice);
+                if (sliceEntries == null) {
+                    sliceEntries = new HashMap<Object, Object>();
+                    result.put(slice, sliceEntries);
+                }
+                sliceEntries.put(key, value);
+                return null;
+            }
+        });
+        return result;
+    }
+}
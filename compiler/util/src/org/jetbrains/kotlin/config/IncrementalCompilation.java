@@ -21,6 +21,7 @@ import org.jetbrains.annotations.TestOnly;
 public class IncrementalCompilation {
     private static final String INCREMENTAL_COMPILATION_PROPERTY = "kotlin.incremental.compilation";
     private static final String IS_EXPERIMENTAL_PROPERTY = "kotlin.incremental.compilation.experimental";
+    private static final String MAPPED_STORAGE_PROPERTY = "kotlin.incremental.storage.mapped";
 
     public static boolean isExperimental() {
         return isEnabled() && "true".equals(System.getProperty(IS_EXPERIMENTAL_PROPERTY));
@@ -30,6 +31,14 @@ public class IncrementalCompilation {
         return !"false".equals(System.getProperty(INCREMENTAL_COMPILATION_PROPERTY));
     }
 
+    /**
+     * Incremental caches are stored in memory-mapped append-only files instead of PersistentHashMap.
+     * Caches are rebuilt when the value changes, see CacheVersion.
+     */
+    public static boolean isMappedStorageEnabled() {
+        return "true".equals(System.getProperty(MAPPED_STORAGE_PROPERTY));
+    }
+
     @TestOnly
     public static void setIsEnabled(boolean value) {
         System.setProperty(INCREMENTAL_COMPILATION_PROPERTY, String.valueOf(value));
@@ -39,4 +48,9 @@ public class IncrementalCompilation {
     public static void setIsExperimental(boolean value) {
         System.setProperty(IS_EXPERIMENTAL_PROPERTY, String.valueOf(value));
     }
+
+    @TestOnly
+    public static void setIsMappedStorageEnabled(boolean value) {
+        System.setProperty(MAPPED_STORAGE_PROPERTY, String.valueOf(value));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.load.kotlin
+
+/**
+ * A binary class whose parsed metadata may be shared between several [DeserializedDescriptorResolver]s,
+ * e.g. between compilations against the same library jar in the compile daemon
+ */
+interface SharedMetadataKotlinJvmBinaryClass : KotlinJvmBinaryClass {
+    /**
+     * Returns the result of the previous [parse] call made for this class (possibly through another instance), or calls it.
+     * [parse] must be side-effect free since it may be called concurrently
+     */
+    fun <T : Any> getOrParseMetadata(parse: () -> T): T
+}
@@ -20,6 +20,7 @@
 package kotlin.reflect.full
 
 import org.jetbrains.kotlin.descriptors.ConstructorDescriptor
+import org.jetbrains.kotlin.name.Name
 import org.jetbrains.kotlin.types.TypeSubstitutor
 import org.jetbrains.kotlin.types.Variance
 import org.jetbrains.kotlin.utils.DFS
@@ -169,6 +170,25 @@ val <T : Any> KClass<T>.declaredMemberProperties: Collection<KProperty1<T, *>>
 val <T : Any> KClass<T>.declaredMemberExtensionProperties: Collection<KProperty2<T, *, *>>
     get() = (this as KClassImpl<T>).data().declaredNonStaticMembers.filter { it.isExtension && it is KProperty2<*, *, *> } as Collection<KProperty2<T, *, *>>
 
+/**
+ * Returns a non-extension property with the given name declared in this class or one of its superclasses,
+ * or `null` if there's no such property.
+ * Unlike looking for the property in [memberProperties], this only loads the members with the given name.
+ */
+@SinceKotlin("1.2")
+fun <T : Any> KClass<T>.findMemberProperty(name: String): KProperty1<T, *>? =
+        (this as KClassImpl<T>).getNonStaticMembers(Name.identifier(name))
+                .firstOrNull { it.isNotExtension && it is KProperty1<*, *> } as KProperty1<T, *>?
+
+/**
+ * Returns non-extension non-static functions with the given name declared in this class and all of its superclasses.
+ * Unlike filtering [memberFunctions] by name, this only loads the members with the given name.
+ */
+@SinceKotlin("1.2")
+fun KClass<*>.findMemberFunctions(name: String): Collection<KFunction<*>> =
+        (this as KClassImpl).getNonStaticMembers(Name.identifier(name))
+                .filter { it.isNotExtension && it is KFunction<*> } as Collection<KFunction<*>>
+
 
 private val KCallableImpl<*>.isExtension: Boolean
     get() = descriptor.extensionReceiverParameter != null
@@ -63,7 +63,7 @@ internal abstract class FunctionCaller<out M : Member?>(
     ) {
         override fun call(args: Array<*>): Any? {
             checkArguments(args)
-            return member.newInstance(*args)
+            return ReflectionCalls.newInstance(member, args)
         }
     }
 
@@ -76,7 +76,7 @@ internal abstract class FunctionCaller<out M : Member?>(
             ) {
         override fun call(args: Array<*>): Any? {
             checkArguments(args)
-            return member.newInstance(*argsWithReceiver(boundReceiver, args))
+            return ReflectionCalls.newInstance(member, argsWithReceiver(boundReceiver, args))
         }
     }
 
@@ -95,7 +95,7 @@ internal abstract class FunctionCaller<out M : Member?>(
         private val isVoidMethod = returnType == Void.TYPE
 
         protected fun callMethod(instance: Any?, args: Array<*>): Any? {
-            val result = member.invoke(instance, *args)
+            val result = ReflectionCalls.invoke(member, instance, args)
 
             // If this is a Unit function, the method returns void, Method#invoke returns null, while we should return Unit
             return if (isVoidMethod) Unit else result
@@ -281,8 +281,10 @@ internal abstract class FunctionCaller<out M : Member?>(
         inline fun <reified T> Array<out T>.dropFirst(): Array<T> =
                 if (size <= 1) emptyArray<T>() else copyOfRange(1, size) as Array<T>
 
+        // Arguments of a call are never modified, so there's no need to allocate an empty array for a call without arguments,
+        // e.g. of a property getter
         @Suppress("UNCHECKED_CAST")
         fun Array<*>.dropFirstArg(): Array<Any?> =
-                (this as Array<Any?>).dropFirst()
+                if (size <= 1) ReflectionCalls.NO_ARGUMENTS else (this as Array<Any?>).copyOfRange(1, size)
     }
 }
@@ -114,24 +114,28 @@ internal abstract class KCallableImpl<out R> : KCallable<R> {
     // See ArgumentGenerator#generate
     private fun callDefaultMethod(args: Map<KParameter, Any?>): R {
         val parameters = parameters
-        val arguments = ArrayList<Any?>(parameters.size)
-        var mask = 0
-        val masks = ArrayList<Int>(1)
-        var index = 0
-
+        var valueParameterCount = 0
         for (parameter in parameters) {
-            if (index != 0 && index % Integer.SIZE == 0) {
-                masks.add(mask)
-                mask = 0
-            }
+            if (parameter.kind == KParameter.Kind.VALUE) valueParameterCount++
+        }
+
+        // Arguments of the $default method: the parameters, the masks and DefaultConstructorMarker or MethodHandle (null)
+        val maskCount = (valueParameterCount + Integer.SIZE - 1) / Integer.SIZE
+        val arguments = arrayOfNulls<Any?>(parameters.size + maskCount + 1)
+        val masks = IntArray(maskCount)
+        var hasDefaultArguments = false
+        var index = 0
 
+        for (i in parameters.indices) {
+            val parameter = parameters[i]
             when {
                 args.containsKey(parameter) -> {
-                    arguments.add(args[parameter])
+                    arguments[i] = args[parameter]
                 }
                 parameter.isOptional -> {
-                    arguments.add(defaultPrimitiveValue(parameter.type.javaType))
-                    mask = mask or (1 shl (index % Integer.SIZE))
+                    arguments[i] = defaultPrimitiveValue(parameter.type.javaType)
+                    masks[index / Integer.SIZE] = masks[index / Integer.SIZE] or (1 shl (index % Integer.SIZE))
+                    hasDefaultArguments = true
                 }
                 else -> {
                     throw IllegalArgumentException("No argument provided for a required parameter: $parameter")
@@ -143,22 +147,22 @@ internal abstract class KCallableImpl<out R> : KCallable<R> {
             }
         }
 
-        if (mask == 0 && masks.isEmpty()) {
-            return call(*arguments.toTypedArray())
+        if (!hasDefaultArguments) {
+            @Suppress("UNCHECKED_CAST")
+            return reflectionCall {
+                caller.call(arguments.copyOf(parameters.size)) as R
+            }
         }
 
-        masks.add(mask)
-
         val caller = defaultCaller ?: throw KotlinReflectionInternalError("This callable does not support a default call: $descriptor")
 
-        arguments.addAll(masks)
-
-        // DefaultConstructorMarker or MethodHandle
-        arguments.add(null)
+        for (i in 0..maskCount - 1) {
+            arguments[parameters.size + i] = masks[i]
+        }
 
         @Suppress("UNCHECKED_CAST")
         return reflectionCall {
-            caller.call(arguments.toTypedArray()) as R
+            caller.call(arguments) as R
         }
     }
 
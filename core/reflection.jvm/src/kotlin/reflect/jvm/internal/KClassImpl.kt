@@ -185,6 +185,12 @@ internal class KClassImpl<T : Any>(override val jClass: Class<T>) : KDeclaration
             memberScope.getContributedFunctions(name, NoLookupLocation.FROM_REFLECTION) +
             staticScope.getContributedFunctions(name, NoLookupLocation.FROM_REFLECTION)
 
+    // Unlike the members in Data, only the members with the given name are loaded: member scopes of classes
+    // find the members by name without deserializing or loading the rest of them
+    internal fun getNonStaticMembers(name: Name): List<KCallableImpl<*>> =
+            (memberScope.getContributedVariables(name, NoLookupLocation.FROM_REFLECTION) +
+             memberScope.getContributedFunctions(name, NoLookupLocation.FROM_REFLECTION)).mapNotNull { createMember(it) }
+
     override val simpleName: String? get() = data().simpleName
 
     override val qualifiedName: String? get() = data().qualifiedName
@@ -46,27 +46,26 @@ internal abstract class KDeclarationContainerImpl : ClassBasedDeclarationContain
 
     abstract fun getFunctions(name: Name): Collection<FunctionDescriptor>
 
-    protected fun getMembers(scope: MemberScope, belonginess: MemberBelonginess): Collection<KCallableImpl<*>> {
-        val visitor = object : DeclarationDescriptorVisitorEmptyBodies<KCallableImpl<*>, Unit>() {
-            override fun visitPropertyDescriptor(descriptor: PropertyDescriptor, data: Unit): KCallableImpl<*> =
-                    createProperty(descriptor)
+    private val memberFactory = object : DeclarationDescriptorVisitorEmptyBodies<KCallableImpl<*>, Unit>() {
+        override fun visitPropertyDescriptor(descriptor: PropertyDescriptor, data: Unit): KCallableImpl<*> =
+                createProperty(descriptor)
 
-            override fun visitFunctionDescriptor(descriptor: FunctionDescriptor, data: Unit): KCallableImpl<*> =
-                    KFunctionImpl(this@KDeclarationContainerImpl, descriptor)
+        override fun visitFunctionDescriptor(descriptor: FunctionDescriptor, data: Unit): KCallableImpl<*> =
+                KFunctionImpl(this@KDeclarationContainerImpl, descriptor)
 
-            override fun visitConstructorDescriptor(descriptor: ConstructorDescriptor, data: Unit): KCallableImpl<*> =
-                    throw IllegalStateException("No constructors should appear in this scope: $descriptor")
-        }
+        override fun visitConstructorDescriptor(descriptor: ConstructorDescriptor, data: Unit): KCallableImpl<*> =
+                throw IllegalStateException("No constructors should appear in this scope: $descriptor")
+    }
 
+    protected fun getMembers(scope: MemberScope, belonginess: MemberBelonginess): Collection<KCallableImpl<*>> {
         return scope.getContributedDescriptors().mapNotNull { descriptor ->
-            if (descriptor is CallableMemberDescriptor &&
-                descriptor.visibility != Visibilities.INVISIBLE_FAKE &&
-                belonginess.accept(descriptor))
-                descriptor.accept(visitor, Unit)
-            else null
+            if (descriptor is CallableMemberDescriptor && belonginess.accept(descriptor)) createMember(descriptor) else null
         }.toList()
     }
 
+    protected fun createMember(descriptor: CallableMemberDescriptor): KCallableImpl<*>? =
+            if (descriptor.visibility != Visibilities.INVISIBLE_FAKE) descriptor.accept(memberFactory, Unit) else null
+
     protected enum class MemberBelonginess {
         DECLARED,
         INHERITED;
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package kotlin.reflect.jvm.internal;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+// Arrays passed to a vararg parameter with the spread operator are copied in Kotlin,
+// these methods pass arguments of reflection calls to the JVM as is
+final class ReflectionCalls {
+    static final Object[] NO_ARGUMENTS = new Object[0];
+
+    private ReflectionCalls() {}
+
+    static Object invoke(Method method, Object instance, Object[] args) throws IllegalAccessException, InvocationTargetException {
+        return method.invoke(instance, args);
+    }
+
+    static Object newInstance(Constructor<?> constructor, Object[] args)
+            throws IllegalAccessException, InvocationTargetException, InstantiationException {
+        return constructor.newInstance(args);
+    }
+}
@@ -16,21 +16,25 @@
 
 package kotlin.reflect.jvm.internal
 
+import java.lang.ref.ReferenceQueue
 import java.lang.ref.WeakReference
-import kotlin.reflect.jvm.internal.pcollections.HashPMap
+import java.util.concurrent.ConcurrentHashMap
 
-// TODO: collect nulls periodically
-// Key of the map is Class.getName(), each value is either a WeakReference<KClassImpl<*>> or an Array<WeakReference<KClassImpl<*>>>.
+// Key of the map is Class.getName(), each value is either a KClassReference or an Array<KClassReference>.
 // Arrays are needed because the same class can be loaded by different class loaders, which results in different Class instances.
-// This variable is not volatile intentionally: we don't care if there's a data race on it and some KClass instances will be lost.
-// We do care however about general performance on read access to it, thus no synchronization is done here whatsoever
-private var K_CLASS_CACHE = HashPMap.empty<String, Any>()
+// Reads don't lock, the map is only updated when a KClass is created, with compare-and-set operations. References to collected
+// KClass instances are removed from the map before a new KClass is created, see removeClearedReferences
+private val K_CLASS_CACHE = ConcurrentHashMap<String, Any>()
+
+private val CLEARED_REFERENCES = ReferenceQueue<KClassImpl<*>>()
+
+private class KClassReference(kClass: KClassImpl<*>, val name: String) : WeakReference<KClassImpl<*>>(kClass, CLEARED_REFERENCES)
 
 // This function is invoked on each reflection access to Java classes, properties, etc. Performance is critical here.
 internal fun <T : Any> getOrCreateKotlinClass(jClass: Class<T>): KClassImpl<T> {
     val name = jClass.name
     val cached = K_CLASS_CACHE[name]
-    if (cached is WeakReference<*>) {
+    if (cached is KClassReference) {
         @Suppress("UNCHECKED_CAST")
         val kClass = cached.get() as KClassImpl<T>?
         if (kClass?.jClass == jClass) {
@@ -40,31 +44,82 @@ internal fun <T : Any> getOrCreateKotlinClass(jClass: Class<T>): KClassImpl<T> {
     else if (cached != null) {
         // If the cached value is not a weak reference, it's an array of weak references
         @Suppress("UNCHECKED_CAST")
-        (cached as Array<WeakReference<KClassImpl<T>>>)
+        (cached as Array<KClassReference>)
         for (ref in cached) {
-            val kClass = ref.get()
+            @Suppress("UNCHECKED_CAST")
+            val kClass = ref.get() as KClassImpl<T>?
+            if (kClass?.jClass == jClass) {
+                return kClass
+            }
+        }
+    }
+
+    return createKotlinClass(jClass, name)
+}
+
+private fun <T : Any> createKotlinClass(jClass: Class<T>, name: String): KClassImpl<T> {
+    removeClearedReferences()
+
+    val newKClass = KClassImpl(jClass)
+    val newRef = KClassReference(newKClass, name)
+    while (true) {
+        val cached = K_CLASS_CACHE.putIfAbsent(name, newRef) ?: return newKClass
+
+        // Another thread may have cached the same class, or this class is loaded by several class loaders
+        @Suppress("UNCHECKED_CAST")
+        val refs = if (cached is KClassReference) arrayOf(cached) else cached as Array<KClassReference>
+        for (ref in refs) {
+            @Suppress("UNCHECKED_CAST")
+            val kClass = ref.get() as KClassImpl<T>?
             if (kClass?.jClass == jClass) {
                 return kClass
             }
         }
 
-        // This is the most unlikely case: we found a cached array of references of length at least 2 (can't be 1 because
-        // the single element would be cached instead), and none of those classes is the one we're looking for
-        val size = cached.size
-        val newArray = arrayOfNulls<WeakReference<KClassImpl<*>>>(size + 1)
+        val size = refs.size
+        val newArray = arrayOfNulls<KClassReference>(size + 1)
         // Don't use Arrays.copyOf because it works reflectively
-        System.arraycopy(cached, 0, newArray, 0, size)
-        val newKClass = KClassImpl(jClass)
-        newArray[size] = WeakReference(newKClass)
-        K_CLASS_CACHE = K_CLASS_CACHE.plus(name, newArray)
-        return newKClass
+        System.arraycopy(refs, 0, newArray, 0, size)
+        newArray[size] = newRef
+        if (K_CLASS_CACHE.replace(name, cached, newArray)) return newKClass
     }
+}
 
-    val newKClass = KClassImpl(jClass)
-    K_CLASS_CACHE = K_CLASS_CACHE.plus(name, WeakReference(newKClass))
-    return newKClass
+private fun removeClearedReferences() {
+    while (true) {
+        val ref = CLEARED_REFERENCES.poll() as KClassReference? ?: return
+        removeReference(ref)
+    }
+}
+
+private fun removeReference(ref: KClassReference) {
+    while (true) {
+        val cached = K_CLASS_CACHE[ref.name] ?: return
+        if (cached === ref) {
+            if (K_CLASS_CACHE.remove(ref.name, cached)) return
+            continue
+        }
+        if (cached is KClassReference) return
+
+        @Suppress("UNCHECKED_CAST")
+        (cached as Array<KClassReference>)
+        val index = cached.indexOf(ref)
+        if (index < 0) return
+
+        val newValue: Any
+        if (cached.size == 2) {
+            newValue = cached[1 - index]
+        }
+        else {
+            val newArray = arrayOfNulls<KClassReference>(cached.size - 1)
+            System.arraycopy(cached, 0, newArray, 0, index)
+            System.arraycopy(cached, index + 1, newArray, index, cached.size - index - 1)
+            newValue = newArray
+        }
+        if (K_CLASS_CACHE.replace(ref.name, cached, newValue)) return
+    }
 }
 
 internal fun clearKClassCache() {
-    K_CLASS_CACHE = HashPMap.empty()
+    K_CLASS_CACHE.clear()
 }
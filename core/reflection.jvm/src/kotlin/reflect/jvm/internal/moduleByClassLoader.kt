@@ -18,12 +18,18 @@ package kotlin.reflect.jvm.internal
 
 import org.jetbrains.kotlin.load.java.structure.reflect.safeClassLoader
 import org.jetbrains.kotlin.load.kotlin.reflect.RuntimeModuleData
+import java.lang.ref.ReferenceQueue
 import java.lang.ref.WeakReference
 import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.ConcurrentMap
 
-// TODO: collect nulls periodically
-private val moduleByClassLoader: ConcurrentMap<WeakClassLoaderBox, WeakReference<RuntimeModuleData>> = ConcurrentHashMap()
+// Entries of collected modules are removed before a new module is created, see removeClearedReferences
+private val moduleByClassLoader: ConcurrentMap<WeakClassLoaderBox, ModuleReference> = ConcurrentHashMap()
+
+private val clearedReferences = ReferenceQueue<RuntimeModuleData>()
+
+private class ModuleReference(module: RuntimeModuleData, val key: WeakClassLoaderBox) :
+        WeakReference<RuntimeModuleData>(module, clearedReferences)
 
 private class WeakClassLoaderBox(classLoader: ClassLoader) {
     val ref: WeakReference<ClassLoader> = WeakReference(classLoader)
@@ -55,10 +61,12 @@ internal fun Class<*>.getOrCreateModule(): RuntimeModuleData {
         moduleByClassLoader.remove(key, cached)
     }
 
+    removeClearedReferences()
+
     val module = RuntimeModuleData.create(classLoader)
     try {
         while (true) {
-            val ref = moduleByClassLoader.putIfAbsent(key, WeakReference(module))
+            val ref = moduleByClassLoader.putIfAbsent(key, ModuleReference(module, key))
             if (ref == null) return module
 
             val result = ref.get()
@@ -71,6 +79,13 @@ internal fun Class<*>.getOrCreateModule(): RuntimeModuleData {
     }
 }
 
+private fun removeClearedReferences() {
+    while (true) {
+        val ref = clearedReferences.poll() as ModuleReference? ?: return
+        moduleByClassLoader.remove(ref.key, ref)
+    }
+}
+
 internal fun clearModuleByClassLoaderCache() {
     moduleByClassLoader.clear()
 }
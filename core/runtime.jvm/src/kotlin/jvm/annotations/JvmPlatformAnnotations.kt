@@ -123,3 +123,19 @@ public annotation class JvmSuppressWildcards(val suppress: Boolean = true)
 @Retention(AnnotationRetention.BINARY)
 @MustBeDocumented
 public annotation class JvmWildcard
+
+/**
+ * Marks a class wrapping a single value of a primitive type, such as `class UserId(val raw: Long)`, to allow the compiler
+ * to avoid creating its instances in the code where they don't escape a function, e.g. if an instance is only created to be passed
+ * to an inline function, which reads the wrapped value.
+ *
+ * The class must be final and have a primary constructor with a single `val` parameter of a primitive type,
+ * and no superclass, initializer blocks or other properties with backing fields.
+ *
+ * This annotation is experimental, its behavior may be changed in future releases.
+ */
+@Target(AnnotationTarget.CLASS)
+@Retention(AnnotationRetention.BINARY)
+@MustBeDocumented
+@SinceKotlin("1.2")
+public annotation class JvmValueWrapper
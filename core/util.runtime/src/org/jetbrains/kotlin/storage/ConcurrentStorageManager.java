@@ -0,0 +1,539 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.storage;
+
+import kotlin.Unit;
+import kotlin.jvm.functions.Function0;
+import kotlin.jvm.functions.Function1;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.kotlin.utils.WrappedValues;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A storage manager which doesn't have a global lock: each lazy value and each input of a memoized function is a cell,
+ * which is locked only by the thread computing it.
+ *
+ * Other threads requesting a value which is being computed wait for the result, so every value is computed once,
+ * as in {@link LockBasedStorageManager}. Post-computation is performed by the computing thread before the result is published,
+ * so other threads never see a value that is not post-computed.
+ *
+ * Recursion is detected on the thread which computes a value, and is handled exactly as in {@link LockBasedStorageManager}.
+ * A value which is being computed by another thread is never reported as recursive, unless that thread is itself waiting,
+ * directly or through other threads, for a value which is being computed by the current thread. Such a cycle is the same
+ * dependency cycle which would be a recursive call on a single thread, so the thread closing it handles it as a recursive call
+ * instead of waiting forever.
+ */
+public class ConcurrentStorageManager implements StorageManager {
+    @NotNull
+    public static ConcurrentStorageManager createWithExceptionHandling(
+            @NotNull LockBasedStorageManager.ExceptionHandlingStrategy exceptionHandlingStrategy
+    ) {
+        return new ConcurrentStorageManager(exceptionHandlingStrategy);
+    }
+
+    // Computations which threads are waiting for, cells of different storage managers may depend on each other
+    private static final Map<Thread, Computation> WAITING_THREADS = new HashMap<Thread, Computation>();
+
+    private final LockBasedStorageManager.ExceptionHandlingStrategy exceptionHandlingStrategy;
+
+    public ConcurrentStorageManager() {
+        this(LockBasedStorageManager.ExceptionHandlingStrategy.THROW);
+    }
+
+    protected ConcurrentStorageManager(@NotNull LockBasedStorageManager.ExceptionHandlingStrategy exceptionHandlingStrategy) {
+        this.exceptionHandlingStrategy = exceptionHandlingStrategy;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "@" + Integer.toHexString(hashCode());
+    }
+
+    @NotNull
+    @Override
+    public <K, V> MemoizedFunctionToNotNull<K, V> createMemoizedFunction(@NotNull Function1<? super K, ? extends V> compute) {
+        return createMemoizedFunction(compute, ConcurrentStorageManager.<K>createConcurrentHashMap());
+    }
+
+    @NotNull
+    @Override
+    public <K, V> MemoizedFunctionToNotNull<K, V> createMemoizedFunction(
+            @NotNull Function1<? super K, ? extends V> compute,
+            @NotNull ConcurrentMap<K, Object> map
+    ) {
+        return new MapBasedMemoizedFunctionToNotNull<K, V>(this, map, compute);
+    }
+
+    @NotNull
+    @Override
+    public <K, V> MemoizedFunctionToNullable<K, V> createMemoizedFunctionWithNullableValues(@NotNull Function1<? super K, ? extends V> compute) {
+        return createMemoizedFunctionWithNullableValues(compute, ConcurrentStorageManager.<K>createConcurrentHashMap());
+    }
+
+    @NotNull
+    @Override
+    public <K, V> MemoizedFunctionToNullable<K, V> createMemoizedFunctionWithNullableValues(
+            @NotNull Function1<? super K, ? extends V> compute,
+            @NotNull ConcurrentMap<K, Object> map
+    ) {
+        return new MapBasedMemoizedFunction<K, V>(this, map, compute);
+    }
+
+    @NotNull
+    @Override
+    public <K, V> CacheWithNullableValues<K, V> createCacheWithNullableValues() {
+        return new CacheWithNullableValuesBasedOnMemoizedFunction<K, V>(
+                this, ConcurrentStorageManager.<KeyWithComputation<K, V>>createConcurrentHashMap());
+    }
+
+    @NotNull
+    @Override
+    public <K, V> CacheWithNotNullValues<K, V> createCacheWithNotNullValues() {
+        return new CacheWithNotNullValuesBasedOnMemoizedFunction<K, V>(
+                this, ConcurrentStorageManager.<KeyWithComputation<K, V>>createConcurrentHashMap());
+    }
+
+    @NotNull
+    @Override
+    public <T> NotNullLazyValue<T> createLazyValue(@NotNull Function0<? extends T> computable) {
+        return new ConcurrentNotNullLazyValue<T>(this, computable);
+    }
+
+    @NotNull
+    @Override
+    public <T> NotNullLazyValue<T> createRecursionTolerantLazyValue(
+            @NotNull Function0<? extends T> computable, @NotNull final T onRecursiveCall
+    ) {
+        return new ConcurrentNotNullLazyValue<T>(this, computable) {
+            @Override
+            protected T recursionDetected(boolean firstTime) {
+                return onRecursiveCall;
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public <T> NotNullLazyValue<T> createLazyValueWithPostCompute(
+            @NotNull Function0<? extends T> computable,
+            final Function1<? super Boolean, ? extends T> onRecursiveCall,
+            @NotNull final Function1<? super T, Unit> postCompute
+    ) {
+        return new ConcurrentNotNullLazyValue<T>(this, computable) {
+            @Override
+            protected T recursionDetected(boolean firstTime) {
+                if (onRecursiveCall == null) {
+                    return super.recursionDetected(firstTime);
+                }
+                return onRecursiveCall.invoke(firstTime);
+            }
+
+            @Override
+            protected void postCompute(@NotNull T value) {
+                postCompute.invoke(value);
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public <T> NullableLazyValue<T> createNullableLazyValue(@NotNull Function0<? extends T> computable) {
+        return new ConcurrentLazyValue<T>(this, computable);
+    }
+
+    @NotNull
+    @Override
+    public <T> NullableLazyValue<T> createRecursionTolerantNullableLazyValue(
+            @NotNull Function0<? extends T> computable, final T onRecursiveCall
+    ) {
+        return new ConcurrentLazyValue<T>(this, computable) {
+            @Override
+            protected T recursionDetected(boolean firstTime) {
+                return onRecursiveCall;
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public <T> NullableLazyValue<T> createNullableLazyValueWithPostCompute(
+            @NotNull Function0<? extends T> computable, @NotNull final Function1<? super T, Unit> postCompute
+    ) {
+        return new ConcurrentLazyValue<T>(this, computable) {
+            @Override
+            protected void postCompute(@Nullable T value) {
+                postCompute.invoke(value);
+            }
+        };
+    }
+
+    @Override
+    public <T> T compute(@NotNull Function0<? extends T> computable) {
+        try {
+            return computable.invoke();
+        }
+        catch (Throwable throwable) {
+            throw exceptionHandlingStrategy.handleException(throwable);
+        }
+    }
+
+    @NotNull
+    private static <K> ConcurrentMap<K, Object> createConcurrentHashMap() {
+        // memory optimization: fewer segments and entries stored
+        return new ConcurrentHashMap<K, Object>(3, 1, 2);
+    }
+
+    private enum NotValue {
+        NOT_COMPUTED,
+        RECURSION_WAS_DETECTED
+    }
+
+    // A computation in progress, it's stored in the cell instead of the value until the computation is finished
+    private static class Computation {
+        private final Thread owner = Thread.currentThread();
+        // The computed value is visible to the computing thread during post-computation, before it's published to other threads
+        private Object computedValue = NotValue.NOT_COMPUTED;
+        private volatile boolean recursionDetected = false;
+        // Guarded by this
+        private boolean finished = false;
+
+        private boolean isOwnedByCurrentThread() {
+            return owner == Thread.currentThread();
+        }
+
+        private synchronized void finish() {
+            finished = true;
+            notifyAll();
+        }
+
+        /**
+         * Waits until the owner thread finishes the computation
+         * @return {@code false} if the owner thread is waiting for the current thread, so the computation would never finish
+         */
+        private boolean await() {
+            Thread current = Thread.currentThread();
+            synchronized (WAITING_THREADS) {
+                for (Computation computation = this; computation != null; computation = WAITING_THREADS.get(computation.owner)) {
+                    if (computation.owner == current) return false;
+                }
+                WAITING_THREADS.put(current, this);
+            }
+
+            boolean interrupted = false;
+            try {
+                synchronized (this) {
+                    while (!finished) {
+                        try {
+                            wait();
+                        }
+                        catch (InterruptedException e) {
+                            // The computation can't be abandoned by its owner, so the waiting is completed anyway
+                            interrupted = true;
+                        }
+                    }
+                }
+            }
+            finally {
+                synchronized (WAITING_THREADS) {
+                    WAITING_THREADS.remove(current);
+                }
+                if (interrupted) {
+                    current.interrupt();
+                }
+            }
+            return true;
+        }
+    }
+
+    // Being static is memory optimization to prevent capturing outer-class reference at each level of inheritance hierarchy
+    private static class ConcurrentLazyValue<T> implements NullableLazyValue<T> {
+        private static final AtomicReferenceFieldUpdater<ConcurrentLazyValue, Object> VALUE_UPDATER =
+                AtomicReferenceFieldUpdater.newUpdater(ConcurrentLazyValue.class, Object.class, "value");
+
+        private final ConcurrentStorageManager storageManager;
+        private final Function0<? extends T> computable;
+
+        @Nullable
+        private volatile Object value = NotValue.NOT_COMPUTED;
+
+        public ConcurrentLazyValue(@NotNull ConcurrentStorageManager storageManager, @NotNull Function0<? extends T> computable) {
+            this.storageManager = storageManager;
+            this.computable = computable;
+        }
+
+        @Override
+        public boolean isComputed() {
+            Object _value = value;
+            return !(_value instanceof NotValue) && !(_value instanceof Computation);
+        }
+
+        @Override
+        public boolean isComputing() {
+            return value instanceof Computation;
+        }
+
+        @Override
+        public T invoke() {
+            while (true) {
+                Object _value = value;
+                if (_value instanceof Computation) {
+                    Computation computation = (Computation) _value;
+                    if (computation.isOwnedByCurrentThread()) {
+                        if (computation.computedValue != NotValue.NOT_COMPUTED) {
+                            return WrappedValues.<T>unescapeNull(computation.computedValue);
+                        }
+                        return recursionDetected(computation);
+                    }
+                    if (!computation.await()) {
+                        return recursionDetected(computation);
+                    }
+                }
+                else if (_value == NotValue.RECURSION_WAS_DETECTED) {
+                    return recursionDetected(/* firstTime = */ false);
+                }
+                else if (_value != NotValue.NOT_COMPUTED) {
+                    return WrappedValues.unescapeThrowable(_value);
+                }
+                else {
+                    Computation computation = new Computation();
+                    if (VALUE_UPDATER.compareAndSet(this, NotValue.NOT_COMPUTED, computation)) {
+                        return compute(computation);
+                    }
+                }
+            }
+        }
+
+        private T compute(@NotNull Computation computation) {
+            try {
+                T typedValue = computable.invoke();
+                computation.computedValue = WrappedValues.escapeNull(typedValue);
+                postCompute(typedValue);
+                value = typedValue;
+                return typedValue;
+            }
+            catch (Throwable throwable) {
+                if (computation.computedValue != NotValue.NOT_COMPUTED) {
+                    // The value is computed, and something has been thrown by postCompute()
+                    value = WrappedValues.unescapeNull(computation.computedValue);
+                }
+                else if (computation.recursionDetected) {
+                    // Not a genuine result, but something thrown through recursionDetected(). The marker is published only when
+                    // the computation is finished, so that threads which aren't recursive never see it while the value is being computed
+                    value = NotValue.RECURSION_WAS_DETECTED;
+                }
+                else {
+                    value = WrappedValues.escapeThrowable(throwable);
+                }
+                throw storageManager.exceptionHandlingStrategy.handleException(throwable);
+            }
+            finally {
+                computation.finish();
+            }
+        }
+
+        private T recursionDetected(@NotNull Computation computation) {
+            boolean firstTime = !computation.recursionDetected;
+            computation.recursionDetected = true;
+            return recursionDetected(firstTime);
+        }
+
+        /**
+         * @param firstTime {@code true} when recursion has been just detected, {@code false} otherwise
+         * @return a value to be returned on a recursive call or subsequent calls
+         */
+        protected T recursionDetected(boolean firstTime) {
+            throw LockBasedStorageManager.sanitizeStackTrace(
+                    new IllegalStateException("Recursive call in a lazy value under " + storageManager)
+            );
+        }
+
+        protected void postCompute(T value) {
+            // Doing something in post-compute helps prevent infinite recursion
+        }
+    }
+
+    private static class ConcurrentNotNullLazyValue<T> extends ConcurrentLazyValue<T> implements NotNullLazyValue<T> {
+        public ConcurrentNotNullLazyValue(@NotNull ConcurrentStorageManager storageManager, @NotNull Function0<? extends T> computable) {
+            super(storageManager, computable);
+        }
+
+        @Override
+        @NotNull
+        public T invoke() {
+            T result = super.invoke();
+            assert result != null : "compute() returned null";
+            return result;
+        }
+    }
+
+    private static class MapBasedMemoizedFunction<K, V> implements MemoizedFunctionToNullable<K, V> {
+        private final ConcurrentStorageManager storageManager;
+        private final ConcurrentMap<K, Object> cache;
+        private final Function1<? super K, ? extends V> compute;
+
+        public MapBasedMemoizedFunction(
+                @NotNull ConcurrentStorageManager storageManager,
+                @NotNull ConcurrentMap<K, Object> map,
+                @NotNull Function1<? super K, ? extends V> compute
+        ) {
+            this.storageManager = storageManager;
+            this.cache = map;
+            this.compute = compute;
+        }
+
+        @Override
+        @Nullable
+        public V invoke(K input) {
+            while (true) {
+                Object value = cache.get(input);
+                if (value instanceof Computation) {
+                    Computation computation = (Computation) value;
+                    if (computation.isOwnedByCurrentThread() || !computation.await()) {
+                        throw recursionDetected(input);
+                    }
+                }
+                else if (value != null) {
+                    return WrappedValues.unescapeExceptionOrNull(value);
+                }
+                else {
+                    Computation computation = new Computation();
+                    if (cache.putIfAbsent(input, computation) == null) {
+                        return compute(input, computation);
+                    }
+                }
+            }
+        }
+
+        private V compute(K input, @NotNull Computation computation) {
+            try {
+                V typedValue = compute.invoke(input);
+                cache.put(input, WrappedValues.escapeNull(typedValue));
+                return typedValue;
+            }
+            catch (Throwable throwable) {
+                cache.put(input, WrappedValues.escapeThrowable(throwable));
+                throw storageManager.exceptionHandlingStrategy.handleException(throwable);
+            }
+            finally {
+                computation.finish();
+            }
+        }
+
+        @NotNull
+        private AssertionError recursionDetected(K input) {
+            return LockBasedStorageManager.sanitizeStackTrace(
+                    new AssertionError("Recursion detected on input: " + input + " under " + storageManager)
+            );
+        }
+
+        @Override
+        public boolean isComputed(K key) {
+            Object value = cache.get(key);
+            return value != null && !(value instanceof Computation);
+        }
+
+        protected ConcurrentStorageManager getStorageManager() {
+            return storageManager;
+        }
+    }
+
+    private static class MapBasedMemoizedFunctionToNotNull<K, V> extends MapBasedMemoizedFunction<K, V> implements MemoizedFunctionToNotNull<K, V> {
+        public MapBasedMemoizedFunctionToNotNull(
+                @NotNull ConcurrentStorageManager storageManager, @NotNull ConcurrentMap<K, Object> map,
+                @NotNull Function1<? super K, ? extends V> compute
+        ) {
+            super(storageManager, map, compute);
+        }
+
+        @NotNull
+        @Override
+        public V invoke(K input) {
+            V result = super.invoke(input);
+            assert result != null : "compute() returned null under " + getStorageManager();
+            return result;
+        }
+    }
+
+    private static class CacheWithNullableValuesBasedOnMemoizedFunction<K, V> extends MapBasedMemoizedFunction<KeyWithComputation<K, V>, V> implements CacheWithNullableValues<K, V> {
+        private CacheWithNullableValuesBasedOnMemoizedFunction(
+                @NotNull ConcurrentStorageManager storageManager,
+                @NotNull ConcurrentMap<KeyWithComputation<K, V>, Object> map
+        ) {
+            super(storageManager, map, new Function1<KeyWithComputation<K, V>, V>() {
+                @Override
+                public V invoke(KeyWithComputation<K, V> computation) {
+                    return computation.computation.invoke();
+                }
+            });
+        }
+
+        @Nullable
+        @Override
+        public V computeIfAbsent(K key, @NotNull Function0<? extends V> computation) {
+            return invoke(new KeyWithComputation<K, V>(key, computation));
+        }
+    }
+
+    private static class CacheWithNotNullValuesBasedOnMemoizedFunction<K, V> extends CacheWithNullableValuesBasedOnMemoizedFunction<K, V> implements CacheWithNotNullValues<K, V> {
+        private CacheWithNotNullValuesBasedOnMemoizedFunction(
+                @NotNull ConcurrentStorageManager storageManager,
+                @NotNull ConcurrentMap<KeyWithComputation<K, V>, Object> map
+        ) {
+            super(storageManager, map);
+        }
+
+        @NotNull
+        @Override
+        public V computeIfAbsent(K key, @NotNull Function0<? extends V> computation) {
+            V result = super.computeIfAbsent(key, computation);
+            assert result != null : "computeIfAbsent() returned null under " + getStorageManager();
+            return result;
+        }
+    }
+
+    // equals and hashCode use only key
+    private static class KeyWithComputation<K, V> {
+        private final K key;
+        private final Function0<? extends V> computation;
+
+        public KeyWithComputation(K key, Function0<? extends V> computation) {
+            this.key = key;
+            this.computation = computation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            KeyWithComputation<?, ?> that = (KeyWithComputation<?, ?>) o;
+
+            return key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+    }
+}
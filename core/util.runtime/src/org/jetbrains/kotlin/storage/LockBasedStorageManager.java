@@ -482,7 +482,7 @@ public class LockBasedStorageManager implements StorageManager {
     }
 
     @NotNull
-    private static <T extends Throwable> T sanitizeStackTrace(@NotNull T throwable) {
+    static <T extends Throwable> T sanitizeStackTrace(@NotNull T throwable) {
         StackTraceElement[] stackTrace = throwable.getStackTrace();
         int size = stackTrace.length;
 
@@ -494,7 +494,7 @@ public class LockBasedStorageManager implements StorageManager {
                 break;
             }
         }
-        assert firstNonStorage >= 0 : "This method should only be called on exceptions created in LockBasedStorageManager";
+        assert firstNonStorage >= 0 : "This method should only be called on exceptions created in storage managers";
 
         List<StackTraceElement> list = Arrays.asList(stackTrace).subList(firstNonStorage, size);
         throwable.setStackTrace(list.toArray(new StackTraceElement[list.size()]));
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.benchmarks;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.psi.search.GlobalSearchScope;
+import kotlin.jvm.functions.Function1;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.analyzer.AnalysisResult;
+import org.jetbrains.kotlin.backend.common.output.OutputFile;
+import org.jetbrains.kotlin.cli.common.CLIConfigurationKeys;
+import org.jetbrains.kotlin.cli.common.messages.MessageCollector;
+import org.jetbrains.kotlin.cli.jvm.compiler.CliLightClassGenerationSupport;
+import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles;
+import org.jetbrains.kotlin.cli.jvm.compiler.JvmPackagePartProvider;
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment;
+import org.jetbrains.kotlin.cli.jvm.config.JvmContentRootsKt;
+import org.jetbrains.kotlin.codegen.ClassBuilderFactories;
+import org.jetbrains.kotlin.codegen.CompilationErrorHandler;
+import org.jetbrains.kotlin.codegen.KotlinCodegenFacade;
+import org.jetbrains.kotlin.codegen.state.GenerationState;
+import org.jetbrains.kotlin.config.CommonConfigurationKeys;
+import org.jetbrains.kotlin.config.CompilerConfiguration;
+import org.jetbrains.kotlin.load.kotlin.PackagePartProvider;
+import org.jetbrains.kotlin.psi.KtFile;
+import org.jetbrains.kotlin.psi.KtPsiFactory;
+import org.jetbrains.kotlin.resolve.AnalyzingUtils;
+import org.jetbrains.kotlin.resolve.jvm.TopDownAnalyzerFacadeForJVM;
+import org.jetbrains.kotlin.utils.PathUtil;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base class for benchmarks which need a compiler environment. The environment and the PSI of {@link #createSources()} are created
+ * once per trial, so that the measured operations don't include the environment setup and the parsing.
+ */
+@State(Scope.Benchmark)
+public abstract class AbstractCompilerBenchmark {
+    private Disposable disposable;
+    protected CompilerConfiguration configuration;
+    protected KotlinCoreEnvironment environment;
+    protected List<KtFile> files;
+
+    @NotNull
+    protected abstract Map<String, String> createSources();
+
+    @Setup(Level.Trial)
+    public void setUpEnvironment() {
+        disposable = Disposer.newDisposable();
+
+        configuration = new CompilerConfiguration();
+        configuration.put(CommonConfigurationKeys.MODULE_NAME, "benchmark");
+        configuration.put(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, MessageCollector.NONE);
+        JvmContentRootsKt.addJvmClasspathRoots(configuration, PathUtil.getJdkClassesRoots());
+        JvmContentRootsKt.addJvmClasspathRoot(configuration, PathUtil.getResourcePathForClass(kotlin.Unit.class));
+
+        environment = KotlinCoreEnvironment.createForProduction(disposable, configuration, EnvironmentConfigFiles.JVM_CONFIG_FILES);
+
+        files = createFiles(createSources());
+
+        // Fail fast if the sources are incorrect, otherwise the numbers would be measured on a shortcut path
+        AnalyzingUtils.throwExceptionOnErrors(analyze().getBindingContext());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownEnvironment() {
+        Disposer.dispose(disposable);
+        disposable = null;
+        configuration = null;
+        environment = null;
+        files = null;
+    }
+
+    @NotNull
+    protected List<KtFile> createFiles(@NotNull Map<String, String> sources) {
+        KtPsiFactory psiFactory = new KtPsiFactory(environment.getProject());
+        List<KtFile> result = new ArrayList<KtFile>(sources.size());
+        for (Map.Entry<String, String> entry : sources.entrySet()) {
+            result.add(psiFactory.createFile(entry.getKey(), entry.getValue()));
+        }
+        return result;
+    }
+
+    @NotNull
+    protected AnalysisResult analyze() {
+        return TopDownAnalyzerFacadeForJVM.analyzeFilesWithJavaIntegration(
+                environment.getProject(), files, new CliLightClassGenerationSupport.NoScopeRecordCliBindingTrace(), configuration,
+                new Function1<GlobalSearchScope, PackagePartProvider>() {
+                    @Override
+                    public PackagePartProvider invoke(GlobalSearchScope scope) {
+                        return new JvmPackagePartProvider(environment, scope);
+                    }
+                }
+        );
+    }
+
+    /**
+     * @return the total size of the generated class files, which includes writing out the bytecode
+     */
+    protected int generate(@NotNull AnalysisResult analysisResult) {
+        GenerationState state = new GenerationState(
+                environment.getProject(), ClassBuilderFactories.binaries(false), analysisResult.getModuleDescriptor(),
+                analysisResult.getBindingContext(), files, configuration
+        );
+        try {
+            KotlinCodegenFacade.compileCorrectFiles(state, CompilationErrorHandler.THROW_EXCEPTION);
+
+            int size = 0;
+            for (OutputFile file : state.getFactory().asList()) {
+                size += file.asByteArray().length;
+            }
+            return size;
+        }
+        finally {
+            state.destroy();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.benchmarks;
+
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Runs the benchmarks and compares the results with the checked-in baseline.
+ *
+ * All benchmarks report the average time per operation, so a score greater than the baseline one by more than the allowed
+ * regression (10% by default, see {@link #MAX_REGRESSION_PROPERTY}) fails the run, and so does a benchmark missing from a
+ * recorded baseline. Until the baseline is recorded, the scores are only reported. With {@link #RECORD_PROPERTY} set
+ * the results are written to the baseline instead. Arguments are passed to JMH as is, e.g. a regexp to run only some benchmarks.
+ */
+public class BenchmarkMain {
+    public static final String BASELINE_PROPERTY = "benchmarks.baseline";
+    public static final String RECORD_PROPERTY = "benchmarks.record";
+    public static final String MAX_REGRESSION_PROPERTY = "benchmarks.max.regression";
+
+    private static final String DEFAULT_BASELINE = "baseline/baseline.properties";
+    private static final double DEFAULT_MAX_REGRESSION = 0.1;
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        Collection<RunResult> results = new Runner(new CommandLineOptions(args)).run();
+
+        File baselineFile = new File(System.getProperty(BASELINE_PROPERTY, DEFAULT_BASELINE));
+        Properties baseline = loadBaseline(baselineFile);
+
+        if (Boolean.getBoolean(RECORD_PROPERTY)) {
+            for (RunResult result : results) {
+                baseline.setProperty(getKey(result), String.valueOf(result.getPrimaryResult().getScore()));
+            }
+            storeBaseline(baseline, baselineFile);
+            System.out.println("Baseline is written to " + baselineFile.getAbsolutePath());
+            return;
+        }
+
+        double maxRegression = Double.parseDouble(System.getProperty(MAX_REGRESSION_PROPERTY, String.valueOf(DEFAULT_MAX_REGRESSION)));
+        List<String> regressions = new ArrayList<String>();
+        List<String> missing = new ArrayList<String>();
+        for (RunResult result : results) {
+            String key = getKey(result);
+            Result primary = result.getPrimaryResult();
+
+            String expected = baseline.getProperty(key);
+            if (expected == null) {
+                missing.add(String.format("%s: %.3f %s", key, primary.getScore(), primary.getScoreUnit()));
+                continue;
+            }
+
+            double expectedScore = Double.parseDouble(expected);
+            if (primary.getScore() > expectedScore * (1 + maxRegression)) {
+                regressions.add(String.format("%s: %.3f %s, baseline: %.3f", key, primary.getScore(), primary.getScoreUnit(), expectedScore));
+            }
+        }
+
+        if (baseline.isEmpty()) {
+            System.out.println("No baseline is recorded in " + baselineFile.getAbsolutePath() + ", record it with -D" + RECORD_PROPERTY + "=true");
+            printAll(System.out, missing);
+            return;
+        }
+
+        if (!missing.isEmpty()) {
+            System.err.println("No baseline in " + baselineFile.getAbsolutePath() + " for (record it with -D" + RECORD_PROPERTY + "=true):");
+            printAll(System.err, missing);
+        }
+        if (!regressions.isEmpty()) {
+            System.err.println("Regressions compared to " + baselineFile.getAbsolutePath() + ":");
+            printAll(System.err, regressions);
+        }
+        if (!missing.isEmpty() || !regressions.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    private static void printAll(PrintStream stream, List<String> lines) {
+        for (String line : lines) {
+            stream.println("  " + line);
+        }
+    }
+
+    // Benchmark name with parameters, e.g. "org.jetbrains.kotlin.benchmarks.SlicedMapBenchmark.recordAndRead[implementation=default,keyCount=10000]"
+    private static String getKey(RunResult result) {
+        StringBuilder sb = new StringBuilder(result.getParams().getBenchmark());
+        Collection<String> paramKeys = result.getParams().getParamsKeys();
+        if (!paramKeys.isEmpty()) {
+            sb.append('[');
+            boolean first = true;
+            for (String paramKey : new TreeSet<String>(paramKeys)) {
+                if (!first) sb.append(',');
+                sb.append(paramKey).append('=').append(result.getParams().getParam(paramKey));
+                first = false;
+            }
+            sb.append(']');
+        }
+        return sb.toString();
+    }
+
+    private static Properties loadBaseline(File file) throws IOException {
+        Properties properties = new Properties();
+        if (file.exists()) {
+            InputStream input = new FileInputStream(file);
+            try {
+                properties.load(input);
+            }
+            finally {
+                input.close();
+            }
+        }
+        return properties;
+    }
+
+    private static void storeBaseline(Properties properties, File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory " + parent);
+        }
+
+        OutputStream output = new FileOutputStream(file);
+        try {
+            properties.store(output, "Average time per operation, see ReadMe.md");
+        }
+        finally {
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.benchmarks;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.analyzer.AnalysisResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates bytecode for the synthetic project (see {@link LazyResolveBenchmark}). The analysis is done once per trial,
+ * so the numbers are for {@code ExpressionCodegen} and the rest of the backend only.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CodegenBenchmark extends AbstractCompilerBenchmark {
+    private AnalysisResult analysisResult;
+
+    @NotNull
+    @Override
+    protected Map<String, String> createSources() {
+        return SyntheticSources.project(100, 10);
+    }
+
+    @Setup(Level.Trial)
+    public void analyzeSources() {
+        analysisResult = analyze();
+    }
+
+    @Benchmark
+    public int generateProject() {
+        return generate(analysisResult);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.benchmarks;
+
+import kotlin.jvm.internal.Reflection;
+import kotlin.reflect.KClass;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code Foo::class} with kotlin-reflect in the classpath, which is a lookup in the cache of KClass instances:
+ * repeated lookups of the same class, lookups of many different classes, and lookups from several threads at once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KClassCacheBenchmark {
+    private static final Class<?>[] CLASSES = {
+            Object.class, String.class, Integer.class, Long.class, Double.class, Boolean.class, Character.class, Byte.class,
+            Short.class, Float.class, Number.class, CharSequence.class, StringBuilder.class, Thread.class, Runnable.class,
+            Iterable.class, Collection.class, List.class, ArrayList.class, LinkedList.class, Set.class, HashSet.class,
+            LinkedHashSet.class, TreeSet.class, Map.class, HashMap.class, LinkedHashMap.class, TreeMap.class, Deque.class,
+            ArrayDeque.class, Iterator.class, Comparator.class, Random.class, UUID.class, Date.class, Locale.class,
+            kotlin.Unit.class, kotlin.Pair.class, kotlin.Triple.class, kotlin.text.Regex.class, kotlin.ranges.IntRange.class,
+            kotlin.ranges.LongRange.class, kotlin.ranges.CharRange.class, kotlin.collections.IntIterator.class,
+            KClassCacheBenchmark.class
+    };
+
+    @Benchmark
+    public KClass<?> sameClass() {
+        return Reflection.getOrCreateKotlinClass(String.class);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(45)
+    public int manyClasses() {
+        int hash = 0;
+        for (Class<?> aClass : CLASSES) {
+            hash += System.identityHashCode(Reflection.getOrCreateKotlinClass(aClass));
+        }
+        return hash;
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(45)
+    public int manyClassesConcurrently() {
+        return manyClasses();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.benchmarks;
+
+import com.intellij.psi.PsiElement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.psi.KtFile;
+import org.jetbrains.kotlin.psi.KtTreeVisitorVoid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the sources of the synthetic project (see {@link LazyResolveBenchmark}) and builds the complete PSI.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ParsingBenchmark extends AbstractCompilerBenchmark {
+    private Map<String, String> sources;
+
+    @NotNull
+    @Override
+    protected Map<String, String> createSources() {
+        sources = SyntheticSources.project(100, 10);
+        return sources;
+    }
+
+    @Benchmark
+    public int parse() {
+        final int[] elements = new int[1];
+        KtTreeVisitorVoid visitor = new KtTreeVisitorVoid() {
+            @Override
+            public void visitElement(PsiElement element) {
+                elements[0]++;
+                super.visitElement(element);
+            }
+        };
+
+        // Files are created as non-physical, so the tree is built from scratch on each traversal of a new file
+        List<KtFile> parsed = createFiles(sources);
+        for (KtFile file : parsed) {
+            file.accept(visitor);
+        }
+        return elements[0];
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.benchmarks;
+
+import org.jetbrains.kotlin.util.slicedMap.MutableSlicedMap;
+import org.jetbrains.kotlin.util.slicedMap.OpenAddressingSlicedMap;
+import org.jetbrains.kotlin.util.slicedMap.SlicedMapImpl;
+import org.jetbrains.kotlin.util.slicedMap.Slices;
+import org.jetbrains.kotlin.util.slicedMap.WritableSlice;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares implementations of the map behind binding traces on an access pattern similar to the one of the resolve:
+ * each key (a PSI element there) is recorded in a few slices and then read many times.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SlicedMapBenchmark {
+    private static final int SLICE_COUNT = 32;
+    private static final int SLICES_PER_KEY = 4;
+    private static final int READS_PER_SLICE = 4;
+
+    @Param({"default", "openAddressing"})
+    public String implementation;
+
+    @Param({"10000"})
+    public int keyCount;
+
+    private WritableSlice<Object, Object>[] slices;
+    private Object[] keys;
+    private Object[] values;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        slices = new WritableSlice[SLICE_COUNT];
+        for (int i = 0; i < SLICE_COUNT; i++) {
+            slices[i] = Slices.createSimpleSlice();
+        }
+
+        keys = new Object[keyCount];
+        values = new Object[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = new Object();
+            values[i] = "value" + i;
+        }
+    }
+
+    private MutableSlicedMap createMap() {
+        if ("default".equals(implementation)) return SlicedMapImpl.create();
+        if ("openAddressing".equals(implementation)) return OpenAddressingSlicedMap.create();
+        throw new IllegalArgumentException("Unknown implementation: " + implementation);
+    }
+
+    @Benchmark
+    public int recordAndRead() {
+        MutableSlicedMap map = createMap();
+
+        for (int i = 0; i < keyCount; i++) {
+            for (int j = 0; j < SLICES_PER_KEY; j++) {
+                map.put(slices[(i + j * 7) % SLICE_COUNT], keys[i], values[i]);
+            }
+        }
+
+        int found = 0;
+        for (int read = 0; read < READS_PER_SLICE; read++) {
+            for (int i = 0; i < keyCount; i++) {
+                for (int j = 0; j < SLICES_PER_KEY + 1; j++) {
+                    if (map.get(slices[(i + j * 7) % SLICE_COUNT], keys[i]) != null) found++;
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.benchmarks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Generates Kotlin sources the benchmarks are run on. The sources are deterministic, so numbers from different runs are comparable.
+ */
+public class SyntheticSources {
+    private SyntheticSources() {
+    }
+
+    /**
+     * A project of {@code fileCount * classesPerFile} classes with inheritance, properties, calls across files and local lambdas.
+     */
+    public static Map<String, String> project(int fileCount, int classesPerFile) {
+        Map<String, String> result = new LinkedHashMap<String, String>();
+        for (int file = 0; file < fileCount; file++) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("package synthetic.p").append(file % 10).append("\n\n");
+            sb.append("import synthetic.p0.*\n\n");
+
+            for (int k = 0; k < classesPerFile; k++) {
+                int index = file * classesPerFile + k;
+                String name = "C" + index;
+                String previous = index > 0 ? "synthetic.p" + ((index - 1) / classesPerFile % 10) + ".C" + (index - 1) : null;
+
+                sb.append("interface I").append(index).append(" {\n");
+                sb.append("    fun compute(x: Int): Int\n");
+                sb.append("    val name: String get() = \"").append(name).append("\"\n");
+                sb.append("}\n\n");
+
+                sb.append("open class ").append(name).append("(val id: Int, var state: String = \"\") : I").append(index).append(" {\n");
+                sb.append("    private val cache = mutableMapOf<Int, String>()\n");
+                sb.append("    val size: Int get() = cache.size + id\n\n");
+                sb.append("    override fun compute(x: Int): Int {\n");
+                sb.append("        val list = (0..x).map { it * id }.filter { it % 2 == 0 }\n");
+                sb.append("        return list.fold(0) { acc, v -> acc + v } + size\n");
+                sb.append("    }\n\n");
+                sb.append("    fun describe(prefix: String?): String {\n");
+                sb.append("        val p = prefix ?: \"none\"\n");
+                sb.append("        return when {\n");
+                sb.append("            id > 100 -> \"$p big $id\"\n");
+                sb.append("            state.isEmpty() -> cache.getOrPut(id) { \"$p $name\" }\n");
+                sb.append("            else -> p + state\n");
+                sb.append("        }\n");
+                sb.append("    }\n");
+                if (previous != null) {
+                    sb.append("\n    fun link(other: ").append(previous).append("): Int = other.compute(id) + compute(other.id)\n");
+                }
+                sb.append("\n    companion object {\n");
+                sb.append("        fun create(id: Int) = ").append(name).append("(id)\n");
+                sb.append("    }\n");
+                sb.append("}\n\n");
+
+                sb.append("fun ").append(name).append(".extension").append(index).append("(s: String): List<String> =\n");
+                sb.append("        s.split(',').map { it.trim() + describe(it) }\n\n");
+            }
+
+            result.put("File" + file + ".kt", sb.toString());
+        }
+        return result;
+    }
+
+    /**
+     * A file dominated by calls which require overload resolution: overloads by parameter type, defaults, varargs,
+     * extensions shadowed by members, generic functions and implicit receivers.
+     */
+    public static Map<String, String> overloadedCalls(int functionCount) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package synthetic.calls\n\n");
+        sb.append("fun f(x: Int) = x\n");
+        sb.append("fun f(x: Long) = x\n");
+        sb.append("fun f(x: Number) = x\n");
+        sb.append("fun f(x: Any?) = x\n");
+        sb.append("fun f(x: String, y: Int = 0) = x.length + y\n");
+        sb.append("fun f(vararg xs: Int) = xs.size\n");
+        sb.append("fun <T : Comparable<T>> f(x: T, y: T) = if (x > y) x else y\n");
+        sb.append("fun Int.f() = this + 1\n");
+        sb.append("fun String.f(y: Int) = length * y\n\n");
+        sb.append("class Receiver {\n");
+        sb.append("    fun f(x: Int) = x * 2\n");
+        sb.append("    fun f(x: CharSequence) = x.length\n");
+        sb.append("}\n\n");
+
+        for (int i = 0; i < functionCount; i++) {
+            sb.append("fun use").append(i).append("(r: Receiver, s: String, n: Int?) {\n");
+            sb.append("    f(").append(i).append(")\n");
+            sb.append("    f(").append(i).append("L)\n");
+            sb.append("    f(1.5)\n");
+            sb.append("    f(s)\n");
+            sb.append("    f(s, ").append(i).append(")\n");
+            sb.append("    f(1, 2, 3)\n");
+            sb.append("    f(\"a\", \"b\")\n");
+            sb.append("    f(n)\n");
+            sb.append("    ").append(i).append(".f()\n");
+            sb.append("    s.f(").append(i).append(")\n");
+            sb.append("    with(r) {\n");
+            sb.append("        f(").append(i).append(")\n");
+            sb.append("        f(s)\n");
+            sb.append("        f(StringBuilder(s))\n");
+            sb.append("    }\n");
+            sb.append("    listOf(s, \"x\").map { f(it) }.maxBy { it }\n");
+            sb.append("    n?.let { f(it) + r.f(it) }\n");
+            sb.append("}\n\n");
+        }
+
+        Map<String, String> result = new LinkedHashMap<String, String>();
+        result.put("Calls.kt", sb.toString());
+        return result;
+    }
+
+    /**
+     * A file dominated by calls of inline functions: lambdas inlined into loops and try/finally, nested inline calls,
+     * reified type parameters and crossinline lambdas captured in anonymous objects.
+     */
+    public static Map<String, String> inlineCalls(int functionCount) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package synthetic.inline\n\n");
+        sb.append("inline fun <T> measure(block: () -> T): T {\n");
+        sb.append("    val start = System.nanoTime()\n");
+        sb.append("    try {\n");
+        sb.append("        return block()\n");
+        sb.append("    }\n");
+        sb.append("    finally {\n");
+        sb.append("        if (System.nanoTime() - start < 0) throw IllegalStateException()\n");
+        sb.append("    }\n");
+        sb.append("}\n\n");
+        sb.append("inline fun repeatIndexed(times: Int, action: (Int) -> Unit) {\n");
+        sb.append("    for (i in 0 until times) measure { action(i) }\n");
+        sb.append("}\n\n");
+        sb.append("inline fun <reified T> Iterable<*>.countOf(): Int {\n");
+        sb.append("    var count = 0\n");
+        sb.append("    for (e in this) if (e is T) count++\n");
+        sb.append("    return count\n");
+        sb.append("}\n\n");
+        sb.append("inline fun runLater(crossinline action: () -> Unit): Runnable = object : Runnable {\n");
+        sb.append("    override fun run() = action()\n");
+        sb.append("}\n\n");
+
+        for (int i = 0; i < functionCount; i++) {
+            sb.append("fun inlined").append(i).append("(items: List<Any>): Int {\n");
+            sb.append("    var sum = 0\n");
+            sb.append("    repeatIndexed(").append(i % 7 + 1).append(") { k ->\n");
+            sb.append("        sum += measure { items.countOf<String>() + k }\n");
+            sb.append("        items.forEach { if (it is Int) sum += it }\n");
+            sb.append("    }\n");
+            sb.append("    runLater { sum += items.countOf<Int>() }.run()\n");
+            sb.append("    return items.filterIsInstance<Number>().sumBy { it.toInt() } + sum\n");
+            sb.append("}\n\n");
+        }
+
+        Map<String, String> result = new LinkedHashMap<String, String>();
+        result.put("Inline.kt", sb.toString());
+        return result;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2010-2017 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.benchmarks;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.analyzer.AnalysisResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the workload of {@link LazyResolveBenchmark} with both implementations of the map behind binding traces.
+ * The implementation is chosen once per JVM by the {@code kotlin.trace.open.addressing.sliced.map} system property,
+ * so the benchmarks differ only in the arguments of their forks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class TraceSlicedMapBenchmark extends AbstractCompilerBenchmark {
+    @NotNull
+    @Override
+    protected Map<String, String> createSources() {
+        return SyntheticSources.project(100, 10);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dkotlin.trace.open.addressing.sliced.map=false")
+    public AnalysisResult analyzeWithSlicedMapImpl() {
+        return analyze();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dkotlin.trace.open.addressing.sliced.map=true")
+    public AnalysisResult analyzeWithOpenAddressingSlicedMap() {
+        return analyze();
+    }
+}